@@ -95,11 +95,18 @@ public class GgfMatch {
     }
 
     public static BufferedReader getBufferedReaderForBZ2File(Path fileIn) throws IOException, CompressorException {
+        return new BufferedReader(new InputStreamReader(getInputStreamForBZ2File(fileIn)));
+    }
+
+    /**
+     * Open a compressed file for reading as bytes
+     *
+     * @param fileIn location of the compressed file
+     * @return stream of the decompressed bytes
+     */
+    public static CompressorInputStream getInputStreamForBZ2File(Path fileIn) throws IOException, CompressorException {
         InputStream fin = Files.newInputStream(fileIn);
         BufferedInputStream bis = new BufferedInputStream(fin);
-        CompressorInputStream input = new CompressorStreamFactory().createCompressorInputStream(bis);
-        BufferedReader br2 = new BufferedReader(new InputStreamReader(input));
-
-        return br2;
+        return new CompressorStreamFactory().createCompressorInputStream(bis);
     }
 }
@@ -1,5 +1,6 @@
 package com.welty.novello.book;
 
+import com.welty.novello.core.GameStore;
 import com.welty.novello.core.MutableGame;
 import com.welty.novello.selfplay.SearchDepths;
 import com.welty.othello.gdk.COsGame;
@@ -8,6 +9,10 @@ import com.welty.othello.thor.PrintingProgressTracker;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 
 /**
  * Generates a book from existing games
@@ -35,6 +40,34 @@ public class BookGenerator {
 
         final String thorDbLocation = "/home/chris/dev/mongo/npack/nboard/db/ffo";
 
+        // create book from WOC games
+        final Book book = Book.load();
+
+        // The selection needs the whole thor database, which is slow to load, so it is cached as a GameStore.
+        final Path selectedGamesPath = Paths.get(thorDbLocation).resolve("novello-selected.games");
+        if (!Files.exists(selectedGamesPath)) {
+            selectGames(thorDbLocation, selectedGamesPath);
+        }
+        final GameStore games = GameStore.open(selectedGamesPath);
+        System.out.println("Adding " + games.size() + " games from " + selectedGamesPath);
+        for (int i = 0; i < games.size(); i++) {
+            book.add(games.getGame(i));
+        }
+
+        System.out.println("Size at 21 empty = " + book.sizeAtEmpty(21));
+        System.out.println("Size at 26 empty = " + book.sizeAtEmpty(26));
+
+        book.negamax(new MultithreadedAdder(book, midgameDepth), true, bookLocation);
+
+    }
+
+    /**
+     * Select interesting games from the thor database and write them to a GameStore.
+     *
+     * @param thorDbLocation directory containing the thor database
+     * @param path           location of the GameStore
+     */
+    private static void selectGames(String thorDbLocation, Path path) throws IOException {
         // add all WOC games to book.
         final DatabaseData dd = new DatabaseData();
         dd.loadFromDirectory(new File(thorDbLocation), new PrintingProgressTracker("games"));
@@ -44,36 +77,31 @@ public class BookGenerator {
         int nBotGames = 0;
         int nEdaxGames = 0;
 
-        // create book from WOC games
-        final Book book = Book.load();
-
-        for (int i=0; i<n; i++) {
-            final COsGame game = dd.GameFromIndex(i);
-            final int year = dd.getGameYear(i);
+        final Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (GameStore.Writer games = GameStore.create(tmpPath)) {
+            for (int i = 0; i < n; i++) {
+                final COsGame game = dd.GameFromIndex(i);
+                final int year = dd.getGameYear(i);
 
-            if (game.sPlace.equals("Championnat du Monde")) {
-                book.add(MutableGame.of(game));
-            }
-            if (isStrongBot(game.getBlackPlayer().name) && isStrongBot(game.getWhitePlayer().name)) {
-                book.add(MutableGame.of(game));
-                nBotGames++;
-            }
+                if (game.sPlace.equals("Championnat du Monde")) {
+                    games.add(MutableGame.of(game));
+                }
+                if (isStrongBot(game.getBlackPlayer().name) && isStrongBot(game.getWhitePlayer().name)) {
+                    games.add(MutableGame.of(game));
+                    nBotGames++;
+                }
 
-            if (year == 2009 && game.getBlackPlayer().name.equals("???") && game.getWhitePlayer().name.equals("???") && game.sPlace.equals("Diverses parties")) {
-                nEdaxGames++;
-                // about 200k edax games. Taking every 25th one results in about 8k games to add to book.
-                if (nEdaxGames % 25 == 0) {
-                    book.add(MutableGame.of(game));
+                if (year == 2009 && game.getBlackPlayer().name.equals("???") && game.getWhitePlayer().name.equals("???") && game.sPlace.equals("Diverses parties")) {
+                    nEdaxGames++;
+                    // about 200k edax games. Taking every 25th one results in about 8k games to add to book.
+                    if (nEdaxGames % 25 == 0) {
+                        games.add(MutableGame.of(game));
+                    }
                 }
             }
         }
-
-        System.out.println("Size at 21 empty = " + book.sizeAtEmpty(21));
-        System.out.println("Size at 26 empty = " + book.sizeAtEmpty(26));
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
         System.out.println("# bot games = " + nBotGames);
-
-        book.negamax(new MultithreadedAdder(book, midgameDepth), true, bookLocation);
-
     }
 
     private static final String[] strongBots = "ntest,edax,saio,zebra,yohoho,cruel+".split(",");
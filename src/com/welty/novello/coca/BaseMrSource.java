@@ -16,6 +16,7 @@
 package com.welty.novello.coca;
 
 import com.orbanova.common.misc.Logger;
+import com.welty.novello.core.GameStore;
 import com.welty.novello.core.MeValue;
 import com.welty.novello.core.MinimalReflection;
 import com.welty.novello.core.ObjectFeed;
@@ -46,8 +47,11 @@ public class BaseMrSource implements MrSource {
         if (!Files.exists(mrsPath)) {
             final Set<MinimalReflection> mrSet = new HashSet<>();
             Files.createDirectories(mrsPath.getParent());
-            final SelfPlaySet.PvCollector pvCollector = new SelfPlaySet.PvCollector();
-            SelfPlaySet.run(playoutPlayer, playoutPlayer, OsClock.LONG, pvCollector);
+            final SelfPlaySet.PvCollector pvCollector;
+            try (GameStore.Writer games = GameStore.create(mrsPath.resolveSibling("base.games"))) {
+                pvCollector = new SelfPlaySet.PvCollector(games);
+                SelfPlaySet.run(playoutPlayer, playoutPlayer, OsClock.LONG, pvCollector);
+            }
             for (MeValue pv : pvCollector.pvs) {
                 mrSet.add(new MinimalReflection(pv.mover, pv.enemy));
             }
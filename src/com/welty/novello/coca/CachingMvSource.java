@@ -31,17 +31,17 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.Executors;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * A MvSource that produces Mes by evaluation, caching the data to improve performance.
+ * <p/>
+ * Values are cached at two levels. Each MR valued by a player is recorded in that player's journal
+ * (see {@link MvJournal}), and the values for this source's MRs are then written to a cache file which is read
+ * on later runs. If the cache file is deleted or {@link #update()} is called, the cache file is rewritten from the
+ * journal and only MRs that are not in the journal are searched.
  */
 public class CachingMvSource implements MvSource {
     private static final Logger log = Logger.logger(CachingMvSource.class);
@@ -65,6 +65,39 @@ public class CachingMvSource implements MvSource {
         return loadOrCreatePvs();
     }
 
+    /**
+     * Get the MeValues as a memory-mapped store.
+     * <p/>
+     * The store file is converted from the cache file when it doesn't exist, is older than the cache file,
+     * or was not completely written.
+     *
+     * @return the store
+     */
+    public MvStore getStore() throws IOException {
+        final Path mvFile = getCacheFilePath();
+        if (!Files.exists(mvFile)) {
+            createMvs(mvFile);
+        }
+        return loadStore(mvFile);
+    }
+
+    static MvStore loadStore(Path mvFile) throws IOException {
+        final Path storeFile = mvFile.resolveSibling(mvFile.getFileName() + ".col");
+        if (Files.exists(storeFile) && Files.getLastModifiedTime(storeFile).compareTo(Files.getLastModifiedTime(mvFile)) >= 0) {
+            try {
+                return MvStore.map(storeFile);
+            } catch (IOException e) {
+                log.warn("Can't map " + storeFile + ", regenerating it: " + e);
+            }
+        }
+        final long t0 = System.currentTimeMillis();
+        MvStore.convert(mvFile, storeFile);
+        final MvStore store = MvStore.map(storeFile);
+        final long dt = System.currentTimeMillis() - t0;
+        System.out.format("...  converted %,d pvs to columns in %.3f s\n", store.size(), dt * .001);
+        return store;
+    }
+
     private List<MeValue> loadOrCreatePvs() throws IOException {
         final Path mvFile = getCacheFilePath();
         if (!Files.exists(mvFile)) {
@@ -108,46 +141,95 @@ public class CachingMvSource implements MvSource {
         }
     }
 
+    /**
+     * Bring the cache file up to date with the MrSource.
+     * <p/>
+     * Only MRs that this player has not already valued are searched, so this is cheap if the MrSource has grown
+     * only a little since the cache file was written.
+     */
+    public void update() throws IOException {
+        createMvs(getCacheFilePath());
+    }
+
+    /**
+     * @return location of the journal of MRs valued by this player.
+     * The journal is shared by all CachingMvSources with the same player, whatever their extension.
+     */
+    private Path getJournalPath() {
+        return getCacheDir().resolve(playerComponent() + ".mrv");
+    }
+
     /**
      * Generate a set of PositionValues for analysis and write them to a file.
+     * <p/>
+     * MRs that are already in the journal are not valued again. Newly valued MRs are appended to the journal as
+     * their searches complete, so if generation is interrupted it resumes where it left off.
      *
      * @param mvFile path to the file to be written.
      */
     private void createMvs(Path mvFile) throws IOException {
         log.info("Creating Pvs in " + mvFile + " ...");
-        final HashSet<MinimalReflection> subMrs = new HashSet<>(mrSource.getMrs());
+        final Set<MinimalReflection> mrs = mrSource.getMrs();
+        final MrHashSet requested = new MrHashSet(mrs.size());
+        for (MinimalReflection mr : mrs) {
+            requested.add(mr.mover, mr.enemy);
+        }
+
         Files.createDirectories(mvFile.getParent());
-        writePvs(mvFile, subMrs);
+        final Path journalPath = getJournalPath();
+        final MrHashSet valued = new MrHashSet(mrs.size());
+        MvJournal.read(journalPath, new MvJournal.Visitor() {
+            @Override public void visit(long mrMover, long mrEnemy, @NotNull List<MeValue> mvs) {
+                if (requested.contains(mrMover, mrEnemy)) {
+                    valued.add(mrMover, mrEnemy);
+                }
+            }
+        });
+        final List<MinimalReflection> unvalued = new ArrayList<>();
+        for (MinimalReflection mr : mrs) {
+            if (!valued.contains(mr.mover, mr.enemy)) {
+                unvalued.add(mr);
+            }
+        }
+        log.info(String.format("%,d of %,d mrs are already valued in %s", mrs.size() - unvalued.size(), mrs.size(), journalPath.getFileName()));
+
+        valueMrs(journalPath, unvalued);
+        writePvs(mvFile, journalPath, requested);
     }
 
     /**
-     * Generate PVs for each Mr and its successor
+     * Generate PVs for each Mr and its successor, appending them to the journal
      *
-     * @param file location to write PVs.
-     * @param mrs  MRs to use to generate PV.
+     * @param journalPath location of the journal
+     * @param mrs         MRs to use to generate PV.
      * @throws IOException
      */
-    private void writePvs(Path file, Set<MinimalReflection> mrs) throws IOException {
+    private void valueMrs(Path journalPath, List<MinimalReflection> mrs) throws IOException {
+        if (mrs.isEmpty()) {
+            return;
+        }
         log.info("Generating pvs for " + String.format("%,d", mrs.size()) + " mrs, each of which will generate 2 pvs (unless there is only one remaining move in the game)");
-        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+        final int nThreads = 4;
+        log.info("Starting Pvs executor service with " + nThreads + " threads");
+        final ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try (final MvJournal journal = MvJournal.openForAppend(journalPath)) {
             int nextMessage = 25000;
             int nWritten = 0;
 
-            final int nThreads = 4;
-            log.info("Starting Pvs executor service with " + nThreads + " threads");
-            final ExecutorCompletionService<List<MeValue>> ecs = new ExecutorCompletionService<>(Executors.newFixedThreadPool(nThreads));
+            final ExecutorCompletionService<List<MeValue>> ecs = new ExecutorCompletionService<>(executor);
 
-            log.info("Generating and writing pvs to " + file.getFileName() + " ...");
+            log.info("Generating and writing pvs to " + journalPath.getFileName() + " ...");
+            final Map<Future<List<MeValue>>, MinimalReflection> tasks = new HashMap<>();
             for (MinimalReflection mr : mrs) {
-                ecs.submit(new PvsTask(mr));
+                tasks.put(ecs.submit(new PvsTask(mr)), mr);
             }
 
             for (int i = 0; i < mrs.size(); i++) {
                 try {
-                    final List<MeValue> firstTwoPvs = ecs.take().get();
-                    for (MeValue pv : firstTwoPvs) {
-                        pv.write(out);
-                    }
+                    final Future<List<MeValue>> future = ecs.take();
+                    final MinimalReflection mr = tasks.remove(future);
+                    final List<MeValue> firstTwoPvs = future.get();
+                    journal.append(mr.mover, mr.enemy, firstTwoPvs);
                     nWritten += firstTwoPvs.size();
                     if (nWritten >= nextMessage) {
                         log.info(String.format("%,dk positions written", nWritten / 1000));
@@ -160,7 +242,37 @@ public class CachingMvSource implements MvSource {
                 }
             }
             log.info("Done writing pvs");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Write the PVs of the requested MRs from the journal to the cache file.
+     * <p/>
+     * The file is written under a temporary name and renamed when complete, so an interrupted run never leaves a
+     * partial cache file.
+     *
+     * @param file        location to write PVs.
+     * @param journalPath location of the journal
+     * @param requested   MRs whose PVs are written
+     */
+    private static void writePvs(Path file, Path journalPath, final MrHashSet requested) throws IOException {
+        final Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+        final MrHashSet written = new MrHashSet(requested.size());
+        try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+            MvJournal.read(journalPath, new MvJournal.Visitor() {
+                @Override public void visit(long mrMover, long mrEnemy, @NotNull List<MeValue> mvs) throws IOException {
+                    if (requested.contains(mrMover, mrEnemy) && written.add(mrMover, mrEnemy)) {
+                        for (MeValue pv : mvs) {
+                            pv.write(out);
+                        }
+                    }
+                }
+            });
         }
+        Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+        log.info(String.format("Wrote pvs for %,d mrs to %s", written.size(), file.getFileName()));
     }
 
     private final ThreadLocal<SyncPlayer> players = new ThreadLocal<SyncPlayer>() {
@@ -0,0 +1,471 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.coca;
+
+import com.orbanova.common.misc.Logger;
+import com.welty.novello.core.GameStore;
+import com.welty.novello.core.GgfGameRecord;
+import com.welty.novello.core.MeValue;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Streams game files into an MvStore.
+ * <p/>
+ * The calling thread reads lines (decompressing if necessary) and hands them to a pool of worker threads in chunks.
+ * The workers convert each chunk to MeValues; the calling thread writes the MeValues of each chunk to disk in the
+ * order the chunks were read. Games parsed by a {@link GameParser} are added to a GameStore in the same order.
+ * <p/>
+ * Lines can be passed to the workers either as Strings ({@link LineParser}) or as raw bytes ({@link ByteParser}),
+ * which avoids decoding the input into Strings. Games already in a {@link GameStore} are passed to the workers
+ * as ranges of game indices. At most a fixed number of chunks are in flight at once, so reading waits for parsing
+ * and the heap used is bounded regardless of the size of the input.
+ */
+public class GameIngester {
+    private static final Logger log = Logger.logger(GameIngester.class);
+
+    private static final int LINES_PER_CHUNK = 1000;
+    private static final int BYTES_PER_CHUNK = 1 << 20;
+    private static final int GAMES_PER_CHUNK = 1000;
+
+    /**
+     * Converts a line of a game file to MeValues.
+     * <p/>
+     * This is called from several threads at once.
+     */
+    public interface LineParser {
+        /**
+         * Convert a line to MeValues
+         * <p/>
+         * Lines that should not be ingested (for instance, games that fail a filter) add nothing to mvs.
+         *
+         * @param line line of the file
+         * @param mvs  list to which MeValues are added
+         */
+        void parse(@NotNull String line, @NotNull List<MeValue> mvs);
+    }
+
+    /**
+     * Converts a chunk of a game file to MeValues.
+     * <p/>
+     * This is called from several threads at once.
+     */
+    public interface ByteParser {
+        /**
+         * Convert a chunk of bytes to MeValues
+         *
+         * @param lines bytes between the buffer's position and limit. These contain whole lines
+         *              (the final line may be missing its line terminator).
+         * @param mvs   list to which MeValues are added
+         */
+        void parse(@NotNull ByteBuffer lines, @NotNull List<MeValue> mvs);
+    }
+
+    /**
+     * Converts a chunk of a game file to games.
+     * <p/>
+     * This is called from several threads at once.
+     */
+    public interface GameParser {
+        /**
+         * Convert a chunk of bytes to games
+         * <p/>
+         * Games that should not be ingested (for instance, games that fail a filter) are not added to games.
+         *
+         * @param lines bytes between the buffer's position and limit. These contain whole lines
+         *              (the final line may be missing its line terminator).
+         * @param games list to which games are added, in the order they occur in lines
+         */
+        void parse(@NotNull ByteBuffer lines, @NotNull List<GgfGameRecord> games);
+    }
+
+    /**
+     * Ingest all bytes from a stream into an MvStore.
+     * <p/>
+     * The store is written to a temporary file created by {@link TempStoreFiles}.
+     *
+     * @param in     source of lines. This is read to the end but not closed.
+     * @param parser converts chunks of lines to MeValues
+     * @return the store
+     */
+    public static MvStore ingest(final InputStream in, final ByteParser parser) throws IOException {
+        return ingestToStore(new ChunkSource() {
+            @Override public long writeTo(DataOutputStream out) throws IOException {
+                return ingest(in, parser, out);
+            }
+        });
+    }
+
+    /**
+     * Ingest all games from a stream into an MvStore, also adding the games to a GameStore.
+     * <p/>
+     * Games are added to the GameStore in the order they occur in the stream, so the GameStore's contents do
+     * not depend on the number of threads or on the order in which chunks finish parsing.
+     * <p/>
+     * The MvStore is written to a temporary file created by {@link TempStoreFiles}.
+     *
+     * @param in         source of lines. This is read to the end but not closed.
+     * @param parser     converts chunks of lines to games
+     * @param gameWriter destination of the games
+     * @return the store
+     */
+    public static MvStore ingest(final InputStream in, final GameParser parser, final GameStore.Writer gameWriter)
+            throws IOException {
+        return ingestToStore(new ChunkSource() {
+            @Override public long writeTo(DataOutputStream out) throws IOException {
+                final ByteChunks chunks = new ByteChunks(in);
+                return ingest(new TaskSource() {
+                    @Override public Callable<Chunk> next() throws IOException {
+                        final ByteBuffer lines = chunks.next();
+                        if (lines == null) {
+                            return null;
+                        }
+                        return new Callable<Chunk>() {
+                            @Override public Chunk call() {
+                                final List<GgfGameRecord> games = new ArrayList<>();
+                                parser.parse(lines, games);
+                                final List<MeValue> mvs = new ArrayList<>();
+                                for (GgfGameRecord game : games) {
+                                    game.addPositionValues(mvs);
+                                }
+                                return new Chunk(mvs, games);
+                            }
+                        };
+                    }
+                }, out, gameWriter);
+            }
+        });
+    }
+
+    /**
+     * Ingest all lines from a reader into an MvStore.
+     * <p/>
+     * The store is written to a temporary file created by {@link TempStoreFiles}.
+     *
+     * @param in     source of lines. This is read to the end but not closed.
+     * @param parser converts lines to MeValues
+     * @return the store
+     */
+    public static MvStore ingest(final BufferedReader in, final LineParser parser) throws IOException {
+        return ingestToStore(new ChunkSource() {
+            @Override public long writeTo(DataOutputStream out) throws IOException {
+                return ingest(in, parser, out);
+            }
+        });
+    }
+
+    /**
+     * Ingest all games from a game store into an MvStore.
+     * <p/>
+     * The store is written to a temporary file created by {@link TempStoreFiles}.
+     *
+     * @param games source of games
+     * @return the store
+     */
+    public static MvStore ingest(final GameStore games) throws IOException {
+        return ingestToStore(new ChunkSource() {
+            @Override public long writeTo(DataOutputStream out) throws IOException {
+                return ingest(games, out);
+            }
+        });
+    }
+
+    private interface ChunkSource {
+        /**
+         * Ingest all chunks, writing MeValues to out
+         *
+         * @return number of MeValues written
+         */
+        long writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private static MvStore ingestToStore(ChunkSource source) throws IOException {
+        final Path rowFile = Files.createTempFile("novello-ingest", ".pvs");
+        try {
+            final long t0 = System.currentTimeMillis();
+            final long nWritten;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(rowFile), 1 << 16))) {
+                nWritten = source.writeTo(out);
+            }
+            final long dt = System.currentTimeMillis() - t0;
+            log.info(String.format("ingested %,d positions in %.1f s", nWritten, dt * .001));
+
+            final Path storeFile = TempStoreFiles.create("novello-ingest");
+            MvStore.convert(rowFile, storeFile);
+            return MvStore.map(storeFile);
+        } finally {
+            Files.deleteIfExists(rowFile);
+        }
+    }
+
+    /**
+     * Ingest all lines from a reader, writing MeValues using {@link MeValue#write}.
+     *
+     * @param in     source of lines. This is read to the end but not closed.
+     * @param parser converts lines to MeValues
+     * @param out    destination of MeValues
+     * @return number of MeValues written
+     */
+    public static long ingest(final BufferedReader in, final LineParser parser, DataOutputStream out) throws IOException {
+        return ingest(new TaskSource() {
+            @Override public Callable<Chunk> next() throws IOException {
+                final List<String> lines = readChunk(in);
+                if (lines.isEmpty()) {
+                    return null;
+                }
+                return new Callable<Chunk>() {
+                    @Override public Chunk call() {
+                        final List<MeValue> mvs = new ArrayList<>();
+                        for (String line : lines) {
+                            parser.parse(line, mvs);
+                        }
+                        return new Chunk(mvs);
+                    }
+                };
+            }
+        }, out, null);
+    }
+
+    /**
+     * Ingest all bytes from a stream, writing MeValues using {@link MeValue#write}.
+     * <p/>
+     * The stream is split into chunks of about {@link #BYTES_PER_CHUNK} bytes at line boundaries.
+     *
+     * @param in     source of lines. This is read to the end but not closed.
+     * @param parser converts chunks of lines to MeValues
+     * @param out    destination of MeValues
+     * @return number of MeValues written
+     */
+    public static long ingest(final InputStream in, final ByteParser parser, DataOutputStream out) throws IOException {
+        final ByteChunks chunks = new ByteChunks(in);
+        return ingest(new TaskSource() {
+            @Override public Callable<Chunk> next() throws IOException {
+                final ByteBuffer lines = chunks.next();
+                if (lines == null) {
+                    return null;
+                }
+                return new Callable<Chunk>() {
+                    @Override public Chunk call() {
+                        final List<MeValue> mvs = new ArrayList<>();
+                        parser.parse(lines, mvs);
+                        return new Chunk(mvs);
+                    }
+                };
+            }
+        }, out, null);
+    }
+
+    /**
+     * Ingest all games from a game store, writing MeValues using {@link MeValue#write}.
+     * <p/>
+     * Games are handed to the workers as ranges of {@link #GAMES_PER_CHUNK} game indices.
+     *
+     * @param games source of games
+     * @param out   destination of MeValues
+     * @return number of MeValues written
+     */
+    public static long ingest(final GameStore games, DataOutputStream out) throws IOException {
+        return ingest(new TaskSource() {
+            private int nextGame = 0;
+
+            @Override public Callable<Chunk> next() {
+                if (nextGame >= games.size()) {
+                    return null;
+                }
+                final int start = nextGame;
+                final int end = Math.min(games.size(), start + GAMES_PER_CHUNK);
+                nextGame = end;
+                return new Callable<Chunk>() {
+                    @Override public Chunk call() {
+                        final List<MeValue> mvs = new ArrayList<>();
+                        final GgfGameRecord game = new GgfGameRecord();
+                        for (int i = start; i < end; i++) {
+                            games.read(i, game);
+                            game.addPositionValues(mvs);
+                        }
+                        return new Chunk(mvs);
+                    }
+                };
+            }
+        }, out, null);
+    }
+
+    private interface TaskSource {
+        /**
+         * @return a task that converts the next chunk of input to MeValues, or null at the end of the input
+         */
+        @Nullable Callable<Chunk> next() throws IOException;
+    }
+
+    /**
+     * Result of converting a chunk of input
+     */
+    private static class Chunk {
+        final @NotNull List<MeValue> mvs;
+        final @NotNull List<GgfGameRecord> games;
+
+        Chunk(@NotNull List<MeValue> mvs) {
+            this(mvs, Collections.<GgfGameRecord>emptyList());
+        }
+
+        /**
+         * @param games games parsed from the chunk, in input order
+         */
+        Chunk(@NotNull List<MeValue> mvs, @NotNull List<GgfGameRecord> games) {
+            this.mvs = mvs;
+            this.games = games;
+        }
+    }
+
+    /**
+     * Splits a stream into chunks of about {@link #BYTES_PER_CHUNK} bytes at line boundaries.
+     */
+    private static class ByteChunks {
+        private final InputStream in;
+        private byte[] carry = new byte[0];
+
+        ByteChunks(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * @return the next chunk, or null at the end of the stream
+         */
+        @Nullable ByteBuffer next() throws IOException {
+            final byte[] bytes = readByteChunk(in, carry);
+            if (bytes.length == 0) {
+                return null;
+            }
+            int end = bytes.length;
+            while (end > 0 && bytes[end - 1] != '\n') {
+                end--;
+            }
+            if (end == 0) {
+                // no line terminator: this is the end of the input
+                end = bytes.length;
+            }
+            carry = Arrays.copyOfRange(bytes, end, bytes.length);
+            return ByteBuffer.wrap(bytes, 0, end);
+        }
+    }
+
+    /**
+     * Run the tasks on a pool of worker threads, writing their results in task order.
+     *
+     * @param gameWriter if not null, games parsed by the tasks are added to it
+     * @return number of MeValues written
+     */
+    private static long ingest(TaskSource tasks, DataOutputStream out, @Nullable GameStore.Writer gameWriter)
+            throws IOException {
+        final int nThreads = Runtime.getRuntime().availableProcessors();
+        final int maxInFlight = 4 * nThreads;
+        final ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        final ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        long nWritten = 0;
+
+        try {
+            Callable<Chunk> task;
+            while ((task = tasks.next()) != null) {
+                if (inFlight.size() >= maxInFlight) {
+                    nWritten += write(inFlight.removeFirst(), out, gameWriter);
+                }
+                inFlight.addLast(executor.submit(task));
+            }
+            while (!inFlight.isEmpty()) {
+                nWritten += write(inFlight.removeFirst(), out, gameWriter);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return nWritten;
+    }
+
+    /**
+     * Read bytes until there are at least BYTES_PER_CHUNK bytes including a line terminator, or the stream ends.
+     *
+     * @param carry bytes left over from the previous chunk, which start the new chunk
+     * @return bytes read, starting with carry. Empty at the end of the stream.
+     */
+    private static byte[] readByteChunk(InputStream in, byte[] carry) throws IOException {
+        byte[] bytes = Arrays.copyOf(carry, Math.max(BYTES_PER_CHUNK, 2 * carry.length));
+        int n = carry.length;
+        for (; ; ) {
+            if (n == bytes.length) {
+                if (lastIndexOf(bytes, (byte) '\n', n) >= 0) {
+                    return bytes;
+                }
+                bytes = Arrays.copyOf(bytes, 2 * n);
+            }
+            final int nRead = in.read(bytes, n, bytes.length - n);
+            if (nRead < 0) {
+                return Arrays.copyOf(bytes, n);
+            }
+            n += nRead;
+        }
+    }
+
+    private static int lastIndexOf(byte[] bytes, byte b, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<String> readChunk(BufferedReader in) throws IOException {
+        final List<String> lines = new ArrayList<>(LINES_PER_CHUNK);
+        String line;
+        while (lines.size() < LINES_PER_CHUNK && (line = in.readLine()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private static int write(Future<Chunk> future, DataOutputStream out, @Nullable GameStore.Writer gameWriter)
+            throws IOException {
+        final Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+        for (MeValue mv : chunk.mvs) {
+            mv.write(out);
+        }
+        if (gameWriter != null) {
+            for (GgfGameRecord game : chunk.games) {
+                gameWriter.add(game);
+            }
+        }
+        return chunk.mvs.size();
+    }
+}
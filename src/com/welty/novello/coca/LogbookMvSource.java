@@ -15,30 +15,42 @@
 
 package com.welty.novello.coca;
 
-import com.orbanova.common.feed.Feeds;
-import com.orbanova.common.feed.Handler;
 import com.welty.novello.core.MeValue;
 import com.welty.novello.core.MutableGame;
 import com.welty.othello.gdk.COsGame;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.File;
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.List;
 
 public class LogbookMvSource implements MvSource {
     @Override public List<MeValue> getMvs() throws IOException {
-        final ArrayList<MeValue> meValues = new ArrayList<>();
-
-        Feeds.ofLines(new File("logbook.gam")).each(new Handler<String>() {
-            @Override public void handle(@NotNull String s) {
-                final String ggfGame = COsGame.ofLogbook(s).toString();
-                final MutableGame mg = MutableGame.ofGgf(ggfGame);
-                meValues.addAll(mg.calcPositionValues());
-            }
-        });
+        return getStore().toList();
+    }
 
-        return meValues;
+    /**
+     * Stream the logbook's positions into a store.
+     * <p/>
+     * Games are parsed and valued on several threads; see {@link GameIngester}.
+     *
+     * @return the store
+     */
+    public MvStore getStore() throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(Paths.get("logbook.gam"), Charset.defaultCharset())) {
+            return GameIngester.ingest(in, new GameIngester.LineParser() {
+                @Override public void parse(@NotNull String s, @NotNull List<MeValue> mvs) {
+                    if (s.isEmpty()) {
+                        return;
+                    }
+                    final String ggfGame = COsGame.ofLogbook(s).toString();
+                    final MutableGame mg = MutableGame.ofGgf(ggfGame);
+                    mvs.addAll(mg.calcPositionValues());
+                }
+            });
+        }
     }
 }
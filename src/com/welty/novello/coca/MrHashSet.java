@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.coca;
+
+import com.welty.novello.core.NovelloUtils;
+
+/**
+ * Set of positions, stored as (mover, enemy) pairs in primitive arrays.
+ * <p/>
+ * This uses open addressing with linear probing, so adding a position allocates nothing unless the set grows.
+ * The empty board (mover = enemy = 0) marks an empty slot and can't be added.
+ * <p/>
+ * Not thread-safe.
+ */
+class MrHashSet {
+    private long[] movers;
+    private long[] enemies;
+    private int size;
+
+    /**
+     * @param expectedSize number of positions the set should hold without resizing
+     */
+    MrHashSet(int expectedSize) {
+        int capacity = 16;
+        while (capacity < 2L * expectedSize) {
+            capacity *= 2;
+        }
+        movers = new long[capacity];
+        enemies = new long[capacity];
+    }
+
+    /**
+     * @return number of positions in the set
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the set contains the position
+     */
+    boolean contains(long mover, long enemy) {
+        final int mask = movers.length - 1;
+        for (int i = index(mover, enemy, mask); ; i = (i + 1) & mask) {
+            if ((movers[i] | enemies[i]) == 0) {
+                return false;
+            }
+            if (movers[i] == mover && enemies[i] == enemy) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Add a position to the set
+     *
+     * @return true if the position was not already in the set
+     */
+    boolean add(long mover, long enemy) {
+        if ((mover | enemy) == 0) {
+            throw new IllegalArgumentException("Can't add the empty board");
+        }
+        if (2 * (size + 1) > movers.length) {
+            resize();
+        }
+        if (insert(movers, enemies, mover, enemy)) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    private void resize() {
+        final long[] newMovers = new long[2 * movers.length];
+        final long[] newEnemies = new long[2 * enemies.length];
+        for (int i = 0; i < movers.length; i++) {
+            if ((movers[i] | enemies[i]) != 0) {
+                insert(newMovers, newEnemies, movers[i], enemies[i]);
+            }
+        }
+        movers = newMovers;
+        enemies = newEnemies;
+    }
+
+    private static boolean insert(long[] movers, long[] enemies, long mover, long enemy) {
+        final int mask = movers.length - 1;
+        for (int i = index(mover, enemy, mask); ; i = (i + 1) & mask) {
+            if ((movers[i] | enemies[i]) == 0) {
+                movers[i] = mover;
+                enemies[i] = enemy;
+                return true;
+            }
+            if (movers[i] == mover && enemies[i] == enemy) {
+                return false;
+            }
+        }
+    }
+
+    private static int index(long mover, long enemy, int mask) {
+        return (int) NovelloUtils.hash(mover, enemy) & mask;
+    }
+}
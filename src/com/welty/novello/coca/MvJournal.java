@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.coca;
+
+import com.welty.novello.core.MeValue;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only file of valued positions, keyed by the MinimalReflection that was valued.
+ * <p/>
+ * CachingMvSource values each MR with a search, producing up to two MeValues. The journal records the
+ * MeValues for each MR as soon as its search completes, so a crashed run can be resumed and a larger set of MRs
+ * only requires searching the MRs that are new. An MR whose search produced no MeValues is also recorded, so it
+ * is not searched again.
+ * <p/>
+ * Record format (all values big-endian):
+ * <pre>
+ * long mr mover, long mr enemy
+ * byte number of MeValues, n
+ * n times: long mover, long enemy, int value
+ * </pre>
+ * Records are written with a single write, so a reader sees only complete records, possibly followed by a
+ * partial record that is still being written (or was cut off by a crash). Readers ignore the partial record,
+ * so a journal can be read from any number of threads or processes while a writer is appending. Opening the
+ * journal for appending truncates any partial record. Only one writer may append to a journal at a time.
+ */
+class MvJournal implements Closeable {
+    private static final int MR_SIZE = 16;
+    private static final int MV_SIZE = 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(MR_SIZE + 1 + 255 * MV_SIZE);
+
+    private MvJournal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Receives the records of a journal
+     */
+    interface Visitor {
+        /**
+         * @param mrMover mover disks of the MR that was valued
+         * @param mrEnemy enemy disks of the MR that was valued
+         * @param mvs     MeValues produced by valuing the MR. The list is reused for the next record.
+         */
+        void visit(long mrMover, long mrEnemy, @NotNull List<MeValue> mvs) throws IOException;
+    }
+
+    /**
+     * Open a journal for appending, creating it if it doesn't exist.
+     * <p/>
+     * Any partial record at the end of the journal is removed.
+     *
+     * @param path location of the journal
+     * @return the journal
+     */
+    static MvJournal openForAppend(@NotNull Path path) throws IOException {
+        final long length = read(path, null);
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() > length) {
+                channel.truncate(length);
+            }
+            channel.position(length);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new MvJournal(channel);
+    }
+
+    /**
+     * Append a record to the journal
+     *
+     * @param mrMover mover disks of the MR that was valued
+     * @param mrEnemy enemy disks of the MR that was valued
+     * @param mvs     MeValues produced by valuing the MR
+     */
+    void append(long mrMover, long mrEnemy, @NotNull List<MeValue> mvs) throws IOException {
+        if (mvs.size() > 255) {
+            throw new IllegalArgumentException("Too many MeValues for one MR: " + mvs.size());
+        }
+        buffer.clear();
+        buffer.putLong(mrMover).putLong(mrEnemy).put((byte) mvs.size());
+        for (MeValue mv : mvs) {
+            buffer.putLong(mv.mover).putLong(mv.enemy).putInt(mv.value);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Read all complete records in a journal.
+     *
+     * @param path    location of the journal. If there is no file at this location the journal is empty.
+     * @param visitor receives each record, or null to just measure the journal
+     * @return length of the complete records, in bytes
+     */
+    static long read(@NotNull Path path, @Nullable Visitor visitor) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        long length = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            final List<MeValue> mvs = new ArrayList<>();
+            while (true) {
+                final long mrMover;
+                try {
+                    mrMover = in.readLong();
+                } catch (EOFException e) {
+                    return length;
+                }
+                try {
+                    final long mrEnemy = in.readLong();
+                    final int n = in.readUnsignedByte();
+                    mvs.clear();
+                    for (int i = 0; i < n; i++) {
+                        mvs.add(new MeValue(in.readLong(), in.readLong(), in.readInt()));
+                    }
+                    if (visitor != null) {
+                        visitor.visit(mrMover, mrEnemy, mvs);
+                    }
+                    length += MR_SIZE + 1 + n * MV_SIZE;
+                } catch (EOFException e) {
+                    // partial record
+                    return length;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.coca;
+
+import com.welty.novello.core.BitBoardUtils;
+import com.welty.novello.core.MeValue;
+import com.welty.novello.core.MinimalReflection;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Columnar store of MeValues, partitioned by nEmpty.
+ * <p/>
+ * Movers, enemies and values are stored in parallel columns. Positions are sorted by nEmpty so that all positions
+ * with a given nEmpty are in the index range [start(nEmpty), end(nEmpty)). Within a slice, positions keep the order
+ * in which they were written.
+ * <p/>
+ * Stores are normally memory-mapped from a file, so loading them allocates no objects and positions
+ * don't count against the Java heap. Use the index methods or {@link #forEach(Visitor)} to read positions
+ * without creating MeValues.
+ * <p/>
+ * File format (big-endian):
+ * <pre>
+ * int magic, written after the columns are complete
+ * int[65] number of positions with nEmpty = 0..64
+ * pad to a multiple of 8 bytes
+ * long[n] movers
+ * long[n] enemies
+ * int[n] values
+ * </pre>
+ * Each column is mapped separately, so a store can hold up to 2<sup>28</sup> positions.
+ */
+public class MvStore {
+    private static final int MAGIC = 0x4d565331; // "MVS1"
+    private static final int N_SLICES = 65;
+    private static final int HEADER_SIZE = (4 + 4 * N_SLICES + 7) & ~7;
+
+    /**
+     * Size of a MeValue record in a row file written by {@link MeValue#write}
+     */
+    private static final int ROW_SIZE = 20;
+
+    /**
+     * positions with nEmpty = n have indices sliceStarts[n] .. sliceStarts[n+1]-1
+     */
+    private final int[] sliceStarts;
+    private final LongBuffer movers;
+    private final LongBuffer enemies;
+    private final IntBuffer values;
+
+    private MvStore(int[] sliceStarts, LongBuffer movers, LongBuffer enemies, IntBuffer values) {
+        this.sliceStarts = sliceStarts;
+        this.movers = movers;
+        this.enemies = enemies;
+        this.values = values;
+    }
+
+    /**
+     * Create a store in the Java heap containing the given MeValues
+     *
+     * @param mvs MeValues to store
+     * @return the store
+     */
+    public static MvStore of(Collection<MeValue> mvs) {
+        final int[] counts = new int[N_SLICES];
+        for (MeValue mv : mvs) {
+            counts[mv.nEmpty()]++;
+        }
+        final int n = mvs.size();
+        final MvStore store = new MvStore(sliceStarts(counts), LongBuffer.allocate(n), LongBuffer.allocate(n), IntBuffer.allocate(n));
+        final int[] cursors = store.sliceStarts.clone();
+        for (MeValue mv : mvs) {
+            store.put(cursors, mv.mover, mv.enemy, mv.value);
+        }
+        return store;
+    }
+
+    /**
+     * Write MeValues to a store file
+     *
+     * @param path location of the store file. Any existing file is replaced.
+     * @param mvs  MeValues to store
+     */
+    public static void write(Path path, Collection<MeValue> mvs) throws IOException {
+        final int[] counts = new int[N_SLICES];
+        for (MeValue mv : mvs) {
+            counts[mv.nEmpty()]++;
+        }
+        final MvStore store = create(path, counts);
+        final int[] cursors = store.sliceStarts.clone();
+        for (MeValue mv : mvs) {
+            store.put(cursors, mv.mover, mv.enemy, mv.value);
+        }
+        writeMagic(path);
+    }
+
+    /**
+     * Convert a row file, containing records written by {@link MeValue#write}, to a store file.
+     * <p/>
+     * This reads the row file twice, once to count positions by nEmpty and once to fill the columns;
+     * no MeValues are created.
+     *
+     * @param rowFile   location of the row file
+     * @param storeFile location of the store file. Any existing file is replaced.
+     */
+    public static void convert(Path rowFile, Path storeFile) throws IOException {
+        final long nRows = Files.size(rowFile) / ROW_SIZE;
+        final int[] counts = new int[N_SLICES];
+        try (DataInputStream in = openRows(rowFile)) {
+            for (long i = 0; i < nRows; i++) {
+                final long mover = in.readLong();
+                final long enemy = in.readLong();
+                in.readInt();
+                counts[BitBoardUtils.nEmpty(mover, enemy)]++;
+            }
+        }
+        final MvStore store = create(storeFile, counts);
+        final int[] cursors = store.sliceStarts.clone();
+        try (DataInputStream in = openRows(rowFile)) {
+            for (long i = 0; i < nRows; i++) {
+                final long mover = in.readLong();
+                final long enemy = in.readLong();
+                final int value = in.readInt();
+                store.put(cursors, mover, enemy, value);
+            }
+        }
+        writeMagic(storeFile);
+    }
+
+    /**
+     * Write the positions of several stores to one store file.
+     * <p/>
+     * Within each slice, the positions of stores[0] come first, then those of stores[1], and so on, each in its
+     * store's order. This is the order {@link #write(Path, Collection)} would produce from the concatenated
+     * lists of MeValues, but positions are copied directly between the mapped columns; no MeValues are created.
+     * <p/>
+     * If distinct is true, only the first copy of each position is written. Copies of a position are the position
+     * and its reflections; they always have the same nEmpty, so positions are deduplicated one slice at a time.
+     *
+     * @param path     location of the store file. Any existing file is replaced.
+     * @param stores   stores to concatenate
+     * @param distinct if true, write only the first copy of each position
+     */
+    public static void concat(Path path, List<MvStore> stores, boolean distinct) throws IOException {
+        final int[] counts = new int[N_SLICES];
+        // selected[nEmpty] has a bit for each position of the slice in all stores, set if the position is written
+        final BitSet[] selected = new BitSet[N_SLICES];
+        for (int nEmpty = 0; nEmpty < N_SLICES; nEmpty++) {
+            int sliceSize = 0;
+            for (MvStore store : stores) {
+                sliceSize += store.size(nEmpty);
+            }
+            selected[nEmpty] = new BitSet(sliceSize);
+            if (!distinct) {
+                selected[nEmpty].set(0, sliceSize);
+                counts[nEmpty] = sliceSize;
+                continue;
+            }
+            final MrHashSet seen = new MrHashSet(sliceSize);
+            int j = 0;
+            for (MvStore store : stores) {
+                for (int i = store.start(nEmpty); i < store.end(nEmpty); i++, j++) {
+                    final MinimalReflection mr = new MinimalReflection(store.mover(i), store.enemy(i));
+                    if (seen.add(mr.mover, mr.enemy)) {
+                        selected[nEmpty].set(j);
+                    }
+                }
+            }
+            counts[nEmpty] = seen.size();
+        }
+
+        final MvStore result = create(path, counts);
+        final int[] cursors = result.sliceStarts.clone();
+        for (int nEmpty = 0; nEmpty < N_SLICES; nEmpty++) {
+            int j = 0;
+            for (MvStore store : stores) {
+                for (int i = store.start(nEmpty); i < store.end(nEmpty); i++, j++) {
+                    if (selected[nEmpty].get(j)) {
+                        result.put(cursors, store.mover(i), store.enemy(i), store.value(i));
+                    }
+                }
+            }
+        }
+        writeMagic(path);
+    }
+
+    private static DataInputStream openRows(Path rowFile) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(rowFile), 1 << 16));
+    }
+
+    /**
+     * Memory-map a store file
+     *
+     * @param path location of the store file
+     * @return the store
+     * @throws IOException if the file can't be read or is not a store file
+     */
+    public static MvStore map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new EOFException(path + " is too short to be an MvStore");
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException(path + " is not an MvStore");
+            }
+            final int[] counts = new int[N_SLICES];
+            for (int i = 0; i < N_SLICES; i++) {
+                counts[i] = header.getInt();
+            }
+            final int[] sliceStarts = sliceStarts(counts);
+            final int n = sliceStarts[N_SLICES];
+            if (channel.size() != fileSize(n)) {
+                throw new IOException(path + " has the wrong size for an MvStore with " + n + " positions");
+            }
+            return mapColumns(channel, FileChannel.MapMode.READ_ONLY, sliceStarts);
+        }
+    }
+
+    /**
+     * Create a store file with room for the given number of positions in each slice, and map it for writing
+     * <p/>
+     * The magic number is left as 0 so that a partially written file can't be mapped; call
+     * {@link #writeMagic(Path)} once the columns have been filled.
+     */
+    private static MvStore create(Path path, int[] counts) throws IOException {
+        final int[] sliceStarts = sliceStarts(counts);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(0);
+            for (int count : counts) {
+                header.putInt(count);
+            }
+            header.rewind();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            final long size = fileSize(sliceStarts[N_SLICES]);
+            if (size > HEADER_SIZE) {
+                channel.write(ByteBuffer.allocate(1), size - 1);
+            }
+            return mapColumns(channel, FileChannel.MapMode.READ_WRITE, sliceStarts);
+        }
+    }
+
+    private static void writeMagic(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            final ByteBuffer magic = ByteBuffer.allocate(4);
+            magic.putInt(MAGIC).flip();
+            channel.write(magic, 0);
+        }
+    }
+
+    private static MvStore mapColumns(FileChannel channel, FileChannel.MapMode mode, int[] sliceStarts) throws IOException {
+        final long n = sliceStarts[N_SLICES];
+        final MappedByteBuffer movers = channel.map(mode, HEADER_SIZE, 8 * n);
+        final MappedByteBuffer enemies = channel.map(mode, HEADER_SIZE + 8 * n, 8 * n);
+        final MappedByteBuffer values = channel.map(mode, HEADER_SIZE + 16 * n, 4 * n);
+        return new MvStore(sliceStarts, movers.asLongBuffer(), enemies.asLongBuffer(), values.asIntBuffer());
+    }
+
+    private static long fileSize(long n) {
+        return HEADER_SIZE + 20 * n;
+    }
+
+    private static int[] sliceStarts(int[] counts) {
+        final int[] sliceStarts = new int[N_SLICES + 1];
+        long n = 0;
+        for (int i = 0; i < N_SLICES; i++) {
+            sliceStarts[i] = (int) n;
+            n += counts[i];
+        }
+        if (n > Integer.MAX_VALUE / 8) {
+            throw new IllegalArgumentException("Too many positions for an MvStore: " + n);
+        }
+        sliceStarts[N_SLICES] = (int) n;
+        return sliceStarts;
+    }
+
+    private void put(int[] cursors, long mover, long enemy, int value) {
+        final int i = cursors[BitBoardUtils.nEmpty(mover, enemy)]++;
+        movers.put(i, mover);
+        enemies.put(i, enemy);
+        values.put(i, value);
+    }
+
+    /**
+     * @return total number of positions in the store
+     */
+    public int size() {
+        return sliceStarts[N_SLICES];
+    }
+
+    /**
+     * @return number of positions in the store with the given number of empty squares
+     */
+    public int size(int nEmpty) {
+        return end(nEmpty) - start(nEmpty);
+    }
+
+    /**
+     * @return index of the first position with the given number of empty squares
+     */
+    public int start(int nEmpty) {
+        return sliceStarts[nEmpty];
+    }
+
+    /**
+     * @return index after the last position with the given number of empty squares
+     */
+    public int end(int nEmpty) {
+        return sliceStarts[nEmpty + 1];
+    }
+
+    public long mover(int i) {
+        return movers.get(i);
+    }
+
+    public long enemy(int i) {
+        return enemies.get(i);
+    }
+
+    /**
+     * @return value of position i to the mover, in centidisks
+     */
+    public int value(int i) {
+        return values.get(i);
+    }
+
+    /**
+     * Create a MeValue for the position at index i
+     */
+    public MeValue get(int i) {
+        return new MeValue(mover(i), enemy(i), value(i));
+    }
+
+    /**
+     * Create MeValues for all positions in the store.
+     * <p/>
+     * This is for code that still needs a List; it allocates an object per position.
+     */
+    public List<MeValue> toList() {
+        final List<MeValue> mvs = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            mvs.add(get(i));
+        }
+        return mvs;
+    }
+
+    /**
+     * Visit all positions in the store, in index order
+     */
+    public void forEach(@NotNull Visitor visitor) {
+        forEach(0, 64, visitor);
+    }
+
+    /**
+     * Visit all positions with minEmpty &le; nEmpty &le; maxEmpty, in index order
+     */
+    public void forEach(int minEmpty, int maxEmpty, @NotNull Visitor visitor) {
+        final int end = end(maxEmpty);
+        for (int i = start(minEmpty); i < end; i++) {
+            visitor.visit(movers.get(i), enemies.get(i), values.get(i));
+        }
+    }
+
+    /**
+     * Receives positions from {@link MvStore#forEach(Visitor)}
+     */
+    public interface Visitor {
+        /**
+         * @param mover mover bitboard
+         * @param enemy enemy bitboard
+         * @param value position value to mover, in centidisks
+         */
+        void visit(long mover, long enemy, int value);
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.coca;
+
+import com.welty.novello.core.MinimalReflection;
+import com.welty.novello.core.NovelloUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Distinct positions of a training set, with statistics of the values of each position's copies.
+ * <p/>
+ * Positions are identified by their minimal reflection, so a position and its reflections are copies of the
+ * same position. For each distinct position the index stores the number of copies and the mean and variance of
+ * their values.
+ * <p/>
+ * Fitting a position's mean value with weight equal to its count gives the same coefficients as fitting each copy
+ * separately, because the sum of squared errors of the copies differs only by a constant (count * variance).
+ * <p/>
+ * Positions are sorted by nEmpty so that all positions with a given nEmpty are in the index range
+ * [start(nEmpty), end(nEmpty)). Within a slice, positions are in the order they were first seen.
+ */
+public class PositionIndex {
+    private static final int N_SLICES = 65;
+
+    /**
+     * positions with nEmpty = n have indices sliceStarts[n] .. sliceStarts[n+1]-1
+     */
+    private final int[] sliceStarts;
+    private final long[] movers;
+    private final long[] enemies;
+    private final int[] counts;
+    private final double[] means;
+    private final double[] variances;
+    private final long nCopies;
+
+    private PositionIndex(int[] sliceStarts, long[] movers, long[] enemies, int[] counts, double[] means
+            , double[] variances, long nCopies) {
+        this.sliceStarts = sliceStarts;
+        this.movers = movers;
+        this.enemies = enemies;
+        this.counts = counts;
+        this.means = means;
+        this.variances = variances;
+        this.nCopies = nCopies;
+    }
+
+    /**
+     * Index the positions in a store
+     *
+     * @param store store containing positions, possibly with copies
+     * @return the index
+     */
+    public static @NotNull PositionIndex of(@NotNull MvStore store) {
+        return of(Collections.singletonList(store));
+    }
+
+    /**
+     * Index the positions in several stores, in priority order.
+     * <p/>
+     * A position's statistics come from the copies in the first store that contains the position; copies in later
+     * stores are ignored. Copies within that store all contribute to the position's statistics.
+     * Within a slice, positions are in the order they were first seen, reading the stores in order.
+     * <p/>
+     * Slices are indexed one at a time and trimmed to their distinct positions before the next slice is started,
+     * so scratch space proportional to the number of copies is only needed for one slice at a time.
+     *
+     * @param stores stores containing positions, possibly with copies, highest priority first
+     * @return the index
+     */
+    public static @NotNull PositionIndex of(@NotNull List<MvStore> stores) {
+        final Slice[] slices = new Slice[N_SLICES];
+        for (int n = 0; n < N_SLICES; n++) {
+            int nStoreCopies = 0;
+            for (MvStore store : stores) {
+                nStoreCopies += store.size(n);
+            }
+            final Accumulator accumulator = new Accumulator(nStoreCopies);
+            for (int s = 0; s < stores.size(); s++) {
+                final MvStore store = stores.get(s);
+                for (int i = store.start(n); i < store.end(n); i++) {
+                    final MinimalReflection mr = new MinimalReflection(store.mover(i), store.enemy(i));
+                    accumulator.add(mr.mover, mr.enemy, store.value(i), s);
+                }
+            }
+            slices[n] = accumulator.toSlice();
+        }
+
+        final int[] sliceStarts = new int[N_SLICES + 1];
+        for (int n = 0; n < N_SLICES; n++) {
+            sliceStarts[n + 1] = sliceStarts[n] + slices[n].movers.length;
+        }
+        final int size = sliceStarts[N_SLICES];
+        final long[] movers = new long[size];
+        final long[] enemies = new long[size];
+        final int[] counts = new int[size];
+        final double[] means = new double[size];
+        final double[] variances = new double[size];
+        long nCopies = 0;
+        for (int n = 0; n < N_SLICES; n++) {
+            nCopies += slices[n].copyTo(sliceStarts[n], movers, enemies, counts, means, variances);
+            slices[n] = null;
+        }
+        return new PositionIndex(sliceStarts, movers, enemies, counts, means, variances, nCopies);
+    }
+
+    /**
+     * @return number of distinct positions
+     */
+    public int size() {
+        return movers.length;
+    }
+
+    /**
+     * @return number of distinct positions with the given number of empty squares
+     */
+    public int size(int nEmpty) {
+        return end(nEmpty) - start(nEmpty);
+    }
+
+    /**
+     * @return total number of copies of all positions. Copies ignored because a higher-priority store contains
+     * the position are not included.
+     */
+    public long nCopies() {
+        return nCopies;
+    }
+
+    /**
+     * @return index of the first position with the given number of empty squares
+     */
+    public int start(int nEmpty) {
+        return sliceStarts[nEmpty];
+    }
+
+    /**
+     * @return index after the last position with the given number of empty squares
+     */
+    public int end(int nEmpty) {
+        return sliceStarts[nEmpty + 1];
+    }
+
+    /**
+     * @return mover disks of the minimal reflection of position i
+     */
+    public long mover(int i) {
+        return movers[i];
+    }
+
+    /**
+     * @return enemy disks of the minimal reflection of position i
+     */
+    public long enemy(int i) {
+        return enemies[i];
+    }
+
+    /**
+     * @return number of copies of position i
+     */
+    public int count(int i) {
+        return counts[i];
+    }
+
+    /**
+     * @return mean value of the copies of position i
+     */
+    public double mean(int i) {
+        return means[i];
+    }
+
+    /**
+     * @return variance of the values of the copies of position i (0 if there is only one copy)
+     */
+    public double variance(int i) {
+        return variances[i];
+    }
+
+    /**
+     * Accumulates statistics for the positions in a slice.
+     * <p/>
+     * This uses open addressing with linear probing; slots hold the index of the position in insertion order,
+     * or -1 if empty. Values are accumulated with Welford's method. Each position records the store its first copy
+     * came from; copies from other stores are ignored.
+     */
+    private static class Accumulator {
+        private final int[] slots;
+        private final long[] movers;
+        private final long[] enemies;
+        private final int[] counts;
+        private final double[] means;
+        private final double[] m2s;
+        private final int[] sources;
+        private int size;
+
+        Accumulator(int expectedSize) {
+            int capacity = 16;
+            while (capacity < 2L * expectedSize) {
+                capacity *= 2;
+            }
+            slots = new int[capacity];
+            Arrays.fill(slots, -1);
+            final int n = Math.max(expectedSize, 1);
+            movers = new long[n];
+            enemies = new long[n];
+            counts = new int[n];
+            means = new double[n];
+            m2s = new double[n];
+            sources = new int[n];
+        }
+
+        void add(long mover, long enemy, int value, int source) {
+            final int mask = slots.length - 1;
+            int s = index(mover, enemy, mask);
+            while (slots[s] >= 0) {
+                final int p = slots[s];
+                if (movers[p] == mover && enemies[p] == enemy) {
+                    if (sources[p] != source) {
+                        // a higher-priority store contains the position
+                        return;
+                    }
+                    final int count = ++counts[p];
+                    final double delta = value - means[p];
+                    means[p] += delta / count;
+                    m2s[p] += delta * (value - means[p]);
+                    return;
+                }
+                s = (s + 1) & mask;
+            }
+            // new position. There are at most expectedSize positions, so neither the slots nor the arrays need to grow.
+            slots[s] = size;
+            movers[size] = mover;
+            enemies[size] = enemy;
+            counts[size] = 1;
+            means[size] = value;
+            sources[size] = source;
+            size++;
+        }
+
+        /**
+         * @return the accumulated statistics, in arrays sized to the number of distinct positions
+         */
+        Slice toSlice() {
+            final double[] variances = new double[size];
+            for (int p = 0; p < size; p++) {
+                variances[p] = m2s[p] / counts[p];
+            }
+            return new Slice(Arrays.copyOf(movers, size), Arrays.copyOf(enemies, size), Arrays.copyOf(counts, size)
+                    , Arrays.copyOf(means, size), variances);
+        }
+
+        private static int index(long mover, long enemy, int mask) {
+            return (int) NovelloUtils.hash(mover, enemy) & mask;
+        }
+    }
+
+    /**
+     * Statistics of the distinct positions in one slice
+     */
+    private static class Slice {
+        private final long[] movers;
+        private final long[] enemies;
+        private final int[] counts;
+        private final double[] means;
+        private final double[] variances;
+
+        Slice(long[] movers, long[] enemies, int[] counts, double[] means, double[] variances) {
+            this.movers = movers;
+            this.enemies = enemies;
+            this.counts = counts;
+            this.means = means;
+            this.variances = variances;
+        }
+
+        /**
+         * Copy the statistics into the index arrays
+         *
+         * @return number of copies of the positions in the slice
+         */
+        long copyTo(int start, long[] movers, long[] enemies, int[] counts, double[] means, double[] variances) {
+            final int size = this.movers.length;
+            System.arraycopy(this.movers, 0, movers, start, size);
+            System.arraycopy(this.enemies, 0, enemies, start, size);
+            System.arraycopy(this.counts, 0, counts, start, size);
+            System.arraycopy(this.means, 0, means, start, size);
+            System.arraycopy(this.variances, 0, variances, start, size);
+            long nCopies = 0;
+            for (int count : this.counts) {
+                nCopies += count;
+            }
+            return nCopies;
+        }
+    }
+}
@@ -17,16 +17,23 @@ package com.welty.novello.coca;
 
 import com.orbanova.common.misc.Logger;
 import com.welty.ggf.GgfMatch;
+import com.welty.novello.core.GameStore;
+import com.welty.novello.core.GgfGameRecord;
+import com.welty.novello.core.GgfScanner;
 import com.welty.novello.core.MeValue;
-import com.welty.novello.core.MutableGame;
-import com.welty.othello.gdk.COsGame;
-import com.welty.othello.gdk.OsMatchType;
 import org.apache.commons.compress.compressors.CompressorException;
+import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class RandGameMvSource implements MvSource {
     private static final Logger log = Logger.logger(RandGameMvSource.class);
@@ -51,48 +58,103 @@ public class RandGameMvSource implements MvSource {
     }
 
     @Override public List<MeValue> getMvs() throws IOException {
-        final String filename = "Othello.latest.223270.bz2";
-        log.info("Selecting games from " + filename);
-        int nSelected = 0;
-        int nSelectedSynchro = 0;
-        int nSelectedKomi = 0;
+        return getStore().toList();
+    }
 
-        int nProcessed = 0;
+    /**
+     * Get the selected games' positions as a store.
+     * <p/>
+     * The first time this is called, matches are scanned directly from the decompressed archive by {@link GgfScanner}
+     * and valued on several threads; see {@link GameIngester}. The selected games are also written, in archive
+     * order, to a {@link GameStore} in the cache directory, and later calls read the games from there instead of
+     * decompressing and scanning the archive.
+     *
+     * @return the store
+     */
+    public MvStore getStore() throws IOException {
+        final Path gamesFile = CachingMvSource.getCacheDir().resolve("Othello.latest.223270.games");
+        if (Files.exists(gamesFile)) {
+            final GameStore games = GameStore.open(gamesFile);
+            log.info(String.format("Reading %,d games from %s", games.size(), gamesFile));
+            return GameIngester.ingest(games);
+        }
 
-        final List<MeValue> meValues = new ArrayList<>();
+        final String filename = "Othello.latest.223270.bz2";
+        log.info("Selecting games from " + filename);
+        final AtomicInteger nSelected = new AtomicInteger();
+        final AtomicInteger nSelectedSynchro = new AtomicInteger();
+        final AtomicInteger nSelectedKomi = new AtomicInteger();
+        final AtomicInteger nProcessed = new AtomicInteger();
 
-        try {
-            for (GgfMatch match : GgfMatch.readFromFile(Paths.get(filename))) {
-                final List<COsGame> games = match.getGames();
-                final COsGame game0 = games.get(0);
+        Files.createDirectories(gamesFile.getParent());
+        final Path tmpGamesFile = gamesFile.resolveSibling(gamesFile.getFileName() + ".tmp");
+        final MvStore store;
+        try (final GameStore.Writer gameWriter = GameStore.create(tmpGamesFile)) {
+            final GameIngester.GameParser parser = new GameIngester.GameParser() {
+                @Override public void parse(@NotNull ByteBuffer lines, @NotNull List<GgfGameRecord> selected) {
+                    final GgfScanner scanner = new GgfScanner(lines);
+                    final List<GgfGameRecord> games = new ArrayList<>();
+                    while (scanner.nextMatch()) {
+                        try {
+                            if (scanner.nextGame(record(games, 0)) && isSelected(games.get(0))) {
+                                int nGames = 1;
+                                while (scanner.nextGame(record(games, nGames))) {
+                                    nGames++;
+                                }
 
-                final OsMatchType mt = game0.getMatchType();
-                if (game0.is8x8() && !mt.anti && game0.getBlackPlayer().rating > 2000 && game0.getWhitePlayer().rating > 2000) {
-                    nSelected++;
-                    if (mt.isSynch()) {
-                        nSelectedSynchro++;
-                    }
-                    if (mt.isKomi()) {
-                        nSelectedKomi++;
-                    }
-                    for (COsGame ggfGame : games) {
-                        final MutableGame mg = MutableGame.ofGgf(ggfGame.toString());
-                        meValues.addAll(mg.calcPositionValues());
-                    }
-                }
-                nProcessed++;
-                if (nProcessed % 1000 == 0) {
-                    System.out.print(".");
-                    if (nProcessed % 50000 == 0) {
-                        System.out.println(nProcessed / 1000 + "k");
+                                // only use the match once all its games have been read successfully.
+                                // Selected records are handed to the ingester, so they are removed from the
+                                // reusable records.
+                                final List<GgfGameRecord> match = games.subList(0, nGames);
+                                selected.addAll(match);
+                                nSelected.incrementAndGet();
+                                if (match.get(0).isSynchro()) {
+                                    nSelectedSynchro.incrementAndGet();
+                                }
+                                if (match.get(0).isKomi()) {
+                                    nSelectedKomi.incrementAndGet();
+                                }
+                                match.clear();
+                            }
+                        } catch (IllegalArgumentException e) {
+                            System.out.println("err: " + e.getMessage() + ": " + scanner.matchText());
+                            scanner.skipMatch();
+                        }
+                        final int n = nProcessed.incrementAndGet();
+                        if (n % 50000 == 0) {
+                            log.info(n / 1000 + "k matches processed");
+                        }
                     }
                 }
+            };
+
+            try (InputStream in = GgfMatch.getInputStreamForBZ2File(Paths.get(filename))) {
+                store = GameIngester.ingest(in, parser, gameWriter);
+            } catch (CompressorException e) {
+                throw new RuntimeException(e);
             }
-        } catch (CompressorException e) {
-            throw new RuntimeException(e);
         }
-        System.out.println();
+        Files.move(tmpGamesFile, gamesFile, StandardCopyOption.REPLACE_EXISTING);
         System.out.println("nSelected = " + nSelected + ", nSelectedSynchro = " + nSelectedSynchro + ", nKomi = " + nSelectedKomi);
-        return meValues;
+        return store;
+    }
+
+    /**
+     * Get the i'th record from a list of reusable records, creating records as needed.
+     */
+    private static GgfGameRecord record(List<GgfGameRecord> records, int i) {
+        while (records.size() <= i) {
+            records.add(new GgfGameRecord());
+        }
+        return records.get(i);
+    }
+
+    /**
+     * Select 8x8, non-anti matches between players rated over 2000.
+     *
+     * @param game0 first game of the match
+     */
+    private static boolean isSelected(GgfGameRecord game0) {
+        return game0.is8x8() && !game0.isAnti() && game0.getBlackRating() > 2000 && game0.getWhiteRating() > 2000;
     }
 }
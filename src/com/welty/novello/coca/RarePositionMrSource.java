@@ -16,6 +16,7 @@
 package com.welty.novello.coca;
 
 import com.orbanova.common.misc.Logger;
+import com.welty.novello.core.BitBoardUtils;
 import com.welty.novello.core.MeValue;
 import com.welty.novello.core.MinimalReflection;
 import com.orbanova.common.gui.ProgressUpdater;
@@ -23,16 +24,18 @@ import com.welty.novello.eval.EvalStrategy;
 import com.welty.novello.eval.PositionElement;
 
 import java.io.IOException;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class RarePositionMrSource implements MrSource {
     private static final Logger log = Logger.logger(RarePositionMrSource.class);
 
     private final EvalStrategy strategy;
-    private final List<MeValue> pvs;
+    private final MvStore pvs;
 
     /**
      * Generate a source that will produce rare subpositions
@@ -43,7 +46,7 @@ public class RarePositionMrSource implements MrSource {
      * @param strategy strategy for rare position determination
      * @param pvs      source of generated rare positions.
      */
-    public RarePositionMrSource(EvalStrategy strategy, List<MeValue> pvs) {
+    public RarePositionMrSource(EvalStrategy strategy, MvStore pvs) {
         this.strategy = strategy;
         this.pvs = pvs;
     }
@@ -61,45 +64,110 @@ public class RarePositionMrSource implements MrSource {
      * @return set of minimal reflections
      */
     public static Set<MinimalReflection> generateRareSubpositions(EvalStrategy strategy, List<MeValue> pvs) {
-        log.info("Starting generateRareSubpositions()");
-
-        final int[][] countSlices = new int[64][strategy.nCoefficientIndices()];
-
-        final Set<MinimalReflection> original = new HashSet<>();
-        for (MeValue pv : pvs) {
-            original.add(new MinimalReflection(pv.mover, pv.enemy));
-        }
+        return generateRareSubpositions(strategy, MvStore.of(pvs));
+    }
 
-        log.info(String.format("collected source positions. %,d distinct positions from %,d pvs", original.size(), pvs.size()));
+    /**
+     * Generate a set containing minimal reflections of all Mes that are
+     * (a) subpositions of a position in pvs
+     * (b) rare, and
+     * (c) not in pvs
+     * <p/>
+     * Every subposition of a pv with n empties has n-1 empties, so the pvs are split into shards by nEmpty and
+     * each shard has its own dedup sets and orid histogram. Shards run in parallel; since they share no state,
+     * the result doesn't depend on the number of threads or the order in which shards finish.
+     *
+     * @return set of minimal reflections
+     */
+    public static Set<MinimalReflection> generateRareSubpositions(final EvalStrategy strategy, final MvStore pvs) {
+        log.info("Starting generateRareSubpositions()");
 
+        final int nThreads = Runtime.getRuntime().availableProcessors();
+        final ExecutorService executor = Executors.newFixedThreadPool(nThreads);
         final ProgressUpdater progressMonitor = new ProgressUpdater("Generate rare subpositions", pvs.size());
+        final AtomicInteger nProcessed = new AtomicInteger();
 
         final HashSet<MinimalReflection> mrs = new HashSet<>();
-        int nextProgressReport = 25000;
-
-        for (int i = 0; i < pvs.size(); i++) {
-            final MeValue pv = pvs.get(i);
-
-            final MinimalReflection mr = new MinimalReflection(pv.mover, pv.enemy);
-            final Collection<MinimalReflection> subs = mr.subPositions();
-            for (MinimalReflection sub : subs) {
-                if (!original.contains(sub) && !mrs.contains(sub)) {
-                    final PositionElement element = strategy.coefficientIndices(mr.mover, mr.enemy, 0);
-                    final int[] counts = countSlices[mr.nEmpty()];
-                    if (element.isRare(counts, 10)) {
-                        mrs.add(sub);
-                        element.updateHistogram(counts);
-                    }
+        try {
+            final List<Future<List<MinimalReflection>>> futures = new ArrayList<>();
+            for (int nEmpty = 1; nEmpty <= 64; nEmpty++) {
+                if (pvs.size(nEmpty) == 0) {
+                    continue;
                 }
+                final int shardEmpty = nEmpty;
+                futures.add(executor.submit(new Callable<List<MinimalReflection>>() {
+                    @Override public List<MinimalReflection> call() {
+                        final List<MinimalReflection> rare = generateRareSubpositions(strategy, pvs, shardEmpty);
+                        synchronized (progressMonitor) {
+                            progressMonitor.setProgress(nProcessed.addAndGet(pvs.size(shardEmpty)));
+                        }
+                        log.info(String.format("%d empties: %,d pvs processed; %,d rare positions generated"
+                                , shardEmpty, pvs.size(shardEmpty), rare.size()));
+                        return rare;
+                    }
+                }));
             }
-            if (i >= nextProgressReport) {
-                progressMonitor.setProgress(i);
-                log.info((i >> 10) + "k pvs processed; " + (mrs.size() >> 10) + "k rare positions generated");
-                nextProgressReport *= 2;
+
+            for (Future<List<MinimalReflection>> future : futures) {
+                try {
+                    mrs.addAll(future.get());
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new RuntimeException(e);
+                }
             }
+        } finally {
+            executor.shutdownNow();
+            progressMonitor.close();
         }
+
         log.info("A total of " + (mrs.size() >> 10) + "k rare positions were created.");
-        progressMonitor.close();
         return mrs;
     }
+
+    /**
+     * Generate rare subpositions of the pvs with the given number of empties
+     * <p/>
+     * Subpositions are checked in the order of the pvs in the store. A subposition is rare if one of its
+     * coefficient indices has occurred fewer than 10 times in the subpositions already selected.
+     * Subpositions where neither player can move are skipped since they produce no pvs.
+     *
+     * @param nEmpty number of empties in the parent positions
+     * @return list of rare subpositions, each of which has nEmpty-1 empties
+     */
+    private static List<MinimalReflection> generateRareSubpositions(EvalStrategy strategy, MvStore pvs, int nEmpty) {
+        final int subEmpty = nEmpty - 1;
+
+        final MrHashSet original = new MrHashSet(pvs.size(subEmpty));
+        for (int i = pvs.start(subEmpty); i < pvs.end(subEmpty); i++) {
+            final MinimalReflection mr = new MinimalReflection(pvs.mover(i), pvs.enemy(i));
+            original.add(mr.mover, mr.enemy);
+        }
+
+        final int[] counts = new int[strategy.nCoefficientIndices()];
+        final MrHashSet seen = new MrHashSet(pvs.size(nEmpty));
+        final List<MinimalReflection> rare = new ArrayList<>();
+
+        for (int i = pvs.start(nEmpty); i < pvs.end(nEmpty); i++) {
+            final MinimalReflection mr = new MinimalReflection(pvs.mover(i), pvs.enemy(i));
+            for (MinimalReflection sub : mr.subPositions()) {
+                // A subposition that isn't rare now never will be, because counts only increase.
+                if (original.contains(sub.mover, sub.enemy) || !seen.add(sub.mover, sub.enemy)) {
+                    continue;
+                }
+                final PositionElement element;
+                if (BitBoardUtils.calcMoves(sub.mover, sub.enemy) != 0) {
+                    element = strategy.coefficientIndices(sub.mover, sub.enemy, 0);
+                } else if (BitBoardUtils.calcMoves(sub.enemy, sub.mover) != 0) {
+                    element = strategy.coefficientIndices(sub.enemy, sub.mover, 0);
+                } else {
+                    continue;
+                }
+                if (element.isRare(counts, 10)) {
+                    rare.add(sub);
+                    element.updateHistogram(counts);
+                }
+            }
+        }
+        return rare;
+    }
 }
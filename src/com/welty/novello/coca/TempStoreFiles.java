@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.coca;
+
+import com.orbanova.common.misc.Logger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Files for temporary {@link MvStore}s.
+ * <p/>
+ * Temporary stores stay memory-mapped until the JVM exits. Java can't unmap a file, and Windows can't delete a
+ * mapped file, so File.deleteOnExit() silently leaves them behind there. Instead, each run creates its files in
+ * its own directory under novello-stores in the system temp directory, and deletes the directories left by
+ * earlier runs the first time it needs one.
+ * <p/>
+ * A run holds a lock on a file in its directory until it exits, so the directories of runs that are still going
+ * are kept. Where the platform allows it, a run's files are also deleted when it exits.
+ */
+public final class TempStoreFiles {
+    private static final Logger log = Logger.logger(TempStoreFiles.class);
+    private static final String LOCK_FILE = "run.lock";
+
+    /**
+     * A directory without a lock file may belong to a run that is just starting; it is only deleted once it is
+     * this old.
+     */
+    private static final long UNLOCKED_DIRECTORY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private static Path runDirectory;
+
+    /**
+     * Held until the JVM exits
+     */
+    @SuppressWarnings("FieldCanBeLocal")
+    private static FileLock runLock;
+
+    private TempStoreFiles() {
+    }
+
+    /**
+     * Create an empty file for a temporary store.
+     *
+     * @param prefix start of the file name
+     * @return the file
+     */
+    public static @NotNull Path create(@NotNull String prefix) throws IOException {
+        final Path file = Files.createTempFile(runDirectory(), prefix, ".col");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    private static synchronized Path runDirectory() throws IOException {
+        if (runDirectory == null) {
+            final Path root = Paths.get(System.getProperty("java.io.tmpdir"), "novello-stores");
+            Files.createDirectories(root);
+            deleteStaleRunDirectories(root);
+
+            final Path directory = Files.createTempDirectory(root, "run");
+            // deleteOnExit() deletes in reverse order of registration, so the directory is deleted last
+            directory.toFile().deleteOnExit();
+            final Path lockFile = directory.resolve(LOCK_FILE);
+            final FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            lockFile.toFile().deleteOnExit();
+            runLock = lockChannel.lock();
+            runDirectory = directory;
+        }
+        return runDirectory;
+    }
+
+    /**
+     * Delete the directories in root that belong to runs that have exited
+     */
+    static void deleteStaleRunDirectories(Path root) throws IOException {
+        try (DirectoryStream<Path> directories = Files.newDirectoryStream(root)) {
+            for (Path directory : directories) {
+                if (Files.isDirectory(directory) && isStale(directory)) {
+                    try {
+                        deleteRecursively(directory);
+                    } catch (IOException e) {
+                        // perhaps another run is deleting it too. Try again next run.
+                        log.warn("Unable to delete temporary store directory " + directory + ": " + e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the directory belongs to a run that has exited
+     */
+    private static boolean isStale(Path directory) throws IOException {
+        final Path lockFile = directory.resolve(LOCK_FILE);
+        if (!Files.exists(lockFile)) {
+            final long age = System.currentTimeMillis() - Files.getLastModifiedTime(directory).toMillis();
+            return age > UNLOCKED_DIRECTORY_MILLIS;
+        }
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.WRITE)) {
+            final FileLock lock = channel.tryLock();
+            if (lock == null) {
+                return false;
+            }
+            lock.release();
+            return true;
+        } catch (OverlappingFileLockException e) {
+            // locked by this JVM
+            return false;
+        } catch (IOException e) {
+            // can't open the lock file, for instance because it was deleted after we checked it
+            return false;
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -387,12 +387,31 @@ public class BitBoardUtils {
         return (fillUpLeft(placement, enemy) & fillDownRight(mover, enemy)) | (fillDownRight(placement, enemy) & fillUpLeft(mover, enemy));
     }
 
+    /**
+     * True if move generation and flip calculation use {@link LaneMoveGenerator}.
+     * <p/>
+     * Selected at startup with -Dnovello.moveGen=lanes. The default is the Kogge-Stone/kindergarten implementation.
+     */
+    static final boolean LANE_MOVE_GEN = LaneMoveGenerator.PROPERTY_VALUE.equals(System.getProperty("novello.moveGen"));
+
     /**
      * Calculate mobilities (legal moves for the mover)
      *
      * @return mobility bitboard
      */
     public static long calcMoves(long mover, long enemy) {
+        if (LANE_MOVE_GEN) {
+            return LaneMoveGenerator.calcMoves(mover, enemy);
+        }
+        return calcMovesKoggeStone(mover, enemy);
+    }
+
+    /**
+     * Calculate mobilities (legal moves for the mover) using Kogge-Stone fills
+     *
+     * @return mobility bitboard
+     */
+    static long calcMovesKoggeStone(long mover, long enemy) {
         final long centerEnemy = enemy & ~BitBoardUtils.FilesAH;
         final long south = (fillDown(mover, enemy) & enemy) >>> 8;
         final long north = (fillUp(mover, enemy) & enemy) << 8;
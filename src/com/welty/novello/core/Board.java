@@ -20,6 +20,10 @@ import com.welty.othello.gdk.COsBoard;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import static java.lang.Long.bitCount;
 
 /**
@@ -453,4 +457,42 @@ public class Board implements Comparable<Board> {
     public MinimalReflection toMr() {
         return new MinimalReflection(mover(), enemy());
     }
+
+    /**
+     * Play games with uniformly random moves from the start position.
+     * <p/>
+     * Every position of each game is returned, in game order: positions where the mover must pass are followed by
+     * the position after the pass, and each game ends with a position where neither player can move. Callers that
+     * need the mover to have a legal move must filter the list.
+     * <p/>
+     * The games depend only on the random number generator, so a seeded generator gives repeatable positions
+     * for tests and timers.
+     *
+     * @param random source of the random moves
+     * @param nGames number of games to play
+     * @return positions from the games
+     */
+    public static List<Board> randomGameBoards(Random random, int nGames) {
+        final List<Board> boards = new ArrayList<>();
+        for (int game = 0; game < nGames; game++) {
+            Board board = START_BOARD;
+            while (true) {
+                boards.add(board);
+                long moves = board.calcMoves();
+                if (moves == 0) {
+                    board = board.pass();
+                    moves = board.calcMoves();
+                    if (moves == 0) {
+                        break;
+                    }
+                    boards.add(board);
+                }
+                for (int n = random.nextInt(bitCount(moves)); n > 0; n--) {
+                    moves &= moves - 1;
+                }
+                board = board.play(Long.numberOfTrailingZeros(moves));
+            }
+        }
+        return boards;
+    }
 }
@@ -23,10 +23,27 @@ import org.jetbrains.annotations.NotNull;
 public class Counts {
     public final long nFlips;
     public final long nEvals;
+    /**
+     * Number of evals answered from a search thread's eval cache. These are not included in nEvals.
+     */
+    public final long nEvalCacheHits;
 
     public Counts(long nFlips, long nEvals) {
+        this(nFlips, nEvals, 0);
+    }
+
+    public Counts(long nFlips, long nEvals, long nEvalCacheHits) {
         this.nFlips = nFlips;
         this.nEvals = nEvals;
+        this.nEvalCacheHits = nEvalCacheHits;
+    }
+
+    /**
+     * @return fraction of eval requests that were answered from the eval cache, or 0 if there were no requests.
+     */
+    public double evalCacheHitRate() {
+        final long nRequests = nEvals + nEvalCacheHits;
+        return nRequests == 0 ? 0 : nEvalCacheHits / (double) nRequests;
     }
 
     @Override public String toString() {
@@ -45,11 +62,13 @@ public class Counts {
     }
 
     public Counts plus(Counts counts) {
-        return new Counts(nFlips + counts.nFlips, nEvals + counts.nEvals);
+        return new Counts(nFlips + counts.nFlips, nEvals + counts.nEvals, nEvalCacheHits + counts.nEvalCacheHits);
     }
 
     /**
      * Estimate the cost of the search
+     * <p/>
+     * Eval cache hits are not included; they cost about as much as a hash table lookup.
      * @return a number proportional to the cost of the search
      */
     public long cost() {
@@ -57,6 +76,6 @@ public class Counts {
     }
 
     public Counts minus(Counts counts) {
-        return new Counts(nFlips - counts.nFlips, nEvals - counts.nEvals);
+        return new Counts(nFlips - counts.nFlips, nEvals - counts.nEvals, nEvalCacheHits - counts.nEvalCacheHits);
     }
 }
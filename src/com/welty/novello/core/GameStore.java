@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.core;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary file of 8x8 games with random access by game index.
+ * <p/>
+ * A game takes about a tenth of the space of the same game in GGF. Each game record contains the start position
+ * (omitted if it is the standard start position), one byte per move, the result, the time taken by each player,
+ * and ids of the black player, white player and place. Names are written once, in name records, the first time
+ * they are used; a name's id is the number of name records before it.
+ * <p/>
+ * File format (all values big-endian):
+ * <pre>
+ * int    magic number
+ * then any number of records:
+ * byte   record type (NAME or GAME)
+ * short  length of the record body, in bytes (unsigned)
+ * body:
+ *   NAME: the name, in ISO-8859-1
+ *   GAME: byte  flags (BLACK_TO_MOVE, NONSTANDARD_START)
+ *         long black disks, long white disks (only if NONSTANDARD_START)
+ *         byte  net score to black, or NO_RESULT if the game did not end in a terminal position
+ *         int   black name id, int white name id, int place name id
+ *         float black time, float white time (seconds)
+ *         byte  square of each move, or PASS; the number of moves is given by the record length
+ * </pre>
+ * The offset index is built when the file is opened by stepping from one record header to the next, so the file
+ * needs no separate index and can't get out of sync with one.
+ * <p/>
+ * Reads fill a {@link GgfGameRecord}, which can be reused for any number of games. The store can be read
+ * from multiple threads concurrently.
+ */
+public class GameStore {
+    private static final int MAGIC = 0x4e475331;
+    private static final byte NAME = 0;
+    private static final byte GAME = 1;
+    private static final byte BLACK_TO_MOVE = 1;
+    private static final byte NONSTANDARD_START = 2;
+    private static final byte PASS = 64;
+    private static final int RECORD_HEADER_SIZE = 3;
+
+    /**
+     * Result stored for games that did not end in a terminal position, for example because a player resigned.
+     */
+    public static final int NO_RESULT = Byte.MIN_VALUE;
+
+    private final @NotNull ByteBuffer buffer;
+    private final int[] gameOffsets;
+    private final int[] nameStarts;
+    private final int[] nameEnds;
+
+    private GameStore(@NotNull ByteBuffer buffer, int[] gameOffsets, int[] nameStarts, int[] nameEnds) {
+        this.buffer = buffer;
+        this.gameOffsets = gameOffsets;
+        this.nameStarts = nameStarts;
+        this.nameEnds = nameEnds;
+    }
+
+    /**
+     * Memory-map a game store and build its offset index.
+     *
+     * @param path location of the store
+     * @return the store
+     * @throws IOException if the file can't be read, is larger than 2GB, or is not a valid game store
+     */
+    public static @NotNull GameStore open(@NotNull Path path) throws IOException {
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Game store " + path + " is too large to map");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < 4 || buffer.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a game store");
+        }
+
+        int[] gameOffsets = new int[1024];
+        int nGames = 0;
+        int[] nameStarts = new int[64];
+        int[] nameEnds = new int[64];
+        int nNames = 0;
+
+        int offset = 4;
+        while (offset < buffer.limit()) {
+            if (offset + RECORD_HEADER_SIZE > buffer.limit()) {
+                throw new IOException(path + " is truncated");
+            }
+            final byte type = buffer.get(offset);
+            final int bodyStart = offset + RECORD_HEADER_SIZE;
+            final int bodyEnd = bodyStart + (buffer.getShort(offset + 1) & 0xFFFF);
+            if (bodyEnd > buffer.limit()) {
+                throw new IOException(path + " is truncated");
+            }
+            if (type == GAME) {
+                if (nGames == gameOffsets.length) {
+                    gameOffsets = Arrays.copyOf(gameOffsets, 2 * nGames);
+                }
+                gameOffsets[nGames++] = offset;
+            } else if (type == NAME) {
+                if (nNames == nameStarts.length) {
+                    nameStarts = Arrays.copyOf(nameStarts, 2 * nNames);
+                    nameEnds = Arrays.copyOf(nameEnds, 2 * nNames);
+                }
+                nameStarts[nNames] = bodyStart;
+                nameEnds[nNames] = bodyEnd;
+                nNames++;
+            } else {
+                throw new IOException(path + " has unknown record type " + type + " at offset " + offset);
+            }
+            offset = bodyEnd;
+        }
+        return new GameStore(buffer, Arrays.copyOf(gameOffsets, nGames), Arrays.copyOf(nameStarts, nNames)
+                , Arrays.copyOf(nameEnds, nNames));
+    }
+
+    /**
+     * @return number of games in the store
+     */
+    public int size() {
+        return gameOffsets.length;
+    }
+
+    /**
+     * Read a game.
+     * <p/>
+     * The record's per-move evals and times are 0; its player times are the totals stored for the game.
+     * Ratings and match type are not stored and are left at their cleared values, except that the board size is 8.
+     *
+     * @param i    index of the game, 0 &le; i &lt; size()
+     * @param game record to fill with the game's data
+     */
+    public void read(int i, @NotNull GgfGameRecord game) {
+        int pos = gameOffsets[i] + RECORD_HEADER_SIZE;
+        final int end = pos + (buffer.getShort(pos - 2) & 0xFFFF);
+        game.clear(buffer);
+        game.setBoardSize(8);
+
+        final byte flags = buffer.get(pos++);
+        final boolean blackToMove = (flags & BLACK_TO_MOVE) != 0;
+        if ((flags & NONSTANDARD_START) != 0) {
+            game.setStartPosition(buffer.getLong(pos), buffer.getLong(pos + 8), blackToMove);
+            pos += 16;
+        } else {
+            game.setStartPosition(Board.START_BOARD.black, Board.START_BOARD.white, blackToMove);
+        }
+        pos++; // result
+        final int blackId = buffer.getInt(pos);
+        final int whiteId = buffer.getInt(pos + 4);
+        final int placeId = buffer.getInt(pos + 8);
+        game.setBlackName(nameStarts[blackId], nameEnds[blackId]);
+        game.setWhiteName(nameStarts[whiteId], nameEnds[whiteId]);
+        game.setPlace(nameStarts[placeId], nameEnds[placeId]);
+        final float blackTime = buffer.getFloat(pos + 12);
+        final float whiteTime = buffer.getFloat(pos + 16);
+        pos += 20;
+
+        for (; pos < end; pos++) {
+            final byte sq = buffer.get(pos);
+            game.addMove(sq == PASS ? -1 : sq, 0, 0);
+        }
+        game.setTimes(blackTime, whiteTime);
+    }
+
+    /**
+     * Get the result of a game without reading its moves.
+     *
+     * @param i index of the game, 0 &le; i &lt; size()
+     * @return net score to black, or {@link #NO_RESULT} if the game did not end in a terminal position
+     */
+    public int getResult(int i) {
+        final int pos = gameOffsets[i] + RECORD_HEADER_SIZE;
+        final boolean nonstandardStart = (buffer.get(pos) & NONSTANDARD_START) != 0;
+        return buffer.get(pos + (nonstandardStart ? 17 : 1));
+    }
+
+    /**
+     * Read a game into a new MutableGame.
+     * <p/>
+     * This is convenient when only a few games are needed; to read many games use {@link #read(int, GgfGameRecord)}.
+     *
+     * @param i index of the game, 0 &le; i &lt; size()
+     * @return the game
+     */
+    public @NotNull MutableGame getGame(int i) {
+        final GgfGameRecord game = new GgfGameRecord();
+        read(i, game);
+        return game.toMutableGame();
+    }
+
+    /**
+     * Add MeValues for all positions, in all games in the store, where the mover has a legal move.
+     *
+     * @param mvs list to which the MeValues are added
+     */
+    public void addPositionValues(@NotNull List<MeValue> mvs) {
+        final GgfGameRecord game = new GgfGameRecord();
+        for (int i = 0; i < size(); i++) {
+            read(i, game);
+            game.addPositionValues(mvs);
+        }
+    }
+
+    /**
+     * Create a new, empty game store, replacing any file at the path.
+     *
+     * @param path location of the store
+     * @return a Writer that adds games to the store
+     */
+    public static @NotNull Writer create(@NotNull Path path) throws IOException {
+        return new Writer(path);
+    }
+
+    /**
+     * Adds games to a game store.
+     * <p/>
+     * Methods are synchronized so that games can be added from multiple threads. Games are stored in the order
+     * they are added.
+     */
+    public static class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final Map<String, Integer> nameIds = new HashMap<>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final DataOutputStream bodyOut = new DataOutputStream(body);
+        private int nGames;
+
+        private Writer(@NotNull Path path) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+            out.writeInt(MAGIC);
+        }
+
+        /**
+         * Add a game.
+         * <p/>
+         * Per-move evals and times are not stored; the total time taken by each player is.
+         *
+         * @param game game to add
+         */
+        public synchronized void add(@NotNull MutableGame game) throws IOException {
+            final List<Move8x8> mlis = game.getMlis();
+            final byte[] moves = new byte[mlis.size()];
+            for (int i = 0; i < moves.length; i++) {
+                final int sq = mlis.get(i).getSq();
+                moves[i] = sq < 0 ? PASS : (byte) sq;
+            }
+            add(game.getStartBoard(), game.getLastBoard(), game.blackName, game.whiteName, game.place
+                    , game.time(true), game.time(false), moves);
+        }
+
+        /**
+         * Add a game.
+         * <p/>
+         * Per-move evals and times are not stored; the total time taken by each player is.
+         *
+         * @param game game to add; must be an 8x8 game
+         * @throws IllegalArgumentException if the game is not 8x8
+         */
+        public synchronized void add(@NotNull GgfGameRecord game) throws IOException {
+            if (!game.is8x8()) {
+                throw new IllegalArgumentException("Only 8x8 games can be stored, not " + game.getBoardSize());
+            }
+            final byte[] moves = new byte[game.nMoves()];
+            for (int i = 0; i < moves.length; i++) {
+                final int sq = game.getSq(i);
+                moves[i] = sq < 0 ? PASS : (byte) sq;
+            }
+            add(game.getStartBoard(), game.getLastBoard(), game.getBlackName(), game.getWhiteName(), game.getPlace()
+                    , game.time(true), game.time(false), moves);
+        }
+
+        private void add(Board start, Board last, String blackName, String whiteName, String place
+                , double blackTime, double whiteTime, byte[] moves) throws IOException {
+            final int blackId = nameId(blackName);
+            final int whiteId = nameId(whiteName);
+            final int placeId = nameId(place);
+
+            body.reset();
+            final boolean nonstandardStart = start.black != Board.START_BOARD.black || start.white != Board.START_BOARD.white;
+            bodyOut.writeByte((start.blackToMove ? BLACK_TO_MOVE : 0) | (nonstandardStart ? NONSTANDARD_START : 0));
+            if (nonstandardStart) {
+                bodyOut.writeLong(start.black);
+                bodyOut.writeLong(start.white);
+            }
+            final boolean isOver = !last.hasLegalMove() && !last.pass().hasLegalMove();
+            bodyOut.writeByte(isOver ? last.terminalScoreToBlack() : NO_RESULT);
+            bodyOut.writeInt(blackId);
+            bodyOut.writeInt(whiteId);
+            bodyOut.writeInt(placeId);
+            bodyOut.writeFloat((float) blackTime);
+            bodyOut.writeFloat((float) whiteTime);
+            bodyOut.write(moves);
+            bodyOut.flush();
+            writeRecord(GAME, body.toByteArray());
+            nGames++;
+        }
+
+        private int nameId(String name) throws IOException {
+            Integer id = nameIds.get(name);
+            if (id == null) {
+                writeRecord(NAME, name.getBytes(StandardCharsets.ISO_8859_1));
+                id = nameIds.size();
+                nameIds.put(name, id);
+            }
+            return id;
+        }
+
+        private void writeRecord(byte type, byte[] recordBody) throws IOException {
+            if (recordBody.length > 0xFFFF) {
+                throw new IllegalArgumentException("Record is too long: " + recordBody.length + " bytes");
+            }
+            out.writeByte(type);
+            out.writeShort(recordBody.length);
+            out.write(recordBody);
+        }
+
+        /**
+         * @return number of games added so far
+         */
+        public synchronized int size() {
+            return nGames;
+        }
+
+        @Override public synchronized void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.core;
+
+import com.welty.novello.eval.CoefficientCalculator;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The parts of a GGF game needed for coefficient calculation, read directly from bytes.
+ * <p/>
+ * A record is filled by {@link GgfScanner#nextGame(GgfGameRecord)} or {@link GameStore#read(int, GgfGameRecord)}
+ * and can be reused for any number of games.
+ * Filling a record does not create Strings or other objects, except to grow the move list when a game is longer
+ * than any seen so far. Player names are stored as byte ranges and only converted to Strings on request.
+ * <p/>
+ * Only 8x8 games have their start position and moves parsed; for other board sizes only the header fields
+ * (players, ratings, match type, board size) are valid.
+ */
+public class GgfGameRecord {
+    private ByteBuffer buffer;
+    private int blackNameStart, blackNameEnd;
+    private int whiteNameStart, whiteNameEnd;
+    private int placeStart, placeEnd;
+
+    private double blackRating;
+    private double whiteRating;
+
+    private int boardSize;
+    private boolean synchro;
+    private boolean komi;
+    private boolean anti;
+    private int nRandDisks;
+
+    private long startBlack;
+    private long startWhite;
+    private boolean startBlackToMove;
+
+    /**
+     * Squares of the moves played, or -1 for a pass
+     */
+    private int[] squares = new int[80];
+    private double[] evals = new double[80];
+    private double[] times = new double[80];
+    private int nMoves;
+
+    private double blackTime;
+    private double whiteTime;
+    private boolean blackMovesNext;
+
+    void clear(ByteBuffer buffer) {
+        this.buffer = buffer;
+        blackNameStart = blackNameEnd = whiteNameStart = whiteNameEnd = placeStart = placeEnd = 0;
+        blackRating = whiteRating = 0;
+        boardSize = 0;
+        synchro = komi = anti = false;
+        nRandDisks = 0;
+        startBlack = startWhite = 0;
+        startBlackToMove = true;
+        nMoves = 0;
+        blackTime = whiteTime = 0;
+        blackMovesNext = true;
+    }
+
+    void setBlackName(int start, int end) {
+        blackNameStart = start;
+        blackNameEnd = end;
+    }
+
+    void setWhiteName(int start, int end) {
+        whiteNameStart = start;
+        whiteNameEnd = end;
+    }
+
+    void setPlace(int start, int end) {
+        placeStart = start;
+        placeEnd = end;
+    }
+
+    void setBlackRating(double blackRating) {
+        this.blackRating = blackRating;
+    }
+
+    void setWhiteRating(double whiteRating) {
+        this.whiteRating = whiteRating;
+    }
+
+    void setMatchType(boolean synchro, boolean komi, boolean anti, int nRandDisks) {
+        this.synchro = synchro;
+        this.komi = komi;
+        this.anti = anti;
+        this.nRandDisks = nRandDisks;
+    }
+
+    void setBoardSize(int boardSize) {
+        this.boardSize = boardSize;
+    }
+
+    void setStartPosition(long black, long white, boolean blackToMove) {
+        startBlack = black;
+        startWhite = white;
+        startBlackToMove = blackToMove;
+        blackMovesNext = blackToMove;
+    }
+
+    void addMove(int sq, double eval, double time) {
+        if (nMoves == squares.length) {
+            squares = Arrays.copyOf(squares, 2 * nMoves);
+            evals = Arrays.copyOf(evals, 2 * nMoves);
+            times = Arrays.copyOf(times, 2 * nMoves);
+        }
+        squares[nMoves] = sq;
+        evals[nMoves] = eval;
+        times[nMoves] = time;
+        nMoves++;
+        if (blackMovesNext) {
+            blackTime += time;
+        } else {
+            whiteTime += time;
+        }
+        blackMovesNext = !blackMovesNext;
+    }
+
+    /**
+     * Set the total time taken by each player, for games whose per-move times are not known.
+     */
+    void setTimes(double blackTime, double whiteTime) {
+        this.blackTime = blackTime;
+        this.whiteTime = whiteTime;
+    }
+
+    public @NotNull String getBlackName() {
+        return text(blackNameStart, blackNameEnd);
+    }
+
+    public @NotNull String getWhiteName() {
+        return text(whiteNameStart, whiteNameEnd);
+    }
+
+    public @NotNull String getPlace() {
+        return text(placeStart, placeEnd);
+    }
+
+    private String text(int start, int end) {
+        final byte[] bytes = new byte[end - start];
+        for (int i = start; i < end; i++) {
+            bytes[i - start] = buffer.get(i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    public double getBlackRating() {
+        return blackRating;
+    }
+
+    public double getWhiteRating() {
+        return whiteRating;
+    }
+
+    /**
+     * @return board size, as given in the BO tag
+     */
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    public boolean is8x8() {
+        return boardSize == 8;
+    }
+
+    public boolean isSynchro() {
+        return synchro;
+    }
+
+    public boolean isKomi() {
+        return komi;
+    }
+
+    public boolean isAnti() {
+        return anti;
+    }
+
+    /**
+     * @return number of random disks in the match type, or 0 if the match is not a random-start match
+     */
+    public int getNRandDisks() {
+        return nRandDisks;
+    }
+
+    public @NotNull Board getStartBoard() {
+        return new Board(startBlack, startWhite, startBlackToMove);
+    }
+
+    /**
+     * @return number of moves in the game, including passes
+     */
+    public int nMoves() {
+        return nMoves;
+    }
+
+    /**
+     * @return square of move i, or -1 if move i was a pass
+     */
+    public int getSq(int i) {
+        return squares[i];
+    }
+
+    /**
+     * Calculate time taken by a player
+     *
+     * @param blackPlayer if true, return time taken by the black player; otherwise return time taken by the white player.
+     * @return total time taken by a player in all recorded moves.
+     */
+    public double time(boolean blackPlayer) {
+        return blackPlayer ? blackTime : whiteTime;
+    }
+
+    /**
+     * @return the position after all moves in the game have been played
+     */
+    public @NotNull Board getLastBoard() {
+        Board pos = getStartBoard();
+        for (int i = 0; i < nMoves; i++) {
+            pos = pos.playOrPass(squares[i]);
+        }
+        return pos;
+    }
+
+    /**
+     * Create a MutableGame containing this game's start position and moves.
+     * <p/>
+     * The game uses default clocks.
+     *
+     * @return the game
+     */
+    public @NotNull MutableGame toMutableGame() {
+        final MutableGame game = new MutableGame(getStartBoard(), getBlackName(), getWhiteName(), getPlace());
+        for (int i = 0; i < nMoves; i++) {
+            if (squares[i] < 0) {
+                game.pass();
+            } else {
+                final int centidisks = (int) Math.round(evals[i] * CoefficientCalculator.DISK_VALUE);
+                game.play(new MoveScore(squares[i], centidisks), times[i]);
+            }
+        }
+        return game;
+    }
+
+    /**
+     * Add MeValues for the positions in the game where the mover has a legal move.
+     * <p/>
+     * The values are the same as those from {@link MutableGame#calcPositionValues()}, but no MutableGame is created.
+     *
+     * @param mvs list to which the MeValues are added
+     */
+    public void addPositionValues(@NotNull List<MeValue> mvs) {
+        final int netScoreToBlack = getLastBoard().terminalScoreToBlack();
+
+        Board pos = getStartBoard();
+        for (int i = 0; i < nMoves; i++) {
+            if (squares[i] < 0) {
+                pos = pos.pass();
+            } else {
+                final int centidisks = CoefficientCalculator.DISK_VALUE * (pos.blackToMove ? netScoreToBlack : -netScoreToBlack);
+                mvs.add(new MeValue(pos.mover(), pos.enemy(), centidisks));
+                pos = pos.play(squares[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads GGF matches directly from bytes.
+ * <p/>
+ * The buffer holds one match per line, in the format of GGS match archives: the number of games in the match
+ * followed by the GGF text of each game. For example
+ * <pre>
+ * 2 (;GM[Othello]PB[a]PW[b]...;)(;GM[Othello]PB[b]PW[a]...;)
+ * </pre>
+ * Usage:
+ * <pre>
+ * final GgfScanner scanner = new GgfScanner(buffer);
+ * final GgfGameRecord game = new GgfGameRecord();
+ * while (scanner.nextMatch()) {
+ *     while (scanner.nextGame(game)) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * Bytes are read with absolute gets, so a read-only or memory-mapped buffer can be scanned without copying.
+ * The buffer's position and limit are not changed.
+ * <p/>
+ * If a match is malformed, nextGame() throws an IllegalArgumentException; call {@link #skipMatch()} to continue
+ * with the next match.
+ */
+public class GgfScanner {
+    private final ByteBuffer buffer;
+    private final int limit;
+
+    /**
+     * Index of the next byte to read
+     */
+    private int pos;
+
+    private int matchStart;
+
+    /**
+     * Index of the end of the current match's line
+     */
+    private int lineEnd;
+    private int nGames;
+    private int nGamesRead;
+
+    /**
+     * Scan the bytes between the buffer's position and limit
+     */
+    public GgfScanner(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.pos = buffer.position();
+        this.limit = buffer.limit();
+        this.lineEnd = pos;
+    }
+
+    /**
+     * Move to the next match.
+     * <p/>
+     * Any games remaining in the current match are skipped. Blank lines are skipped.
+     *
+     * @return true if there is another match, false if the end of the buffer has been reached
+     * @throws IllegalArgumentException if the line does not start with a number of games
+     */
+    public boolean nextMatch() {
+        pos = Math.max(pos, lineEnd);
+        while (pos < limit && isWhitespace(buffer.get(pos))) {
+            pos++;
+        }
+        if (pos >= limit) {
+            return false;
+        }
+        matchStart = pos;
+        lineEnd = pos;
+        while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+            lineEnd++;
+        }
+        nGames = 0;
+        nGamesRead = 0;
+        while (pos < lineEnd && isDigit(buffer.get(pos))) {
+            nGames = nGames * 10 + buffer.get(pos++) - '0';
+        }
+        if (pos == matchStart) {
+            throw error("Match does not start with the number of games");
+        }
+        return true;
+    }
+
+    /**
+     * Skip the rest of the current match
+     */
+    public void skipMatch() {
+        pos = lineEnd;
+        nGamesRead = nGames;
+    }
+
+    /**
+     * @return number of games in the current match, as given at the start of its line
+     */
+    public int nGames() {
+        return nGames;
+    }
+
+    /**
+     * @return text of the current match. This creates a String; it is intended for error messages.
+     */
+    public String matchText() {
+        final byte[] bytes = new byte[lineEnd - matchStart];
+        for (int i = matchStart; i < lineEnd; i++) {
+            bytes[i - matchStart] = buffer.get(i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1).trim();
+    }
+
+    /**
+     * Read the next game of the current match
+     *
+     * @param game record to fill with the game's data
+     * @return true if a game was read, false if all games in the match have been read
+     * @throws IllegalArgumentException if the game is malformed, or the match has fewer or more games than stated
+     */
+    public boolean nextGame(GgfGameRecord game) {
+        skipWhitespace();
+        if (nGamesRead == nGames) {
+            if (pos < lineEnd) {
+                throw error("Match has more than " + nGames + " games");
+            }
+            return false;
+        }
+        if (pos >= lineEnd) {
+            throw error("Match has " + nGamesRead + " games but should have " + nGames);
+        }
+        expect('(');
+        expect(';');
+        game.clear(buffer);
+        while (true) {
+            skipWhitespace();
+            if (peek() == ';') {
+                pos++;
+                expect(')');
+                break;
+            }
+            readProperty(game);
+        }
+        nGamesRead++;
+        return true;
+    }
+
+    /**
+     * Read a property such as PB[name] and store its value in the game if it's one we need.
+     */
+    private void readProperty(GgfGameRecord game) {
+        int tag = 0;
+        while (pos < lineEnd && buffer.get(pos) != '[') {
+            tag = (tag << 8) | (buffer.get(pos++) & 0xFF);
+        }
+        expect('[');
+        final int valueStart = pos;
+        while (peek() != ']') {
+            if (buffer.get(pos) == '\\') {
+                pos++;
+            }
+            pos++;
+        }
+        final int valueEnd = pos;
+        pos++;
+
+        switch (tag) {
+            case ('P' << 8) | 'B':
+                game.setBlackName(valueStart, valueEnd);
+                break;
+            case ('P' << 8) | 'W':
+                game.setWhiteName(valueStart, valueEnd);
+                break;
+            case ('P' << 8) | 'C':
+                game.setPlace(valueStart, valueEnd);
+                break;
+            case ('R' << 8) | 'B':
+                game.setBlackRating(parseDouble(valueStart, valueEnd));
+                break;
+            case ('R' << 8) | 'W':
+                game.setWhiteRating(parseDouble(valueStart, valueEnd));
+                break;
+            case ('T' << 8) | 'Y':
+                readMatchType(game, valueStart, valueEnd);
+                break;
+            case ('B' << 8) | 'O':
+                readBoard(game, valueStart, valueEnd);
+                break;
+            case 'B':
+            case 'W':
+                if (game.is8x8()) {
+                    readMove(game, valueStart, valueEnd);
+                } else if (game.getBoardSize() == 0) {
+                    throw error("Move before board");
+                }
+                break;
+            default:
+                // not needed
+        }
+    }
+
+    /**
+     * Read a GGS match type such as "8", "s8r20" or "8k".
+     * <p/>
+     * 's' is synchro, 'k' is komi, 'a' is anti, and 'r' is followed by the number of random disks.
+     * The board size comes from the BO tag rather than the match type.
+     */
+    private void readMatchType(GgfGameRecord game, int start, int end) {
+        boolean synchro = false;
+        boolean komi = false;
+        boolean anti = false;
+        int nRandDisks = 0;
+        for (int i = start; i < end; i++) {
+            switch (buffer.get(i)) {
+                case 's':
+                    synchro = true;
+                    break;
+                case 'k':
+                    komi = true;
+                    break;
+                case 'a':
+                    anti = true;
+                    break;
+                case 'r':
+                    while (i + 1 < end && isDigit(buffer.get(i + 1))) {
+                        nRandDisks = nRandDisks * 10 + buffer.get(++i) - '0';
+                    }
+                    break;
+                default:
+                    // board size or an option we don't use
+            }
+        }
+        game.setMatchType(synchro, komi, anti, nRandDisks);
+    }
+
+    /**
+     * Read a board such as "8 -------- -------- -------- ---O*--- ---*O--- -------- -------- -------- *".
+     * <p/>
+     * The disks are only read for 8x8 boards.
+     */
+    private void readBoard(GgfGameRecord game, int start, int end) {
+        int i = start;
+        int boardSize = 0;
+        while (i < end && isDigit(buffer.get(i))) {
+            boardSize = boardSize * 10 + buffer.get(i++) - '0';
+        }
+        game.setBoardSize(boardSize);
+        if (boardSize != 8) {
+            return;
+        }
+        long black = 0;
+        long white = 0;
+        int nSquares = 0;
+        for (; i < end && nSquares < 64; i++) {
+            final byte c = buffer.get(i);
+            if (isWhitespace(c)) {
+                continue;
+            }
+            black <<= 1;
+            white <<= 1;
+            switch (c) {
+                case '*':
+                    black |= 1;
+                    break;
+                case 'O':
+                    white |= 1;
+                    break;
+                case '-':
+                    break;
+                default:
+                    throw error("Invalid board character '" + (char) c + "'");
+            }
+            nSquares++;
+        }
+        while (i < end && isWhitespace(buffer.get(i))) {
+            i++;
+        }
+        if (nSquares != 64 || i >= end) {
+            throw error("Board is too short");
+        }
+        final byte mover = buffer.get(i);
+        if (mover != '*' && mover != 'O') {
+            throw error("Invalid player-to-move character '" + (char) mover + "'");
+        }
+        game.setStartPosition(black, white, mover == '*');
+    }
+
+    /**
+     * Read a move such as "d3", "d3//0.01", "D3/-1.50/2.3" or "pass"
+     */
+    private void readMove(GgfGameRecord game, int start, int end) {
+        final int moveEnd = indexOf('/', start, end);
+        final int sq;
+        final byte c0 = start < moveEnd ? buffer.get(start) : 0;
+        if (c0 == 'p' || c0 == 'P') {
+            sq = -1;
+        } else if (moveEnd - start == 2) {
+            final int col = 'H' - (c0 & ~0x20);
+            final int row = '8' - buffer.get(start + 1);
+            if (col < 0 || col > 7 || row < 0 || row > 7) {
+                throw error("Illegal square");
+            }
+            sq = BitBoardUtils.square(row, col);
+        } else {
+            throw error("Illegal move");
+        }
+        double eval = 0;
+        double time = 0;
+        if (moveEnd < end) {
+            final int evalEnd = indexOf('/', moveEnd + 1, end);
+            eval = parseDouble(moveEnd + 1, evalEnd);
+            if (evalEnd < end) {
+                time = parseDouble(evalEnd + 1, end);
+            }
+        }
+        game.addMove(sq, eval, time);
+    }
+
+    private int indexOf(char c, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == c) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Parse a decimal number such as "-12.34". An empty range is 0.
+     */
+    private double parseDouble(int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        long scale = 1;
+        boolean afterPoint = false;
+        for (; i < end; i++) {
+            final byte c = buffer.get(i);
+            if (isDigit(c)) {
+                mantissa = mantissa * 10 + c - '0';
+                if (afterPoint) {
+                    scale *= 10;
+                }
+            } else if (c == '.' && !afterPoint) {
+                afterPoint = true;
+            } else {
+                throw error("Invalid number");
+            }
+        }
+        final double value = (double) mantissa / scale;
+        return negative ? -value : value;
+    }
+
+    private byte peek() {
+        if (pos >= lineEnd) {
+            throw error("Unexpected end of match");
+        }
+        return buffer.get(pos);
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        pos++;
+    }
+
+    private void skipWhitespace() {
+        while (pos < lineEnd && isWhitespace(buffer.get(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + (pos - matchStart) + " of match");
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+}
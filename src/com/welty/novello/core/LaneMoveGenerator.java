@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+
+package com.welty.novello.core;
+
+/**
+ * Move generation and flip calculation with the four direction pairs processed in lockstep.
+ * <p/>
+ * Each direction pair (east/west, north/south, and the two diagonals) is a "lane" defined by a shift
+ * and an enemy mask that prevents wrapping between rows. Every step of the flood fill updates all 8
+ * directions with the same shift/and/or sequence and no dependencies between lanes, so the CPU can
+ * overlap the lanes' instructions. This is the layout a SIMD implementation would use with one
+ * direction pair per vector lane; in plain Java it relies on instruction-level parallelism instead.
+ * <p/>
+ * The default implementations are {@link BitBoardUtils#calcMoves(long, long)} (Kogge-Stone fills) and
+ * {@link Square#calcFlips(long, long)} (kindergarten lookups). This class is used instead when the
+ * system property {@code novello.moveGen} is set to {@code lanes} at startup. Results are identical.
+ */
+final class LaneMoveGenerator {
+    /**
+     * Value of the system property novello.moveGen that selects this move generator
+     */
+    static final String PROPERTY_VALUE = "lanes";
+
+    private static final long CENTER_COLS = ~(BitBoardUtils.AFile | BitBoardUtils.HFile);
+
+    private LaneMoveGenerator() {
+    }
+
+    /**
+     * Calculate mobilities (legal moves for the mover)
+     *
+     * @return mobility bitboard
+     */
+    static long calcMoves(long mover, long enemy) {
+        final long mh = enemy & CENTER_COLS; // lane 0: east/west, shift 1
+        final long mv = enemy;               // lane 1: north/south, shift 8
+        final long md = enemy & CENTER_COLS; // lanes 2,3: diagonals, shifts 7 and 9
+
+        long w = mh & (mover << 1);
+        long e = mh & (mover >>> 1);
+        long n = mv & (mover << 8);
+        long s = mv & (mover >>> 8);
+        long ne = md & (mover << 7);
+        long sw = md & (mover >>> 7);
+        long nw = md & (mover << 9);
+        long se = md & (mover >>> 9);
+
+        // at most 6 enemy disks in a row, so 5 more steps reach the end of every run
+        for (int i = 0; i < 5; i++) {
+            w |= mh & (w << 1);
+            e |= mh & (e >>> 1);
+            n |= mv & (n << 8);
+            s |= mv & (s >>> 8);
+            ne |= md & (ne << 7);
+            sw |= md & (sw >>> 7);
+            nw |= md & (nw << 9);
+            se |= md & (se >>> 9);
+        }
+
+        final long moves = (w << 1) | (e >>> 1) | (n << 8) | (s >>> 8)
+                | (ne << 7) | (sw >>> 7) | (nw << 9) | (se >>> 9);
+        return moves & ~(mover | enemy);
+    }
+
+    /**
+     * Calculate the disks flipped when the mover places a disk on sq.
+     * <p/>
+     * If this returns 0, the move is not legal.
+     *
+     * @param sq    square index of the placement; this square must be empty
+     * @param mover mover disks
+     * @param enemy enemy disks
+     * @return a bitboard of disks that will be flipped.
+     */
+    static long calcFlips(int sq, long mover, long enemy) {
+        final long placement = 1L << sq;
+        final long mh = enemy & CENTER_COLS;
+        final long mv = enemy;
+        final long md = enemy & CENTER_COLS;
+
+        // runs of enemy disks starting next to the placement
+        long w = mh & (placement << 1);
+        long e = mh & (placement >>> 1);
+        long n = mv & (placement << 8);
+        long s = mv & (placement >>> 8);
+        long ne = md & (placement << 7);
+        long sw = md & (placement >>> 7);
+        long nw = md & (placement << 9);
+        long se = md & (placement >>> 9);
+
+        for (int i = 0; i < 5; i++) {
+            w |= mh & (w << 1);
+            e |= mh & (e >>> 1);
+            n |= mv & (n << 8);
+            s |= mv & (s >>> 8);
+            ne |= md & (ne << 7);
+            sw |= md & (sw >>> 7);
+            nw |= md & (nw << 9);
+            se |= md & (se >>> 9);
+        }
+
+        // a run flips only if the square past its end holds a mover disk.
+        // Runs never contain A- or H-file disks in the horizontal and diagonal lanes, so the shifts can't wrap.
+        return flipsIf(w, mover & (w << 1)) | flipsIf(e, mover & (e >>> 1))
+                | flipsIf(n, mover & (n << 8)) | flipsIf(s, mover & (s >>> 8))
+                | flipsIf(ne, mover & (ne << 7)) | flipsIf(sw, mover & (sw >>> 7))
+                | flipsIf(nw, mover & (nw << 9)) | flipsIf(se, mover & (se >>> 9));
+    }
+
+    /**
+     * @return run if bracket is nonzero, otherwise 0. Branch-free.
+     */
+    private static long flipsIf(long run, long bracket) {
+        // (bracket | -bracket) has its sign bit set iff bracket != 0
+        return run & ((bracket | -bracket) >> 63);
+    }
+}
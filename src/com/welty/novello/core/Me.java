@@ -138,15 +138,11 @@ public class Me {
      * @return the minimal reflection
      */
     public Me minimalReflection() {
-        Me minimal = this;
-        for (int r = 1; r < 8; r++) {
-            final long rMover = BitBoardUtils.reflection(mover, r);
-            final long rEnemy = BitBoardUtils.reflection(enemy, r);
-            if (rMover < minimal.mover || (rMover == minimal.mover && rEnemy < minimal.enemy)) {
-                minimal = new Me(rMover, rEnemy);
-            }
+        final MinimalReflection mr = new MinimalReflection(mover, enemy);
+        if (mr.mover == mover && mr.enemy == enemy) {
+            return this;
         }
-        return minimal;
+        return new Me(mr.mover, mr.enemy);
     }
 
     @Override public String toString() {
@@ -31,23 +31,121 @@ public class MinimalReflection {
     public final long mover;
     public final long enemy;
 
+    /**
+     * Create the minimal reflection of a position.
+     * <p/>
+     * The minimal reflection is the reflection with the smallest mover (as a signed long), or of those with the
+     * smallest mover, the one with the smallest enemy.
+     * <p/>
+     * The 8 reflections are built from one transpose of each bitboard plus byte and bit reversals, which are
+     * single instructions on most CPUs, and the minimum is selected with masks rather than branches.
+     */
     public MinimalReflection(long mover, long enemy) {
+        final long tMover = BitBoardUtils.reflectDiagonally(mover);
+        final long tEnemy = BitBoardUtils.reflectDiagonally(enemy);
+        final long rMover = Long.reverse(mover);
+        final long rEnemy = Long.reverse(enemy);
+        final long trMover = Long.reverse(tMover);
+        final long trEnemy = Long.reverse(tEnemy);
+
         long minMover = mover;
         long minEnemy = enemy;
-
-        for (int r = 1; r < 8; r++) {
-            final long rMover = BitBoardUtils.reflection(mover, r);
-            final long rEnemy = BitBoardUtils.reflection(enemy, r);
-            if (rMover < minMover || (rMover == minMover && rEnemy < minEnemy)) {
-                minMover = rMover;
-                minEnemy = rEnemy;
-            }
-        }
+        long m;
+        long e;
+        long less;
+
+        m = Long.reverseBytes(mover);
+        e = Long.reverseBytes(enemy);
+        less = lessMask(m, e, minMover, minEnemy);
+        minMover ^= (minMover ^ m) & less;
+        minEnemy ^= (minEnemy ^ e) & less;
+
+        less = lessMask(rMover, rEnemy, minMover, minEnemy);
+        minMover ^= (minMover ^ rMover) & less;
+        minEnemy ^= (minEnemy ^ rEnemy) & less;
+
+        m = Long.reverseBytes(rMover);
+        e = Long.reverseBytes(rEnemy);
+        less = lessMask(m, e, minMover, minEnemy);
+        minMover ^= (minMover ^ m) & less;
+        minEnemy ^= (minEnemy ^ e) & less;
+
+        less = lessMask(tMover, tEnemy, minMover, minEnemy);
+        minMover ^= (minMover ^ tMover) & less;
+        minEnemy ^= (minEnemy ^ tEnemy) & less;
+
+        m = Long.reverseBytes(tMover);
+        e = Long.reverseBytes(tEnemy);
+        less = lessMask(m, e, minMover, minEnemy);
+        minMover ^= (minMover ^ m) & less;
+        minEnemy ^= (minEnemy ^ e) & less;
+
+        less = lessMask(trMover, trEnemy, minMover, minEnemy);
+        minMover ^= (minMover ^ trMover) & less;
+        minEnemy ^= (minEnemy ^ trEnemy) & less;
+
+        m = Long.reverseBytes(trMover);
+        e = Long.reverseBytes(trEnemy);
+        less = lessMask(m, e, minMover, minEnemy);
+        minMover ^= (minMover ^ m) & less;
+        minEnemy ^= (minEnemy ^ e) & less;
 
         this.mover = minMover;
         this.enemy = minEnemy;
     }
 
+    /**
+     * @return -1 (all bits set) if (mover1, enemy1) &lt; (mover0, enemy0) in signed lexicographic order, otherwise 0
+     */
+    private static long lessMask(long mover1, long enemy1, long mover0, long enemy0) {
+        return lessMask(mover1, mover0) | (equalMask(mover1, mover0) & lessMask(enemy1, enemy0));
+    }
+
+    /**
+     * @return -1 if a &lt; b (signed), otherwise 0
+     */
+    private static long lessMask(long a, long b) {
+        final long d = a - b;
+        // d has the wrong sign only if a - b overflowed, which requires a and b to have different signs
+        return (d ^ ((a ^ b) & (d ^ a))) >> 63;
+    }
+
+    /**
+     * @return -1 if a == b, otherwise 0
+     */
+    private static long equalMask(long a, long b) {
+        final long d = a ^ b;
+        return ~((d | -d) >> 63);
+    }
+
+    /**
+     * Hash a position so that all its reflections have the same hash.
+     * <p/>
+     * This is the sum of the hashes of the 8 reflections, so it needs no comparisons and doesn't determine
+     * the minimal reflection. Positions with different hashes are not reflections of each other, so the hash can
+     * filter positions (for instance, to choose a shard or probe a Bloom filter) before any are canonicalized.
+     *
+     * @param mover mover disks
+     * @param enemy enemy disks
+     * @return the hash
+     */
+    public static long symmetricHash(long mover, long enemy) {
+        final long tMover = BitBoardUtils.reflectDiagonally(mover);
+        final long tEnemy = BitBoardUtils.reflectDiagonally(enemy);
+        final long rMover = Long.reverse(mover);
+        final long rEnemy = Long.reverse(enemy);
+        final long trMover = Long.reverse(tMover);
+        final long trEnemy = Long.reverse(tEnemy);
+        return NovelloUtils.hash(mover, enemy)
+                + NovelloUtils.hash(Long.reverseBytes(mover), Long.reverseBytes(enemy))
+                + NovelloUtils.hash(rMover, rEnemy)
+                + NovelloUtils.hash(Long.reverseBytes(rMover), Long.reverseBytes(rEnemy))
+                + NovelloUtils.hash(tMover, tEnemy)
+                + NovelloUtils.hash(Long.reverseBytes(tMover), Long.reverseBytes(tEnemy))
+                + NovelloUtils.hash(trMover, trEnemy)
+                + NovelloUtils.hash(Long.reverseBytes(trMover), Long.reverseBytes(trEnemy));
+    }
+
     /**
      * Convert this minimal reflection to a nominal position with black to move
      *
@@ -73,6 +73,18 @@ public class Square {
      * @return a bitboard of disks that will be flipped.
      */
     public long calcFlips(long mover, long enemy) {
+        if (LANE_MOVE_GEN) {
+            return LaneMoveGenerator.calcFlips(sq, mover, enemy);
+        }
+        return calcFlipsKindergarten(mover, enemy);
+    }
+
+    /**
+     * Calculate the squares on the board that will be flipped, using kindergarten lookups
+     *
+     * @return a bitboard of disks that will be flipped.
+     */
+    long calcFlipsKindergarten(long mover, long enemy) {
         long flips = KindergartenEastWest.flips(sq, mover, enemy) | KindergartenUpDown.flips(sq, mover, enemy)
                 | flipperURDL.flips(mover, enemy) | flipperULDR.flips(mover, enemy);
         return flips;
@@ -18,16 +18,19 @@ package com.welty.novello.eval;
 import com.orbanova.common.math.function.oned.Function;
 import com.orbanova.common.misc.Logger;
 import com.orbanova.common.misc.Require;
-import com.orbanova.common.misc.Utils;
 import com.orbanova.common.misc.Vec;
 import com.welty.novello.coca.ConjugateGradientMethod;
 import com.welty.novello.coca.FunctionWithGradient;
-import com.welty.novello.core.MeValue;
+import com.welty.novello.coca.PositionIndex;
 import com.welty.novello.core.NovelloUtils;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.*;
 
 /**
  */
@@ -44,6 +47,24 @@ public class CoefficientCalculator {
 
     static final int[] nEmpties = {3, 4, 11, 12, 19, 20, 27, 28, 35, 36, 43, 44, 51, 52, 59, 60};
 
+    /**
+     * Number of threads used to evaluate the error function and its gradient
+     */
+    private static final int N_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of slices trained at the same time.
+     * <p/>
+     * Set with -Dnovello.coca.sliceThreads. Each slice being trained holds its own elements, so this multiplies
+     * the memory required.
+     */
+    private static final int N_SLICE_THREADS = Integer.getInteger("novello.coca.sliceThreads", 1);
+
+    /**
+     * Elements are only split into chunks for parallel evaluation if each chunk has at least this many elements.
+     */
+    private static final int MIN_CHUNK_SIZE = 10000;
+
     /**
      * Generate coefficients for evaluation.
      * <p/>
@@ -77,36 +98,75 @@ public class CoefficientCalculator {
         }
 
         final MvGenerator mvGenerator = new MvGenerator(strategy);
-        final List<MeValue> pvs = mvGenerator.getMvs();
+        final PositionIndex pvs = mvGenerator.getPositionIndex();
 
-        System.out.format("a total of %,d pvs are available.%n", pvs.size());
+        System.out.format("a total of %,d pvs are available, %,d of them distinct.%n", pvs.nCopies(), pvs.size());
         System.out.println();
-        for (int nEmpty : nEmpties) {
-            if (!histogramOnly && strategy.sliceExists(COEFF_SET_NAME, nEmpty)) {
-                continue;
+        if (N_SLICE_THREADS > 1) {
+            System.out.println("Training " + N_SLICE_THREADS + " slices at a time");
+        }
+        final ExecutorService sliceExecutor = Executors.newFixedThreadPool(N_SLICE_THREADS);
+        try {
+            final List<Future<String>> futures = new ArrayList<>();
+            for (final int nEmpty : nEmpties) {
+                if (!histogramOnly && strategy.sliceExists(COEFF_SET_NAME, nEmpty)) {
+                    continue;
+                }
+                futures.add(sliceExecutor.submit(new Callable<String>() {
+                    @Override public String call() throws IOException {
+                        if (N_SLICE_THREADS == 1) {
+                            calculateSlice(strategy, pvs, nEmpty, histogramOnly, System.out);
+                            return "";
+                        }
+                        // buffer the output so slices trained at the same time don't interleave their output
+                        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                        try (PrintStream out = new PrintStream(buffer, false, "UTF-8")) {
+                            calculateSlice(strategy, pvs, nEmpty, histogramOnly, out);
+                        }
+                        return buffer.toString("UTF-8");
+                    }
+                }));
             }
-            System.out.println("--- " + nEmpty + " ---");
-            final PositionElement[] elements = elementsFromPvs(strategy, pvs, nEmpty);
-            dumpElementDistribution(elements, strategy.nCoefficientIndices());
-            if (!histogramOnly) {
-                System.out.format("estimating coefficients using %,d positions\n", elements.length);
-                final long t0 = System.currentTimeMillis();
-                final double[] x = estimateCoefficients(elements, strategy.nCoefficientIndices(), strategy.nDenseWeights, PENALTY);
-                final double[] coefficients = strategy.unpack(x);
-                final long dt = (System.currentTimeMillis() - t0) / 1000;
-                System.out.format("%d:%02d elapsed\n", dt / 60, dt % 60);
-                System.out.format("sum of coefficients squared = %.3g\n", Vec.sumSq(coefficients));
-                System.out.println();
-
-                // write to file
-                strategy.writeSlice(nEmpty, coefficients, COEFF_SET_NAME);
+            for (Future<String> future : futures) {
+                try {
+                    System.out.print(future.get());
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new RuntimeException(e);
+                }
             }
+        } finally {
+            sliceExecutor.shutdownNow();
         }
     }
 
+    /**
+     * Calculate coefficients for a slice and write them to disk
+     *
+     * @param histogramOnly if true, display the orid histogram but don't calculate coefficients.
+     * @param out           destination for progress and statistics
+     */
+    private static void calculateSlice(EvalStrategy strategy, PositionIndex pvs, int nEmpty, boolean histogramOnly
+            , PrintStream out) throws IOException {
+        out.println("--- " + nEmpty + " ---");
+        final PositionElement[] elements = elementsFromPvs(strategy, pvs, nEmpty);
+        dumpElementDistribution(elements, strategy.nCoefficientIndices(), out);
+        if (!histogramOnly) {
+            out.format("estimating coefficients for %d empties using %,d positions\n", nEmpty, elements.length);
+            final long t0 = System.currentTimeMillis();
+            final double[] x = estimateCoefficients(elements, strategy.nCoefficientIndices(), strategy.nDenseWeights, PENALTY);
+            final double[] coefficients = strategy.unpack(x);
+            final long dt = (System.currentTimeMillis() - t0) / 1000;
+            out.format("%d empties: %d:%02d elapsed\n", nEmpty, dt / 60, dt % 60);
+            out.format("%d empties: sum of coefficients squared = %.3g\n", nEmpty, Vec.sumSq(coefficients));
+            out.println();
+
+            // write to file
+            strategy.writeSlice(nEmpty, coefficients, COEFF_SET_NAME);
+        }
+    }
 
-    private static void dumpElementDistribution(PositionElement[] elements, int nIndices) {
-        new OridHistogram(elements, nIndices).dump();
+    private static void dumpElementDistribution(PositionElement[] elements, int nIndices, PrintStream out) {
+        new OridHistogram(elements, nIndices).dump(out);
     }
 
     /**
@@ -132,21 +192,25 @@ public class CoefficientCalculator {
      * <li>x[i] be the coefficient for index i</li>
      * <li>e be an element in the elements list</li>
      * <li>e.N[i] be the number of times pattern i occurs in the element</li>
+     * <li>e.w be the element's weight, the number of copies of the position it stands for</li>
      * <li>p be the size of the PENALTY</li>
      * </ul>
      * An element's error, e.error = e.target - &Sigma;<sub>i</sub>e.N[i]x[i]
      * <p/>
      * The sum of squared errors is<br/>
-     * &Sigma;<sub>e</sub>e.error^2<br/>
+     * &Sigma;<sub>e</sub>e.w*e.error^2<br/>
      * <p/>
      * Its gradient for index i is
-     * -2 &Sigma;<sub>e</sub>error*e.N[i]
+     * -2 &Sigma;<sub>e</sub>e.w*error*e.N[i]
      * <p/>
      * The PENALTY term is<br/>
      * p &Sigma;<sub>i</sub>x[i]^2
      * <p/>
      * Its gradient for index i is
      * 2 p x[i]
+     * <p/>
+     * Elements are split into contiguous chunks which are evaluated in parallel. Each chunk accumulates its own
+     * partial sums, which are added in chunk order, so results don't depend on thread scheduling.
      */
     static class ErrorFunction extends FunctionWithGradient {
         private final PositionElement[] elements;
@@ -154,32 +218,69 @@ public class CoefficientCalculator {
         private final int nDenseWeights;
         private final double penalty;
 
+        /**
+         * Chunk c contains elements chunkStarts[c] .. chunkStarts[c+1]-1
+         */
+        private final int[] chunkStarts;
+
         public ErrorFunction(PositionElement[] elements, int nCoefficients, int nDenseWeights, double penalty) {
+            this(elements, nCoefficients, nDenseWeights, penalty, defaultNChunks(elements.length));
+        }
+
+        /**
+         * @param nChunks number of chunks to split the elements into. Chunks are evaluated in parallel.
+         */
+        ErrorFunction(PositionElement[] elements, int nCoefficients, int nDenseWeights, double penalty, int nChunks) {
+            Require.geq(nChunks, "nChunks", 1);
             this.elements = elements;
             this.nCoefficients = nCoefficients;
             this.nDenseWeights = nDenseWeights;
             this.penalty = penalty;
+            chunkStarts = new int[nChunks + 1];
+            for (int c = 0; c <= nChunks; c++) {
+                chunkStarts[c] = (int) ((long) elements.length * c / nChunks);
+            }
+        }
+
+        private static int defaultNChunks(int nElements) {
+            return Math.max(1, Math.min(N_THREADS, nElements / MIN_CHUNK_SIZE));
         }
 
         @Override
-        public double[] minusGradient(double[] x) {
+        public double[] minusGradient(final double[] x) {
             Require.eq(x.length, "x length", nDimensions());
             final double[] minusGradient = Vec.times(x, -2 * penalty);
-            for (final PositionElement element : elements) {
-                element.updateGradient(x, minusGradient);
+            final List<double[]> partials = inChunks(new Chunk<double[]>() {
+                @Override public double[] run(int from, int to) {
+                    final double[] partial = new double[x.length];
+                    for (int i = from; i < to; i++) {
+                        elements[i].updateGradient(x, partial);
+                    }
+                    return partial;
+                }
+            });
+            for (double[] partial : partials) {
+                for (int i = 0; i < minusGradient.length; i++) {
+                    minusGradient[i] += partial[i];
+                }
             }
             return minusGradient;
         }
 
         @Override
-        public double y(double[] x) {
+        public double y(final double[] x) {
             Require.eq(x.length, "x length", nDimensions());
-            double y = 0;
-            for (PositionElement element : elements) {
-                final double error = element.error(x);
-                y += error * error;
-            }
-            return y + penalty * Vec.sumSq(x);
+            final List<Double> partials = inChunks(new Chunk<Double>() {
+                @Override public Double run(int from, int to) {
+                    double y = 0;
+                    for (int i = from; i < to; i++) {
+                        final double error = elements[i].error(x);
+                        y += elements[i].weight * error * error;
+                    }
+                    return y;
+                }
+            });
+            return sum(partials) + penalty * Vec.sumSq(x);
         }
 
         @Override
@@ -192,6 +293,39 @@ public class CoefficientCalculator {
             return new LineFunction(x, dx);
         }
 
+        /**
+         * Run a calculation on each chunk of elements, in parallel if there is more than one chunk.
+         *
+         * @return results of the calculation, in chunk order
+         */
+        private <T> List<T> inChunks(final Chunk<T> chunk) {
+            final int nChunks = chunkStarts.length - 1;
+            final List<T> results = new ArrayList<>(nChunks);
+            if (nChunks == 1) {
+                results.add(chunk.run(0, elements.length));
+                return results;
+            }
+            final ExecutorService executor = elementExecutor();
+            final List<Future<T>> futures = new ArrayList<>(nChunks);
+            for (int c = 0; c < nChunks; c++) {
+                final int from = chunkStarts[c];
+                final int to = chunkStarts[c + 1];
+                futures.add(executor.submit(new Callable<T>() {
+                    @Override public T call() {
+                        return chunk.run(from, to);
+                    }
+                }));
+            }
+            for (Future<T> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            return results;
+        }
+
         /**
          * Precomputes some stuff to speed up line minimization
          */
@@ -201,50 +335,110 @@ public class CoefficientCalculator {
             private final double[] x;
             private final double[] dx;
 
-            public LineFunction(double[] x, double[] dx) {
+            public LineFunction(final double[] x, final double[] dx) {
                 this.x = x;
                 this.dx = dx;
                 errors = new double[elements.length];
                 dErrors = new double[elements.length];
-                for (int i = 0; i < elements.length; i++) {
-                    final PositionElement element = elements[i];
-                    errors[i] = element.error(x);
-                    dErrors[i] = element.dError(dx);
-                }
+                inChunks(new Chunk<Void>() {
+                    @Override public Void run(int from, int to) {
+                        for (int i = from; i < to; i++) {
+                            // scaling by sqrt(weight) makes the squared errors weighted
+                            final PositionElement element = elements[i];
+                            final double scale = element.weight == 1 ? 1 : Math.sqrt(element.weight);
+                            errors[i] = scale * element.error(x);
+                            dErrors[i] = scale * element.dError(dx);
+                        }
+                        return null;
+                    }
+                });
             }
 
             @Override
-            public double y(double a) {
-                double y = 0;
-                for (int i = 0; i < errors.length; i++) {
-                    final double error = errors[i] + dErrors[i] * a;
-                    y += error * error;
-                }
+            public double y(final double a) {
+                final List<Double> partials = inChunks(new Chunk<Double>() {
+                    @Override public Double run(int from, int to) {
+                        double y = 0;
+                        for (int i = from; i < to; i++) {
+                            final double error = errors[i] + dErrors[i] * a;
+                            y += error * error;
+                        }
+                        return y;
+                    }
+                });
                 double p = 0;
                 for (int i = 0; i < x.length; i++) {
                     final double coeff = x[i] + a * dx[i];
                     p += coeff * coeff;
                 }
-                return y + penalty * p;
+                return sum(partials) + penalty * p;
             }
         }
     }
 
+    /**
+     * A calculation over a contiguous range of elements
+     */
+    private interface Chunk<T> {
+        /**
+         * @param from index of first element in the chunk
+         * @param to   index after the last element in the chunk
+         * @return result of the calculation
+         */
+        T run(int from, int to);
+    }
+
+    private static double sum(List<Double> values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    private static ExecutorService elementExecutor;
+
+    /**
+     * Executor used to evaluate chunks of elements.
+     * <p/>
+     * This is shared by all slices being trained. Chunk calculations never wait on other chunks, so sharing can't
+     * deadlock.
+     */
+    private static synchronized ExecutorService elementExecutor() {
+        if (elementExecutor == null) {
+            elementExecutor = Executors.newFixedThreadPool(N_THREADS, new ThreadFactory() {
+                @Override public Thread newThread(@NotNull Runnable r) {
+                    final Thread thread = new Thread(r, "coefficient calculator");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return elementExecutor;
+    }
+
     /**
      * Select the pvs that will be used to generate coefficients at the given number of nEmpties and generate their Elements
+     * <p/>
+     * Each distinct position becomes one Element whose target is the mean of its copies' values, weighted by the
+     * number of copies.
      *
-     * @param pvs    list of pvs at all empties
+     * @param pvs    pvs at all empties
      * @param nEmpty number of empties to generate coefficients for
      * @return list of selected Elements
      */
-    private static PositionElement[] elementsFromPvs(EvalStrategy evalStrategy, List<MeValue> pvs, int nEmpty) {
+    static PositionElement[] elementsFromPvs(EvalStrategy evalStrategy, PositionIndex pvs, int nEmpty) {
         final List<PositionElement> res = new ArrayList<>();
-        for (final MeValue pv : pvs) {
-            final int diff = nEmpty - pv.nEmpty();
-            if (!Utils.isOdd(diff) && diff >= -6 && diff <= 6) {
-                final int target = clamp(pv.value, -64 * DISK_VALUE, 64 * DISK_VALUE);
-                final PositionElement element = evalStrategy.coefficientIndices(pv.mover, pv.enemy, target);
-                res.add(element);
+        for (int diff = -6; diff <= 6; diff += 2) {
+            final int pvEmpty = nEmpty - diff;
+            if (pvEmpty < 0 || pvEmpty > 64) {
+                continue;
+            }
+            for (int i = pvs.start(pvEmpty); i < pvs.end(pvEmpty); i++) {
+                final int target = clamp((int) Math.round(pvs.mean(i)), -64 * DISK_VALUE, 64 * DISK_VALUE);
+                final PositionElement element = evalStrategy.coefficientIndices(pvs.mover(i), pvs.enemy(i), target);
+                final int count = pvs.count(i);
+                res.add(count == 1 ? element : element.withWeight(count));
             }
         }
         return res.toArray(new PositionElement[res.size()]);
@@ -33,6 +33,11 @@ public class CoefficientEval extends Eval {
     private final CoefficientSet coefficientSet;
     private final EvalStrategy evalStrategy;
 
+    /**
+     * Expanded or packed coefficients, or null if this eval evaluates directly from the coefficientSet
+     */
+    private final @Nullable ExpandedCoefficients expandedCoefficients;
+
     private static final boolean debug = false;
 
 
@@ -64,11 +69,66 @@ public class CoefficientEval extends Eval {
 
 
     CoefficientEval(EvalStrategy evalStrategy, CoefficientSet coeffSet) {
+        this(evalStrategy, coeffSet, null);
+    }
+
+    private CoefficientEval(EvalStrategy evalStrategy, CoefficientSet coeffSet, @Nullable ExpandedCoefficients expandedCoefficients) {
         this.evalStrategy = evalStrategy;
         coefficientSet = coeffSet;
+        this.expandedCoefficients = expandedCoefficients;
         mpc = createMpc();
     }
 
+    /**
+     * Create an eval that returns the same values as this eval but evaluates using expanded coefficient tables.
+     * <p/>
+     * The expanded eval uses more RAM but is faster. Its mpc is read from the same coefficient directory.
+     *
+     * @return the expanded eval
+     * @throws IllegalArgumentException if the EvalStrategy can't expand its coefficients
+     */
+    public CoefficientEval expanded() {
+        final ExpandedCoefficients expandedCoefficients = evalStrategy.expand(coefficientSet);
+        if (expandedCoefficients == null) {
+            throw new IllegalArgumentException("Eval strategy " + evalStrategy + " can't expand coefficients");
+        }
+        return new CoefficientEval(evalStrategy, coefficientSet, expandedCoefficients);
+    }
+
+    /**
+     * Create an eval that returns the same values as this eval but evaluates using packed coefficients.
+     * <p/>
+     * The packed eval keeps each slice's coefficients in a single array, ordered for cache locality.
+     *
+     * @return the packed eval
+     * @throws IllegalArgumentException if the EvalStrategy can't pack its coefficients
+     */
+    public CoefficientEval packed() {
+        final ExpandedCoefficients packedCoefficients = evalStrategy.pack(coefficientSet);
+        if (packedCoefficients == null) {
+            throw new IllegalArgumentException("Eval strategy " + evalStrategy + " can't pack coefficients");
+        }
+        return new CoefficientEval(evalStrategy, coefficientSet, packedCoefficients);
+    }
+
+    /**
+     * Create an eval that uses the same coefficients as this eval, evaluated by a class generated at runtime
+     * from the EvalStrategy's terms.
+     * <p/>
+     * This lets strategies without a hand-written eval run straight-line code instead of calling each Term.
+     * See {@link EvalCompiler} for the conditions under which compilation can fail.
+     *
+     * @return the compiled eval
+     * @throws IllegalArgumentException if the EvalStrategy can't be compiled
+     */
+    public CoefficientEval compiled() {
+        final ExpandedCoefficients compiledCoefficients = EvalCompiler.compile(evalStrategy, coefficientSet);
+        if (compiledCoefficients == null) {
+            throw new IllegalArgumentException("Eval strategy " + evalStrategy + " can't be compiled");
+        }
+        return new CoefficientEval(evalStrategy, coefficientSet, compiledCoefficients);
+    }
+
     private Mpc createMpc() {
         try {
             return new Mpc(getMpcSliceData());
@@ -93,7 +153,20 @@ public class CoefficientEval extends Eval {
      * @return position evaluation
      */
     @Override public int eval(long mover, long enemy) {
-        final long moverMoves = BitBoardUtils.calcMoves(mover, enemy);
+        return eval(mover, enemy, BitBoardUtils.calcMoves(mover, enemy));
+    }
+
+    /**
+     * Evaluate a position whose mover mobility is already known.
+     * <p/>
+     * Passes if necessary; returns terminal value if neither player can move.
+     *
+     * @param mover      mover disks
+     * @param enemy      enemy disks
+     * @param moverMoves legal moves for mover
+     * @return position evaluation
+     */
+    @Override public int eval(long mover, long enemy, long moverMoves) {
         final long enemyMoves = BitBoardUtils.calcMoves(enemy, mover);
         final int moveScore;
         if (moverMoves != 0) {
@@ -122,7 +195,12 @@ public class CoefficientEval extends Eval {
             System.out.println("....................");
             System.out.println(Board.ofMover(mover, enemy, false));
         }
-        final int eval = evalStrategy.eval(mover, enemy, moverMoves, enemyMoves, coefficientSet);
+        final int eval;
+        if (expandedCoefficients != null) {
+            eval = expandedCoefficients.eval(mover, enemy, moverMoves, enemyMoves);
+        } else {
+            eval = evalStrategy.eval(mover, enemy, moverMoves, enemyMoves, coefficientSet);
+        }
         if (debug) {
             System.out.println("Eval = " + eval);
             System.out.println();
@@ -15,6 +15,8 @@
 
 package com.welty.novello.eval;
 
+import java.util.Arrays;
+
 /**
  * A CoefficientSet holds coefficients for an evaluation strategy.
  * <p/>
@@ -69,6 +71,40 @@ class CoefficientSet {
         return slices[nEmpty];
     }
 
+    /**
+     * @return number of slices; slices exist for nEmpty = 0..nSlices()-1, though some may be null.
+     */
+    public int nSlices() {
+        return slices.length;
+    }
+
+    /**
+     * Find the slices that have distinct coefficients.
+     * <p/>
+     * Slices are often shared between several numbers of empties, either as the same array or as separate arrays
+     * with equal contents. This is useful for building derived tables only once per distinct slice.
+     *
+     * @return distinct[nEmpty] = index of the first slice whose coefficients equal those of slice(nEmpty), or -1 if
+     * slice(nEmpty) is null.
+     */
+    int[] distinctSlices() {
+        final int[] distinct = new int[slices.length];
+        for (int nEmpty = 0; nEmpty < slices.length; nEmpty++) {
+            distinct[nEmpty] = -1;
+            final short[][] slice = slices[nEmpty];
+            if (slice != null) {
+                distinct[nEmpty] = nEmpty;
+                for (int prev = 0; prev < nEmpty; prev++) {
+                    if (distinct[prev] == prev && (slices[prev] == slice || Arrays.deepEquals(slices[prev], slice))) {
+                        distinct[nEmpty] = prev;
+                        break;
+                    }
+                }
+            }
+        }
+        return distinct;
+    }
+
     @Override public String toString() {
         return name;
     }
@@ -42,7 +42,7 @@ class CornerTriangleTerm extends Term {
         return CornerTriangleFeature.instance.orid(instance(mover, enemy, left, top));
     }
 
-    private static int instance(long mover, long enemy, boolean left, boolean top) {
+    static int instance(long mover, long enemy, boolean left, boolean top) {
         final int moverRow = row(mover, left, top);
         final int enemyRow = row(enemy, left, top);
         return Base3.base2ToBase3(moverRow, enemyRow);
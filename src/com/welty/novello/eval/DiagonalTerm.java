@@ -76,7 +76,7 @@ public abstract class DiagonalTerm extends Term {
         return extractDiagonal(mover, mask, shift);
     }
 
-    private static int extractDiagonal(long mover, long mask, int shift) {
+    static int extractDiagonal(long mover, long mask, int shift) {
         return (int) ((mover & mask) * BitBoardUtils.HFile >>> shift);
     }
 }
@@ -25,6 +25,21 @@ import com.welty.novello.core.Board;
 public abstract class Eval {
     public abstract int eval(long mover, long enemy);
 
+    /**
+     * Evaluate a position whose mover mobility is already known.
+     * <p/>
+     * Searches usually have the mover's legal moves available when they evaluate a position. Evals that use
+     * mobility can override this to avoid recalculating it. The default implementation ignores moverMoves.
+     *
+     * @param mover      mover disks
+     * @param enemy      enemy disks
+     * @param moverMoves legal moves for mover; must equal BitBoardUtils.calcMoves(mover, enemy).
+     * @return value of position, as {@link #eval(long, long)}.
+     */
+    public int eval(long mover, long enemy, long moverMoves) {
+        return eval(mover, enemy);
+    }
+
     /**
      * Evaluate a position
      * <p/>
@@ -35,4 +50,34 @@ public abstract class Eval {
     public int eval(Board board) {
         return eval(board.mover(), board.enemy());
     }
+
+    /**
+     * Can the value of a position be cached?
+     * <p/>
+     * Search threads cache eval results by position (see Counter), which is only valid if this Eval always
+     * returns the same value for the same position. Evals that add randomness should return false.
+     *
+     * @return true if eval(mover, enemy) depends only on mover and enemy.
+     */
+    public boolean isCacheable() {
+        return true;
+    }
+
+    /**
+     * Evaluate a batch of positions.
+     * <p/>
+     * Like {@link #eval(long, long)}, this checks for passes and returns terminal values if the game is over.
+     * <p/>
+     * This evaluates one position at a time, and no Eval currently overrides it: evaluating EvalStrategyJ positions
+     * feature by feature across a batch measured no faster than evaluating them one at a time. It lets callers that
+     * evaluate many positions outside a search, such as MpcGenerator, reuse one EvalBatch, and it is the place
+     * for a lane-parallel implementation if one becomes worthwhile. Searches evaluate through their Counter.
+     *
+     * @param batch positions to evaluate. On return, batch.value(i) is the value of position i.
+     */
+    public void evalBatch(EvalBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            batch.values[i] = eval(batch.movers[i], batch.enemies[i]);
+        }
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.eval;
+
+import com.welty.novello.core.Board;
+
+/**
+ * A batch of positions to be evaluated by {@link Eval#evalBatch(EvalBatch)}.
+ * <p/>
+ * The batch owns its position and value arrays, so a caller that evaluates many batches can allocate one
+ * EvalBatch and reuse it: add positions, evaluate, read values, clear.
+ * <p/>
+ * This class is not thread-safe; each thread needs its own EvalBatch.
+ */
+public class EvalBatch {
+    final long[] movers;
+    final long[] enemies;
+    final int[] values;
+
+    private int size;
+
+    /**
+     * @param capacity maximum number of positions in the batch
+     */
+    public EvalBatch(int capacity) {
+        movers = new long[capacity];
+        enemies = new long[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * Add a position to the batch
+     *
+     * @param mover mover disks
+     * @param enemy enemy disks
+     * @throws IllegalStateException if the batch is full
+     */
+    public void add(long mover, long enemy) {
+        if (isFull()) {
+            throw new IllegalStateException("batch is full (" + capacity() + " positions)");
+        }
+        movers[size] = mover;
+        enemies[size] = enemy;
+        size++;
+    }
+
+    public void add(Board board) {
+        add(board.mover(), board.enemy());
+    }
+
+    /**
+     * @param i index of the position, in the order it was added
+     * @return value of the position, as set by the most recent {@link Eval#evalBatch(EvalBatch)}
+     */
+    public int value(int i) {
+        return values[i];
+    }
+
+    /**
+     * Remove all positions from the batch
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return movers.length;
+    }
+
+    public boolean isFull() {
+        return size == movers.length;
+    }
+}
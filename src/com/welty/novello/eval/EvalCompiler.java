@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+
+package com.welty.novello.eval;
+
+import com.orbanova.common.misc.Logger;
+import com.welty.novello.core.BitBoardUtils;
+import com.welty.novello.core.Board;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.*;
+
+/**
+ * Generates a specialized eval class for an EvalStrategy at runtime.
+ * <p/>
+ * The generated class is straight-line code built from each Term's {@link Term#oridGen()}, grouped by feature in
+ * the same way as the hand-written evals in EvalStrategyC..J. It is compiled in memory with the system Java compiler
+ * and defined in this package so that it can use package-private helpers such as OridTable.
+ * <p/>
+ * Compilation fails, and {@link #compile(EvalStrategy, CoefficientSet)} returns null, if:
+ * <ul>
+ * <li>a Term doesn't implement oridGen()</li>
+ * <li>no Java compiler is available (the program is running on a JRE)</li>
+ * <li>the generated class can't be defined in this package</li>
+ * <li>the generated eval disagrees with {@link EvalStrategy#evalByTerms} on a set of random positions</li>
+ * </ul>
+ * Each strategy is compiled at most once; the generated class is shared by all CoefficientSets.
+ */
+class EvalCompiler {
+    private static final Logger log = Logger.logger(EvalCompiler.class);
+
+    private static final String PACKAGE = EvalCompiler.class.getPackage().getName();
+
+    /**
+     * Number of random games used to check the generated eval against the strategy's terms
+     */
+    private static final int N_CHECK_GAMES = 20;
+
+    /**
+     * Constructor of the generated class for each strategy, or null if the strategy couldn't be compiled.
+     */
+    private static final Map<EvalStrategy, Constructor<? extends ExpandedCoefficients>> constructors = new HashMap<>();
+
+    private static int nClasses = 0;
+
+    /**
+     * Create a compiled eval for the strategy
+     *
+     * @param strategy       strategy to compile
+     * @param coefficientSet coefficients used by the compiled eval
+     * @return compiled eval, or null if the strategy can't be compiled.
+     */
+    static @Nullable ExpandedCoefficients compile(@NotNull EvalStrategy strategy, @NotNull CoefficientSet coefficientSet) {
+        final Constructor<? extends ExpandedCoefficients> constructor = getConstructor(strategy);
+        if (constructor == null) {
+            return null;
+        }
+        final ExpandedCoefficients compiled;
+        try {
+            compiled = constructor.newInstance(coefficientSet);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Can't instantiate compiled eval for " + strategy + ": " + e);
+            return null;
+        }
+        if (!matchesTerms(strategy, coefficientSet, compiled)) {
+            log.warn("Compiled eval for " + strategy + " doesn't match its terms; using the generic eval");
+            return null;
+        }
+        return compiled;
+    }
+
+    private static synchronized @Nullable Constructor<? extends ExpandedCoefficients> getConstructor(EvalStrategy strategy) {
+        if (!constructors.containsKey(strategy)) {
+            constructors.put(strategy, createConstructor(strategy));
+        }
+        return constructors.get(strategy);
+    }
+
+    private static @Nullable Constructor<? extends ExpandedCoefficients> createConstructor(EvalStrategy strategy) {
+        final String simpleName = "CompiledEval" + nClasses++;
+        final String source;
+        try {
+            source = generateSource(strategy, simpleName);
+        } catch (IllegalStateException e) {
+            log.info("Can't generate code for " + strategy + ": " + e.getMessage());
+            return null;
+        }
+        final String className = PACKAGE + "." + simpleName;
+        final byte[] bytes = compileSource(className, source);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            final Class<? extends ExpandedCoefficients> c = define(className, bytes).asSubclass(ExpandedCoefficients.class);
+            final Constructor<? extends ExpandedCoefficients> constructor = c.getDeclaredConstructor(CoefficientSet.class);
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Can't define compiled eval for " + strategy + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Generate source code for a class that evaluates positions using the strategy's terms.
+     *
+     * @throws IllegalStateException if a term can't generate code.
+     */
+    static String generateSource(EvalStrategy strategy, String simpleName) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("package ").append(PACKAGE).append(";\n\n");
+        sb.append("import com.welty.novello.core.BitBoardUtils;\n\n");
+        sb.append("final class ").append(simpleName).append(" extends ExpandedCoefficients {\n");
+        sb.append("    private final CoefficientSet coefficientSet;\n\n");
+        sb.append("    ").append(simpleName).append("(CoefficientSet coefficientSet) {\n");
+        sb.append("        this.coefficientSet = coefficientSet;\n");
+        sb.append("    }\n\n");
+        sb.append("    @Override int eval(long mover, long enemy, long moverMoves, long enemyMoves) {\n");
+        sb.append("        final short[][] slice = coefficientSet.slice(BitBoardUtils.nEmpty(mover, enemy));\n");
+        sb.append("        final long empty = ~(mover | enemy);\n");
+        if (usesRowsAndCols(strategy)) {
+            for (int i : new int[]{0, 1, 6, 7}) {
+                sb.append("        final int moverRow" + i + " = BitBoardUtils.extractRow(mover, " + i + ");\n");
+                sb.append("        final int enemyRow" + i + " = BitBoardUtils.extractRow(enemy, " + i + ");\n");
+                sb.append("        final int moverCol" + i + " = BitBoardUtils.extractCol(mover, " + i + ");\n");
+                sb.append("        final int enemyCol" + i + " = BitBoardUtils.extractCol(enemy, " + i + ");\n");
+            }
+        }
+        sb.append("        int eval = 0;\n");
+        for (int iFeature = 0; iFeature < strategy.nFeatures(); iFeature++) {
+            sb.append("        final short[] coeffs").append(iFeature).append(" = slice[").append(iFeature).append("];\n");
+            for (int iTerm = 0; iTerm < strategy.terms.length; iTerm++) {
+                if (strategy.iFeatures[iTerm] == iFeature) {
+                    sb.append("        eval += coeffs").append(iFeature).append("[").append(strategy.terms[iTerm].oridGen()).append("];\n");
+                }
+            }
+        }
+        sb.append("        return eval;\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * @return true if the strategy has terms whose generated code uses the moverRow0, enemyCol7 etc. variables.
+     */
+    private static boolean usesRowsAndCols(EvalStrategy strategy) {
+        for (Term term : strategy.terms) {
+            if (term instanceof Corner2x4Term || term instanceof Corner2x5Term) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compile a class in memory
+     *
+     * @return class file bytes, or null if the class can't be compiled.
+     */
+    private static @Nullable byte[] compileSource(String className, final String source) {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            log.info("No Java compiler available; evals will not be compiled");
+            return null;
+        }
+        final Map<String, ByteArrayOutputStream> classBytes = new HashMap<>();
+        final StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, null);
+        final JavaFileManager fileManager = new ForwardingJavaFileManager<StandardJavaFileManager>(standardFileManager) {
+            @Override public JavaFileObject getJavaFileForOutput(Location location, final String name, JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("mem:///" + name.replace('.', '/') + kind.extension), kind) {
+                    @Override public OutputStream openOutputStream() {
+                        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                        classBytes.put(name, out);
+                        return out;
+                    }
+                };
+            }
+        };
+        final JavaFileObject sourceFile = new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+            @Override public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        final List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"), "-nowarn", "-proc:none");
+        final boolean ok = compiler.getTask(null, fileManager, diagnostics, options, null, Collections.singletonList(sourceFile)).call();
+        if (!ok || !classBytes.containsKey(className)) {
+            log.warn("Can't compile generated eval " + className + ": " + diagnostics.getDiagnostics());
+            return null;
+        }
+        return classBytes.get(className).toByteArray();
+    }
+
+    /**
+     * Define a class in this package, using the class loader that loaded this class.
+     */
+    private static Class<?> define(String className, byte[] bytes) throws ReflectiveOperationException {
+        try {
+            // Java 9 and later: a Lookup with package access can define classes in its package.
+            final Method defineClass = MethodHandles.Lookup.class.getMethod("defineClass", byte[].class);
+            return (Class<?>) defineClass.invoke(MethodHandles.lookup(), (Object) bytes);
+        } catch (NoSuchMethodException e) {
+            // Java 7 and 8
+            final Method defineClass = ClassLoader.class.getDeclaredMethod("defineClass", String.class, byte[].class, int.class, int.class);
+            defineClass.setAccessible(true);
+            return (Class<?>) defineClass.invoke(EvalCompiler.class.getClassLoader(), className, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Check the compiled eval against the strategy's terms on positions from random games.
+     * <p/>
+     * Some oridGen() implementations differ from their Term's instance(), so the generated code can't be trusted
+     * without this check.
+     */
+    private static boolean matchesTerms(EvalStrategy strategy, CoefficientSet coefficientSet, ExpandedCoefficients compiled) {
+        for (Board board : Board.randomGameBoards(new Random(1337), N_CHECK_GAMES)) {
+            final long mover = board.mover();
+            final long enemy = board.enemy();
+            final long moves = board.calcMoves();
+            final int nEmpty = BitBoardUtils.nEmpty(mover, enemy);
+            if (moves != 0 && nEmpty < coefficientSet.nSlices() && coefficientSet.slice(nEmpty) != null) {
+                final long enemyMoves = BitBoardUtils.calcMoves(enemy, mover);
+                final int expected = strategy.evalByTerms(mover, enemy, moves, enemyMoves, coefficientSet.slice(nEmpty), false);
+                try {
+                    if (compiled.eval(mover, enemy, moves, enemyMoves) != expected) {
+                        return false;
+                    }
+                } catch (RuntimeException e) {
+                    // for instance, an orid out of range for its feature
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
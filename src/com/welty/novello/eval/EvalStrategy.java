@@ -19,6 +19,7 @@ import com.orbanova.common.misc.Require;
 import com.orbanova.common.misc.Vec;
 import com.welty.novello.core.BitBoardUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.BufferedInputStream;
 import java.io.DataInputStream;
@@ -351,6 +352,31 @@ public class EvalStrategy {
         return evalByTerms(mover, enemy, moverMoves, enemyMoves, slice, false);
     }
 
+    /**
+     * Expand coefficients into tables that this strategy can evaluate faster than the CoefficientSet.
+     * <p/>
+     * The default implementation returns null, meaning this strategy has no expanded form.
+     *
+     * @param coefficientSet coefficients to expand
+     * @return expanded coefficients, or null if this strategy can't expand coefficients
+     */
+    @Nullable ExpandedCoefficients expand(CoefficientSet coefficientSet) {
+        return null;
+    }
+
+    /**
+     * Pack coefficients into a layout that this strategy can evaluate with fewer cache misses than the
+     * CoefficientSet.
+     * <p/>
+     * The default implementation returns null, meaning this strategy has no packed form.
+     *
+     * @param coefficientSet coefficients to pack
+     * @return packed coefficients, or null if this strategy can't pack coefficients
+     */
+    @Nullable ExpandedCoefficients pack(CoefficientSet coefficientSet) {
+        return null;
+    }
+
     /**
      * Evaluate the position by using term.orid()
      *
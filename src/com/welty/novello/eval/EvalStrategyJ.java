@@ -68,6 +68,44 @@ public class EvalStrategyJ extends EvalStrategy {
         return ntestEval;
     }
 
+    private static Eval expandedNtestEval;
+
+    /**
+     * Get an eval with the ntest coefficients expanded for speed.
+     * <p/>
+     * This returns exactly the same values as {@link #getNtestEval()} but uses about 1MB more RAM per distinct slice.
+     */
+    public static synchronized Eval getExpandedNtestEval() {
+        if (expandedNtestEval == null) {
+            final EvalStrategy strategy = EvalStrategies.strategy("j");
+            expandedNtestEval = new CoefficientEval(strategy, CEvaluatorJ.getInstance().getNovelloCoeffs()).expanded();
+        }
+        return expandedNtestEval;
+    }
+
+    private static Eval packedNtestEval;
+
+    /**
+     * Get an eval with the ntest coefficients packed into one array per slice.
+     * <p/>
+     * This returns exactly the same values as {@link #getNtestEval()}.
+     */
+    public static synchronized Eval getPackedNtestEval() {
+        if (packedNtestEval == null) {
+            final EvalStrategy strategy = EvalStrategies.strategy("j");
+            packedNtestEval = new CoefficientEval(strategy, CEvaluatorJ.getInstance().getNovelloCoeffs()).packed();
+        }
+        return packedNtestEval;
+    }
+
+    @Override ExpandedCoefficients expand(CoefficientSet coefficientSet) {
+        return new ExpandedCoefficientsJ(coefficientSet);
+    }
+
+    @Override ExpandedCoefficients pack(CoefficientSet coefficientSet) {
+        return new PackedCoefficientsJ(this, coefficientSet);
+    }
+
     @Override int eval(long mover, long enemy, long moverMoves, long enemyMoves, CoefficientSet coefficientSet) {
         assert moverMoves != 0;
         final int nEmpty = BitBoardUtils.nEmpty(mover, enemy);
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.eval;
+
+/**
+ * Coefficients expanded at load time into tables that can be evaluated with fewer lookups than a
+ * {@link CoefficientSet}.
+ * <p/>
+ * Create using {@link EvalStrategy#expand(CoefficientSet)}. Implementations must be immutable so they can be
+ * shared between threads.
+ */
+abstract class ExpandedCoefficients {
+    /**
+     * Evaluate a position.
+     * <p/>
+     * Precondition: mover can move. This must return exactly the value that the EvalStrategy would return.
+     *
+     * @return position value, in centi-disks
+     */
+    abstract int eval(long mover, long enemy, long moverMoves, long enemyMoves);
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.eval;
+
+import com.welty.novello.core.BitBoardUtils;
+
+/**
+ * {@link EvalStrategyJ} coefficients expanded so that eval() needs no orid lookups.
+ * <p/>
+ * EvalStrategyJ converts each pattern from board bits to a base-3 instance and then to a symmetry-folded orid
+ * before looking up the coefficient. Here, line patterns up to 8 squares are expanded into tables indexed directly
+ * by the mover and enemy bits, (moverBits &lt;&lt; n) | enemyBits. The 10-square patterns would need 2<sup>20</sup>
+ * entries that way, so they are expanded into tables indexed by base-3 instance, which drops only the orid lookup.
+ * <p/>
+ * Expanded tables use about 1MB per distinct slice. Slices with equal coefficients are expanded only once.
+ */
+final class ExpandedCoefficientsJ extends ExpandedCoefficients {
+    private final Slice[] slices = new Slice[64];
+
+    ExpandedCoefficientsJ(CoefficientSet coefficientSet) {
+        final int[] distinct = coefficientSet.distinctSlices();
+        for (int nEmpty = 0; nEmpty < distinct.length; nEmpty++) {
+            final int d = distinct[nEmpty];
+            if (d == nEmpty) {
+                slices[nEmpty] = new Slice(coefficientSet.slice(nEmpty));
+            } else if (d >= 0) {
+                slices[nEmpty] = slices[d];
+            }
+        }
+    }
+
+    @Override int eval(long mover, long enemy, long moverMoves, long enemyMoves) {
+        assert moverMoves != 0;
+        final int nEmpty = BitBoardUtils.nEmpty(mover, enemy);
+        return slices[nEmpty].eval(mover, enemy, moverMoves, enemyMoves, nEmpty);
+    }
+
+    private static final class Slice {
+        private final short[] row0;
+        private final short[] row1;
+        private final short[] row2;
+        private final short[] row3;
+        private final short[] diagonal8;
+        private final short[] diagonal7;
+        private final short[] diagonal6;
+        private final short[] diagonal5;
+        private final short[] cornerTriangle;
+        private final short[] edge2X;
+
+        // these features are already indexed by instance or count
+        private final short[] corner2x4;
+        private final short[] corner2x5;
+        private final short[] moverMobility;
+        private final short[] enemyMobility;
+        private final short[] enemyPotMob;
+        private final short[] moverPotMob;
+        private final short[] parity;
+
+        Slice(short[][] slice) {
+            row0 = expandLine(slice[0], 8);
+            row1 = expandLine(slice[1], 8);
+            row2 = expandLine(slice[2], 8);
+            row3 = expandLine(slice[3], 8);
+            diagonal8 = expandLine(slice[4], 8);
+            diagonal7 = expandLine(slice[5], 7);
+            diagonal6 = expandLine(slice[6], 6);
+            diagonal5 = expandLine(slice[7], 5);
+            cornerTriangle = expandInstances(slice[8], CornerTriangleFeature.instance);
+            corner2x4 = slice[9];
+            corner2x5 = slice[10];
+            edge2X = expandInstances10(slice[11]);
+            moverMobility = slice[12];
+            enemyMobility = slice[13];
+            enemyPotMob = slice[14];
+            moverPotMob = slice[15];
+            parity = slice[16];
+        }
+
+        /**
+         * Expand a line pattern's coefficients into a table indexed by (moverBits &lt;&lt; nDisks) | enemyBits.
+         */
+        private static short[] expandLine(short[] coeffs, int nDisks) {
+            final int n = 1 << nDisks;
+            final short[] expanded = new short[n * n];
+            for (int moverBits = 0; moverBits < n; moverBits++) {
+                for (int enemyBits = 0; enemyBits < n; enemyBits++) {
+                    if ((moverBits & enemyBits) == 0) {
+                        final int instance = Base3.base2ToBase3(moverBits, enemyBits);
+                        expanded[(moverBits << nDisks) | enemyBits] = coeffs[lineOrid(instance, nDisks)];
+                    }
+                }
+            }
+            return expanded;
+        }
+
+        private static int lineOrid(int instance, int nDisks) {
+            switch (nDisks) {
+                case 8:
+                    return OridTable.orid8(instance);
+                case 7:
+                    return OridTable.orid7(instance);
+                case 6:
+                    return OridTable.orid6(instance);
+                case 5:
+                    return OridTable.orid5(instance);
+                default:
+                    throw new IllegalArgumentException("no line orids for " + nDisks + " disks");
+            }
+        }
+
+        private static short[] expandInstances(short[] coeffs, Feature feature) {
+            final short[] expanded = new short[Base3.nInstances(10)];
+            for (int instance = 0; instance < expanded.length; instance++) {
+                expanded[instance] = coeffs[feature.orid(instance)];
+            }
+            return expanded;
+        }
+
+        private static short[] expandInstances10(short[] coeffs) {
+            final short[] expanded = new short[Base3.nInstances(10)];
+            for (int instance = 0; instance < expanded.length; instance++) {
+                expanded[instance] = coeffs[OridTable.orid10(instance)];
+            }
+            return expanded;
+        }
+
+        private static int row(short[] table, long mover, long enemy, int row) {
+            return table[(BitBoardUtils.extractRow(mover, row) << 8) | BitBoardUtils.extractRow(enemy, row)];
+        }
+
+        private static int col(short[] table, long mover, long enemy, int col) {
+            return table[(BitBoardUtils.extractCol(mover, col) << 8) | BitBoardUtils.extractCol(enemy, col)];
+        }
+
+        private static int diagonal(short[] table, int nDisks, long mover, long enemy, long mask, int shift) {
+            return table[(DiagonalTerm.extractDiagonal(mover, mask, shift) << nDisks) | DiagonalTerm.extractDiagonal(enemy, mask, shift)];
+        }
+
+        /**
+         * Evaluate, in the same order as {@link EvalStrategyJ}.
+         */
+        int eval(long mover, long enemy, long moverMoves, long enemyMoves, int nEmpty) {
+            int eval = row(row0, mover, enemy, 0) + row(row0, mover, enemy, 7) + col(row0, mover, enemy, 0) + col(row0, mover, enemy, 7);
+            eval += row(row1, mover, enemy, 1) + row(row1, mover, enemy, 6) + col(row1, mover, enemy, 1) + col(row1, mover, enemy, 6);
+            eval += row(row2, mover, enemy, 2) + row(row2, mover, enemy, 5) + col(row2, mover, enemy, 2) + col(row2, mover, enemy, 5);
+            eval += row(row3, mover, enemy, 3) + row(row3, mover, enemy, 4) + col(row3, mover, enemy, 3) + col(row3, mover, enemy, 4);
+
+            eval += diagonal(diagonal8, 8, mover, enemy, 0x8040201008040201L, 56)
+                    + diagonal(diagonal8, 8, mover, enemy, 0x0102040810204080L, 56);
+
+            eval += diagonal(diagonal7, 7, mover, enemy, 0x4020100804020100L, 56)
+                    + diagonal(diagonal7, 7, mover, enemy, 0x0080402010080402L, 57)
+                    + diagonal(diagonal7, 7, mover, enemy, 0x0001020408102040L, 56)
+                    + diagonal(diagonal7, 7, mover, enemy, 0x0204081020408000L, 57);
+
+            eval += diagonal(diagonal6, 6, mover, enemy, 0x2010080402010000L, 56)
+                    + diagonal(diagonal6, 6, mover, enemy, 0x0000804020100804L, 58)
+                    + diagonal(diagonal6, 6, mover, enemy, 0x0000010204081020L, 56)
+                    + diagonal(diagonal6, 6, mover, enemy, 0x0408102040800000L, 58);
+
+            eval += diagonal(diagonal5, 5, mover, enemy, 0x1008040201000000L, 56)
+                    + diagonal(diagonal5, 5, mover, enemy, 0x0000008040201008L, 59)
+                    + diagonal(diagonal5, 5, mover, enemy, 0x0000000102040810L, 56)
+                    + diagonal(diagonal5, 5, mover, enemy, 0x0810204080000000L, 59);
+
+            eval += cornerTriangle[CornerTriangleTerm.instance(mover, enemy, false, false)]
+                    + cornerTriangle[CornerTriangleTerm.instance(mover, enemy, true, false)]
+                    + cornerTriangle[CornerTriangleTerm.instance(mover, enemy, false, true)]
+                    + cornerTriangle[CornerTriangleTerm.instance(mover, enemy, true, true)];
+
+            eval += enemyPotMob[BitBoardUtils.linearPotMob(enemy, mover) >> 1];
+            eval += moverPotMob[BitBoardUtils.linearPotMob(mover, enemy) >> 1];
+
+            final int moverRow0 = BitBoardUtils.extractRow(mover, 0);
+            final int enemyRow0 = BitBoardUtils.extractRow(enemy, 0);
+            final int moverCol0 = BitBoardUtils.extractCol(mover, 0);
+            final int enemyCol0 = BitBoardUtils.extractCol(enemy, 0);
+            final int moverRow1 = BitBoardUtils.extractRow(mover, 1);
+            final int enemyRow1 = BitBoardUtils.extractRow(enemy, 1);
+            final int moverCol1 = BitBoardUtils.extractCol(mover, 1);
+            final int enemyCol1 = BitBoardUtils.extractCol(enemy, 1);
+            final int moverRow6 = BitBoardUtils.extractRow(mover, 6);
+            final int enemyRow6 = BitBoardUtils.extractRow(enemy, 6);
+            final int moverCol6 = BitBoardUtils.extractCol(mover, 6);
+            final int enemyCol6 = BitBoardUtils.extractCol(enemy, 6);
+            final int moverRow7 = BitBoardUtils.extractRow(mover, 7);
+            final int enemyRow7 = BitBoardUtils.extractRow(enemy, 7);
+            final int moverCol7 = BitBoardUtils.extractCol(mover, 7);
+            final int enemyCol7 = BitBoardUtils.extractCol(enemy, 7);
+            eval += corner2x4[Corner2x4Term.leftInstance(moverRow0, enemyRow0, moverRow1, enemyRow1)]
+                    + corner2x4[Corner2x4Term.rightInstance(moverRow0, enemyRow0, moverRow1, enemyRow1)]
+                    + corner2x4[Corner2x4Term.leftInstance(moverRow7, enemyRow7, moverRow6, enemyRow6)]
+                    + corner2x4[Corner2x4Term.rightInstance(moverRow7, enemyRow7, moverRow6, enemyRow6)]
+                    + corner2x4[Corner2x4Term.leftInstance(moverCol0, enemyCol0, moverCol1, enemyCol1)]
+                    + corner2x4[Corner2x4Term.rightInstance(moverCol0, enemyCol0, moverCol1, enemyCol1)]
+                    + corner2x4[Corner2x4Term.leftInstance(moverCol7, enemyCol7, moverCol6, enemyCol6)]
+                    + corner2x4[Corner2x4Term.rightInstance(moverCol7, enemyCol7, moverCol6, enemyCol6)];
+
+            eval += corner2x5[Corner2x5Term.leftInstance(moverRow0, enemyRow0, moverRow1, enemyRow1)]
+                    + corner2x5[Corner2x5Term.rightInstance(moverRow0, enemyRow0, moverRow1, enemyRow1)]
+                    + corner2x5[Corner2x5Term.leftInstance(moverRow7, enemyRow7, moverRow6, enemyRow6)]
+                    + corner2x5[Corner2x5Term.rightInstance(moverRow7, enemyRow7, moverRow6, enemyRow6)]
+                    + corner2x5[Corner2x5Term.leftInstance(moverCol0, enemyCol0, moverCol1, enemyCol1)]
+                    + corner2x5[Corner2x5Term.rightInstance(moverCol0, enemyCol0, moverCol1, enemyCol1)]
+                    + corner2x5[Corner2x5Term.leftInstance(moverCol7, enemyCol7, moverCol6, enemyCol6)]
+                    + corner2x5[Corner2x5Term.rightInstance(moverCol7, enemyCol7, moverCol6, enemyCol6)];
+
+            eval += edge2X[Edge2XTerm.instance0(mover, enemy)]
+                    + edge2X[Edge2XTerm.instance1(mover, enemy)]
+                    + edge2X[Edge2XTerm.instance2(mover, enemy)]
+                    + edge2X[Edge2XTerm.instance3(mover, enemy)];
+
+            eval += moverMobility[Long.bitCount(moverMoves)];
+            eval += enemyMobility[Long.bitCount(enemyMoves)];
+            eval += parity[nEmpty & 1];
+            return eval;
+        }
+    }
+}
@@ -18,14 +18,12 @@ package com.welty.novello.eval;
 import com.orbanova.common.misc.Logger;
 import com.welty.novello.coca.*;
 import com.welty.novello.core.MeValue;
-import com.welty.novello.core.MinimalReflection;
 import com.welty.novello.solver.Counter;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 /**
  * Generates and loads MeValues for the Coefficient Calculator
@@ -35,38 +33,87 @@ public class MvGenerator {
     private final EvalStrategy evalStrategy;
     private static final String PLAYOUT_PLAYER_NAME = "d2:16";
 
+    /**
+     * Distinct MeValues, created by the first call to {@link #getStore()}
+     */
+    private MvStore store;
+
     public MvGenerator(EvalStrategy evalStrategy) {
         this.evalStrategy = evalStrategy;
     }
 
+    /**
+     * Get the distinct MeValues as a List.
+     * <p/>
+     * This creates an object per position; use {@link #getStore()} where possible.
+     *
+     * @return the distinct MeValues, sorted by nEmpty as in {@link #getStore()}
+     */
     public List<MeValue> getMvs() throws IOException {
-        final List<MeValue> logbook = new LogbookMvSource().getMvs();
-        final List<MeValue> pvs = new CachingMvSource(PLAYOUT_PLAYER_NAME, BaseMrSource.instance, ".pvs").getMvs();
+        return getStore().toList();
+    }
+
+    /**
+     * Get the distinct MeValues as a memory-mapped store.
+     * <p/>
+     * The stores of all sources are concatenated, keeping only the first copy of each position, and written to
+     * a temporary store file (see {@link TempStoreFiles}). The sources' stores are memory-mapped, so
+     * no MeValue objects are created. The store is created on the first call; later calls return the same store.
+     *
+     * @return the store
+     */
+    public MvStore getStore() throws IOException {
+        if (store == null) {
+            final List<MvStore> stores = getSourceStores();
+            log.info("Selecting distinct pvs");
+            final Path storeFile = TempStoreFiles.create("novello-" + evalStrategy);
+            MvStore.concat(storeFile, stores, true);
+            store = MvStore.map(storeFile);
+            log.info(String.format("selected %,d distinct pvs from %,d total pvs", store.size(), totalSize(stores)));
+        }
+        return store;
+    }
+
+    /**
+     * Index the MeValues of all sources by position, for training.
+     * <p/>
+     * As in {@link #getStore()}, where a position occurs in several sources only the first source's value is used,
+     * so search values from the playout sources are not mixed with game results. Unlike {@link #getStore()}, every
+     * copy of the position in that source is kept: the position is indexed once with the mean of those copies'
+     * values and their count, which CoefficientCalculator uses as the training target and weight.
+     * The index is built directly from the sources' memory-mapped stores.
+     *
+     * @return the index
+     */
+    public PositionIndex getPositionIndex() throws IOException {
+        final PositionIndex index = PositionIndex.of(getSourceStores());
+        log.info(String.format("indexed %,d distinct positions from %,d total pvs", index.size(), index.nCopies()));
+        return index;
+    }
+
+    /**
+     * @return the stores of all sources, in priority order: where a position occurs in several sources,
+     * the first source's value is used.
+     */
+    private List<MvStore> getSourceStores() throws IOException {
+        final MvStore logbook = new LogbookMvSource().getStore();
+        final MvStore pvs = new CachingMvSource(PLAYOUT_PLAYER_NAME, BaseMrSource.instance, ".pvs").getStore();
         final MrSource rareSource = new RarePositionMrSource(evalStrategy, pvs);
-        final List<MeValue> pvsx = new CachingMvSource(PLAYOUT_PLAYER_NAME, rareSource, "x.pvs").getMvs();
-        final List<MeValue> pvsN = new CachingMvSource(PLAYOUT_PLAYER_NAME, NtestPvLoader.mrSource, "n.pvs").getMvs();
-        final List<MeValue> pvsCap = new CachingMvSource(PLAYOUT_PLAYER_NAME, new FileMrSource(Counter.capturePath), "-cap.pvs").getMvs();
-        final List<MeValue> ggs = new RandGameMvSource().getMvs();
+        final MvStore pvsx = new CachingMvSource(PLAYOUT_PLAYER_NAME, rareSource, "x.pvs").getStore();
+        final MvStore pvsN = new CachingMvSource(PLAYOUT_PLAYER_NAME, NtestPvLoader.mrSource, "n.pvs").getStore();
+        final MvStore pvsCap = new CachingMvSource(PLAYOUT_PLAYER_NAME, new FileMrSource(Counter.capturePath), "-cap.pvs").getStore();
+        final MvStore ggs = new RandGameMvSource().getStore();
         log.info(String.format("%,d pvs from .pvs file, %,d from x.pvs file, %,d from n.pvs file," +
                 " %,d from ggs games, %,d from -cap.pvs file, %,d from logbook"
                 , pvs.size(), pvsx.size(), pvsN.size(), ggs.size(), pvsCap.size(), logbook.size()));
-        pvs.addAll(pvsx);
-        pvs.addAll(pvsN);
-        pvs.addAll(pvsCap);
-        pvs.addAll(ggs);
-        pvs.addAll(logbook);
-
-        log.info("Selecting distinct pvs");
-        final Set<MinimalReflection> alreadySeen = new HashSet<>();
-        final List<MeValue> distinctPvs = new ArrayList<>();
+        return Arrays.asList(pvs, pvsx, pvsN, pvsCap, ggs, logbook);
+    }
 
-        for (MeValue pv : pvs) {
-            final MinimalReflection mr = new MinimalReflection(pv.mover, pv.enemy);
-            if (alreadySeen.add(mr)) {
-                distinctPvs.add(pv);
-            }
+    private static long totalSize(List<MvStore> stores) {
+        long size = 0;
+        for (MvStore store : stores) {
+            size += store.size();
         }
-        log.info(String.format("selected %,d distinct pvs from %,d total pvs", distinctPvs.size(), pvs.size()));
-        return distinctPvs;
+        return size;
     }
 }
@@ -15,6 +15,8 @@
 
 package com.welty.novello.eval;
 
+import java.io.PrintStream;
+
 class OridHistogram {
     private static final int MAX_LOG = 4;
 
@@ -28,16 +30,16 @@ class OridHistogram {
 
     }
 
-    public void dump() {
+    public void dump(PrintStream out) {
         final int[] counts = this.counts;
         final int[] histogram = createLogHistogram(counts);
         for (int i = 0; i < histogram.length; i++) {
             final int h = histogram[i];
             if (h > 0) {
-                System.out.format("%,8d coefficients occurred %s%n", h, rangeText(i));
+                out.format("%,8d coefficients occurred %s%n", h, rangeText(i));
             }
         }
-        System.out.println();
+        out.println();
     }
 
     static int[] createLogHistogram(int[] counts) {
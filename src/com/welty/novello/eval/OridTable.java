@@ -43,15 +43,16 @@ public class OridTable {
         return orid4[instance];
     }
 
-    private static int[] orid10 = calcOrids(10);
-    private static int[] orid8 = calcOrids(8);
-    private static int[] orid7 = calcOrids(7);
-    private static int[] orid6 = calcOrids(6);
-    private static int[] orid5 = calcOrids(5);
-    private static int[] orid4 = calcOrids(4);
+    // There are fewer than 32768 orids for each size, so orids are stored as shorts to save cache space.
+    private static final short[] orid10 = calcOrids(10);
+    private static final short[] orid8 = calcOrids(8);
+    private static final short[] orid7 = calcOrids(7);
+    private static final short[] orid6 = calcOrids(6);
+    private static final short[] orid5 = calcOrids(5);
+    private static final short[] orid4 = calcOrids(4);
 
-    private static int[] calcOrids(int nDisks) {
-        final int[] orids = new int[Base3.nInstances(nDisks)];
+    private static short[] calcOrids(int nDisks) {
+        final short[] orids = new short[Base3.nInstances(nDisks)];
 
         int nOrids = 0;
         for (int instance = 0; instance < orids.length; instance++) {
@@ -59,7 +60,7 @@ public class OridTable {
             if (reverse < instance) {
                 orids[instance] = orids[reverse];
             } else {
-                orids[instance] = nOrids++;
+                orids[instance] = (short) nOrids++;
             }
         }
         return orids;
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.eval;
+
+import com.welty.novello.core.BitBoardUtils;
+
+/**
+ * {@link EvalStrategyJ} coefficients packed into one contiguous array per slice.
+ * <p/>
+ * A CoefficientSet allocates a separate array for each feature in each slice, so the coefficients used by a
+ * single eval are scattered across the heap. Here each distinct slice is copied into a single short[] with the
+ * features in the order that eval() reads them. The small, frequently-used features (potential mobility, mobility
+ * and parity) are placed next to each other so they share cache lines. Each other feature starts on a 64-byte
+ * boundary relative to the start of the array; Java can't align the array itself.
+ * <p/>
+ * Values are looked up by orid, so this uses about the same RAM as the CoefficientSet, unlike
+ * {@link ExpandedCoefficientsJ}.
+ */
+final class PackedCoefficientsJ extends ExpandedCoefficients {
+    /**
+     * Number of shorts in a 64-byte cache line
+     */
+    private static final int LINE = 32;
+
+    /**
+     * Feature indices in the order they are stored. Features in the same group are stored without padding between
+     * them.
+     */
+    private static final int[][] FEATURE_GROUPS = {
+            {0}, {1}, {2}, {3}, {4}, {5}, {6}, {7}, {8},
+            {14, 15, 12, 13, 16},
+            {9}, {10}, {11}
+    };
+
+    private static final int N_FEATURES = 17;
+
+    private final short[][] slices = new short[64][];
+
+    // offset of each feature within a slice
+    private final int row0;
+    private final int row1;
+    private final int row2;
+    private final int row3;
+    private final int diagonal8;
+    private final int diagonal7;
+    private final int diagonal6;
+    private final int diagonal5;
+    private final int cornerTriangle;
+    private final int corner2x4;
+    private final int corner2x5;
+    private final int edge2X;
+    private final int moverMobility;
+    private final int enemyMobility;
+    private final int enemyPotMob;
+    private final int moverPotMob;
+    private final int parity;
+
+    PackedCoefficientsJ(EvalStrategy strategy, CoefficientSet coefficientSet) {
+        if (strategy.nFeatures() != N_FEATURES) {
+            throw new IllegalArgumentException("Strategy " + strategy + " does not have the features of EvalStrategyJ");
+        }
+        final int[] offsets = new int[N_FEATURES];
+        final int[] nOrids = strategy.nOridsByFeature();
+        int size = 0;
+        for (int[] group : FEATURE_GROUPS) {
+            size = (size + LINE - 1) / LINE * LINE;
+            for (int iFeature : group) {
+                offsets[iFeature] = size;
+                size += nOrids[iFeature];
+            }
+        }
+        row0 = offsets[0];
+        row1 = offsets[1];
+        row2 = offsets[2];
+        row3 = offsets[3];
+        diagonal8 = offsets[4];
+        diagonal7 = offsets[5];
+        diagonal6 = offsets[6];
+        diagonal5 = offsets[7];
+        cornerTriangle = offsets[8];
+        corner2x4 = offsets[9];
+        corner2x5 = offsets[10];
+        edge2X = offsets[11];
+        moverMobility = offsets[12];
+        enemyMobility = offsets[13];
+        enemyPotMob = offsets[14];
+        moverPotMob = offsets[15];
+        parity = offsets[16];
+
+        final int[] distinct = coefficientSet.distinctSlices();
+        for (int nEmpty = 0; nEmpty < distinct.length; nEmpty++) {
+            final int d = distinct[nEmpty];
+            if (d == nEmpty) {
+                slices[nEmpty] = pack(coefficientSet.slice(nEmpty), offsets, nOrids, size);
+            } else if (d >= 0) {
+                slices[nEmpty] = slices[d];
+            }
+        }
+    }
+
+    private static short[] pack(short[][] slice, int[] offsets, int[] nOrids, int size) {
+        final short[] packed = new short[size];
+        for (int iFeature = 0; iFeature < N_FEATURES; iFeature++) {
+            final short[] coefficients = slice[iFeature];
+            if (coefficients.length != nOrids[iFeature]) {
+                throw new IllegalArgumentException("Feature " + iFeature + " has " + coefficients.length
+                        + " coefficients but " + nOrids[iFeature] + " orids");
+            }
+            System.arraycopy(coefficients, 0, packed, offsets[iFeature], coefficients.length);
+        }
+        return packed;
+    }
+
+    @Override int eval(long mover, long enemy, long moverMoves, long enemyMoves) {
+        assert moverMoves != 0;
+        final int nEmpty = BitBoardUtils.nEmpty(mover, enemy);
+        final short[] c = slices[nEmpty];
+
+        int eval = c[row0 + RowTerm.rowOrid(mover, enemy, 0)]
+                + c[row0 + RowTerm.rowOrid(mover, enemy, 7)]
+                + c[row0 + ColTerm.colOrid(mover, enemy, 0)]
+                + c[row0 + ColTerm.colOrid(mover, enemy, 7)];
+        eval += c[row1 + RowTerm.rowOrid(mover, enemy, 1)]
+                + c[row1 + RowTerm.rowOrid(mover, enemy, 6)]
+                + c[row1 + ColTerm.colOrid(mover, enemy, 1)]
+                + c[row1 + ColTerm.colOrid(mover, enemy, 6)];
+        eval += c[row2 + RowTerm.rowOrid(mover, enemy, 2)]
+                + c[row2 + RowTerm.rowOrid(mover, enemy, 5)]
+                + c[row2 + ColTerm.colOrid(mover, enemy, 2)]
+                + c[row2 + ColTerm.colOrid(mover, enemy, 5)];
+        eval += c[row3 + RowTerm.rowOrid(mover, enemy, 3)]
+                + c[row3 + RowTerm.rowOrid(mover, enemy, 4)]
+                + c[row3 + ColTerm.colOrid(mover, enemy, 3)]
+                + c[row3 + ColTerm.colOrid(mover, enemy, 4)];
+
+        eval += c[diagonal8 + OridTable.orid8(DiagonalTerm.diagonalInstance(mover, enemy, 0x8040201008040201L, 56))]
+                + c[diagonal8 + OridTable.orid8(DiagonalTerm.diagonalInstance(mover, enemy, 0x0102040810204080L, 56))];
+
+        eval += c[diagonal7 + OridTable.orid7(DiagonalTerm.diagonalInstance(mover, enemy, 0x4020100804020100L, 56))]
+                + c[diagonal7 + OridTable.orid7(DiagonalTerm.diagonalInstance(mover, enemy, 0x0080402010080402L, 57))]
+                + c[diagonal7 + OridTable.orid7(DiagonalTerm.diagonalInstance(mover, enemy, 0x0001020408102040L, 56))]
+                + c[diagonal7 + OridTable.orid7(DiagonalTerm.diagonalInstance(mover, enemy, 0x0204081020408000L, 57))];
+
+        eval += c[diagonal6 + OridTable.orid6(DiagonalTerm.diagonalInstance(mover, enemy, 0x2010080402010000L, 56))]
+                + c[diagonal6 + OridTable.orid6(DiagonalTerm.diagonalInstance(mover, enemy, 0x0000804020100804L, 58))]
+                + c[diagonal6 + OridTable.orid6(DiagonalTerm.diagonalInstance(mover, enemy, 0x0000010204081020L, 56))]
+                + c[diagonal6 + OridTable.orid6(DiagonalTerm.diagonalInstance(mover, enemy, 0x0408102040800000L, 58))];
+
+        eval += c[diagonal5 + OridTable.orid5(DiagonalTerm.diagonalInstance(mover, enemy, 0x1008040201000000L, 56))]
+                + c[diagonal5 + OridTable.orid5(DiagonalTerm.diagonalInstance(mover, enemy, 0x0000008040201008L, 59))]
+                + c[diagonal5 + OridTable.orid5(DiagonalTerm.diagonalInstance(mover, enemy, 0x0000000102040810L, 56))]
+                + c[diagonal5 + OridTable.orid5(DiagonalTerm.diagonalInstance(mover, enemy, 0x0810204080000000L, 59))];
+
+        eval += c[cornerTriangle + CornerTriangleTerm.orid(mover, enemy, false, false)]
+                + c[cornerTriangle + CornerTriangleTerm.orid(mover, enemy, true, false)]
+                + c[cornerTriangle + CornerTriangleTerm.orid(mover, enemy, false, true)]
+                + c[cornerTriangle + CornerTriangleTerm.orid(mover, enemy, true, true)];
+
+        // hot small features, stored together
+        eval += c[enemyPotMob + (BitBoardUtils.linearPotMob(enemy, mover) >> 1)];
+        eval += c[moverPotMob + (BitBoardUtils.linearPotMob(mover, enemy) >> 1)];
+        eval += c[moverMobility + Long.bitCount(moverMoves)];
+        eval += c[enemyMobility + Long.bitCount(enemyMoves)];
+        eval += c[parity + (nEmpty & 1)];
+
+        final int moverRow0 = BitBoardUtils.extractRow(mover, 0);
+        final int enemyRow0 = BitBoardUtils.extractRow(enemy, 0);
+        final int moverCol0 = BitBoardUtils.extractCol(mover, 0);
+        final int enemyCol0 = BitBoardUtils.extractCol(enemy, 0);
+        final int moverRow1 = BitBoardUtils.extractRow(mover, 1);
+        final int enemyRow1 = BitBoardUtils.extractRow(enemy, 1);
+        final int moverCol1 = BitBoardUtils.extractCol(mover, 1);
+        final int enemyCol1 = BitBoardUtils.extractCol(enemy, 1);
+        final int moverRow6 = BitBoardUtils.extractRow(mover, 6);
+        final int enemyRow6 = BitBoardUtils.extractRow(enemy, 6);
+        final int moverCol6 = BitBoardUtils.extractCol(mover, 6);
+        final int enemyCol6 = BitBoardUtils.extractCol(enemy, 6);
+        final int moverRow7 = BitBoardUtils.extractRow(mover, 7);
+        final int enemyRow7 = BitBoardUtils.extractRow(enemy, 7);
+        final int moverCol7 = BitBoardUtils.extractCol(mover, 7);
+        final int enemyCol7 = BitBoardUtils.extractCol(enemy, 7);
+        eval += c[corner2x4 + Corner2x4Term.leftInstance(moverRow0, enemyRow0, moverRow1, enemyRow1)]
+                + c[corner2x4 + Corner2x4Term.rightInstance(moverRow0, enemyRow0, moverRow1, enemyRow1)]
+                + c[corner2x4 + Corner2x4Term.leftInstance(moverRow7, enemyRow7, moverRow6, enemyRow6)]
+                + c[corner2x4 + Corner2x4Term.rightInstance(moverRow7, enemyRow7, moverRow6, enemyRow6)]
+                + c[corner2x4 + Corner2x4Term.leftInstance(moverCol0, enemyCol0, moverCol1, enemyCol1)]
+                + c[corner2x4 + Corner2x4Term.rightInstance(moverCol0, enemyCol0, moverCol1, enemyCol1)]
+                + c[corner2x4 + Corner2x4Term.leftInstance(moverCol7, enemyCol7, moverCol6, enemyCol6)]
+                + c[corner2x4 + Corner2x4Term.rightInstance(moverCol7, enemyCol7, moverCol6, enemyCol6)];
+
+        eval += c[corner2x5 + Corner2x5Term.leftInstance(moverRow0, enemyRow0, moverRow1, enemyRow1)]
+                + c[corner2x5 + Corner2x5Term.rightInstance(moverRow0, enemyRow0, moverRow1, enemyRow1)]
+                + c[corner2x5 + Corner2x5Term.leftInstance(moverRow7, enemyRow7, moverRow6, enemyRow6)]
+                + c[corner2x5 + Corner2x5Term.rightInstance(moverRow7, enemyRow7, moverRow6, enemyRow6)]
+                + c[corner2x5 + Corner2x5Term.leftInstance(moverCol0, enemyCol0, moverCol1, enemyCol1)]
+                + c[corner2x5 + Corner2x5Term.rightInstance(moverCol0, enemyCol0, moverCol1, enemyCol1)]
+                + c[corner2x5 + Corner2x5Term.leftInstance(moverCol7, enemyCol7, moverCol6, enemyCol6)]
+                + c[corner2x5 + Corner2x5Term.rightInstance(moverCol7, enemyCol7, moverCol6, enemyCol6)];
+
+        eval += c[edge2X + OridTable.orid10(Edge2XTerm.instance0(mover, enemy))]
+                + c[edge2X + OridTable.orid10(Edge2XTerm.instance1(mover, enemy))]
+                + c[edge2X + OridTable.orid10(Edge2XTerm.instance2(mover, enemy))]
+                + c[edge2X + OridTable.orid10(Edge2XTerm.instance3(mover, enemy))];
+
+        return eval;
+    }
+}
@@ -21,12 +21,20 @@ import java.util.Arrays;
 
 /**
  * Data about a single position and value
+ * <p/>
+ * An element can stand for several copies of the same position. Its weight is the number of copies and its target
+ * is their mean value; the element's squared error is multiplied by its weight.
  */
 public class PositionElement {
     final @NotNull int[] indices;
     private final int target;
     private final @NotNull float[] denseWeights;
 
+    /**
+     * Number of copies of the position this element stands for
+     */
+    final int weight;
+
     private static final float[] EMPTY_ARRAY = new float[0];
 
     PositionElement(int[] indices, int target) {
@@ -34,9 +42,24 @@ public class PositionElement {
     }
 
     public PositionElement(@NotNull int[] indices, int target, @NotNull float[] denseWeights) {
+        this(indices, target, denseWeights, 1);
+    }
+
+    private PositionElement(@NotNull int[] indices, int target, @NotNull float[] denseWeights, int weight) {
         this.indices = indices;
         this.target = target;
         this.denseWeights = denseWeights;
+        this.weight = weight;
+    }
+
+    /**
+     * Create an element with the same position and target as this one, standing for weight copies of the position.
+     *
+     * @param weight number of copies
+     * @return the weighted element. It shares its index arrays with this element.
+     */
+    public PositionElement withWeight(int weight) {
+        return new PositionElement(indices, target, denseWeights, weight);
     }
 
     /**
@@ -46,7 +69,7 @@ public class PositionElement {
      * @param minusGradient (negative) gradient of the optimization function
      */
     void updateGradient(double[] x, double[] minusGradient) {
-        final double error = error(x);
+        final double error = weight * error(x);
         for (int i : indices) {
             minusGradient[i] += 2 * error;
         }
@@ -127,6 +150,7 @@ public class PositionElement {
         PositionElement that = (PositionElement) o;
 
         if (target != that.target) return false;
+        if (weight != that.weight) return false;
         //noinspection SimplifiableIfStatement
         if (!Arrays.equals(denseWeights, that.denseWeights)) return false;
         return Arrays.equals(indices, that.indices);
@@ -138,6 +162,7 @@ public class PositionElement {
         int result = Arrays.hashCode(indices);
         result = 31 * result + target;
         result = 31 * result + Arrays.hashCode(denseWeights);
+        result = 31 * result + weight;
         return result;
     }
 
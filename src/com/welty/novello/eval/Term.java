@@ -190,7 +190,7 @@ class Terms {
         }
 
         @Override String oridGen() {
-            return "BitBoardUtils.linearPotMob(mover, empty)>>1";
+            return "BitBoardUtils.linearPotMob(mover, enemy)>>1";
         }
 
         @Override public String toString() {
@@ -204,7 +204,7 @@ class Terms {
         }
 
         @Override String oridGen() {
-            return "BitBoardUtils.linearPotMob(enemy, empty)>>1";
+            return "BitBoardUtils.linearPotMob(enemy, mover)>>1";
         }
 
         @Override public String toString() {
@@ -241,7 +241,7 @@ class Terms {
         }
 
         @Override String oridGen() {
-            return "Long.bitCount(BitBoardUtils.potMobs2(enemy, empty))";
+            return "Long.bitCount(mover | enemy) & 1";
         }
 
     };
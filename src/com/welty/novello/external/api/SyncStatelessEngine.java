@@ -19,6 +19,7 @@ import com.welty.novello.book.Book;
 import com.welty.novello.core.Board;
 import com.welty.novello.core.MoveScore;
 import com.welty.novello.eval.Eval;
+import com.welty.novello.metrics.MetricsExport;
 import com.welty.novello.selfplay.EvalSyncEngine;
 import com.welty.novello.solver.SearchAbortedException;
 import com.welty.othello.gdk.COsBoard;
@@ -65,10 +66,12 @@ public class SyncStatelessEngine implements StatelessEngine {
         this.name = name;
         this.responseHandler = responseHandler;
         evalSyncEngine = new EvalSyncEngine(eval, options, name, book);
+        MetricsExport.register(evalSyncEngine);
         new Thread(new Runner(), getName()).start();
     }
 
     @Override public void terminate() {
+        MetricsExport.unregister(evalSyncEngine);
     }
 
     @Override public void learn(PingPong pingPong, final NBoardState state) {
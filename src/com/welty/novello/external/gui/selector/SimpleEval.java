@@ -40,6 +40,13 @@ public abstract class SimpleEval extends Eval {
         return random.nextInt(randomness) + eval(new Situation(mover, enemy));
     }
 
+    /**
+     * Values include a random component, so they can't be cached.
+     */
+    @Override public boolean isCacheable() {
+        return false;
+    }
+
     protected abstract int eval(Situation s);
 
     private static final int[] coeffs = {0, 800, -800, 500, 1000, -1000, -600, 600};
@@ -36,6 +36,13 @@ public class Entry {
         return matches(mover, enemy) && min == score && max == score;
     }
 
+    /**
+     * @return true if this entry does not contain a position
+     */
+    synchronized boolean isEmpty() {
+        return mover == -1L && enemy == -1L;
+    }
+
     /**
      * WARNING: Not thread safe. You must use this with a synchronized Entry.
      *
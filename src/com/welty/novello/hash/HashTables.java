@@ -18,6 +18,7 @@ package com.welty.novello.hash;
 import com.welty.novello.core.BitBoardUtils;
 import com.welty.novello.core.Board;
 import com.welty.novello.core.NovelloUtils;
+import com.welty.novello.metrics.HashStatistics;
 import com.welty.novello.solver.Solver;
 
 /**
@@ -25,27 +26,34 @@ import com.welty.novello.solver.Solver;
 public class HashTables {
     private final HashTable[] tables;
 
-    // statistics
-    private long nStores = 0;
-
-    // rely on the caller to update these.
-    private long nAlphaCuts = 0;
-    private long nBetaCuts = 0;
-    private long nPvCuts = 0;
-    private long nUselessFind = 0;
+    // statistics. Stores are counted here; rely on the caller to update the others.
+    private final HashStatistics statistics;
 
     /**
      * @return search statistics on the hash table
      */
     public String stats() {
-        return String.format("%,d stores. %,d / %,d / %,d alpha/beta/pv cuts. %,d useless finds."
-                , nStores, nAlphaCuts, nBetaCuts, nPvCuts, nUselessFind);
+        return statistics.toString();
+    }
+
+    public HashStatistics getStatistics() {
+        return statistics;
     }
 
     /**
-     * Create a HashTables
+     * Create a HashTables with its own statistics
      */
     public HashTables() {
+        this(new HashStatistics());
+    }
+
+    /**
+     * Create a HashTables
+     *
+     * @param statistics statistics that will be updated by this HashTables
+     */
+    public HashTables(HashStatistics statistics) {
+        this.statistics = statistics;
         tables = new HashTable[64];
         for (int nEmpty = 0; nEmpty < 64; nEmpty++) {
             int lgSize = nEmpty < 8 ? 10 : nEmpty < 12 ? 12 : 14;
@@ -99,6 +107,23 @@ public class HashTables {
         }
     }
 
+    /**
+     * Calculate the fraction of entries that contain a position.
+     * <p/>
+     * This scans every entry, so it is intended for occasional monitoring rather than use during search.
+     *
+     * @return fraction of entries that contain a position
+     */
+    public double occupancy() {
+        long nEntries = 0;
+        long nOccupied = 0;
+        for (HashTable table : tables) {
+            nEntries += table.entries.length;
+            nOccupied += table.nOccupied();
+        }
+        return nEntries == 0 ? 0 : nOccupied / (double) nEntries;
+    }
+
     /**
      * Clear all entries.
      * <p/>
@@ -123,26 +148,30 @@ public class HashTables {
      * @param result search result
      */
     public void store(long mover, long enemy, int alpha, int beta, int result) {
-        nStores++;
+        statistics.updateStore();
         final Entry entry = getEntry(mover, enemy);
         entry.update(mover, enemy, alpha, beta, result);
 
     }
 
     public void updateBetaCut() {
-        nBetaCuts++;
+        statistics.updateBetaCut();
     }
 
     public void updateAlphaCut() {
-        nAlphaCuts++;
+        statistics.updateAlphaCut();
     }
 
     public void updatePvCut() {
-        nPvCuts++;
+        statistics.updatePvCut();
     }
 
     public void updateUselessFind() {
-        nUselessFind++;
+        statistics.updateUselessFind();
+    }
+
+    public void updateMiss() {
+        statistics.updateMiss();
     }
 
     static class HashTable {
@@ -174,5 +203,15 @@ public class HashTables {
                 entry.clear();
             }
         }
+
+        int nOccupied() {
+            int n = 0;
+            for (Entry entry : entries) {
+                if (!entry.isEmpty()) {
+                    n++;
+                }
+            }
+            return n;
+        }
     }
 }
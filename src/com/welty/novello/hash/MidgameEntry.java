@@ -102,6 +102,13 @@ public class MidgameEntry {
         return matches(mover, enemy) && min == score && max == score;
     }
 
+    /**
+     * @return true if this Entry does not contain a position
+     */
+    synchronized boolean isEmpty() {
+        return mover == -1L && enemy == -1L;
+    }
+
     /**
      * Does this Entry contain the given position (at any depth)?
      *
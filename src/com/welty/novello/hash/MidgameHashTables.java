@@ -19,6 +19,7 @@ import com.orbanova.common.misc.Logger;
 import com.welty.novello.core.BitBoardUtils;
 import com.welty.novello.core.Board;
 import com.welty.novello.core.NovelloUtils;
+import com.welty.novello.metrics.HashStatistics;
 import com.welty.novello.solver.BA;
 import com.welty.novello.solver.Solver;
 
@@ -31,14 +32,8 @@ public class MidgameHashTables {
 
     private final HashTable[] tables;
 
-    // statistics
-    private long nStores = 0;
-
-    // rely on the caller to update these.
-    private long nAlphaCuts = 0;
-    private long nBetaCuts = 0;
-    private long nPvCuts = 0;
-    private long nUselessFind = 0;
+    // statistics. Stores and cutoff checks are counted here.
+    private final HashStatistics statistics;
 
     /**
      * Check to see if a search result can be determined from the hash table
@@ -52,23 +47,51 @@ public class MidgameHashTables {
      * @return a BA containing the search result, or null if the search result can't be determined.
      */
     public BA checkForHashCutoff(long mover, long enemy, int depth, int alpha, int beta, int width) {
-        return getEntry(mover, enemy).getBa(mover, enemy, depth, alpha, beta, width);
+        final MidgameEntry entry = getEntry(mover, enemy);
+        final BA ba = entry.getBa(mover, enemy, depth, alpha, beta, width);
+        if (ba != null) {
+            if (ba.score >= beta) {
+                statistics.updateBetaCut();
+            } else if (ba.score <= alpha) {
+                statistics.updateAlphaCut();
+            } else {
+                statistics.updatePvCut();
+            }
+        } else if (entry.matches(mover, enemy)) {
+            statistics.updateUselessFind();
+        } else {
+            statistics.updateMiss();
+        }
+        return ba;
     }
 
     /**
      * @return search statistics on the hash table
      */
     public String stats() {
-        return String.format("%,d stores. %,d / %,d / %,d alpha/beta/pv cuts. %,d useless finds."
-                , nStores, nAlphaCuts, nBetaCuts, nPvCuts, nUselessFind);
+        return statistics.toString();
+    }
+
+    public HashStatistics getStatistics() {
+        return statistics;
     }
 
     private static final AtomicInteger count = new AtomicInteger();
 
     /**
-     * Create a HashTables
+     * Create a HashTables with its own statistics
      */
     public MidgameHashTables() {
+        this(new HashStatistics());
+    }
+
+    /**
+     * Create a HashTables
+     *
+     * @param statistics statistics that will be updated by this HashTables
+     */
+    public MidgameHashTables(HashStatistics statistics) {
+        this.statistics = statistics;
         tables = new HashTable[64];
         for (int nEmpty = 0; nEmpty < 64; nEmpty++) {
             int lgSize = nEmpty < 8 ? 10 : nEmpty < 12 ? 12 : 14;
@@ -104,6 +127,23 @@ public class MidgameHashTables {
         return table.getEntry(mover, enemy);
     }
 
+    /**
+     * Calculate the fraction of entries that contain a position.
+     * <p/>
+     * This scans every entry, so it is intended for occasional monitoring rather than use during search.
+     *
+     * @return fraction of entries that contain a position
+     */
+    public double occupancy() {
+        long nEntries = 0;
+        long nOccupied = 0;
+        for (HashTable table : tables) {
+            nEntries += table.entries.length;
+            nOccupied += table.nOccupied();
+        }
+        return nEntries == 0 ? 0 : nOccupied / (double) nEntries;
+    }
+
     /**
      * Clear all entries.
      * <p/>
@@ -130,7 +170,7 @@ public class MidgameHashTables {
      * @param result   search result
      */
     public void store(long mover, long enemy, int alpha, int beta, int depth, int width, int bestMove, int result) {
-        nStores++;
+        statistics.updateStore();
         getEntry(mover, enemy).update(mover, enemy, alpha, beta, depth, width, bestMove, result);
 
     }
@@ -194,19 +234,23 @@ public class MidgameHashTables {
     }
 
     public void updateBetaCut() {
-        nBetaCuts++;
+        statistics.updateBetaCut();
     }
 
     public void updateAlphaCut() {
-        nAlphaCuts++;
+        statistics.updateAlphaCut();
     }
 
     public void updatePvCut() {
-        nPvCuts++;
+        statistics.updatePvCut();
     }
 
     public void updateUselessFind() {
-        nUselessFind++;
+        statistics.updateUselessFind();
+    }
+
+    public void updateMiss() {
+        statistics.updateMiss();
     }
 
     /**
@@ -245,5 +289,15 @@ public class MidgameHashTables {
                 entry.clear();
             }
         }
+
+        int nOccupied() {
+            int n = 0;
+            for (MidgameEntry entry : entries) {
+                if (!entry.isEmpty()) {
+                    n++;
+                }
+            }
+            return n;
+        }
     }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Exposes a {@link MetricsSource} as an MXBean.
+ */
+class EngineMetrics implements EngineMetricsMXBean {
+    private final @NotNull MetricsSource source;
+
+    EngineMetrics(@NotNull MetricsSource source) {
+        this.source = source;
+    }
+
+    @Override public long getNodes() {
+        return source.getMetrics().nNodes();
+    }
+
+    @Override public long getEvals() {
+        return source.getMetrics().counts.nEvals;
+    }
+
+    @Override public long getSearchMillis() {
+        return source.getMetrics().millis;
+    }
+
+    @Override public double getNodesPerSecond() {
+        return source.getMetrics().nodesPerSecond();
+    }
+
+    @Override public double getEvalsPerSecond() {
+        return source.getMetrics().evalsPerSecond();
+    }
+
+    @Override public double getEndgameHashOccupancy() {
+        return source.getEndgameHashOccupancy();
+    }
+
+    @Override public double getEndgameHashHitRate() {
+        return source.getMetrics().endgameHash.hitRate();
+    }
+
+    @Override public double getEndgameHashCutRate() {
+        return source.getMetrics().endgameHash.cutRate();
+    }
+
+    @Override public double getMidgameHashOccupancy() {
+        return source.getMidgameHashOccupancy();
+    }
+
+    @Override public double getMidgameHashHitRate() {
+        return source.getMetrics().midgameHash.hitRate();
+    }
+
+    @Override public double getMidgameHashCutRate() {
+        return source.getMetrics().midgameHash.cutRate();
+    }
+
+    @Override public long getBookProbes() {
+        return source.getEngineStatistics().getBookProbes();
+    }
+
+    @Override public double getBookHitRate() {
+        return source.getEngineStatistics().getBookHitRate();
+    }
+
+    @Override public long getSearches() {
+        return source.getEngineStatistics().getSearches();
+    }
+
+    @Override public int getLastSearchDepth() {
+        return source.getEngineStatistics().getLastDepth();
+    }
+
+    @Override public double getAverageSearchDepth() {
+        return source.getEngineStatistics().getAverageDepth();
+    }
+
+    @Override public double getGcMillisPerSearch() {
+        return source.getEngineStatistics().getGcMillisPerSearch();
+    }
+
+    @Override public double getAllocatedBytesPerSearch() {
+        return source.getEngineStatistics().getAllocatedBytesPerSearch();
+    }
+}
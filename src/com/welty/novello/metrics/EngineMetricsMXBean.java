@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.metrics;
+
+/**
+ * JMX view of an engine's statistics.
+ * <p/>
+ * Counts are totals since the engine was created; rates are averages over all of its searches.
+ */
+public interface EngineMetricsMXBean {
+    long getNodes();
+
+    long getEvals();
+
+    long getSearchMillis();
+
+    double getNodesPerSecond();
+
+    double getEvalsPerSecond();
+
+    double getEndgameHashOccupancy();
+
+    double getEndgameHashHitRate();
+
+    double getEndgameHashCutRate();
+
+    double getMidgameHashOccupancy();
+
+    double getMidgameHashHitRate();
+
+    double getMidgameHashCutRate();
+
+    long getBookProbes();
+
+    double getBookHitRate();
+
+    long getSearches();
+
+    int getLastSearchDepth();
+
+    double getAverageSearchDepth();
+
+    double getGcMillisPerSearch();
+
+    double getAllocatedBytesPerSearch();
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Per-move statistics for an engine: book usage, depth reached, and resources used by each search.
+ * <p/>
+ * This is thread-safe; counts are kept in {@link StripedCounters}.
+ */
+public class EngineStatistics {
+    private static final int BOOK_PROBES = 0;
+    private static final int BOOK_HITS = 1;
+    private static final int SEARCHES = 2;
+    private static final int DEPTH_TOTAL = 3;
+    private static final int GC_MILLIS = 4;
+    private static final int ALLOCATED_BYTES = 5;
+    private static final int ALLOCATION_SEARCHES = 6;
+
+    private final StripedCounters counters = new StripedCounters(7);
+
+    /**
+     * Depth reached by the most recent search, or -1 if there has been no search.
+     */
+    private volatile int lastDepth = -1;
+
+    /**
+     * The engine looked up a position in its book.
+     *
+     * @param hit true if the book supplied the move
+     */
+    public void updateBookProbe(boolean hit) {
+        counters.increment(BOOK_PROBES);
+        if (hit) {
+            counters.increment(BOOK_HITS);
+        }
+    }
+
+    /**
+     * The engine completed a search.
+     *
+     * @param depth          depth reached, in ply. For a solve this is the number of empties.
+     * @param gcMillis       time spent in garbage collection during the search, in milliseconds
+     * @param allocatedBytes bytes allocated by the search thread, or -1 if this couldn't be measured
+     */
+    public void updateSearch(int depth, long gcMillis, long allocatedBytes) {
+        counters.increment(SEARCHES);
+        counters.add(DEPTH_TOTAL, depth);
+        counters.add(GC_MILLIS, gcMillis);
+        if (allocatedBytes >= 0) {
+            counters.increment(ALLOCATION_SEARCHES);
+            counters.add(ALLOCATED_BYTES, allocatedBytes);
+        }
+        lastDepth = depth;
+    }
+
+    /**
+     * Take a consistent copy of the statistics.
+     * <p/>
+     * Each getter on this class sums the counters again; use a snapshot when reading several values together.
+     *
+     * @return the current statistics
+     */
+    public @NotNull Snapshot snapshot() {
+        return new Snapshot(counters.toArray(), lastDepth);
+    }
+
+    public long getBookProbes() {
+        return snapshot().getBookProbes();
+    }
+
+    /**
+     * @return fraction of book probes that supplied a move, or 0 if there have been no probes.
+     */
+    public double getBookHitRate() {
+        return snapshot().getBookHitRate();
+    }
+
+    public long getSearches() {
+        return snapshot().getSearches();
+    }
+
+    /**
+     * @return depth reached by the most recent search, or -1 if there has been no search.
+     */
+    public int getLastDepth() {
+        return lastDepth;
+    }
+
+    public double getAverageDepth() {
+        return snapshot().getAverageDepth();
+    }
+
+    public double getGcMillisPerSearch() {
+        return snapshot().getGcMillisPerSearch();
+    }
+
+    /**
+     * @return average bytes allocated per search, over searches where allocation could be measured.
+     */
+    public double getAllocatedBytesPerSearch() {
+        return snapshot().getAllocatedBytesPerSearch();
+    }
+
+    @Override public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * Engine statistics at a point in time
+     */
+    public static class Snapshot {
+        private final long[] c;
+        private final int lastDepth;
+
+        private Snapshot(long[] c, int lastDepth) {
+            this.c = c;
+            this.lastDepth = lastDepth;
+        }
+
+        public long getBookProbes() {
+            return c[BOOK_PROBES];
+        }
+
+        /**
+         * @return fraction of book probes that supplied a move, or 0 if there have been no probes.
+         */
+        public double getBookHitRate() {
+            return HashCounts.ratio(c[BOOK_HITS], c[BOOK_PROBES]);
+        }
+
+        public long getSearches() {
+            return c[SEARCHES];
+        }
+
+        /**
+         * @return depth reached by the most recent search, or -1 if there has been no search.
+         */
+        public int getLastDepth() {
+            return lastDepth;
+        }
+
+        public double getAverageDepth() {
+            return HashCounts.ratio(c[DEPTH_TOTAL], c[SEARCHES]);
+        }
+
+        public double getGcMillisPerSearch() {
+            return HashCounts.ratio(c[GC_MILLIS], c[SEARCHES]);
+        }
+
+        /**
+         * @return average bytes allocated per search, over searches where allocation could be measured.
+         */
+        public double getAllocatedBytesPerSearch() {
+            return HashCounts.ratio(c[ALLOCATED_BYTES], c[ALLOCATION_SEARCHES]);
+        }
+
+        @Override public String toString() {
+            return String.format("book: %,d probes, %.1f%% hits. %,d searches, last depth %d, avg depth %.1f, %.1f ms gc/search, %.3g MB/search"
+                    , getBookProbes(), 100 * getBookHitRate(), getSearches(), lastDepth, getAverageDepth()
+                    , getGcMillisPerSearch(), getAllocatedBytesPerSearch() * 1e-6);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.metrics;
+
+/**
+ * Hash table usage counts at a point in time.
+ */
+public class HashCounts {
+    public final long nStores;
+    public final long nAlphaCuts;
+    public final long nBetaCuts;
+    public final long nPvCuts;
+    public final long nUselessFinds;
+    public final long nMisses;
+
+    public HashCounts(long nStores, long nAlphaCuts, long nBetaCuts, long nPvCuts, long nUselessFinds, long nMisses) {
+        this.nStores = nStores;
+        this.nAlphaCuts = nAlphaCuts;
+        this.nBetaCuts = nBetaCuts;
+        this.nPvCuts = nPvCuts;
+        this.nUselessFinds = nUselessFinds;
+        this.nMisses = nMisses;
+    }
+
+    public long nCuts() {
+        return nAlphaCuts + nBetaCuts + nPvCuts;
+    }
+
+    /**
+     * @return number of times the position was found in the hash table
+     */
+    public long nFinds() {
+        return nCuts() + nUselessFinds;
+    }
+
+    /**
+     * @return number of times the hash table was checked for a cutoff
+     */
+    public long nProbes() {
+        return nFinds() + nMisses;
+    }
+
+    /**
+     * @return fraction of probes that found the position, or 0 if there were no probes
+     */
+    public double hitRate() {
+        return ratio(nFinds(), nProbes());
+    }
+
+    /**
+     * @return fraction of probes that cut off the search, or 0 if there were no probes
+     */
+    public double cutRate() {
+        return ratio(nCuts(), nProbes());
+    }
+
+    static double ratio(long numerator, long denominator) {
+        return denominator == 0 ? 0 : (double) numerator / denominator;
+    }
+
+    @Override public String toString() {
+        return String.format("%,d stores. %,d / %,d / %,d alpha/beta/pv cuts. %,d useless finds."
+                , nStores, nAlphaCuts, nBetaCuts, nPvCuts, nUselessFinds);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Hash table usage statistics.
+ * <p/>
+ * The counts are plain longs and are not thread-safe: an instance must only be updated by one thread at a time,
+ * the thread searching with the hash table that owns it. Searchers assert this through
+ * {@link com.welty.novello.solver.SearchMetrics}. {@link #getCounts()} may be called from other threads; its result
+ * may be slightly out of date.
+ */
+public class HashStatistics {
+    private long nStores;
+    private long nAlphaCuts;
+    private long nBetaCuts;
+    private long nPvCuts;
+    private long nUselessFinds;
+    private long nMisses;
+
+    public void updateStore() {
+        nStores++;
+    }
+
+    public void updateAlphaCut() {
+        nAlphaCuts++;
+    }
+
+    public void updateBetaCut() {
+        nBetaCuts++;
+    }
+
+    public void updatePvCut() {
+        nPvCuts++;
+    }
+
+    /**
+     * The position was found in the hash table but it didn't cut off.
+     */
+    public void updateUselessFind() {
+        nUselessFinds++;
+    }
+
+    /**
+     * The position was not found in the hash table.
+     */
+    public void updateMiss() {
+        nMisses++;
+    }
+
+    /**
+     * @return the current counts
+     */
+    public @NotNull HashCounts getCounts() {
+        return new HashCounts(nStores, nAlphaCuts, nBetaCuts, nPvCuts, nUselessFinds, nMisses);
+    }
+
+    @Override public String toString() {
+        return getCounts().toString();
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.metrics;
+
+import com.orbanova.common.misc.Logger;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.NotNull;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional export of engine statistics for monitoring a long-running engine process.
+ * <p/>
+ * Both exports are off by default and are enabled with system properties:
+ * <ul>
+ * <li>-Dnovello.metrics.jmx=true registers an {@link EngineMetricsMXBean} for each engine under the domain
+ * com.welty.novello</li>
+ * <li>-Dnovello.metrics.port=<i>port</i> serves all engines' statistics in Prometheus text format
+ * at http://localhost:<i>port</i>/metrics. The server binds to the loopback address only.</li>
+ * </ul>
+ */
+public class MetricsExport {
+    private static final Logger log = Logger.logger(MetricsExport.class);
+
+    public static final String JMX_PROPERTY = "novello.metrics.jmx";
+    public static final String PORT_PROPERTY = "novello.metrics.port";
+
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * Registered sources, and their JMX names (null if they are not registered with JMX).
+     */
+    private static final Map<MetricsSource, ObjectName> sources = new IdentityHashMap<>();
+
+    /**
+     * Prometheus HTTP server, or null if it hasn't been started
+     */
+    private static HttpServer server;
+
+    private MetricsExport() {
+    }
+
+    /**
+     * Export the source's statistics, if export is enabled.
+     * <p/>
+     * Failure to export is logged but does not affect the engine.
+     *
+     * @param source engine to export
+     */
+    public static synchronized void register(@NotNull MetricsSource source) {
+        if (sources.containsKey(source)) {
+            return;
+        }
+        ObjectName objectName = null;
+        if (Boolean.getBoolean(JMX_PROPERTY)) {
+            objectName = registerMBean(source);
+        }
+        sources.put(source, objectName);
+
+        final Integer port = Integer.getInteger(PORT_PROPERTY);
+        if (port != null && server == null) {
+            startServer(port);
+        }
+    }
+
+    /**
+     * Stop exporting the source's statistics.
+     * <p/>
+     * The HTTP server, if running, keeps running so that the port stays stable for the scraper.
+     *
+     * @param source engine to stop exporting
+     */
+    public static synchronized void unregister(@NotNull MetricsSource source) {
+        final ObjectName objectName = sources.remove(source);
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                log.info("Unable to unregister " + objectName + ": " + e);
+            }
+        }
+    }
+
+    private static ObjectName registerMBean(MetricsSource source) {
+        try {
+            final ObjectName objectName = new ObjectName("com.welty.novello:type=Engine,name="
+                    + ObjectName.quote(source.getName()) + ",id=" + nextId.getAndIncrement());
+            final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            mBeanServer.registerMBean(new EngineMetrics(source), objectName);
+            return objectName;
+        } catch (JMException e) {
+            log.info("Unable to register engine metrics with JMX: " + e);
+            return null;
+        }
+    }
+
+    private static void startServer(int port) {
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.createContext("/metrics", new PrometheusHandler());
+            // daemon threads so that the metrics server doesn't keep the process alive.
+            // The server's dispatcher thread inherits its daemon status from the thread that starts the server.
+            final DaemonThreadFactory threadFactory = new DaemonThreadFactory();
+            server.setExecutor(Executors.newSingleThreadExecutor(threadFactory));
+            final Thread starter = threadFactory.newThread(new Runnable() {
+                @Override public void run() {
+                    server.start();
+                }
+            });
+            starter.start();
+            starter.join();
+            log.info("Serving metrics at http://localhost:" + port + "/metrics");
+        } catch (IOException e) {
+            server = null;
+            log.info("Unable to start metrics server on port " + port + ": " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return all registered engines' statistics in Prometheus text format
+     */
+    static @NotNull String prometheusText() {
+        final List<MetricsSource> list;
+        synchronized (MetricsExport.class) {
+            list = new ArrayList<>(sources.keySet());
+        }
+        return PrometheusFormat.format(list);
+    }
+
+    private static class PrometheusHandler implements HttpHandler {
+        @Override public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!exchange.getRequestMethod().equals("GET")) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                final byte[] body = prometheusText().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        @Override public Thread newThread(@NotNull Runnable r) {
+            final Thread thread = new Thread(r, "novello-metrics");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
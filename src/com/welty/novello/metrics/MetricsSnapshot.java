@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.metrics;
+
+import com.welty.novello.core.Counts;
+import org.jetbrains.annotations.NotNull;
+
+import static com.welty.novello.metrics.HashCounts.ratio;
+
+/**
+ * Search statistics at a point in time.
+ * <p/>
+ * Node counts and elapsed time are for the search that requested the snapshot. Hash, cut, and MPC counts are
+ * cumulative since the searcher was created; use them for rates rather than absolute values.
+ */
+public class MetricsSnapshot {
+    public final @NotNull Counts counts;
+    public final long millis;
+    public final @NotNull HashCounts endgameHash;
+    public final @NotNull HashCounts midgameHash;
+
+    /**
+     * Solver nodes searched, indexed by number of empties
+     */
+    private final long[] nodesByEmpties;
+
+    /**
+     * Solver beta cutoffs, indexed by number of empties
+     */
+    private final long[] cutsByEmpties;
+
+    /**
+     * MPC cut attempts, indexed by search depth
+     */
+    private final long[] mpcTries;
+
+    /**
+     * MPC cuts, indexed by search depth
+     */
+    private final long[] mpcCuts;
+
+    public MetricsSnapshot(@NotNull Counts counts, long millis, @NotNull HashCounts endgameHash, @NotNull HashCounts midgameHash
+            , long[] nodesByEmpties, long[] cutsByEmpties, long[] mpcTries, long[] mpcCuts) {
+        this.counts = counts;
+        this.millis = millis;
+        this.endgameHash = endgameHash;
+        this.midgameHash = midgameHash;
+        this.nodesByEmpties = nodesByEmpties;
+        this.cutsByEmpties = cutsByEmpties;
+        this.mpcTries = mpcTries;
+        this.mpcCuts = mpcCuts;
+    }
+
+    /**
+     * @return number of nodes searched. As elsewhere in Novello, this is the number of flip calculations.
+     */
+    public long nNodes() {
+        return counts.nFlips;
+    }
+
+    public double nodesPerSecond() {
+        return perSecond(counts.nFlips);
+    }
+
+    public double evalsPerSecond() {
+        return perSecond(counts.nEvals);
+    }
+
+    private double perSecond(long n) {
+        return millis == 0 ? 0 : n * 1000. / millis;
+    }
+
+    /**
+     * @return fraction of solver nodes with the given number of empties that were cut off, or 0 if there were none.
+     */
+    public double cutRate(int nEmpties) {
+        return ratio(cutsByEmpties[nEmpties], nodesByEmpties[nEmpties]);
+    }
+
+    /**
+     * @return fraction of MPC cut attempts at the given search depth that cut off, or 0 if there were none.
+     */
+    public double mpcCutRate(int depth) {
+        return ratio(mpcCuts[depth], mpcTries[depth]);
+    }
+
+    @Override public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%s in %,d ms: %.3g Mn/s, %.3g Me/s%n", counts, millis, nodesPerSecond() * 1e-6, evalsPerSecond() * 1e-6));
+        sb.append(String.format("endgame hash: %.1f%% hits, %.1f%% cuts. %s%n", 100 * endgameHash.hitRate(), 100 * endgameHash.cutRate(), endgameHash));
+        sb.append(String.format("midgame hash: %.1f%% hits, %.1f%% cuts. %s%n", 100 * midgameHash.hitRate(), 100 * midgameHash.cutRate(), midgameHash));
+        for (int nEmpties = 0; nEmpties < nodesByEmpties.length; nEmpties++) {
+            if (nodesByEmpties[nEmpties] > 0) {
+                sb.append(String.format("[%2d empty] %,12d nodes, %4.1f%% cut%n", nEmpties, nodesByEmpties[nEmpties], 100 * cutRate(nEmpties)));
+            }
+        }
+        for (int depth = 0; depth < mpcTries.length; depth++) {
+            if (mpcTries[depth] > 0) {
+                sb.append(String.format("[%2d ply] %,12d mpc tries, %4.1f%% cut%n", depth, mpcTries[depth], 100 * mpcCutRate(depth)));
+            }
+        }
+        return sb.toString();
+    }
+}
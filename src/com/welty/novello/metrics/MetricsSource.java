@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An engine whose statistics can be exported by {@link MetricsExport}.
+ * <p/>
+ * Methods are called from the export thread, not the search thread, so implementations must be thread-safe.
+ */
+public interface MetricsSource {
+    /**
+     * @return name of the engine, used to label its metrics
+     */
+    @NotNull String getName();
+
+    /**
+     * @return search statistics since the engine was created
+     */
+    @NotNull MetricsSnapshot getMetrics();
+
+    @NotNull EngineStatistics getEngineStatistics();
+
+    /**
+     * @return fraction of endgame hash table entries that contain a position
+     */
+    double getEndgameHashOccupancy();
+
+    /**
+     * @return fraction of midgame hash table entries that contain a position
+     */
+    double getMidgameHashOccupancy();
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.metrics;
+
+/**
+ * Statistics on MPC cut attempts, by search depth.
+ * <p/>
+ * The counts are plain longs, so an instance is confined to the thread that is searching with the searcher that
+ * owns it; a searcher must not be shared by concurrent searches. The getters copy the counts, so other threads may
+ * read them; such reads may be slightly out of date.
+ */
+public class MpcStatistics {
+    private static final int N_DEPTHS = 64;
+
+    private final long[] tries = new long[N_DEPTHS];
+    private final long[] highCuts = new long[N_DEPTHS];
+    private final long[] lowCuts = new long[N_DEPTHS];
+
+    /**
+     * A shallow search (or eval) was used to try to cut off a search.
+     *
+     * @param depth depth of the search that might be cut off
+     */
+    public void updateTry(int depth) {
+        tries[clamp(depth)]++;
+    }
+
+    /**
+     * The shallow search predicted the search would fail high.
+     *
+     * @param depth depth of the search that was cut off
+     */
+    public void updateHighCut(int depth) {
+        highCuts[clamp(depth)]++;
+    }
+
+    /**
+     * The shallow search predicted the search would fail low.
+     *
+     * @param depth depth of the search that was cut off
+     */
+    public void updateLowCut(int depth) {
+        lowCuts[clamp(depth)]++;
+    }
+
+    private static int clamp(int depth) {
+        return Math.min(depth, N_DEPTHS - 1);
+    }
+
+    /**
+     * @return number of cut attempts, indexed by depth
+     */
+    public long[] getTries() {
+        return tries.clone();
+    }
+
+    /**
+     * @return number of successful cuts (high or low), indexed by depth
+     */
+    public long[] getCuts() {
+        final long[] cuts = highCuts.clone();
+        for (int i = 0; i < N_DEPTHS; i++) {
+            cuts[i] += lowCuts[i];
+        }
+        return cuts;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Writes engine statistics in the Prometheus text exposition format.
+ * <p/>
+ * Each engine's values are labelled with the engine name; hash table values are also labelled with the table.
+ */
+class PrometheusFormat {
+    private final StringBuilder sb = new StringBuilder();
+    private final List<MetricsSource> sources;
+
+    private PrometheusFormat(List<MetricsSource> sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * @param sources engines to report on
+     * @return metrics text, suitable for serving as text/plain; version=0.0.4
+     */
+    static @NotNull String format(@NotNull List<MetricsSource> sources) {
+        return new PrometheusFormat(sources).formatAll();
+    }
+
+    private String formatAll() {
+        // read each source once, so that all values for a source come from the same instant
+        final int n = sources.size();
+        final MetricsSnapshot[] metrics = new MetricsSnapshot[n];
+        final EngineStatistics.Snapshot[] stats = new EngineStatistics.Snapshot[n];
+        final double[] endgameOccupancy = new double[n];
+        final double[] midgameOccupancy = new double[n];
+        for (int i = 0; i < n; i++) {
+            final MetricsSource source = sources.get(i);
+            metrics[i] = source.getMetrics();
+            stats[i] = source.getEngineStatistics().snapshot();
+            endgameOccupancy[i] = source.getEndgameHashOccupancy();
+            midgameOccupancy[i] = source.getMidgameHashOccupancy();
+        }
+
+        header("novello_nodes_total", "counter", "Nodes searched (flip calculations)");
+        for (int i = 0; i < n; i++) {
+            value(i, null, metrics[i].nNodes());
+        }
+        header("novello_evals_total", "counter", "Position evaluations");
+        for (int i = 0; i < n; i++) {
+            value(i, null, metrics[i].counts.nEvals);
+        }
+        header("novello_search_seconds_total", "counter", "Time spent searching");
+        for (int i = 0; i < n; i++) {
+            value(i, null, metrics[i].millis * 0.001);
+        }
+        header("novello_nodes_per_second", "gauge", "Average search speed in nodes per second");
+        for (int i = 0; i < n; i++) {
+            value(i, null, metrics[i].nodesPerSecond());
+        }
+        header("novello_evals_per_second", "gauge", "Average evaluations per second");
+        for (int i = 0; i < n; i++) {
+            value(i, null, metrics[i].evalsPerSecond());
+        }
+        header("novello_hash_occupancy_ratio", "gauge", "Fraction of hash table entries that contain a position");
+        for (int i = 0; i < n; i++) {
+            value(i, "endgame", endgameOccupancy[i]);
+            value(i, "midgame", midgameOccupancy[i]);
+        }
+        header("novello_hash_probes_total", "counter", "Hash table lookups");
+        for (int i = 0; i < n; i++) {
+            value(i, "endgame", metrics[i].endgameHash.nProbes());
+            value(i, "midgame", metrics[i].midgameHash.nProbes());
+        }
+        header("novello_hash_hit_ratio", "gauge", "Fraction of hash table lookups that found the position");
+        for (int i = 0; i < n; i++) {
+            value(i, "endgame", metrics[i].endgameHash.hitRate());
+            value(i, "midgame", metrics[i].midgameHash.hitRate());
+        }
+        header("novello_hash_cut_ratio", "gauge", "Fraction of hash table lookups that cut off the search");
+        for (int i = 0; i < n; i++) {
+            value(i, "endgame", metrics[i].endgameHash.cutRate());
+            value(i, "midgame", metrics[i].midgameHash.cutRate());
+        }
+        header("novello_book_probes_total", "counter", "Book lookups");
+        for (int i = 0; i < n; i++) {
+            value(i, null, stats[i].getBookProbes());
+        }
+        header("novello_book_hit_ratio", "gauge", "Fraction of book lookups that supplied a move");
+        for (int i = 0; i < n; i++) {
+            value(i, null, stats[i].getBookHitRate());
+        }
+        header("novello_searches_total", "counter", "Completed searches");
+        for (int i = 0; i < n; i++) {
+            value(i, null, stats[i].getSearches());
+        }
+        header("novello_search_depth_last", "gauge", "Depth reached by the most recent search, in ply");
+        for (int i = 0; i < n; i++) {
+            value(i, null, stats[i].getLastDepth());
+        }
+        header("novello_search_depth_average", "gauge", "Average depth reached per search, in ply");
+        for (int i = 0; i < n; i++) {
+            value(i, null, stats[i].getAverageDepth());
+        }
+        header("novello_gc_seconds_per_search", "gauge", "Average garbage collection time per search");
+        for (int i = 0; i < n; i++) {
+            value(i, null, stats[i].getGcMillisPerSearch() * 0.001);
+        }
+        header("novello_allocated_bytes_per_search", "gauge", "Average bytes allocated by the search thread per search");
+        for (int i = 0; i < n; i++) {
+            value(i, null, stats[i].getAllocatedBytesPerSearch());
+        }
+        return sb.toString();
+    }
+
+    private String name;
+
+    private void header(String name, String type, String help) {
+        this.name = name;
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private void value(int iSource, String table, double value) {
+        labels(iSource, table).append(value).append('\n');
+    }
+
+    private void value(int iSource, String table, long value) {
+        labels(iSource, table).append(value).append('\n');
+    }
+
+    private StringBuilder labels(int iSource, String table) {
+        sb.append(name).append("{engine=\"").append(escape(sources.get(iSource).getName())).append('"');
+        if (table != null) {
+            sb.append(",table=\"").append(table).append('"');
+        }
+        return sb.append("} ");
+    }
+
+    static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
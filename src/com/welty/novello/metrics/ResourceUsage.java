@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * JVM resource usage, for measuring the cost of a search.
+ */
+public class ResourceUsage {
+    private ResourceUsage() {
+    }
+
+    /**
+     * @return total time spent in garbage collection by all collectors since the JVM started, in milliseconds.
+     */
+    public static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            final long time = bean.getCollectionTime();
+            if (time > 0) {
+                millis += time;
+            }
+        }
+        return millis;
+    }
+
+    /**
+     * Bytes allocated by the current thread.
+     * <p/>
+     * This relies on the HotSpot extension to ThreadMXBean; on other JVMs it is unavailable.
+     *
+     * @return total bytes allocated by the current thread since it started, or -1 if the JVM can't measure it.
+     */
+    public static long threadAllocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param bytes0 value of {@link #threadAllocatedBytes()} at the start of the measurement
+     * @return bytes allocated by the current thread since bytes0 was measured, or -1 if the JVM can't measure it.
+     */
+    public static long threadAllocatedBytesSince(long bytes0) {
+        if (bytes0 < 0) {
+            return -1;
+        }
+        final long bytes = threadAllocatedBytes();
+        return bytes < 0 ? -1 : bytes - bytes0;
+    }
+}
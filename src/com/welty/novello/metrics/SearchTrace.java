@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flight-recorder style trace of search events.
+ * <p/>
+ * Tracing is enabled with -Dnovello.trace=true. When it is disabled, {@link #ENABLED} is a compile-time-false
+ * constant to the JIT, so callers that check it before recording pay nothing.
+ * <p/>
+ * Events are recorded into a fixed-size ring buffer of primitives (-Dnovello.trace.size, default 1M events), so
+ * recording doesn't allocate and old events are overwritten. When the JVM exits the trace is written to
+ * -Dnovello.trace.file (default novello-trace.txt): a tab-separated timeline of events, followed by histograms
+ * of event counts and round/root move durations by depth.
+ * <p/>
+ * Threading: events can be recorded from any thread. If the buffer wraps while another thread is writing an event,
+ * that event may be garbled; size the buffer so that it holds the searches of interest.
+ */
+public final class SearchTrace {
+    public static final boolean ENABLED = Boolean.getBoolean("novello.trace");
+
+    public enum Type {
+        /**
+         * A search at a single depth (one iterative-deepening round) completed
+         */
+        ROUND("width", "score", "micros"),
+        /**
+         * A move from the root position was scored
+         */
+        ROOT_MOVE("sq", "score", "micros"),
+        /**
+         * An MPC cut was attempted. Result is +1 for a high cut, -1 for a low cut, 0 for no cut.
+         */
+        MPC("shallowDepth", "result", ""),
+        /**
+         * The midgame hash table cut off a search
+         */
+        HASH_CUT("nEmpty", "score", ""),
+        /**
+         * A search was aborted
+         */
+        ABORT("nEmpty", "", "");
+
+        private final String[] fieldNames;
+
+        Type(String... fieldNames) {
+            this.fieldNames = fieldNames;
+        }
+    }
+
+    private static final int MAX_DEPTH = 64;
+
+    // field offsets within an event
+    private static final int NANOS = 0;
+    private static final int TYPE = 1;
+    private static final int THREAD = 2;
+    private static final int DEPTH = 3;
+    private static final int A = 4;
+    private static final int N_FIELDS = A + 3;
+
+    private static final int SIZE = ENABLED ? Integer.highestOneBit(Math.max(1024, Integer.getInteger("novello.trace.size", 1 << 20))) : 0;
+    private static final long[] events = new long[SIZE * N_FIELDS];
+    private static final AtomicLong nEvents = new AtomicLong();
+    private static final long traceStartNanos = System.nanoTime();
+
+    static {
+        if (ENABLED) {
+            final String file = System.getProperty("novello.trace.file", "novello-trace.txt");
+            Runtime.getRuntime().addShutdownHook(new Thread("novello-trace") {
+                @Override public void run() {
+                    try (BufferedWriter out = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+                        dump(out);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            });
+        }
+    }
+
+    private SearchTrace() {
+    }
+
+    /**
+     * Record an event.
+     * <p/>
+     * Callers should check {@link #ENABLED} first so that the arguments are not calculated when tracing is disabled.
+     *
+     * @param type  event type
+     * @param depth search depth, in ply
+     * @param a     first event-specific field
+     * @param b     second event-specific field
+     * @param c     third event-specific field
+     */
+    public static void record(@NotNull Type type, int depth, long a, long b, long c) {
+        if (!ENABLED) {
+            return;
+        }
+        final int base = (int) (nEvents.getAndIncrement() & (SIZE - 1)) * N_FIELDS;
+        events[base + NANOS] = System.nanoTime();
+        events[base + TYPE] = type.ordinal();
+        events[base + THREAD] = Thread.currentThread().getId();
+        events[base + DEPTH] = depth;
+        events[base + A] = a;
+        events[base + A + 1] = b;
+        events[base + A + 2] = c;
+    }
+
+    public static void round(int depth, int width, int score, long startNanos) {
+        record(Type.ROUND, depth, width, score, micros(startNanos));
+    }
+
+    public static void rootMove(int depth, int sq, int score, long startNanos) {
+        record(Type.ROOT_MOVE, depth, sq, score, micros(startNanos));
+    }
+
+    public static void mpc(int depth, int shallowDepth, int result) {
+        record(Type.MPC, depth, shallowDepth, result, 0);
+    }
+
+    public static void hashCut(int depth, int nEmpty, int score) {
+        record(Type.HASH_CUT, depth, nEmpty, score, 0);
+    }
+
+    public static void abort(int depth, int nEmpty) {
+        record(Type.ABORT, depth, nEmpty, 0, 0);
+    }
+
+    private static long micros(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1000;
+    }
+
+    /**
+     * Write the events currently in the buffer, oldest first, followed by histograms.
+     *
+     * @param out destination
+     * @throws IOException if out throws
+     */
+    public static void dump(@NotNull Writer out) throws IOException {
+        final long n = nEvents.get();
+        final long first = Math.max(0, n - SIZE);
+        final Type[] types = Type.values();
+        final long[][] counts = new long[types.length][MAX_DEPTH];
+        final long[][] totalMicros = new long[types.length][MAX_DEPTH];
+        final long[][] maxMicros = new long[types.length][MAX_DEPTH];
+
+        out.write(String.format("# %,d events recorded, %,d in buffer%n", n, n - first));
+        out.write("millis\tthread\tevent\tdepth\tfields\n");
+        for (long i = first; i < n; i++) {
+            final int base = (int) (i & (SIZE - 1)) * N_FIELDS;
+            final Type type = types[(int) events[base + TYPE]];
+            final int depth = (int) Math.min(Math.max(events[base + DEPTH], 0), MAX_DEPTH - 1);
+            out.write(String.format("%.3f\t%d\t%s\t%d", (events[base + NANOS] - traceStartNanos) * 1e-6, events[base + THREAD], type, depth));
+            for (int f = 0; f < type.fieldNames.length; f++) {
+                if (!type.fieldNames[f].isEmpty()) {
+                    out.write("\t" + type.fieldNames[f] + "=" + events[base + A + f]);
+                }
+            }
+            out.write("\n");
+
+            final int t = type.ordinal();
+            counts[t][depth]++;
+            if (type == Type.ROUND || type == Type.ROOT_MOVE) {
+                final long micros = events[base + A + 2];
+                totalMicros[t][depth] += micros;
+                maxMicros[t][depth] = Math.max(maxMicros[t][depth], micros);
+            }
+        }
+
+        out.write("\n# event counts by depth\n");
+        for (Type type : types) {
+            for (int depth = 0; depth < MAX_DEPTH; depth++) {
+                final long count = counts[type.ordinal()][depth];
+                if (count > 0) {
+                    out.write(String.format("%-10s [%2d] %,12d", type, depth, count));
+                    if (type == Type.ROUND || type == Type.ROOT_MOVE) {
+                        out.write(String.format("  avg %,10.1f ms  max %,10.1f ms", totalMicros[type.ordinal()][depth] * 1e-3 / count
+                                , maxMicros[type.ordinal()][depth] * 1e-3));
+                    }
+                    out.write("\n");
+                }
+            }
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * An array of statistics counters that can be updated from many search threads.
+ * <p/>
+ * Each thread updates its own stripe, chosen from its thread id, so threads rarely contend for a counter.
+ * Stripes are padded out to whole cache lines so that threads updating different stripes don't false-share.
+ * Reads sum over all stripes. They are not atomic with respect to concurrent updates, which is fine for statistics.
+ */
+public final class StripedCounters {
+    private static final int LONGS_PER_CACHE_LINE = 8;
+    private static final int MAX_STRIPES = 64;
+
+    /**
+     * Number of stripes. This is a power of two, at least twice the number of processors (up to MAX_STRIPES),
+     * so that sequentially numbered threads usually land on different stripes.
+     */
+    private static final int N_STRIPES = Math.min(MAX_STRIPES
+            , Integer.highestOneBit(2 * Runtime.getRuntime().availableProcessors() - 1) << 1);
+
+    private final int length;
+
+    /**
+     * Distance between the start of one stripe and the start of the next.
+     */
+    private final int stripeLength;
+
+    /**
+     * Counter i of stripe s is cells[LONGS_PER_CACHE_LINE + s * stripeLength + i].
+     * <p/>
+     * The first cache line is padding so stripe 0 doesn't share a line with the array header.
+     */
+    private final AtomicLongArray cells;
+
+    /**
+     * @param length number of counters
+     */
+    public StripedCounters(int length) {
+        this.length = length;
+        stripeLength = (length + LONGS_PER_CACHE_LINE - 1) / LONGS_PER_CACHE_LINE * LONGS_PER_CACHE_LINE + LONGS_PER_CACHE_LINE;
+        cells = new AtomicLongArray(LONGS_PER_CACHE_LINE + N_STRIPES * stripeLength);
+    }
+
+    /**
+     * @return number of counters
+     */
+    public int length() {
+        return length;
+    }
+
+    public void increment(int i) {
+        cells.getAndIncrement(stripeOffset() + i);
+    }
+
+    public void add(int i, long delta) {
+        cells.getAndAdd(stripeOffset() + i, delta);
+    }
+
+    private int stripeOffset() {
+        final int stripe = (int) Thread.currentThread().getId() & (N_STRIPES - 1);
+        return LONGS_PER_CACHE_LINE + stripe * stripeLength;
+    }
+
+    /**
+     * @return value of counter i, summed over all threads.
+     */
+    public long get(int i) {
+        long sum = 0;
+        for (int offset = LONGS_PER_CACHE_LINE + i; offset < cells.length(); offset += stripeLength) {
+            sum += cells.get(offset);
+        }
+        return sum;
+    }
+
+    /**
+     * @return values of counters [from, from+n), summed over all threads.
+     */
+    public long[] get(int from, int n) {
+        final long[] result = new long[n];
+        for (int base = LONGS_PER_CACHE_LINE + from; base < cells.length(); base += stripeLength) {
+            for (int i = 0; i < n; i++) {
+                result[i] += cells.get(base + i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return values of all counters, summed over all threads.
+     */
+    public long[] toArray() {
+        return get(0, length);
+    }
+
+    /**
+     * @return sum of all counters in the array
+     */
+    public long sum() {
+        long sum = 0;
+        for (long value : toArray()) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    /**
+     * Set all counters to 0.
+     * <p/>
+     * Updates made concurrently with the reset may or may not be lost.
+     */
+    public void reset() {
+        for (int i = 0; i < cells.length(); i++) {
+            cells.set(i, 0);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.selfplay;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A TimeModel that corrects the built-in regressions using search times measured on this machine.
+ * <p/>
+ * The built-in regressions were fit on a single developer machine. Machines with more cores or a faster JVM
+ * search faster (an offset to log time), and may also have a different effective branching factor (a slope).
+ * This model fits a linear correction, in number of empties, to the residual log time of each completed round.
+ * Full solves and midgame/probable-solve rounds are fit separately.
+ * <p/>
+ * Old measurements decay so the model follows changes in machine load. The built-in regressions act as a prior,
+ * so a few unusual searches don't move the model far.
+ * <p/>
+ * Not thread-safe; use one per engine.
+ */
+public class AdaptiveTimeModel extends TimeModel {
+    /**
+     * Rounds shorter than this are dominated by overhead and are not used to fit the model
+     */
+    static final double MIN_SECONDS = 0.05;
+
+    /**
+     * Effective number of measurements required before the model predicts absolute times
+     */
+    private static final double MIN_WEIGHT = 2;
+
+    private final Correction solveCorrection = new Correction();
+    private final Correction midgameCorrection = new Correction();
+
+    /**
+     * Moving average of the node rate, in nodes per second, or 0 if no rounds have been measured.
+     */
+    private double nodesPerSecond;
+
+    @Override double lnTime(int nEmpty, int width) {
+        return super.lnTime(nEmpty, width) + midgameCorrection.predict(nEmpty);
+    }
+
+    @Override double lnSolveTime(int nEmpty) {
+        return super.lnSolveTime(nEmpty) + solveCorrection.predict(nEmpty);
+    }
+
+    @Override public double roundSeconds(@NotNull SearchDepth searchDepth, int nEmpty) {
+        final Correction correction = searchDepth.isFullSolve() ? solveCorrection : midgameCorrection;
+        if (correction.weight() < MIN_WEIGHT) {
+            return Double.NaN;
+        }
+        return Math.exp(lnRoundTime(searchDepth, nEmpty));
+    }
+
+    /**
+     * Until the machine's solve speed has been measured, this uses the built-in clock budget.
+     */
+    @Override double solveSeconds(int nEmpty) {
+        if (solveCorrection.weight() < MIN_WEIGHT) {
+            return super.solveSeconds(nEmpty);
+        }
+        return Math.exp(lnSolveTime(nEmpty));
+    }
+
+    /**
+     * Update the model with a completed round of iterative deepening.
+     *
+     * @param searchDepth round that was searched
+     * @param nEmpty      number of empties in the root position
+     * @param nNodes      number of nodes searched in the round
+     * @param seconds     time taken by the round
+     */
+    public void update(@NotNull SearchDepth searchDepth, int nEmpty, long nNodes, double seconds) {
+        if (seconds < MIN_SECONDS) {
+            return;
+        }
+        final double residual = Math.log(seconds) - BUILT_IN.lnRoundTime(searchDepth, nEmpty);
+        if (searchDepth.isFullSolve()) {
+            solveCorrection.add(nEmpty, residual);
+        } else {
+            midgameCorrection.add(equivalentEmpties(searchDepth), residual);
+        }
+        final double rate = nNodes / seconds;
+        nodesPerSecond = nodesPerSecond == 0 ? rate : Correction.DECAY * nodesPerSecond + (1 - Correction.DECAY) * rate;
+    }
+
+    /**
+     * @return moving average of the node rate, in nodes per second, or 0 if no rounds have been measured.
+     */
+    public double getNodesPerSecond() {
+        return nodesPerSecond;
+    }
+
+    /**
+     * @return ratio of the time of a midgame search one ply deeper to the time of this search, at nEmpty empties.
+     */
+    public double getBranchingFactor(int nEmpty) {
+        return Math.exp(lnTime(nEmpty + 1, 0) - lnTime(nEmpty, 0));
+    }
+
+    @Override public String toString() {
+        return String.format("%.3g Mn/s, branching factor %.2f, solve time correction %s, midgame time correction %s"
+                , nodesPerSecond * 1e-6, getBranchingFactor(20), solveCorrection, midgameCorrection);
+    }
+
+    /**
+     * Weighted least-squares fit of residual log time as a linear function of empties.
+     * <p/>
+     * The prior is a ridge penalty pulling both the residual at {@link #X_REF} empties and the slope towards 0.
+     * The slope penalty is stronger, since branching factors vary less between machines than speeds do.
+     */
+    static class Correction {
+        /**
+         * Each measurement's weight is multiplied by DECAY when a new measurement is added.
+         */
+        static final double DECAY = 0.95;
+
+        private static final double X_REF = 20;
+        private static final double OFFSET_PRIOR = 0.5;
+        private static final double SLOPE_PRIOR = 20;
+
+        // weighted sums of 1, u, y, u*u, u*y where u = x - X_REF.
+        private double sw;
+        private double swu;
+        private double swy;
+        private double swuu;
+        private double swuy;
+
+        void add(double x, double y) {
+            final double u = x - X_REF;
+            sw = DECAY * sw + 1;
+            swu = DECAY * swu + u;
+            swy = DECAY * swy + y;
+            swuu = DECAY * swuu + u * u;
+            swuy = DECAY * swuy + u * y;
+        }
+
+        /**
+         * @return effective number of measurements
+         */
+        double weight() {
+            return sw;
+        }
+
+        double predict(double x) {
+            // solve the normal equations [w0 swu; swu wuu] [offset; slope] = [swy; swuy]
+            final double w0 = sw + OFFSET_PRIOR;
+            final double wuu = swuu + SLOPE_PRIOR;
+            final double det = w0 * wuu - swu * swu;
+            final double offset = (wuu * swy - swu * swuy) / det;
+            final double slope = (w0 * swuy - swu * swy) / det;
+            return offset + slope * (x - X_REF);
+        }
+
+        @Override public String toString() {
+            return String.format("%+.2f%+.3f*(n-%.0f)", predict(X_REF), predict(X_REF + 1) - predict(X_REF), X_REF);
+        }
+    }
+}
@@ -16,12 +16,16 @@
 package com.welty.novello.selfplay;
 
 import com.orbanova.common.misc.Require;
-import com.orbanova.common.misc.Utils;
 import com.welty.novello.book.Book;
 import com.welty.novello.book.MultithreadedAdder;
 import com.welty.novello.core.*;
 import com.welty.novello.eval.CoefficientCalculator;
 import com.welty.novello.eval.Eval;
+import com.welty.novello.metrics.EngineStatistics;
+import com.welty.novello.metrics.MetricsSnapshot;
+import com.welty.novello.metrics.MetricsSource;
+import com.welty.novello.metrics.ResourceUsage;
+import com.welty.novello.metrics.SearchTrace;
 import com.welty.novello.solver.*;
 import com.welty.novello.external.api.AbortCheck;
 import com.welty.othello.gdk.COsBoard;
@@ -40,13 +44,27 @@ import java.util.List;
  * <p/>
  * This implementation is NOT thread-safe.
  */
-public class EvalSyncEngine implements SyncEngine {
+public class EvalSyncEngine implements SyncEngine, MetricsSource {
     private final MidgameSearcher.Options midgameOptions;
     private final MidgameSearcher searcher;
     private final Solver solver;
     private final @NotNull String name;
     @Nullable private final Book book;
 
+    /**
+     * Total time spent in calcMove() and calcHints(), in milliseconds.
+     * <p/>
+     * Written only by the search thread; volatile so that metrics can be read from other threads.
+     */
+    private volatile long searchMillis;
+
+    private final EngineStatistics engineStatistics = new EngineStatistics();
+
+    /**
+     * Search time model, corrected by measurements of this engine's searches
+     */
+    private final AdaptiveTimeModel timeModel = new AdaptiveTimeModel();
+
     public EvalSyncEngine(@NotNull Eval eval, String options, @NotNull String name) {
         this(eval, options, name, null);
     }
@@ -94,26 +112,38 @@ public class EvalSyncEngine implements SyncEngine {
         }
 
         MoveScore bookMoveScore = getBookMoveScore(board, maxMidgameDepth);
+        if (book != null) {
+            engineStatistics.updateBookProbe(bookMoveScore != null);
+        }
         if (bookMoveScore != null) {
             return bookMoveScore;
         }
         if (midgameOptions.variableMidgame && board.nEmpty() <= 30) {
             maxMidgameDepth += 2;
         }
-        final AbortCheck abortCheck = clock == null ? baseAbortCheck : new TimeAbortCheck(baseAbortCheck, clock, board.nEmpty());
+        final TimeAbortCheck timeAbortCheck = clock == null ? null : new TimeAbortCheck(baseAbortCheck, clock, board.nEmpty(), timeModel);
+        final AbortCheck abortCheck = timeAbortCheck == null ? baseAbortCheck : timeAbortCheck;
 
         final long n0 = searcher.getCounts().nFlips;
         final long t0 = System.currentTimeMillis();
+        final long gc0 = ResourceUsage.gcMillis();
+        final long bytes0 = ResourceUsage.threadAllocatedBytes();
 
         // Make sure we have a legal move by calculating the first round without aborts
         MoveScore result = null;
         boolean firstRound = true;
+        int depthReached = 0;
 
         //  calculate further rounds with aborts enabled
-        for (SearchDepth searchDepth : SearchDepths.calcSearchDepths(board.nEmpty(), maxMidgameDepth)) {
+        for (SearchDepth searchDepth : SearchDepths.calcSearchDepths(board.nEmpty(), maxMidgameDepth, timeModel)) {
+            if (timeAbortCheck != null) {
+                timeAbortCheck.setNextRoundSeconds(timeModel.roundSeconds(searchDepth, board.nEmpty()));
+            }
             if (!firstRound && abortCheck.abortNextRound()) {
                 break;
             }
+            final long roundStart = System.nanoTime();
+            final long roundFlips = searcher.getCounts().nFlips;
             try {
                 final AbortCheck roundAbortCheck = firstRound ? AbortCheck.NEVER : abortCheck;
                 listener.updateStatus(status(searchDepth));
@@ -124,6 +154,11 @@ public class EvalSyncEngine implements SyncEngine {
                     result = searcher.getMoveScore(board, moverMoves, searchDepth.depth, searchDepth.width, roundAbortCheck);
                     listener.hint(result, searchDepth.displayDepth(), false);
                 }
+                depthReached = depthReached(board, searchDepth);
+                timeModel.update(searchDepth, board.nEmpty(), searcher.getCounts().nFlips - roundFlips, (System.nanoTime() - roundStart) * 1e-9);
+                if (SearchTrace.ENABLED) {
+                    SearchTrace.round(depthReached, searchDepth.width, result.centidisks, roundStart);
+                }
             } catch (SearchAbortedException e) {
                 listener.updateStatus("Round aborted");
                 listener.updateNodeStats(searcher.getCounts().nFlips - n0, System.currentTimeMillis() - t0);
@@ -131,9 +166,18 @@ public class EvalSyncEngine implements SyncEngine {
             listener.updateNodeStats(searcher.getCounts().nFlips - n0, System.currentTimeMillis() - t0);
             firstRound = false;
         }
+        searchMillis += System.currentTimeMillis() - t0;
+        engineStatistics.updateSearch(depthReached, ResourceUsage.gcMillis() - gc0, ResourceUsage.threadAllocatedBytesSince(bytes0));
         return result;
     }
 
+    /**
+     * @return depth of a search, in ply. A full-width solve searches to the end of the game.
+     */
+    private static int depthReached(Board board, SearchDepth searchDepth) {
+        return searchDepth.isFullSolve() ? board.nEmpty() : searchDepth.depth;
+    }
+
     /**
      * Get move score from book
      *
@@ -152,7 +196,7 @@ public class EvalSyncEngine implements SyncEngine {
                 return null;
             case UBRANCH:
                 // if this search requires a solve, then don't return an unsolved value.
-                if (SearchDepths.lastSearchDepth(board.nEmpty(), maxMidgameDepth).isFullSolve()) {
+                if (SearchDepths.lastSearchDepth(board.nEmpty(), maxMidgameDepth, timeModel).isFullSolve()) {
                     return null;
                 }
                 break;
@@ -169,35 +213,25 @@ public class EvalSyncEngine implements SyncEngine {
     }
 
     static double calcTargetTime(OsClock clock, int nEmpty) {
-        final int baseNEmpty = Utils.isOdd(nEmpty) ? 1 : 2;
-        double tTarget = 0;
-
-        for (int solveAt = baseNEmpty; solveAt <= nEmpty; solveAt += 2) {
-            final double tSolve = 120 * Math.pow(solveAt > 26 ? 5 : 4, solveAt - 26);
-            if (tSolve > clock.tCurrent) {
-                break;
-            }
-            final int nMidgameMoves = 1 + (nEmpty - solveAt) / 2;
-            final double tMidgame = (clock.tCurrent - tSolve) / nMidgameMoves;
-            if (tMidgame > tTarget) {
-                tTarget = tMidgame;
-            }
-            if (tMidgame < tSolve) {
-                break;
-            }
-        }
-        return Math.min(tTarget, clock.tCurrent / 4);
+        return TimeModel.BUILT_IN.targetTime(clock, nEmpty);
     }
 
     private static class TimeAbortCheck implements AbortCheck {
         private final AbortCheck chainedAbortCheck;
+        private final long tTarget;
         private final long tNoMoreRounds;
         private final long tHardAbort;
 
-        TimeAbortCheck(AbortCheck chainedAbortCheck, @NotNull OsClock clock, int nEmpty) {
+        /**
+         * Predicted time for the next round, in seconds, or NaN if it can't be predicted.
+         */
+        private double nextRoundSeconds = Double.NaN;
+
+        TimeAbortCheck(AbortCheck chainedAbortCheck, @NotNull OsClock clock, int nEmpty, @NotNull TimeModel timeModel) {
             this.chainedAbortCheck = chainedAbortCheck;
             final long now = System.currentTimeMillis();
-            final double tTarget = calcTargetTime(clock, nEmpty);
+            final double tTarget = timeModel.targetTime(clock, nEmpty);
+            this.tTarget = now + cap(tTarget, clock.tCurrent);
             tHardAbort = now + cap(tTarget * 2, clock.tCurrent);
             tNoMoreRounds = now + cap(tTarget * 0.5, clock.tCurrent);
 //            System.out.println("now: " + now);
@@ -218,8 +252,28 @@ public class EvalSyncEngine implements SyncEngine {
             return System.currentTimeMillis() >= tHardAbort || chainedAbortCheck.shouldAbort();
         }
 
+        /**
+         * Set the predicted time of the next round.
+         * <p/>
+         * When the time can be predicted, a round is started after the soft limit if it is expected to finish by the
+         * target time, and is not started if it is expected to be aborted at the hard limit.
+         *
+         * @param nextRoundSeconds predicted time, in seconds, or NaN if it can't be predicted.
+         */
+        void setNextRoundSeconds(double nextRoundSeconds) {
+            this.nextRoundSeconds = nextRoundSeconds;
+        }
+
         @Override public boolean abortNextRound() {
-            return System.currentTimeMillis() >= tNoMoreRounds || chainedAbortCheck.abortNextRound();
+            if (chainedAbortCheck.abortNextRound()) {
+                return true;
+            }
+            final long now = System.currentTimeMillis();
+            if (Double.isNaN(nextRoundSeconds)) {
+                return now >= tNoMoreRounds;
+            }
+            final long tEnd = now + (long) (1000 * nextRoundSeconds);
+            return tEnd > tHardAbort || (now >= tNoMoreRounds && tEnd > tTarget);
         }
     }
 
@@ -296,7 +350,11 @@ public class EvalSyncEngine implements SyncEngine {
      * @param listener listener for intermediate results
      */
     public void calcHints(Board board, int maxMidgameDepth, int nHints, AbortCheck abortCheck, Listener listener) throws SearchAbortedException {
-        if (getHintsFromBook(board, listener)) {
+        final boolean bookHit = getHintsFromBook(board, listener);
+        if (book != null) {
+            engineStatistics.updateBookProbe(bookHit);
+        }
+        if (bookHit) {
             return;
         }
         final long moverMoves = board.calcMoves();
@@ -305,6 +363,9 @@ public class EvalSyncEngine implements SyncEngine {
         }
         final long n0 = searcher.getCounts().nFlips;
         final long t0 = System.currentTimeMillis();
+        final long gc0 = ResourceUsage.gcMillis();
+        final long bytes0 = ResourceUsage.threadAllocatedBytes();
+        int depthReached = 0;
 
         // list of moveScores, sorted in descending order by score for at least the first nHints scores
         final ArrayList<MoveScore> moveScores = new ArrayList<>();
@@ -315,9 +376,11 @@ public class EvalSyncEngine implements SyncEngine {
             moves &= moves - 1;
         }
 
-        for (SearchDepth searchDepth : SearchDepths.calcSearchDepths(board.nEmpty(), maxMidgameDepth)) {
+        for (SearchDepth searchDepth : SearchDepths.calcSearchDepths(board.nEmpty(), maxMidgameDepth, timeModel)) {
             listener.updateStatus(status(searchDepth));
+            final long roundStart = SearchTrace.ENABLED ? System.nanoTime() : 0;
             for (int j = 0; j < moveScores.size(); j++) {
+                final long moveStart = SearchTrace.ENABLED ? System.nanoTime() : 0;
                 final int beta = 64 * CoefficientCalculator.DISK_VALUE;
                 final int alpha = j < nHints ? -64 * CoefficientCalculator.DISK_VALUE : moveScores.get(nHints - 1).centidisks;
                 final int sq = moveScores.get(j).sq;
@@ -336,9 +399,41 @@ public class EvalSyncEngine implements SyncEngine {
                 } else {
                     moveScores.set(j, moveScore);
                 }
+                if (SearchTrace.ENABLED) {
+                    SearchTrace.rootMove(depthReached(board, searchDepth), sq, moveScore.centidisks, moveStart);
+                }
                 listener.updateNodeStats(searcher.getCounts().nFlips - n0, System.currentTimeMillis() - t0);
             }
+            depthReached = depthReached(board, searchDepth);
+            if (SearchTrace.ENABLED) {
+                SearchTrace.round(depthReached, searchDepth.width, moveScores.get(0).centidisks, roundStart);
+            }
         }
+        searchMillis += System.currentTimeMillis() - t0;
+        engineStatistics.updateSearch(depthReached, ResourceUsage.gcMillis() - gc0, ResourceUsage.threadAllocatedBytesSince(bytes0));
+    }
+
+    /**
+     * @return statistics for all searches since this engine was created.
+     */
+    @Override public @NotNull MetricsSnapshot getMetrics() {
+        return searcher.getMetrics().snapshot(searcher.getCounts(), searchMillis);
+    }
+
+    @Override public @NotNull EngineStatistics getEngineStatistics() {
+        return engineStatistics;
+    }
+
+    @Override public double getEndgameHashOccupancy() {
+        return solver.getHashOccupancy();
+    }
+
+    @Override public double getMidgameHashOccupancy() {
+        return searcher.getHashOccupancy();
+    }
+
+    @Override public @NotNull String getName() {
+        return name;
     }
 
     // Depths that are displayed in NBoard for various book node types
@@ -462,7 +557,8 @@ public class EvalSyncEngine implements SyncEngine {
             final long now = System.currentTimeMillis();
             if (now > nextUpdateMillis) {
                 final long elapsedMillis = now - t0;
-                listener.updateNodeStats(solver.getCounts().nFlips - n0, elapsedMillis);
+                final MetricsSnapshot snapshot = solver.getMetrics().snapshot(solver.getCounts(), elapsedMillis);
+                listener.updateNodeStats(snapshot.nNodes() - n0, snapshot.millis);
                 nextUpdateMillis = now + updateInterval(elapsedMillis);
             }
         }
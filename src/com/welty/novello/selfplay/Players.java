@@ -29,15 +29,35 @@ import java.util.regex.Pattern;
  * Utility class containing Othello players
  */
 public class Players {
+    /**
+     * If true, coefficient evals use code generated at runtime from their strategy's terms when possible.
+     * <p/>
+     * Set with -Dnovello.compileEvals=true. This is mainly useful for experimental strategies, which don't have a
+     * hand-written eval.
+     */
+    private static final boolean COMPILE_EVALS = Boolean.getBoolean("novello.compileEvals");
+
     public static Eval eval(String name) {
         switch (name) {
             case "ntestJ":
                 return CEvaluatorJ.getInstance();
             case "ntestK":
                 return EvalStrategyJ.getNtestEval();
+            case "ntestX":
+                return EvalStrategyJ.getExpandedNtestEval();
+            case "ntestP":
+                return EvalStrategyJ.getPackedNtestEval();
             default:
                 EvalStrategy strategy = EvalStrategies.strategy(name.substring(0, 1));
-                return new CoefficientEval(strategy, name.substring(1));
+                final CoefficientEval eval = new CoefficientEval(strategy, name.substring(1));
+                if (COMPILE_EVALS) {
+                    try {
+                        return eval.compiled();
+                    } catch (IllegalArgumentException e) {
+                        return eval;
+                    }
+                }
+                return eval;
         }
     }
 
@@ -14,6 +14,18 @@ public class SearchDepths {
     private static final List<SearchDepth> DEPTH_1 = Arrays.asList(new SearchDepth(1, Integer.MAX_VALUE, true));
 
     public static List<SearchDepth> calcSearchDepths(int nEmpty, int maxMidgameDepth) {
+        return calcSearchDepths(nEmpty, maxMidgameDepth, TimeModel.BUILT_IN);
+    }
+
+    /**
+     * Calculate the rounds of iterative deepening for a search.
+     *
+     * @param nEmpty          number of empties in the root position
+     * @param maxMidgameDepth maximum search depth, during midgame
+     * @param timeModel       model of search times, used to decide which probable solves and full solve to include
+     * @return search depths, in the order they should be searched
+     */
+    public static List<SearchDepth> calcSearchDepths(int nEmpty, int maxMidgameDepth, TimeModel timeModel) {
         final int probableSolveDepth = nEmpty - (MidgameSearcher.SOLVER_START_DEPTH - 1);
 
         if (probableSolveDepth <= 1) {
@@ -32,9 +44,9 @@ public class SearchDepths {
         // add probable solves, if we can
 //        if (maxMidgameDepth >= probableSolveDepth) {
         // subtract two from lnSolveTime to give a bonus for solves, which are more useful than probable solves.
-        final double lnSolveTime = calcLnSolveTime(nEmpty) - 2;
+        final double lnSolveTime = timeModel.lnSolveTime(nEmpty) - 2;
 
-        final double lnMidgameTime = calcLnMidgameTime(maxMidgameDepth);
+        final double lnMidgameTime = calcLnMidgameTime(maxMidgameDepth, timeModel);
         // don't add probable solves that will take longer than this cutoff time:
         final double lnCutoff = Math.min(lnSolveTime, lnMidgameTime);
 
@@ -42,7 +54,7 @@ public class SearchDepths {
         final int startWidth = maxProbDepth >= probableSolveDepth ? 1 : 0;
 
         for (int width = startWidth; width <= Mpc.maxWidth(); width++) {
-            final double lnProbTime = calcLnTime(nEmpty, width);
+            final double lnProbTime = timeModel.lnTime(nEmpty, width);
             if (lnProbTime > lnCutoff) {
                 break;
             }
@@ -59,19 +71,25 @@ public class SearchDepths {
         return depths;
     }
 
-    private static double calcLnMidgameTime(int maxMidgameDepth) {
+    private static double calcLnMidgameTime(int maxMidgameDepth, TimeModel timeModel) {
         final int probSolveLimit = maxMidgameDepth + MidgameSearcher.SOLVER_START_DEPTH - 1;
-        double lnTime = calcLnTime(probSolveLimit, 0) + 0.1*maxMidgameDepth;
+        double lnTime = timeModel.lnTime(probSolveLimit, 0) + 0.1*maxMidgameDepth;
         return lnTime;
     }
 
     public static SearchDepth lastSearchDepth(int nEmpty, int maxMidgameDepth) {
-        final List<SearchDepth> depths = calcSearchDepths(nEmpty, maxMidgameDepth);
+        return lastSearchDepth(nEmpty, maxMidgameDepth, TimeModel.BUILT_IN);
+    }
+
+    public static SearchDepth lastSearchDepth(int nEmpty, int maxMidgameDepth, TimeModel timeModel) {
+        final List<SearchDepth> depths = calcSearchDepths(nEmpty, maxMidgameDepth, timeModel);
         return depths.get(depths.size() - 1);
     }
 
     /**
      * Estimate the (log of the) amount of time to do a probable solve.
+     * <p/>
+     * This is a regression fit on a single machine; {@link AdaptiveTimeModel} corrects it for the current machine.
      *
      * @param nEmpty number of empties
      * @param width  search MPC width
@@ -33,7 +33,7 @@ public class SelfPlaySet {
 
     public static void main(String[] args) throws IOException {
         if (args.length < 2) {
-            System.err.println("usage: blackPlayerName whitePlayerName [time per game in seconds] [debug:boolean]");
+            System.err.println("usage: blackPlayerName whitePlayerName [time per game in seconds] [debug:boolean] [number of start positions]");
             System.err.println(" for example a1:2 NTest:2 900");
             System.exit(-1);
         }
@@ -42,8 +42,12 @@ public class SelfPlaySet {
         final SyncPlayer white = Players.player(args[1], debug);
         final OsClock clock = args.length > 2 ? new OsClock(Double.parseDouble(args[2])) : OsClock.LONG;
 
+        final List<Board> startBoards = args.length > 4
+                ? StartPositionCatalog.sample(N_START_DISKS, Integer.parseInt(args[4]), new Random(1337))
+                : defaultStartBoards();
+
         final MatchResultListener[] listeners = {new MatchPrinter(2), new StatPrinter()};
-        final double result = run(black, white, clock, listeners);
+        final double result = run(black, white, clock, startBoards, listeners);
         System.out.format("%s vs %s: average result = %.1f\n", black, white, result);
     }
 
@@ -62,12 +66,42 @@ public class SelfPlaySet {
      * @return average match result (player 1 disks - player 2 disks).
      */
     public static double run(SyncPlayer syncEngine1, SyncPlayer syncEngine2, OsClock clock, MatchResultListener... listeners) {
-        return new SelfPlaySet(syncEngine1, syncEngine2, clock, listeners).call();
+        return run(syncEngine1, syncEngine2, clock, defaultStartBoards(), listeners);
+    }
+
+    /**
+     * Create a SelfPlaySet that plays one match from each of the given start positions, and run it.
+     * <p/>
+     * Use {@link StartPositionCatalog#sample(int, int, java.util.Random)} to choose a smaller set of start positions
+     * for a quick comparison.
+     *
+     * @param syncEngine1 first player
+     * @param syncEngine2 second player
+     * @param startBoards start positions of the matches
+     * @param listeners   listeners to match result
+     * @return average match result (player 1 disks - player 2 disks).
+     */
+    public static double run(SyncPlayer syncEngine1, SyncPlayer syncEngine2, OsClock clock, List<Board> startBoards
+            , MatchResultListener... listeners) {
+        return new SelfPlaySet(syncEngine1, syncEngine2, clock, startBoards, listeners).call();
+    }
+
+    /**
+     * Number of disks in the start positions of a default SelfPlaySet
+     */
+    private static final int N_START_DISKS = 9;
+
+    /**
+     * @return all start positions with {@link #N_START_DISKS} disks, in a fixed random order
+     */
+    private static List<Board> defaultStartBoards() {
+        return StartPositionCatalog.shuffled(N_START_DISKS, new Random(1337));
     }
 
     private final @NotNull SyncPlayer syncEngine1;
     private final @NotNull SyncPlayer syncEngine2;
     private final OsClock clock;
+    private final @NotNull List<Board> startBoards;
     private final @NotNull MatchResultListener[] matchResultListeners;
 
     /**
@@ -78,12 +112,15 @@ public class SelfPlaySet {
      * @param syncEngine1          first player
      * @param syncEngine2          second player
      * @param clock                starting time for each player
+     * @param startBoards          start positions of the matches
      * @param matchResultListeners listeners to results of each match
      */
-    private SelfPlaySet(@NotNull SyncPlayer syncEngine1, @NotNull SyncPlayer syncEngine2, OsClock clock, @NotNull MatchResultListener... matchResultListeners) {
+    private SelfPlaySet(@NotNull SyncPlayer syncEngine1, @NotNull SyncPlayer syncEngine2, OsClock clock
+            , @NotNull List<Board> startBoards, @NotNull MatchResultListener... matchResultListeners) {
         this.syncEngine1 = syncEngine1;
         this.syncEngine2 = syncEngine2;
         this.clock = clock;
+        this.startBoards = startBoards;
         this.matchResultListeners = matchResultListeners;
     }
 
@@ -98,7 +135,6 @@ public class SelfPlaySet {
         log.info("Starting " + syncEngine1 + " vs " + syncEngine2);
 
         final String hostName = NovelloUtils.getHostName();
-        final List<Board> startBoards = generateStartPositions();
 
         int nComplete = 0;
         double sum = 0;
@@ -127,26 +163,6 @@ public class SelfPlaySet {
         return sum / nComplete;
     }
 
-    private static List<Board> generateStartPositions() {
-        final HashSet<MinimalReflection> alreadySeen = new HashSet<>();
-        final StartPosGenerator generator = new StartPosGenerator(9);
-        final List<Board> startBoards = new ArrayList<>();
-
-        Board startBoard;
-        while (null != (startBoard = generator.next())) {
-            // only play positions where we have not seen a reflection previously
-            // this means we won't get 8 of each game.
-            if (alreadySeen.add(startBoard.minimalReflection()) && startBoard.hasLegalMove()) {
-                startBoards.add(startBoard);
-            }
-
-        }
-
-        Collections.shuffle(startBoards, new Random(1337));
-
-        return startBoards;
-    }
-
     public interface MatchResultListener {
         /**
          * Handle the results of a match
@@ -174,7 +190,7 @@ public class SelfPlaySet {
 
         public ProgressBarUpdater(JProgressBar progressBar) {
             this.progressBar = progressBar;
-            progressBar.setMaximum(50777);
+            progressBar.setMaximum(StartPositionCatalog.size(N_START_DISKS));
         }
 
         public void handle(int nComplete, double netResult, @NotNull MutableGame game1, @Nullable MutableGame game2) {
@@ -258,13 +274,39 @@ public class SelfPlaySet {
         }
     }
 
+    /**
+     * Collects the position values of all games played, and optionally writes the games to a {@link GameStore}.
+     */
     public static class PvCollector implements MatchResultListener {
         public final List<MeValue> pvs = new ArrayList<>();
+        private final @Nullable GameStore.Writer games;
+
+        public PvCollector() {
+            this(null);
+        }
+
+        /**
+         * @param games if not null, all games played are added to this store. The collector does not close it.
+         */
+        public PvCollector(@Nullable GameStore.Writer games) {
+            this.games = games;
+        }
 
         @Override public void handle(int nComplete, double netResult, @NotNull MutableGame game1, @Nullable MutableGame game2) {
-            pvs.addAll(game1.calcPositionValues());
+            add(game1);
             if (game2 != null) {
-                pvs.addAll(game2.calcPositionValues());
+                add(game2);
+            }
+        }
+
+        private void add(@NotNull MutableGame game) {
+            pvs.addAll(game.calcPositionValues());
+            if (games != null) {
+                try {
+                    games.add(game);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
             }
         }
 
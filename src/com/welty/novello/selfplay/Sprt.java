@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.selfplay;
+
+import com.orbanova.common.misc.Require;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sequential probability ratio test of the strength difference between two players.
+ * <p/>
+ * Results are added one match at a time. A match is a pair of games from the same start position with each player
+ * taking each color once; its score is the number of half-points player 1 earned (0..4). Scoring pairs rather than
+ * games removes most of the correlation caused by unbalanced start positions.
+ * <p/>
+ * The test compares H0: elo difference = elo0 against H1: elo difference = elo1 using the normal approximation to
+ * the generalized SPRT, with the variance estimated from the matches played so far. The log-likelihood ratio is
+ * <pre>
+ *     LLR = n (s1 - s0) (2 mean - s0 - s1) / (2 variance)
+ * </pre>
+ * where s0 and s1 are the expected match scores under H0 and H1 and mean, variance are the sample statistics of
+ * the match scores (scaled to 0..1). The test stops when LLR leaves [log(beta/(1-alpha)), log((1-beta)/alpha)].
+ * <p/>
+ * The variance is floored at {@link #MIN_VARIANCE}. Without the floor, a run where every match has the same score
+ * (for instance, player 1 wins every game) would have zero variance and never reach a decision, although it is the
+ * case that should stop earliest.
+ * <p/>
+ * This class is not thread-safe.
+ */
+public class Sprt {
+    public enum Decision {
+        /**
+         * Not enough information yet
+         */
+        NONE,
+        /**
+         * The elo difference is elo0 or less
+         */
+        H0,
+        /**
+         * The elo difference is elo1 or more
+         */
+        H1
+    }
+
+    /**
+     * z-value of a two-sided 95% confidence interval
+     */
+    private static final double Z_95 = 1.96;
+
+    /**
+     * Smallest variance used in the log-likelihood ratio.
+     * <p/>
+     * This is well below the variance of real matches (0.125 for evenly matched players who never draw) so it
+     * only matters when nearly all matches have the same score. With elo0=0 and elo1=10, a run of all wins or
+     * all losses stops after 5 matches.
+     */
+    static final double MIN_VARIANCE = 0.01;
+
+    public final double elo0;
+    public final double elo1;
+    private final double s0;
+    private final double s1;
+    private final double lowerBound;
+    private final double upperBound;
+
+    /**
+     * counts[h] = number of matches where player 1 scored h half-points
+     */
+    private final int[] counts = new int[5];
+
+    /**
+     * Construct an SPRT with 5% type I and type II error rates
+     *
+     * @param elo0 elo difference under H0
+     * @param elo1 elo difference under H1. Must be greater than elo0.
+     */
+    public Sprt(double elo0, double elo1) {
+        this(elo0, elo1, 0.05, 0.05);
+    }
+
+    /**
+     * @param elo0  elo difference under H0
+     * @param elo1  elo difference under H1. Must be greater than elo0.
+     * @param alpha probability of accepting H1 when H0 is true
+     * @param beta  probability of accepting H0 when H1 is true
+     * @throws IllegalArgumentException if elo1 &le; elo0 or alpha or beta is not strictly between 0 and 1
+     */
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (!(elo1 > elo0)) {
+            throw new IllegalArgumentException("elo1 must be greater than elo0; had " + elo0 + ", " + elo1);
+        }
+        if (!(alpha > 0 && alpha < 1 && beta > 0 && beta < 1)) {
+            throw new IllegalArgumentException("alpha and beta must be between 0 and 1; had " + alpha + ", " + beta);
+        }
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        s0 = score(elo0);
+        s1 = score(elo1);
+        lowerBound = Math.log(beta / (1 - alpha));
+        upperBound = Math.log((1 - beta) / alpha);
+    }
+
+    /**
+     * Add the result of a match
+     *
+     * @param halfPoints number of half-points player 1 earned in the match's two games, 0..4.
+     */
+    public void add(int halfPoints) {
+        Require.geq(halfPoints, "halfPoints", 0);
+        Require.leq(halfPoints, "halfPoints", 4);
+        counts[halfPoints]++;
+    }
+
+    /**
+     * Add the result of a match
+     *
+     * @param netScore1 player 1 disks - player 2 disks in the game where player 1 was black
+     * @param netScore2 player 1 disks - player 2 disks in the game where player 1 was white
+     */
+    public void add(int netScore1, int netScore2) {
+        add(Integer.signum(netScore1) + Integer.signum(netScore2) + 2);
+    }
+
+    /**
+     * @return number of matches added
+     */
+    public int nMatches() {
+        int n = 0;
+        for (int count : counts) {
+            n += count;
+        }
+        return n;
+    }
+
+    /**
+     * @return average score of player 1 per game, 0..1, or 0.5 if no matches have been added.
+     */
+    public double mean() {
+        final int n = nMatches();
+        if (n == 0) {
+            return 0.5;
+        }
+        double sum = 0;
+        for (int h = 0; h < counts.length; h++) {
+            sum += h * counts[h];
+        }
+        return sum / (4 * n);
+    }
+
+    /**
+     * @return sample variance of the match score (scaled to 0..1)
+     */
+    public double variance() {
+        final int n = nMatches();
+        if (n == 0) {
+            return 0;
+        }
+        final double mean = mean();
+        double sumSq = 0;
+        for (int h = 0; h < counts.length; h++) {
+            final double d = 0.25 * h - mean;
+            sumSq += d * d * counts[h];
+        }
+        return sumSq / n;
+    }
+
+    /**
+     * @return log-likelihood ratio of H1 to H0, or 0 if no matches have been added.
+     */
+    public double llr() {
+        final int n = nMatches();
+        if (n == 0) {
+            return 0;
+        }
+        final double variance = Math.max(variance(), MIN_VARIANCE);
+        return n * (s1 - s0) * (2 * mean() - s0 - s1) / (2 * variance);
+    }
+
+    public double lowerBound() {
+        return lowerBound;
+    }
+
+    public double upperBound() {
+        return upperBound;
+    }
+
+    public @NotNull Decision decision() {
+        final double llr = llr();
+        if (llr >= upperBound) {
+            return Decision.H1;
+        }
+        if (llr <= lowerBound) {
+            return Decision.H0;
+        }
+        return Decision.NONE;
+    }
+
+    /**
+     * @return estimated elo difference (player 1 - player 2)
+     */
+    public double elo() {
+        return elo(mean());
+    }
+
+    /**
+     * @return half-width of the 95% confidence interval of the elo difference
+     */
+    public double eloError() {
+        final int n = nMatches();
+        if (n == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        final double mean = mean();
+        final double stdErr = Math.sqrt(variance() / n);
+        return 0.5 * (elo(mean + Z_95 * stdErr) - elo(mean - Z_95 * stdErr));
+    }
+
+    /**
+     * Convert an elo difference to an expected score
+     *
+     * @param elo elo difference
+     * @return expected score per game, 0..1
+     */
+    static double score(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    /**
+     * Convert an expected score to an elo difference
+     *
+     * @param score expected score per game. Values outside (0,1) produce infinite elo differences.
+     * @return elo difference
+     */
+    static double elo(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    @Override public String toString() {
+        return String.format("%,d matches: elo = %+.1f +/-%.1f, LLR = %.2f [%.2f, %.2f] for H0: elo=%.1f vs H1: elo=%.1f"
+                , nMatches(), elo(), eloError(), llr(), lowerBound, upperBound, elo0, elo1);
+    }
+}
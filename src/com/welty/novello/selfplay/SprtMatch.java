@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.selfplay;
+
+import com.orbanova.common.misc.Logger;
+import com.welty.novello.core.Board;
+import com.welty.novello.core.MutableGame;
+import com.welty.novello.core.NovelloUtils;
+import com.welty.othello.gdk.OsClock;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+/**
+ * Play matches between two players on several threads until a {@link Sprt} decides which is stronger.
+ * <p/>
+ * Each match is a pair of games from one start position, with each player taking each color once.
+ * Matches are scheduled in start position order and results are passed to the Sprt in the order they complete.
+ * As soon as the Sprt reaches a decision, unstarted matches are cancelled and matches in progress are ignored.
+ * If the start positions run out first, the decision is {@link Sprt.Decision#NONE} and the elo estimate is still
+ * reported.
+ * <p/>
+ * Since SyncEngine is not thread-safe, each thread constructs its own players from the player names.
+ */
+public class SprtMatch {
+    private static final Logger log = Logger.logger(SprtMatch.class);
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("usage: player1Name player2Name [elo0 elo1] [number of threads]");
+            System.err.println(" for example d2:2 d1:2 0 10 4");
+            System.exit(-1);
+        }
+        final double elo0 = args.length > 3 ? Double.parseDouble(args[2]) : 0;
+        final double elo1 = args.length > 3 ? Double.parseDouble(args[3]) : 10;
+        final int nThreads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        final Sprt sprt = new Sprt(elo0, elo1);
+        final List<Board> startBoards = StartPositionCatalog.shuffled(9, new Random(1337));
+        final SprtMatch match = new SprtMatch(args[0], args[1], OsClock.LONG, startBoards, nThreads);
+        final Sprt.Decision decision = match.run(sprt, new SelfPlaySet.StatPrinter());
+        System.out.format("%s vs %s: %s. %s%n", args[0], args[1], decision, sprt);
+    }
+
+    private final @NotNull String playerName1;
+    private final @NotNull String playerName2;
+    private final OsClock clock;
+    private final @NotNull List<Board> startBoards;
+    private final int nThreads;
+
+    /**
+     * @param playerName1 name of player 1, for instance "d2:2". See {@link Players#player(String)}.
+     * @param playerName2 name of player 2
+     * @param clock       starting time for each player
+     * @param startBoards start positions of the matches, in the order they should be played
+     * @param nThreads    number of matches to play at once
+     */
+    public SprtMatch(@NotNull String playerName1, @NotNull String playerName2, OsClock clock
+            , @NotNull List<Board> startBoards, int nThreads) {
+        this.playerName1 = playerName1;
+        this.playerName2 = playerName2;
+        this.clock = clock;
+        this.startBoards = startBoards;
+        this.nThreads = nThreads;
+    }
+
+    /**
+     * Play matches until the Sprt reaches a decision or the start positions are exhausted.
+     * <p/>
+     * The listeners receive each match result that is added to the Sprt, on the calling thread. netResult is
+     * player 1 disks - player 2 disks, summed over both games.
+     *
+     * @param sprt      test which receives the match results
+     * @param listeners listeners to match results
+     * @return the Sprt's decision
+     */
+    public @NotNull Sprt.Decision run(@NotNull Sprt sprt, SelfPlaySet.MatchResultListener... listeners) {
+        log.info("Starting SPRT " + playerName1 + " vs " + playerName2 + " on " + nThreads + " threads");
+
+        final String hostName = NovelloUtils.getHostName();
+        final ThreadLocal<SyncPlayer[]> players = new ThreadLocal<SyncPlayer[]>() {
+            @Override protected SyncPlayer[] initialValue() {
+                return new SyncPlayer[]{Players.player(playerName1), Players.player(playerName2)};
+            }
+        };
+
+        final ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        final CompletionService<MutableGame[]> completionService = new ExecutorCompletionService<>(executor);
+        try {
+            for (final Board startBoard : startBoards) {
+                completionService.submit(new Callable<MutableGame[]>() {
+                    @Override public MutableGame[] call() throws Exception {
+                        final SyncPlayer[] p = players.get();
+                        final MutableGame game1 = new SelfPlayGame(startBoard, p[0], p[1], clock, hostName, 0).call();
+                        final MutableGame game2 = new SelfPlayGame(startBoard, p[1], p[0], clock, hostName, 0).call();
+                        return new MutableGame[]{game1, game2};
+                    }
+                });
+            }
+
+            int nComplete = 0;
+            Sprt.Decision decision = Sprt.Decision.NONE;
+            while (decision == Sprt.Decision.NONE && nComplete < startBoards.size()) {
+                final MutableGame[] games = completionService.take().get();
+                final int netScore1 = games[0].netScore();
+                final int netScore2 = -games[1].netScore();
+                sprt.add(netScore1, netScore2);
+                nComplete++;
+                for (SelfPlaySet.MatchResultListener listener : listeners) {
+                    listener.handle(nComplete, netScore1 + netScore2, games[0], games[1]);
+                }
+                decision = sprt.decision();
+            }
+            for (SelfPlaySet.MatchResultListener listener : listeners) {
+                listener.onMatchesComplete(nComplete);
+            }
+            log.info(playerName1 + " vs " + playerName2 + ": " + decision + ". " + sprt);
+            return decision;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.selfplay;
+
+import com.orbanova.common.misc.Require;
+import com.welty.novello.core.BitBoardUtils;
+import com.welty.novello.core.Board;
+import com.welty.novello.core.MinimalReflection;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+
+/**
+ * Catalog of self-play start positions.
+ * <p/>
+ * A start position with nDisks disks has all disks in the center 16 squares, including all of the center 4 squares.
+ * Black is to move if nDisks is even, white if it is odd. The mover must have a legal move.
+ * Only one reflection of each position is in the catalog.
+ * <p/>
+ * The catalog for each disk count is generated the first time it is needed, on several threads.
+ * Rather than enumerating all 3<sup>16</sup> colorings of the center 16 squares, the generator enumerates
+ * colorings of the center 4 squares and then only the subsets of the remaining 12 squares with the right number
+ * of disks. Reflections are removed by keeping only positions that are their own minimal reflection, which
+ * needs no set of positions already seen because the positions generated are closed under reflection.
+ * <p/>
+ * Positions are stored as ints, 2 bits per center square (0 = empty, 1 = black, 2 = white).
+ */
+public class StartPositionCatalog {
+    private static final int N_CENTER_SQUARES = 16;
+
+    /**
+     * Squares of the center 16, in the order their bits are stored. The center 4 squares are first.
+     */
+    private static final int[] squares = centerSquares();
+
+    /**
+     * catalogs[nDisks] is the catalog of start positions with nDisks disks, or null if it has not been generated
+     */
+    private static final int[][] catalogs = new int[N_CENTER_SQUARES + 1][];
+
+    private StartPositionCatalog() {
+    }
+
+    /**
+     * @param nDisks number of disks. 16 >= nDisks >= 4.
+     * @return number of start positions with nDisks disks
+     */
+    public static int size(int nDisks) {
+        return catalog(nDisks).length;
+    }
+
+    /**
+     * @param nDisks number of disks. 16 >= nDisks >= 4.
+     * @param i      index of the position, 0 &le; i &lt; size(nDisks)
+     * @return the i'th start position with nDisks disks
+     */
+    public static @NotNull Board get(int nDisks, int i) {
+        return decode(catalog(nDisks)[i]);
+    }
+
+    /**
+     * Get all start positions with a given number of disks, in random order
+     *
+     * @param nDisks number of disks. 16 >= nDisks >= 4.
+     * @param random source of randomness for the order
+     * @return list of all start positions
+     */
+    public static @NotNull List<Board> shuffled(int nDisks, @NotNull Random random) {
+        return sample(nDisks, size(nDisks), random);
+    }
+
+    /**
+     * Choose distinct start positions at random.
+     * <p/>
+     * Only the chosen positions are converted to Boards, so small samples are cheap once the catalog exists.
+     *
+     * @param nDisks     number of disks. 16 >= nDisks >= 4.
+     * @param nPositions number of positions to choose. If this is more than the size of the catalog, all positions are chosen.
+     * @param random     source of randomness
+     * @return list of start positions, in random order
+     */
+    public static @NotNull List<Board> sample(int nDisks, int nPositions, @NotNull Random random) {
+        final int[] codes = catalog(nDisks).clone();
+        final int n = Math.min(nPositions, codes.length);
+        final List<Board> boards = new ArrayList<>(n);
+        // partial Fisher-Yates shuffle
+        for (int i = 0; i < n; i++) {
+            final int j = i + random.nextInt(codes.length - i);
+            final int code = codes[j];
+            codes[j] = codes[i];
+            boards.add(decode(code));
+        }
+        return boards;
+    }
+
+    private static synchronized int[] catalog(int nDisks) {
+        Require.geq(nDisks, "nDisks", 4);
+        Require.leq(nDisks, "nDisks", N_CENTER_SQUARES);
+        if (catalogs[nDisks] == null) {
+            catalogs[nDisks] = generate(nDisks);
+        }
+        return catalogs[nDisks];
+    }
+
+    /**
+     * Generate the catalog for a given number of disks.
+     * <p/>
+     * There is one task for each of the 16 colorings of the center 4 squares. The results are concatenated in
+     * task order, so the catalog doesn't depend on thread scheduling.
+     */
+    private static int[] generate(final int nDisks) {
+        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            final List<Future<int[]>> futures = new ArrayList<>();
+            for (int center = 0; center < 16; center++) {
+                final int centerColors = center;
+                futures.add(executor.submit(new Callable<int[]>() {
+                    @Override public int[] call() {
+                        return generate(nDisks, centerColors);
+                    }
+                }));
+            }
+            final List<int[]> parts = new ArrayList<>();
+            int size = 0;
+            for (Future<int[]> future : futures) {
+                final int[] part = future.get();
+                parts.add(part);
+                size += part.length;
+            }
+            final int[] catalog = new int[size];
+            int start = 0;
+            for (int[] part : parts) {
+                System.arraycopy(part, 0, catalog, start, part.length);
+                start += part.length;
+            }
+            return catalog;
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Generate the start positions that have a given coloring of the center 4 squares
+     *
+     * @param nDisks       total number of disks
+     * @param centerColors bit i is set if center square i is white, clear if it is black
+     * @return codes of the start positions
+     */
+    private static int[] generate(int nDisks, int centerColors) {
+        final int nRingDisks = nDisks - 4;
+        int centerCode = 0;
+        for (int i = 0; i < 4; i++) {
+            centerCode |= (((centerColors >> i) & 1) + 1) << (2 * i);
+        }
+
+        int[] codes = new int[1024];
+        int n = 0;
+        // ring squares are squares 4..15 of the center 16
+        for (int occupied = 0; occupied < 1 << 12; occupied++) {
+            if (Integer.bitCount(occupied) != nRingDisks) {
+                continue;
+            }
+            for (int colors = 0; colors < 1 << nRingDisks; colors++) {
+                int code = centerCode;
+                int colorBit = 0;
+                for (int i = 0; i < 12; i++) {
+                    if ((occupied & (1 << i)) != 0) {
+                        code |= (((colors >> colorBit) & 1) + 1) << (2 * (i + 4));
+                        colorBit++;
+                    }
+                }
+                final Board board = decode(code);
+                final long mover = board.mover();
+                final long enemy = board.enemy();
+                final MinimalReflection mr = new MinimalReflection(mover, enemy);
+                if (mr.mover == mover && mr.enemy == enemy && board.hasLegalMove()) {
+                    if (n == codes.length) {
+                        codes = Arrays.copyOf(codes, 2 * n);
+                    }
+                    codes[n++] = code;
+                }
+            }
+        }
+        return Arrays.copyOf(codes, n);
+    }
+
+    private static Board decode(int code) {
+        long black = 0;
+        long white = 0;
+        for (int i = 0; i < N_CENTER_SQUARES; i++) {
+            final int color = (code >> (2 * i)) & 3;
+            if (color == 1) {
+                black |= 1L << squares[i];
+            } else if (color == 2) {
+                white |= 1L << squares[i];
+            }
+        }
+        final boolean blackToMove = (Long.bitCount(black | white) & 1) == 0;
+        return new Board(black, white, blackToMove);
+    }
+
+    private static int[] centerSquares() {
+        final int[] squares = new int[N_CENTER_SQUARES];
+        int n = 0;
+        for (int row = 3; row < 5; row++) {
+            for (int col = 3; col < 5; col++) {
+                squares[n++] = BitBoardUtils.square(row, col);
+            }
+        }
+        for (int row = 2; row < 6; row++) {
+            for (int col = 2; col < 6; col++) {
+                if (row < 3 || row > 4 || col < 3 || col > 4) {
+                    squares[n++] = BitBoardUtils.square(row, col);
+                }
+            }
+        }
+        return squares;
+    }
+}
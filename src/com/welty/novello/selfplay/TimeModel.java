@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.selfplay;
+
+import com.orbanova.common.misc.Utils;
+import com.welty.novello.solver.MidgameSearcher;
+import com.welty.othello.gdk.OsClock;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Model of how long searches take, used for time management.
+ * <p/>
+ * This class uses the built-in regressions from {@link SearchDepths} and never changes.
+ * {@link AdaptiveTimeModel} corrects the regressions using search times measured on the current machine.
+ */
+public class TimeModel {
+    public static final TimeModel BUILT_IN = new TimeModel();
+
+    /**
+     * Estimate the (log of the) time to do a midgame search or probable solve.
+     *
+     * @param nEmpty number of empties at which a search of this depth would be a probable solve
+     * @param width  search MPC width
+     * @return natural log of expected time, in seconds.
+     */
+    double lnTime(int nEmpty, int width) {
+        return SearchDepths.calcLnTime(nEmpty, width);
+    }
+
+    /**
+     * Estimate the (log of the) full-width solve time.
+     *
+     * @param nEmpty number of empties
+     * @return natural log of expected time, in seconds.
+     */
+    double lnSolveTime(int nEmpty) {
+        return SearchDepths.calcLnSolveTime(nEmpty);
+    }
+
+    /**
+     * Estimate the (log of the) time to search a round of iterative deepening.
+     *
+     * @param searchDepth round to search
+     * @param nEmpty      number of empties in the root position
+     * @return natural log of expected time, in seconds.
+     */
+    double lnRoundTime(@NotNull SearchDepth searchDepth, int nEmpty) {
+        if (searchDepth.isFullSolve()) {
+            return lnSolveTime(nEmpty);
+        } else {
+            return lnTime(equivalentEmpties(searchDepth), searchDepth.width);
+        }
+    }
+
+    /**
+     * @return number of empties at which a search of this depth would be a probable solve
+     */
+    static int equivalentEmpties(@NotNull SearchDepth searchDepth) {
+        return searchDepth.depth + MidgameSearcher.SOLVER_START_DEPTH - 1;
+    }
+
+    /**
+     * Predict the time a round of iterative deepening will take on this machine.
+     * <p/>
+     * The built-in model was measured on a different machine, so it can't predict absolute times; this returns NaN.
+     *
+     * @param searchDepth round to search
+     * @param nEmpty      number of empties in the root position
+     * @return expected time, in seconds, or NaN if the model can't predict it.
+     */
+    public double roundSeconds(@NotNull SearchDepth searchDepth, int nEmpty) {
+        return Double.NaN;
+    }
+
+    /**
+     * Estimate the time to solve a position from the given number of empties, for budgeting the game clock.
+     *
+     * @param nEmpty number of empties
+     * @return expected time, in seconds.
+     */
+    double solveSeconds(int nEmpty) {
+        return 120 * Math.pow(nEmpty > 26 ? 5 : 4, nEmpty - 26);
+    }
+
+    /**
+     * Calculate the time to spend on this move.
+     * <p/>
+     * The engine aims to have enough time left to solve the game, and divides the rest of the clock between
+     * the midgame moves until then.
+     *
+     * @param clock  time remaining
+     * @param nEmpty number of empties in the position
+     * @return target time, in seconds.
+     */
+    public double targetTime(@NotNull OsClock clock, int nEmpty) {
+        final int baseNEmpty = Utils.isOdd(nEmpty) ? 1 : 2;
+        double tTarget = 0;
+
+        for (int solveAt = baseNEmpty; solveAt <= nEmpty; solveAt += 2) {
+            final double tSolve = solveSeconds(solveAt);
+            if (tSolve > clock.tCurrent) {
+                break;
+            }
+            final int nMidgameMoves = 1 + (nEmpty - solveAt) / 2;
+            final double tMidgame = (clock.tCurrent - tSolve) / nMidgameMoves;
+            if (tMidgame > tTarget) {
+                tTarget = tMidgame;
+            }
+            if (tMidgame < tSolve) {
+                break;
+            }
+        }
+        return Math.min(tTarget, clock.tCurrent / 4);
+    }
+}
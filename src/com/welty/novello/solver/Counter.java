@@ -17,6 +17,7 @@ package com.welty.novello.solver;
 
 import com.welty.novello.core.BitBoardUtils;
 import com.welty.novello.core.Counts;
+import com.welty.novello.core.NovelloUtils;
 import com.welty.novello.core.Square;
 import com.welty.novello.eval.CoefficientEval;
 import com.welty.novello.eval.Eval;
@@ -39,13 +40,32 @@ import java.util.Random;
  * This does not implement the Eval interface for two reasons:
  * 1. Evals are assumed to be thread-safe, and this isn't.
  * 2. To avoid vtbl lookups for speed.
+ * <p/>
+ * Evals are cached in a small direct-mapped table keyed by position. The same position is often evaluated
+ * several times in a row, for instance by the MPC cutters and then again at the leaf, or by the move sorter.
  */
 public class Counter {
     private final @NotNull Eval eval;
     private long nEvals;
     private long nFlips;
+    private long nEvalCacheHits;
     final @NotNull Mpc mpcs;
 
+    /**
+     * Number of entries in the eval cache. Must be a power of 2.
+     */
+    static final int EVAL_CACHE_SIZE = 1 << 12;
+
+    /**
+     * Eval cache. Entry i holds the value of the position (cacheMovers[i], cacheEnemies[i]).
+     * <p/>
+     * Empty entries have mover = enemy = 0, which is never a real position.
+     * The arrays are null if the eval is not cacheable.
+     */
+    private final long[] cacheMovers;
+    private final long[] cacheEnemies;
+    private final int[] cacheValues;
+
     /**
      * Compile with capture = true to enable position capturing
      * <p/>
@@ -106,6 +126,15 @@ public class Counter {
         } else {
             mpcs = Mpc.DEFAULT;
         }
+        if (eval.isCacheable()) {
+            cacheMovers = new long[EVAL_CACHE_SIZE];
+            cacheEnemies = new long[EVAL_CACHE_SIZE];
+            cacheValues = new int[EVAL_CACHE_SIZE];
+        } else {
+            cacheMovers = null;
+            cacheEnemies = null;
+            cacheValues = null;
+        }
     }
 
     public long nFlips() {
@@ -118,6 +147,55 @@ public class Counter {
     }
 
     public int eval(long mover, long enemy) {
+        if (cacheMovers == null) {
+            countEval(mover, enemy);
+            return eval.eval(mover, enemy);
+        }
+        final int i = cacheIndex(mover, enemy);
+        if (cacheMovers[i] == mover && cacheEnemies[i] == enemy) {
+            nEvalCacheHits++;
+            return cacheValues[i];
+        }
+        countEval(mover, enemy);
+        return store(i, mover, enemy, eval.eval(mover, enemy));
+    }
+
+    /**
+     * Evaluate a position whose mover mobility is already known.
+     * <p/>
+     * This saves the Eval from recalculating the mobility.
+     *
+     * @param moverMoves legal moves for mover; must equal BitBoardUtils.calcMoves(mover, enemy).
+     */
+    public int eval(long mover, long enemy, long moverMoves) {
+        if (cacheMovers == null) {
+            countEval(mover, enemy);
+            return eval.eval(mover, enemy, moverMoves);
+        }
+        final int i = cacheIndex(mover, enemy);
+        if (cacheMovers[i] == mover && cacheEnemies[i] == enemy) {
+            nEvalCacheHits++;
+            return cacheValues[i];
+        }
+        countEval(mover, enemy);
+        return store(i, mover, enemy, eval.eval(mover, enemy, moverMoves));
+    }
+
+    private static int cacheIndex(long mover, long enemy) {
+        return (EVAL_CACHE_SIZE - 1) & (int) NovelloUtils.hash(mover, enemy);
+    }
+
+    private int store(int i, long mover, long enemy, int value) {
+        cacheMovers[i] = mover;
+        cacheEnemies[i] = enemy;
+        cacheValues[i] = value;
+        return value;
+    }
+
+    /**
+     * Count an eval that is calculated by the Eval, capturing the position if capture is enabled.
+     */
+    private void countEval(long mover, long enemy) {
         nEvals++;
         if (capture && nEvals == nextCapture) {
             final int nEmpty = BitBoardUtils.nEmpty(mover, enemy);
@@ -132,14 +210,23 @@ public class Counter {
             }
             nextCapture += nextCaptureDelta();
         }
-        return eval.eval(mover, enemy);
     }
 
+    /**
+     * @return number of evals calculated by the Eval. Evals answered from the eval cache are not included.
+     */
     public long nEvals() {
         return nEvals;
     }
 
+    /**
+     * @return number of evals answered from the eval cache
+     */
+    public long nEvalCacheHits() {
+        return nEvalCacheHits;
+    }
+
     public @NotNull Counts getNodeStats() {
-        return new Counts(nFlips, nEvals);
+        return new Counts(nFlips, nEvals, nEvalCacheHits);
     }
 }
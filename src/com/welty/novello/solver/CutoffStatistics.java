@@ -18,6 +18,9 @@ package com.welty.novello.solver;
 import com.welty.novello.eval.CoefficientCalculator;
 
 /**
+ * Statistics on cutoffs, kept by a Solver.
+ * <p/>
+ * Not thread-safe; like the other search statistics, it is confined to the thread searching with its Solver.
  */
 public class CutoffStatistics {
     private final Statistic[] aboveBeta = createStatistics(100);
@@ -20,6 +20,8 @@ import com.welty.novello.core.*;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 
 /**
@@ -27,7 +29,29 @@ import java.util.List;
 public class EndgameAnalyzer {
     private static final Solver solver = new Solver();
 
+    /**
+     * Analyze games from stdin (in GGF format), or from a GameStore if its path is given as the first argument.
+     */
     public static void main(String[] args) throws IOException {
+        if (args.length > 0) {
+            final Path path = Paths.get(args[0]);
+            System.out.println("analyzes mistakes in games from " + path + "\n");
+            final GameStore games = GameStore.open(path);
+            final GgfGameRecord game = new GgfGameRecord();
+            int[] squares = new int[0];
+            for (int i = 0; i < games.size(); i++) {
+                games.read(i, game);
+                if (squares.length < game.nMoves()) {
+                    squares = new int[game.nMoves()];
+                }
+                for (int j = 0; j < game.nMoves(); j++) {
+                    squares[j] = game.getSq(j);
+                }
+                System.out.println("Game " + i + ": " + game.getBlackName() + " vs " + game.getWhiteName());
+                analyzeGame(game.getStartBoard(), squares, game.nMoves());
+            }
+            return;
+        }
         System.out.println("analyzes mistakes in a GGF game");
         System.out.println("enter games (in GGF format) in stdin\n");
         String line;
@@ -39,29 +63,42 @@ public class EndgameAnalyzer {
     }
 
     private static void analyzeGame(MutableGame game) {
+        final List<Move8x8> moves = game.getMlis();
+        final int[] squares = new int[moves.size()];
+        for (int i = 0; i < squares.length; i++) {
+            squares[i] = moves.get(i).getSq();
+        }
+        analyzeGame(game.getStartBoard(), squares, squares.length);
+    }
+
+    /**
+     * @param squares square of each move, or -1 for a pass
+     * @param nMoves  number of moves in the game
+     */
+    private static void analyzeGame(Board startBoard, int[] squares, int nMoves) {
         final int[] dropped = new int[2];
 
-        final List<Move8x8> moves = game.getMlis();
-        Board board = game.getStartBoard();
-        for (Move8x8 move : moves) {
+        Board board = startBoard;
+        for (int i = 0; i < nMoves; i++) {
+            final int sq = squares[i];
             final int nEmpty = board.nEmpty();
             if (nEmpty <= 22 && board.calcMoves() != 0) {
                 final MoveScore best = solver.getMoveScore(board.mover(), board.enemy());
-                Board next = board.play(move.getSq());
+                Board next = board.play(sq);
                 final int score = -solver.solve(next.mover(), next.enemy());
 
                 if (best.centidisks != score) {
                     final int drop = best.centidisks - score;
                     if (drop != 0) {
                         final String playerName = board.blackToMove ? "Black" : "White";
-                        final String played = BitBoardUtils.sqToText(move.getSq()) + "/" + score;
+                        final String played = BitBoardUtils.sqToText(sq) + "/" + score;
                         System.out.format("%2d: %s dropped %2d, played %s should have played %s\n", nEmpty
                                 , playerName, drop, played, best);
                         dropped[board.blackToMove ? 0 : 1] += drop;
                     }
                 }
             }
-            board = board.playOrPass(move.getSq());
+            board = board.playOrPass(sq);
         }
 
         System.out.println();
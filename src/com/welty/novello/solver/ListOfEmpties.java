@@ -16,107 +16,84 @@
 package com.welty.novello.solver;
 
 import com.welty.novello.core.Square;
-import org.jetbrains.annotations.NotNull;
 
 /**
+ * List of empty squares, in a static search order.
+ * <p/>
+ * The squares are held in a fixed array so that the list can be reused for each search without allocating.
+ * Create one for each searcher; this is not thread-safe.
+ * <p/>
+ * Squares are removed and restored in LIFO order as the search descends and returns. Removing a square shifts
+ * the squares after it down one index rather than swapping in the last square, so subtrees see the squares in the
+ * same {@link FixedMoveOrdering} order as their parents. The removed square is parked just past the end of the list,
+ * where {@link #restore(int)} finds it.
  */
-class ListOfEmpties {
-
+final class ListOfEmpties {
     /**
-     * Fake node at the beginning and end of the list.
+     * Squares in the list are squares[0..size-1].
      */
-    final Node end;
-
-    ListOfEmpties() {
-        end = new Node(null);
-        end.next = end;
-        end.prev = end;
-    }
+    final Square[] squares = new Square[64];
 
     /**
-     * Add an element to the end of the list
+     * Number of squares currently in the list.
      */
-    void add(@NotNull Square square) {
-        final Node node = new Node(square);
-        node.insertBefore(end);
-    }
+    int size;
 
     /**
-     * @return first node in the list
+     * Refill the list with the empty squares of a position, in {@link FixedMoveOrdering} order
+     *
+     * @param mover mover disks
+     * @param enemy enemy disks
      */
-    public Node first() {
-        return end.next;
+    void reset(long mover, long enemy) {
+        size = 0;
+        final long empties = ~(mover | enemy);
+        for (long mask : FixedMoveOrdering.masks) {
+            long squaresInMask = empties & mask;
+            while (squaresInMask != 0) {
+                final int sq = Long.numberOfTrailingZeros(squaresInMask);
+                squaresInMask &= squaresInMask - 1;
+                squares[size++] = Square.of(sq);
+            }
+        }
     }
 
     long calcParity() {
         long parity = 0;
-        for (Node node = first(); node != end; node = node.next) {
-            parity ^= node.square.parityRegion;
+        for (int i = 0; i < size; i++) {
+            parity ^= squares[i].parityRegion;
         }
         return parity;
     }
 
-    static class Node {
-        /**
-         * The data. This is only null for the "fake node" at the beginning and end of lists.
-         */
-        final Square square;
-
-        /**
-         * Previous Node in the List, or null if this is the first Node in the List
-         */
-        @NotNull Node prev;
-
-        /**
-         * Next Node in the List, or null if this is the last Node in the List
-         */
-        @NotNull Node next;
-
-        private Node(Square square) {
-            this.square = square;
-        }
-
-        /**
-         * Inset a node before next
-         *
-         * @param next node that will go after the inserted node.
-         */
-        private void insertBefore(Node next) {
-            final Node prev = next.prev;
-            insert(prev, next);
-        }
-
-        /**
-         * Insert a node between prev and next.
-         * <p/>
-         * Precondition: prev.next = next, next.prev = prev.
-         *
-         * @param prev node that will go before the inserted node.
-         * @param next node that will go after the inserted node.
-         */
-        private void insert(Node prev, Node next) {
-            this.prev = prev;
-            this.next = next;
-            restore();
-        }
-
-        /**
-         * Remove a Node
-         * <p/>
-         * This routine does not change node.prev and node.next, so the caller can use these to continue traversing this List.
-         *
-         */
-        void remove() {
-            next.prev = prev;
-            prev.next = next;
+    /**
+     * Remove the square at index i.
+     * <p/>
+     * Squares after i move down one index; squares before i are unaffected, so the caller can continue
+     * iterating from i+1 after the square is restored.
+     *
+     * @param i index of the square to remove
+     */
+    void remove(int i) {
+        final Square square = squares[i];
+        final int last = --size;
+        for (int j = i; j < last; j++) {
+            squares[j] = squares[j + 1];
         }
+        squares[last] = square;
+    }
 
-        /**
-         * Restore a node to its previous position in the list
-         */
-        void restore() {
-            prev.next = this;
-            next.prev = this;
+    /**
+     * Restore the most recently removed square to its previous index.
+     *
+     * @param i index the square had before it was removed
+     */
+    void restore(int i) {
+        final Square square = squares[size];
+        for (int j = size; j > i; j--) {
+            squares[j] = squares[j - 1];
         }
+        squares[i] = square;
+        size++;
     }
 }
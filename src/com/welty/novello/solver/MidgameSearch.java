@@ -22,6 +22,8 @@ import com.welty.novello.core.Square;
 import com.welty.novello.eval.CoefficientCalculator;
 import com.welty.novello.eval.Mpc;
 import com.welty.novello.hash.MidgameHashTables;
+import com.welty.novello.metrics.MpcStatistics;
+import com.welty.novello.metrics.SearchTrace;
 import com.welty.novello.external.api.AbortCheck;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -37,6 +39,13 @@ public class MidgameSearch {
 
     private final MidgameHashTables midgameHashTables;
 
+    /**
+     * Empty squares list used when the search hands off to the shallow solver.
+     */
+    private final ListOfEmpties empties;
+
+    private final MpcStatistics mpcStatistics;
+
     private final @NotNull MidgameSearcher.Options options;
     private final @NotNull Counter counter;
 
@@ -67,9 +76,11 @@ public class MidgameSearch {
      */
     private final int minBookCheckEmpties;
 
-    MidgameSearch(int nEmpty, MidgameHashTables midgameHashTables, @NotNull MidgameSearcher.Options options,
+    MidgameSearch(int nEmpty, MidgameHashTables midgameHashTables, ListOfEmpties empties, MpcStatistics mpcStatistics, @NotNull MidgameSearcher.Options options,
                   @NotNull Counter counter, ForkJoinPool pool, int rootDepth, int width, @Nullable Book book, AbortCheck abortCheck) {
         this.midgameHashTables = midgameHashTables;
+        this.empties = empties;
+        this.mpcStatistics = mpcStatistics;
         this.options = options;
         this.counter = counter;
         this.pool = pool;
@@ -106,6 +117,9 @@ public class MidgameSearch {
         // see if it cuts off
         BA ba = midgameHashTables.checkForHashCutoff(mover, enemy, depth, alpha, beta, width);
         if (ba != null) {
+            if (SearchTrace.ENABLED) {
+                SearchTrace.hashCut(depth, BitBoardUtils.nEmpty(mover, enemy), ba.score);
+            }
             return ba;
         }
 
@@ -282,7 +296,11 @@ public class MidgameSearch {
         if (options.printSearch) {
             System.out.format("%s[%d] (%+5d,%+5d) scoring(%s):\n", indent(depth), depth, alpha, beta, BitBoardUtils.sqToText(sq));
         }
+        final long t0 = SearchTrace.ENABLED ? System.nanoTime() : 0;
         final int subScore = -searchScore(subMover, subEnemy, -beta, -alpha, depth - 1);
+        if (SearchTrace.ENABLED && depth == rootDepth) {
+            SearchTrace.rootMove(depth, sq, subScore, t0);
+        }
         if (options.printSearch) {
             System.out.format("%s[%d] (%+5d,%+5d) score(%s)=%+5d\n", indent(depth), depth, alpha, beta, BitBoardUtils.sqToText(sq), subScore);
         }
@@ -301,7 +319,25 @@ public class MidgameSearch {
      * @throws SearchAbortedException if the search was aborted
      */
     int searchScore(long mover, long enemy, int alpha, int beta, int depth) throws SearchAbortedException {
+        return searchScore(mover, enemy, BitBoardUtils.calcMoves(mover, enemy), alpha, beta, depth);
+    }
+
+    /**
+     * Score a position whose mover mobility is already known, using tree search.
+     * <p/>
+     * The caller does not need to ensure the mover has a move; if he does not, this routine will handle passing
+     * or terminal valuation as necessary.
+     *
+     * @param moverMoves legal moves for mover; must equal BitBoardUtils.calcMoves(mover, enemy).
+     * @param depth      remaining search depth. If depth &le; 0 this will return the eval.
+     * @return score
+     * @throws SearchAbortedException if the search was aborted
+     */
+    int searchScore(long mover, long enemy, long moverMoves, int alpha, int beta, int depth) throws SearchAbortedException {
         if (depth >= 8 && abortCheck.shouldAbort()) {
+            if (SearchTrace.ENABLED) {
+                SearchTrace.abort(depth, BitBoardUtils.nEmpty(mover, enemy));
+            }
             throw new SearchAbortedException();
         }
         if (book!=null && BitBoardUtils.nEmpty(mover, enemy) >= minBookCheckEmpties) {
@@ -312,7 +348,6 @@ public class MidgameSearch {
                 return data.getScore() * CoefficientCalculator.DISK_VALUE;
             }
         }
-        final long moverMoves = BitBoardUtils.calcMoves(mover, enemy);
         if (moverMoves != 0) {
             final int score = treeScore(mover, enemy, moverMoves, alpha, beta, depth);
             return score;
@@ -351,15 +386,14 @@ public class MidgameSearch {
      */
     int treeScore(long mover, long enemy, long moverMoves, int alpha, int beta, int depth) throws SearchAbortedException {
         if (depth <= 0) {
-            // todo pass moverMoves into counter.eval to save calculation
-            return counter.eval(mover, enemy);
+            return counter.eval(mover, enemy, moverMoves);
         }
 
         final int nEmpty = BitBoardUtils.nEmpty(mover, enemy);
         if (options.variableEndgame && nEmpty <= MidgameSearcher.SOLVER_START_DEPTH) {
             final int solverAlpha = solverAlpha(alpha);
             final int solverBeta = solverBeta(beta);
-            return ShallowSolver.solveNoParity(counter, mover, enemy, solverAlpha, solverBeta, nEmpty, moverMoves) * DISK_VALUE;
+            return ShallowSolver.solveNoParity(counter, empties, mover, enemy, solverAlpha, solverBeta, nEmpty, moverMoves) * DISK_VALUE;
         }
 
         if (options.mpc && depth >= 2) {
@@ -381,6 +415,9 @@ public class MidgameSearch {
         // see if it cuts off
         BA ba = midgameHashTables.checkForHashCutoff(mover, enemy, depth, alpha, beta, width);
         if (ba != null) {
+            if (SearchTrace.ENABLED) {
+                SearchTrace.hashCut(depth, BitBoardUtils.nEmpty(mover, enemy), ba.score);
+            }
             return ba;
         }
 
@@ -394,29 +431,49 @@ public class MidgameSearch {
             final int shallowAlpha = cutter.shallowAlpha(alpha, width) + margin;
             final int shallowBeta = cutter.shallowBeta(beta, width) - margin;
             final int shallowDepth = cutter.shallowDepth;
+            mpcStatistics.updateTry(depth);
             if (shallowDepth <= 0) {
-                final int mpcScore = counter.eval(mover, enemy);
+                final int mpcScore = counter.eval(mover, enemy, moverMoves);
                 if (mpcScore >= shallowBeta) {
+                    mpcStatistics.updateHighCut(depth);
+                    if (SearchTrace.ENABLED) {
+                        SearchTrace.mpc(depth, shallowDepth, +1);
+                    }
                     ba.score = beta;
                     return ba;
                 }
                 if (mpcScore <= shallowAlpha) {
+                    mpcStatistics.updateLowCut(depth);
+                    if (SearchTrace.ENABLED) {
+                        SearchTrace.mpc(depth, shallowDepth, -1);
+                    }
                     ba.score = alpha;
                     return ba;
                 }
             } else {
                 BA mpcBa = mpcMove(mover, enemy, moverMoves, shallowAlpha, shallowBeta, shallowDepth);
                 if (mpcBa.score >= shallowBeta) {
+                    mpcStatistics.updateHighCut(depth);
+                    if (SearchTrace.ENABLED) {
+                        SearchTrace.mpc(depth, shallowDepth, +1);
+                    }
                     ba.score = beta;
                     ba.bestMove = mpcBa.bestMove;
                     return ba;
                 }
                 if (mpcBa.score <= shallowAlpha) {
+                    mpcStatistics.updateLowCut(depth);
+                    if (SearchTrace.ENABLED) {
+                        SearchTrace.mpc(depth, shallowDepth, -1);
+                    }
                     ba.score = alpha;
                     return ba;
                 }
                 ba.bestMove = mpcBa.bestMove;
             }
+            if (SearchTrace.ENABLED) {
+                SearchTrace.mpc(depth, shallowDepth, 0);
+            }
         }
 
         final int suggestedMove = getSuggestedMove(mover, enemy, moverMoves, alpha, beta, depth);
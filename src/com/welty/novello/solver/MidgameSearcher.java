@@ -34,7 +34,14 @@ import java.util.concurrent.ForkJoinPool;
 public class MidgameSearcher {
     public static final int SOLVER_START_DEPTH = 6;
 
-    private final MidgameHashTables midgameHashTables = new MidgameHashTables();
+    private final SearchMetrics metrics = new SearchMetrics();
+
+    private final MidgameHashTables midgameHashTables = new MidgameHashTables(metrics.midgameHash);
+
+    /**
+     * Empty squares list for the shallow solver, reused by each search to avoid allocation.
+     */
+    private final ListOfEmpties empties = new ListOfEmpties();
 
     private final @NotNull Options options;
     private final @NotNull Counter counter;
@@ -92,6 +99,20 @@ public class MidgameSearcher {
         return counter.getNodeStats();
     }
 
+    /**
+     * @return statistics for this searcher and any Solver using it.
+     */
+    @NotNull public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return fraction of midgame hash table entries that contain a position
+     */
+    public double getHashOccupancy() {
+        return midgameHashTables.occupancy();
+    }
+
 
     /**
      * Calc the moveScore using an iterative search using successive depths.
@@ -178,15 +199,20 @@ public class MidgameSearcher {
             throw new IllegalArgumentException("must have a legal move");
         }
 
-        MidgameSearch search = createSearch(board.nEmpty(), depth, width, abortCheck);
-        final BA ba = search.hashMove(board.mover(), board.enemy(), moverMoves, NovelloUtils.NO_MOVE, -NovelloUtils.NO_MOVE, depth);
-        String pv = midgameHashTables.extractPv(board, ba.score, ba.bestMove);
-        return new MoveScore(ba.bestMove, ba.score, pv.isEmpty() ? null : pv);
+        assert metrics.startSearch() : "MidgameSearcher used by two threads at once";
+        try {
+            MidgameSearch search = createSearch(board.nEmpty(), depth, width, abortCheck);
+            final BA ba = search.hashMove(board.mover(), board.enemy(), moverMoves, NovelloUtils.NO_MOVE, -NovelloUtils.NO_MOVE, depth);
+            String pv = midgameHashTables.extractPv(board, ba.score, ba.bestMove);
+            return new MoveScore(ba.bestMove, ba.score, pv.isEmpty() ? null : pv);
+        } finally {
+            assert metrics.endSearch();
+        }
     }
 
     MidgameSearch createSearch(int nEmpty, int depth, int width, AbortCheck abortCheck) {
         ForkJoinPool pool = new ForkJoinPool();
-        return new MidgameSearch(nEmpty, midgameHashTables, options, counter, pool, depth, width, book, abortCheck);
+        return new MidgameSearch(nEmpty, midgameHashTables, empties, metrics.mpc, options, counter, pool, depth, width, book, abortCheck);
     }
 
     /**
@@ -217,9 +243,14 @@ public class MidgameSearcher {
      * @throws SearchAbortedException if the search was aborted
      */
     private int calcScore(long mover, long enemy, int alpha, int beta, int depth, int width, AbortCheck abortCheck) throws SearchAbortedException {
-        MidgameSearch search = createSearch(BitBoardUtils.nEmpty(mover, enemy), depth, width, abortCheck);
+        assert metrics.startSearch() : "MidgameSearcher used by two threads at once";
+        try {
+            MidgameSearch search = createSearch(BitBoardUtils.nEmpty(mover, enemy), depth, width, abortCheck);
 
-        return search.searchScore(mover, enemy, alpha, beta, depth);
+            return search.searchScore(mover, enemy, alpha, beta, depth);
+        } finally {
+            assert metrics.endSearch();
+        }
     }
 
     /**
@@ -259,6 +290,33 @@ public class MidgameSearcher {
         }
     }
 
+    /**
+     * Return a score estimate based on a midgame search of a position whose mover mobility is already known.
+     * <p/>
+     * The mover does not need to have a legal move - if he doesn't this method will pass or return a terminal value as
+     * necessary.
+     * <p/>
+     * This is a full-width search that never aborts.
+     *
+     * @param mover      mover disks
+     * @param enemy      enemy disks
+     * @param moverMoves legal moves for mover; must equal BitBoardUtils.calcMoves(mover, enemy).
+     * @param depth      search depth. If &le; 0, returns the eval.
+     * @return score of the move.
+     */
+    public int calcScore(long mover, long enemy, long moverMoves, int depth, int width) {
+        assert metrics.startSearch() : "MidgameSearcher used by two threads at once";
+        final MidgameSearch search = createSearch(BitBoardUtils.nEmpty(mover, enemy), depth, width, AbortCheck.NEVER);
+        try {
+            return search.searchScore(mover, enemy, moverMoves, NovelloUtils.NO_MOVE, -NovelloUtils.NO_MOVE, depth);
+        } catch (SearchAbortedException e) {
+            // this can never happen because we used AbortCheck.NEVER
+            throw new IllegalStateException("Shouldn't be here.");
+        } finally {
+            assert metrics.endSearch();
+        }
+    }
+
     public void clear() {
         midgameHashTables.clear(63);
     }
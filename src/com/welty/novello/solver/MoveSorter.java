@@ -231,8 +231,8 @@ final class MoveSorter {
             , HashTables hashTables, int alpha, int beta, int searchDepth, int fastestFirstWeight) throws SearchAbortedException {
         size = 0;
 
-        for (ListOfEmpties.Node node = empties.first(); node != empties.end; node = node.next) {
-            final Square square = node.square;
+        for (int i = 0; i < empties.size; i++) {
+            final Square square = empties.squares[i];
             final int sq = square.sq;
             if (isBitClear(movesToCheck, sq)) {
                 continue;
@@ -246,7 +246,7 @@ final class MoveSorter {
                 final long enemyMoves = calcMoves(nextMover, nextEnemy);
                 int score = scoreWithEtcAndEval(hashTables, alpha, beta, nextEnemy, nextMover, enemyMoves, searchDepth, fastestFirstWeight);
 
-                insert(sq, score, flips, enemyMoves, node);
+                insert(sq, score, flips, enemyMoves, i);
             }
         }
     }
@@ -257,7 +257,7 @@ final class MoveSorter {
         final int nMobs = Long.bitCount(nextMoverMoves);
 
         final int evalScore;
-        evalScore = sortMidgameSearcher.calcScore(nextMover, nextEnemy, searchDepth, 0);
+        evalScore = sortMidgameSearcher.calcScore(nextMover, nextEnemy, nextMoverMoves, searchDepth, 0);
 //        final long dFlips = sortSearch.nFlips();
 
         int margin = -evalScore - (beta + BETA_MARGIN) * DISK_VALUE;
@@ -293,8 +293,8 @@ final class MoveSorter {
             , HashTables hashTables, int alpha, int beta) {
         size = 0;
 
-        for (ListOfEmpties.Node node = empties.first(); node != empties.end; node = node.next) {
-            final Square square = node.square;
+        for (int i = 0; i < empties.size; i++) {
+            final Square square = empties.squares[i];
             final int sq = square.sq;
             if (isBitClear(movesToCheck, sq)) {
                 continue;
@@ -308,7 +308,7 @@ final class MoveSorter {
                 final long nextMoverMoves = calcMoves(nextMover, nextEnemy);
                 int score = scoreWithEtc(parity, hashTables, alpha, beta, sq, nextEnemy, nextMover, nextMoverMoves);
 
-                insert(sq, score, flips, nextMoverMoves, node);
+                insert(sq, score, flips, nextMoverMoves, i);
             }
         }
     }
@@ -352,8 +352,8 @@ final class MoveSorter {
     private void createWithoutEtc(ListOfEmpties empties, long mover, long enemy, long parity, long movesToCheck) {
         size = 0;
 
-        for (ListOfEmpties.Node node = empties.first(); node != empties.end; node = node.next) {
-            final Square square = node.square;
+        for (int i = 0; i < empties.size; i++) {
+            final Square square = empties.squares[i];
             if (isBitClear(movesToCheck, square.sq)) {
                 continue;
             }
@@ -365,7 +365,7 @@ final class MoveSorter {
                 final long nextMover = enemy & ~flips;
                 final long enemyMoves = calcMoves(nextMover, nextEnemy);
                 int score = scoreWithoutEtc(parity, square, nextEnemy, nextMover, enemyMoves);
-                insert(square.sq, score, flips, enemyMoves, node);
+                insert(square.sq, score, flips, enemyMoves, i);
             }
         }
     }
@@ -377,14 +377,14 @@ final class MoveSorter {
     /**
      * Insert the move into this MoveSorter, keeping the moves sorted.
      */
-    void insert(int sq, int score, long flips, long enemyMoves, ListOfEmpties.Node node) {
+    void insert(int sq, int score, long flips, long enemyMoves, int iEmpty) {
         final SorterMove sorterMove = sorterMoves[size++];
 
         sorterMove.sq = sq;
         sorterMove.score = score;
         sorterMove.flips = flips;
         sorterMove.enemyMoves = enemyMoves;
-        sorterMove.node = node;
+        sorterMove.iEmpty = iEmpty;
 
         int i = size - 1;
         while (i > 0 && sorterMoves[i - 1].score < sorterMove.score) {
@@ -17,12 +17,17 @@ package com.welty.novello.solver;
 
 import com.orbanova.common.gui.ProgressUpdater;
 import com.orbanova.common.misc.Logger;
+import com.welty.novello.coca.MvStore;
 import com.welty.novello.core.DefaultThreadLocal;
+import com.welty.novello.core.Factory;
 import com.welty.novello.core.MeValue;
 import com.welty.novello.eval.CoefficientEval;
+import com.welty.novello.eval.Eval;
+import com.welty.novello.eval.EvalBatch;
 import com.welty.novello.eval.EvalStrategies;
 import com.welty.novello.eval.MvGenerator;
 import com.welty.novello.selfplay.Players;
+import org.jetbrains.annotations.NotNull;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -37,6 +42,7 @@ import java.util.concurrent.TimeUnit;
 
 public class MpcGenerator {
     private static final Logger log = Logger.logger(MpcGenerator.class);
+    private static final int EVAL_BATCH_SIZE = 256;
 
     public static void main(String[] args) throws IOException, InterruptedException {
         if (args.length < 3) {
@@ -52,12 +58,18 @@ public class MpcGenerator {
         final Path outputPath = eval.getCoeffDir().resolve("mpc.txt");
 
         final List<MeValue> pvs = getPvs(limit);
+        final int[] evals = evalAll(eval, pvs);
+        final DefaultThreadLocal<MidgameSearcher> searchers = new DefaultThreadLocal<>(new Factory<MidgameSearcher>() {
+            @NotNull @Override public MidgameSearcher construct() {
+                return new MidgameSearcher(new Counter(eval));
+            }
+        });
         final ExecutorService executorService = Executors.newFixedThreadPool(4);
 
         try (ProgressUpdater pu = new ProgressUpdater("Generating MPC", pvs.size())) {
             try (BufferedWriter out = Files.newBufferedWriter(outputPath, Charset.defaultCharset())) {
-                for (MeValue pv : pvs) {
-                    executorService.submit(new MpcPrinter(out, pv, maxDepth, pu));
+                for (int i = 0; i < pvs.size(); i++) {
+                    executorService.submit(new MpcPrinter(out, searchers, pvs.get(i), evals[i], maxDepth, pu));
                 }
                 executorService.shutdown();
                 executorService.awaitTermination(Integer.MAX_VALUE, TimeUnit.DAYS);
@@ -68,26 +80,60 @@ public class MpcGenerator {
         log.info("MPC generation complete");
     }
 
+    /**
+     * Evaluate all positions with a depth-0 search.
+     * <p/>
+     * A depth-0 search returns the static eval, so the depth-0 column is computed here with
+     * {@link Eval#evalBatch(EvalBatch)} rather than by the search threads.
+     *
+     * @return evals[i] = value of pvs[i]
+     */
+    static int[] evalAll(Eval eval, List<MeValue> pvs) {
+        final int[] evals = new int[pvs.size()];
+        final EvalBatch batch = new EvalBatch(EVAL_BATCH_SIZE);
+        for (int start = 0; start < pvs.size(); start += batch.capacity()) {
+            batch.clear();
+            final int n = Math.min(batch.capacity(), pvs.size() - start);
+            for (int i = 0; i < n; i++) {
+                final MeValue pv = pvs.get(start + i);
+                batch.add(pv.mover, pv.enemy);
+            }
+            eval.evalBatch(batch);
+            for (int i = 0; i < n; i++) {
+                evals[start + i] = batch.value(i);
+            }
+        }
+        return evals;
+    }
+
     private static class MpcPrinter implements Runnable {
-        private static final DefaultThreadLocal<MidgameSearcher> searches = new DefaultThreadLocal<>(MidgameSearcher.class);
         private final BufferedWriter out;
+        private final DefaultThreadLocal<MidgameSearcher> searchers;
         private final MeValue pv;
+        private final int eval;
         private final int maxDepth;
         private final ProgressUpdater progressUpdater;
 
-        MpcPrinter(BufferedWriter out, MeValue pv, int maxDepth, ProgressUpdater progressUpdater) {
+        /**
+         * @param eval depth-0 score of the position
+         */
+        MpcPrinter(BufferedWriter out, DefaultThreadLocal<MidgameSearcher> searchers, MeValue pv, int eval
+                , int maxDepth, ProgressUpdater progressUpdater) {
             this.out = out;
+            this.searchers = searchers;
             this.pv = pv;
+            this.eval = eval;
             this.maxDepth = maxDepth;
             this.progressUpdater = progressUpdater;
         }
 
         @Override public void run() {
-            MidgameSearcher midgameSearcher = searches.getOrCreate();
+            MidgameSearcher midgameSearcher = searchers.getOrCreate();
 
             final StringBuilder sb = new StringBuilder();
             sb.append(String.format("%2d ", pv.nEmpty()));
-            for (int depth = 0; depth <= maxDepth; depth++) {
+            sb.append(String.format("%+5d ", eval));
+            for (int depth = 1; depth <= maxDepth; depth++) {
                 final int score = midgameSearcher.calcScore(pv.mover, pv.enemy, depth, 0);
                 sb.append(String.format("%+5d ", score));
             }
@@ -107,23 +153,24 @@ public class MpcGenerator {
 
     /**
      * Select positions for MPC calculations
+     * <p/>
+     * Positions come from the MvGenerator's store, which is sorted by nEmpty. Within each nEmpty slice, every
+     * 100th position is selected, starting with the first, until limit positions have been selected. The result
+     * is sorted by nEmpty, and within a slice the positions are in store order: source by source, in the order
+     * of {@link MvGenerator#getStore()}.
      *
      * @param limit maximum number of positions per empty
      * @return positionValues, with 1/100 selected, up to a maximum of limit per empty
      * @throws IOException
      */
     private static List<MeValue> getPvs(int limit) throws IOException {
-        final List<MeValue> pvs = new MvGenerator(EvalStrategies.strategy("e")).getMvs();
+        final MvStore pvs = new MvGenerator(EvalStrategies.strategy("e")).getStore();
         final ArrayList<MeValue> result = new ArrayList<>();
         final int[] counts = new int[64];
-        for (int i = 0; i < pvs.size(); i++) {
-            if (i % 100 == 0) {
-                final MeValue pv = pvs.get(i);
-                final int nEmpty = pv.nEmpty();
-                if (counts[nEmpty] < limit) {
-                    result.add(pv);
-                    counts[nEmpty]++;
-                }
+        for (int nEmpty = 0; nEmpty < 64; nEmpty++) {
+            for (int i = pvs.start(nEmpty); i < pvs.end(nEmpty) && counts[nEmpty] < limit; i += 100) {
+                result.add(pvs.get(i));
+                counts[nEmpty]++;
             }
         }
         log.info(result.size() + " of " + pvs.size() + " positions selected.");
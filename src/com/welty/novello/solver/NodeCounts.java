@@ -18,6 +18,12 @@ package com.welty.novello.solver;
 import com.orbanova.common.misc.Vec;
 
 /**
+ * Solver node statistics.
+ * <p/>
+ * The counts are plain longs rather than striped counters, which cost several times as much per node in
+ * single-threaded search. They are therefore not thread-safe: an instance must only be updated by the thread that
+ * is currently searching with the Solver that owns it, which the searchers assert (see {@link SearchMetrics}).
+ * The getters copy the counts, so other threads may read them for metrics; such reads may be slightly out of date.
  */
 class NodeCounts {
     private final long[] nNodes = new long[64];
@@ -31,6 +37,24 @@ class NodeCounts {
         return Vec.sum(nNodes);
     }
 
+    /**
+     * @return number of nodes, indexed by number of empties
+     */
+    long[] getNodesByEmpties() {
+        return nNodes.clone();
+    }
+
+    /**
+     * @return number of beta cutoffs, indexed by number of empties
+     */
+    long[] getCutsByEmpties() {
+        final long[] cuts = new long[64];
+        for (int i = 0; i < cuts.length; i++) {
+            cuts[i] = Vec.sum(nNodesByCutIndex[i]);
+        }
+        return cuts;
+    }
+
     String getNodeCountsByDepth() {
         final double N = getNNodes() * .01;
         StringBuilder sb = new StringBuilder();
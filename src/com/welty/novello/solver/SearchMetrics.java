@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.solver;
+
+import com.welty.novello.core.Counts;
+import com.welty.novello.metrics.HashStatistics;
+import com.welty.novello.metrics.MetricsSnapshot;
+import com.welty.novello.metrics.MpcStatistics;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Search statistics for a MidgameSearcher and any Solver that uses it.
+ * <p/>
+ * The statistics are plain counters, updated without synchronization. They are only correct if searches that
+ * update them run on one thread at a time, so each MidgameSearcher, and any Solver using it, must be confined to
+ * one thread while it searches. Multi-threaded callers give each thread its own searcher, for instance through
+ * a {@link com.welty.novello.core.DefaultThreadLocal}. The searchers check this with assertions; see
+ * {@link #startSearch()}.
+ * <p/>
+ * snapshot() may be called from other threads; the counts it returns may be slightly out of date.
+ * Flip and eval counts are kept per thread by each {@link Counter}; callers pass them in when taking a snapshot.
+ */
+public class SearchMetrics {
+    final HashStatistics endgameHash = new HashStatistics();
+    final HashStatistics midgameHash = new HashStatistics();
+    final NodeCounts endgameNodes = new NodeCounts();
+    final StableStatistics stable = new StableStatistics();
+    final MpcStatistics mpc = new MpcStatistics();
+
+    /**
+     * Thread that is searching with these statistics, or null if no search is in progress. Only used by assertions.
+     */
+    private final AtomicReference<Thread> searchThread = new AtomicReference<>();
+    private int nNestedSearches;
+
+    /**
+     * @param counts flip and eval counts for the search
+     * @param millis elapsed time of the search
+     * @return current statistics
+     */
+    public @NotNull MetricsSnapshot snapshot(@NotNull Counts counts, long millis) {
+        return new MetricsSnapshot(counts, millis, endgameHash.getCounts(), midgameHash.getCounts()
+                , endgameNodes.getNodesByEmpties(), endgameNodes.getCutsByEmpties(), mpc.getTries(), mpc.getCuts());
+    }
+
+    /**
+     * Record that the current thread is starting a search that updates these statistics.
+     * <p/>
+     * Searches may nest on one thread, as when a Solver calls its MidgameSearcher, but two threads may not search
+     * with the same statistics at the same time. Call this and {@link #endSearch()} in assert statements, so they
+     * cost nothing when assertions are disabled.
+     *
+     * @return true if no other thread is searching with these statistics
+     */
+    boolean startSearch() {
+        final Thread current = Thread.currentThread();
+        if (searchThread.get() != current && !searchThread.compareAndSet(null, current)) {
+            return false;
+        }
+        nNestedSearches++;
+        return true;
+    }
+
+    /**
+     * Record that the current thread has finished a search started with {@link #startSearch()}.
+     *
+     * @return true
+     */
+    boolean endSearch() {
+        if (--nNestedSearches == 0) {
+            searchThread.set(null);
+        }
+        return true;
+    }
+}
@@ -28,41 +28,41 @@ public class ShallowSolver {
      */
     static final int MIN_PARITY_DEPTH = 5;
 
-    static ListOfEmpties createEmptiesList(long mover, long enemy) {
-        long empties = ~(mover | enemy);
-        final ListOfEmpties emptySquares = new ListOfEmpties();
-        for (long mask : FixedMoveOrdering.masks) {
-            populateUnsorted(emptySquares, empties & mask);
-        }
-        return emptySquares;
-    }
-
-    private static void populateUnsorted(ListOfEmpties emptySquares, long empties) {
-        while (empties != 0) {
-            final int sq = Long.numberOfTrailingZeros(empties);
-            final Square square = Square.of(sq);
-            empties ^= square.placement();
-            emptySquares.add(square);
-        }
-    }
-
     /**
      * Solve a position.
      *
+     * @param empties list that will be filled with the position's empty squares. This is reused between
+     *                calls so that solving doesn't allocate.
      * @return position value to mover, in disks
      */
-    public static int solveNoParity(Counter counter, long mover, long enemy, int alpha, int beta, int nEmpties, long movesToCheck) {
-        final ListOfEmpties emptiesList = createEmptiesList(mover, enemy);
+    public static int solveNoParity(Counter counter, ListOfEmpties empties, long mover, long enemy, int alpha, int beta, int nEmpties, long movesToCheck) {
+        empties.reset(mover, enemy);
         if (nEmpties < MIN_PARITY_DEPTH) {
-            return solveNoParity(counter, mover, enemy, alpha, beta, emptiesList, nEmpties);
+            return solveNoParity(counter, mover, enemy, alpha, beta, empties, nEmpties);
         } else {
-            return solveNoSort(counter, mover, enemy, alpha, beta, emptiesList, nEmpties, emptiesList.calcParity(), movesToCheck);
+            return solveNoSort(counter, mover, enemy, alpha, beta, empties, nEmpties, empties.calcParity(), movesToCheck);
         }
     }
 
+    /**
+     * Solve a position with few empties.
+     * <p/>
+     * Positions with 4 or fewer empties are dispatched to routines that keep the empty squares in local variables.
+     * Despite the name, the 4- and 3-empty routines order moves by parity region since that is nearly free there.
+     */
     static int solveNoParity(Counter counter, long mover, long enemy, int alpha, int beta, ListOfEmpties empties, int nEmpties) {
-        if (nEmpties == 3) {
-            return solve3(counter, mover, enemy, alpha, beta, empties);
+        final Square[] squares = empties.squares;
+        switch (nEmpties) {
+            case 0:
+                return BitBoardUtils.terminalScore(mover, enemy);
+            case 1:
+                return solve1(counter, mover, enemy, squares[0]);
+            case 2:
+                return solve2(counter, mover, enemy, alpha, beta, squares[0], squares[1]);
+            case 3:
+                return solve3(counter, mover, enemy, alpha, beta, squares[0], squares[1], squares[2]);
+            case 4:
+                return solve4(counter, mover, enemy, alpha, beta, squares[0], squares[1], squares[2], squares[3]);
         }
         final int result = moverResultNoParity(counter, empties, mover, enemy, alpha, beta, nEmpties);
         if (result == NO_MOVE) {
@@ -84,15 +84,15 @@ public class ShallowSolver {
      */
     private static int moverResultNoParity(Counter counter, ListOfEmpties empties, long mover, long enemy, int alpha, int beta, int nEmpties) {
         int result = NO_MOVE;
-        for (ListOfEmpties.Node node = empties.first(); node != empties.end; node = node.next) {
-            final Square square = node.square;
+        for (int i = 0; i < empties.size; i++) {
+            final Square square = empties.squares[i];
             final long flips = counter.calcFlips(square, mover, enemy);
             if (flips != 0) {
                 final long subMover = enemy & ~flips;
                 final long subEnemy = mover | flips | square.placement();
-                node.remove();
+                empties.remove(i);
                 final int subResult = -solveNoParity(counter, subMover, subEnemy, -beta, -alpha, empties, nEmpties - 1);
-                node.restore();
+                empties.restore(i);
                 if (subResult > result) {
                     result = subResult;
                     if (subResult > alpha) {
@@ -107,10 +107,52 @@ public class ShallowSolver {
         return result;
     }
 
-    private static int solve3(Counter counter, long mover, long enemy, int alpha, int beta, ListOfEmpties empties) {
-        final int result = moverResult3(counter, empties, mover, enemy, alpha, beta);
+    /**
+     * Solve when there are 4 empty squares.
+     * <p/>
+     * Moves into odd parity regions are checked first. Exactly 0, 2, or 4 of the squares are in odd regions;
+     * if 2 are, they are moved to the front. Otherwise the order is unchanged.
+     */
+    static int solve4(Counter counter, long mover, long enemy, int alpha, int beta, Square s1, Square s2, Square s3, Square s4) {
+        final long parity = s1.parityRegion ^ s2.parityRegion ^ s3.parityRegion ^ s4.parityRegion;
+        if (isOdd(parity, s1)) {
+            if (!isOdd(parity, s2)) {
+                // s1 and one of s3, s4 are odd
+                final Square even = s2;
+                if (isOdd(parity, s3)) {
+                    s2 = s3;
+                    s3 = even;
+                } else {
+                    s2 = s4;
+                    s4 = s3;
+                    s3 = even;
+                }
+            }
+        } else if (isOdd(parity, s2)) {
+            // s2 and one of s3, s4 are odd
+            final Square even = s1;
+            s1 = s2;
+            if (isOdd(parity, s3)) {
+                s2 = s3;
+                s3 = even;
+            } else {
+                s2 = s4;
+                s4 = s3;
+                s3 = even;
+            }
+        } else if (isOdd(parity, s3)) {
+            // s3 and s4 are odd
+            final Square even1 = s1;
+            final Square even2 = s2;
+            s1 = s3;
+            s2 = s4;
+            s3 = even1;
+            s4 = even2;
+        }
+
+        final int result = moverResult4(counter, mover, enemy, alpha, beta, s1, s2, s3, s4);
         if (result == NO_MOVE) {
-            final int enemyResult = moverResult3(counter, empties, enemy, mover, -beta, -alpha);
+            final int enemyResult = moverResult4(counter, enemy, mover, -beta, -alpha, s1, s2, s3, s4);
             if (enemyResult == NO_MOVE) {
                 return BitBoardUtils.terminalScore(mover, enemy);
             } else {
@@ -121,33 +163,145 @@ public class ShallowSolver {
         }
     }
 
+    private static boolean isOdd(long parity, Square square) {
+        return (parity & square.placement()) != 0;
+    }
+
     /**
      * alpha, beta, result from mover's point of view.
      *
      * @return solve value according to fail-soft alpha/beta, unless there are no legal moves in which case it returns NO_MOVE.
      */
-    private static int moverResult3(Counter counter, ListOfEmpties empties, long mover, long enemy, int alpha, int beta) {
+    private static int moverResult4(Counter counter, long mover, long enemy, int alpha, int beta, Square s1, Square s2, Square s3, Square s4) {
         int result = NO_MOVE;
-        for (ListOfEmpties.Node node = empties.first(); node != empties.end; node = node.next) {
-            final Square square = node.square;
-            final long flips = counter.calcFlips(square, mover, enemy);
-            if (flips != 0) {
-                final long subMover = enemy & ~flips;
-                final long subEnemy = mover | flips | square.placement();
-                node.remove();
-                final int subResult = -solve2(counter, subMover, subEnemy, -beta, -alpha, empties.first().square, empties.first().next.square);
-                node.restore();
-                if (subResult > result) {
-                    result = subResult;
-                    if (subResult > alpha) {
-                        if (subResult >= beta) {
-                            return result;
-                        }
-                        alpha = subResult;
+
+        final long flips1 = counter.calcFlips(s1, mover, enemy);
+        if (flips1 != 0) {
+            final int subResult = -solve3(counter, enemy & ~flips1, mover | flips1 | s1.placement(), -beta, -alpha, s2, s3, s4);
+            if (subResult > result) {
+                result = subResult;
+                if (subResult > alpha) {
+                    if (subResult >= beta) {
+                        return result;
+                    }
+                    alpha = subResult;
+                }
+            }
+        }
+
+        final long flips2 = counter.calcFlips(s2, mover, enemy);
+        if (flips2 != 0) {
+            final int subResult = -solve3(counter, enemy & ~flips2, mover | flips2 | s2.placement(), -beta, -alpha, s1, s3, s4);
+            if (subResult > result) {
+                result = subResult;
+                if (subResult > alpha) {
+                    if (subResult >= beta) {
+                        return result;
+                    }
+                    alpha = subResult;
+                }
+            }
+        }
+
+        final long flips3 = counter.calcFlips(s3, mover, enemy);
+        if (flips3 != 0) {
+            final int subResult = -solve3(counter, enemy & ~flips3, mover | flips3 | s3.placement(), -beta, -alpha, s1, s2, s4);
+            if (subResult > result) {
+                result = subResult;
+                if (subResult > alpha) {
+                    if (subResult >= beta) {
+                        return result;
+                    }
+                    alpha = subResult;
+                }
+            }
+        }
+
+        final long flips4 = counter.calcFlips(s4, mover, enemy);
+        if (flips4 != 0) {
+            final int subResult = -solve3(counter, enemy & ~flips4, mover | flips4 | s4.placement(), -beta, -alpha, s1, s2, s3);
+            if (subResult > result) {
+                result = subResult;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Solve when there are 3 empty squares.
+     * <p/>
+     * If two of the squares share a parity region, the third square is alone in an odd region and is checked first.
+     */
+    static int solve3(Counter counter, long mover, long enemy, int alpha, int beta, Square s1, Square s2, Square s3) {
+        if (s1.parityRegion == s2.parityRegion) {
+            final Square odd = s3;
+            s3 = s2;
+            s2 = s1;
+            s1 = odd;
+        } else if (s1.parityRegion == s3.parityRegion) {
+            final Square odd = s2;
+            s2 = s1;
+            s1 = odd;
+        }
+
+        final int result = moverResult3(counter, mover, enemy, alpha, beta, s1, s2, s3);
+        if (result == NO_MOVE) {
+            final int enemyResult = moverResult3(counter, enemy, mover, -beta, -alpha, s1, s2, s3);
+            if (enemyResult == NO_MOVE) {
+                return BitBoardUtils.terminalScore(mover, enemy);
+            } else {
+                return -enemyResult;
+            }
+        } else {
+            return result;
+        }
+    }
+
+    /**
+     * alpha, beta, result from mover's point of view.
+     *
+     * @return solve value according to fail-soft alpha/beta, unless there are no legal moves in which case it returns NO_MOVE.
+     */
+    private static int moverResult3(Counter counter, long mover, long enemy, int alpha, int beta, Square s1, Square s2, Square s3) {
+        int result = NO_MOVE;
+
+        final long flips1 = counter.calcFlips(s1, mover, enemy);
+        if (flips1 != 0) {
+            final int subResult = -solve2(counter, enemy & ~flips1, mover | flips1 | s1.placement(), -beta, -alpha, s2, s3);
+            if (subResult > result) {
+                result = subResult;
+                if (subResult > alpha) {
+                    if (subResult >= beta) {
+                        return result;
                     }
+                    alpha = subResult;
                 }
             }
         }
+
+        final long flips2 = counter.calcFlips(s2, mover, enemy);
+        if (flips2 != 0) {
+            final int subResult = -solve2(counter, enemy & ~flips2, mover | flips2 | s2.placement(), -beta, -alpha, s1, s3);
+            if (subResult > result) {
+                result = subResult;
+                if (subResult > alpha) {
+                    if (subResult >= beta) {
+                        return result;
+                    }
+                    alpha = subResult;
+                }
+            }
+        }
+
+        final long flips3 = counter.calcFlips(s3, mover, enemy);
+        if (flips3 != 0) {
+            final int subResult = -solve2(counter, enemy & ~flips3, mover | flips3 | s3.placement(), -beta, -alpha, s1, s2);
+            if (subResult > result) {
+                result = subResult;
+            }
+        }
+
         return result;
     }
 
@@ -259,9 +413,9 @@ public class ShallowSolver {
 
         // sort by parity only
         for (int desiredParity = 1; desiredParity >= 0; desiredParity--) {
-            for (ListOfEmpties.Node node = empties.first(); node != empties.end; node = node.next) {
+            for (int i = 0; i < empties.size; i++) {
                 // parity nodes first
-                final Square square = node.square;
+                final Square square = empties.squares[i];
                 if (BitBoardUtils.isBitClear(movesToCheck, square.sq)) {
                     continue;
                 }
@@ -270,10 +424,10 @@ public class ShallowSolver {
                     if (flips != 0) {
                         final long subMover = enemy & ~flips;
                         final long subEnemy = mover | flips | square.placement();
-                        node.remove();
+                        empties.remove(i);
                         final int subResult = -solveNoSort(counter, subMover, subEnemy, -beta, -alpha, empties, nEmpties - 1
                                 , parity ^ square.parityRegion, -1L);
-                        node.restore();
+                        empties.restore(i);
                         if (subResult > result) {
                             result = subResult;
                             if (subResult > alpha) {
@@ -71,9 +71,9 @@ public class Solver {
     /**
      * List of empty squares, in a static search order.
      * <p/>
-     * Squares are removed/replaced during the course of the search.
+     * Squares are removed/replaced during the course of the search. The list is refilled at the start of each search.
      */
-    private ListOfEmpties empties;
+    private final ListOfEmpties empties = new ListOfEmpties();
 
     /**
      * Abort check, to see whether the search should be aborted.
@@ -89,14 +89,15 @@ public class Solver {
     /**
      * Statistics on nodes, cutoffs, etc.
      */
-    private final NodeCounts nodeCounts = new NodeCounts();
+    private final SearchMetrics metrics;
+    private final NodeCounts nodeCounts;
     private final CutoffStatistics cutoffStatistics = new CutoffStatistics();
-    private final StableStatistics stableStatistics = new StableStatistics();
+    private final StableStatistics stableStatistics;
 
     /**
      * Transposition table.
      */
-    final HashTables hashTables = new HashTables();
+    final HashTables hashTables;
     private StatsListener statsListener;
     private int minBookCheckEmpties;
 
@@ -125,6 +126,10 @@ public class Solver {
         this.counter = counter;
         this.midgameSearcher = midgameSearcher;
         this.book = book;
+        metrics = midgameSearcher.getMetrics();
+        nodeCounts = metrics.endgameNodes;
+        stableStatistics = metrics.stable;
+        hashTables = new HashTables(metrics.endgameHash);
         treeSearchResults = new TreeSearchResult[64];
         for (int i = 0; i < treeSearchResults.length; i++) {
             treeSearchResults[i] = new TreeSearchResult();
@@ -152,12 +157,17 @@ public class Solver {
      * @return value of the game to the mover, in disks
      */
     public int solve(long mover, long enemy, @NotNull AbortCheck abortCheck, @NotNull StatsListener statsListener) throws SearchAbortedException {
-        this.statsListener = statsListener;
-        this.empties = ShallowSolver.createEmptiesList(mover, enemy);
-        this.abortCheck = abortCheck;
-        setMinBookCheckEmpties(mover, enemy);
-
-        return solve(mover, enemy, -64, 64);
+        assert metrics.startSearch() : "Solver used by two threads at once";
+        try {
+            this.statsListener = statsListener;
+            empties.reset(mover, enemy);
+            this.abortCheck = abortCheck;
+            setMinBookCheckEmpties(mover, enemy);
+
+            return solve(mover, enemy, -64, 64);
+        } finally {
+            assert metrics.endSearch();
+        }
     }
 
     public MoveScore calcSubMoveScore(int sq, Board pos, int alpha, int beta, AbortCheck abortCheck, StatsListener statsListener) throws SearchAbortedException {
@@ -225,19 +235,24 @@ public class Solver {
         if (BitBoardUtils.calcMoves(mover, enemy) == 0) {
             throw new IllegalArgumentException("mover must have a legal move");
         }
-        this.empties = ShallowSolver.createEmptiesList(mover, enemy);
-        this.abortCheck = abortCheck;
-        this.statsListener = statsListener;
-        setMinBookCheckEmpties(mover, enemy);
-
-        final int nEmpties = bitCount(~(mover | enemy));
-        final TreeSearchResult result = treeSearchResults[nEmpties];
-
-        final long parity = empties.calcParity();
-        moverResultWithSorting(result, mover, enemy, alpha, beta, nEmpties, parity, PRED_PV, -1);
-        final MoveSorter moveSorter = moveSorters.get(nEmpties);
-        final int sq = moveSorter.sq(result.iBestMove);
-        return new MoveScore(sq, result.score * CoefficientCalculator.DISK_VALUE);
+        assert metrics.startSearch() : "Solver used by two threads at once";
+        try {
+            empties.reset(mover, enemy);
+            this.abortCheck = abortCheck;
+            this.statsListener = statsListener;
+            setMinBookCheckEmpties(mover, enemy);
+
+            final int nEmpties = bitCount(~(mover | enemy));
+            final TreeSearchResult result = treeSearchResults[nEmpties];
+
+            final long parity = empties.calcParity();
+            moverResultWithSorting(result, mover, enemy, alpha, beta, nEmpties, parity, PRED_PV, -1);
+            final MoveSorter moveSorter = moveSorters.get(nEmpties);
+            final int sq = moveSorter.sq(result.iBestMove);
+            return new MoveScore(sq, result.score * CoefficientCalculator.DISK_VALUE);
+        } finally {
+            assert metrics.endSearch();
+        }
     }
 
     /**
@@ -264,11 +279,10 @@ public class Solver {
             return BitBoardUtils.terminalScore(mover, enemy);
         }
         if (nEmpty == 1) {
-            return ShallowSolver.solve1(counter, mover, enemy, empties.first().square);
+            return ShallowSolver.solve1(counter, mover, enemy, empties.squares[0]);
         }
         if (nEmpty == 2) {
-            final ListOfEmpties.Node first = empties.first();
-            return ShallowSolver.solve2(counter, mover, enemy, alpha, beta, first.square, first.next.square);
+            return ShallowSolver.solve2(counter, mover, enemy, alpha, beta, empties.squares[0], empties.squares[1]);
         }
         if (nEmpty < ShallowSolver.MIN_PARITY_DEPTH) {
             return ShallowSolver.solveNoParity(counter, mover, enemy, alpha, beta, empties, nEmpty);
@@ -386,6 +400,8 @@ public class Solver {
                         searchBeta = max;
                     }
                     hashTables.updateUselessFind();
+                } else {
+                    hashTables.updateMiss();
                 }
             }
         }
@@ -408,18 +424,18 @@ public class Solver {
                 final int scoreUpperBound = 64 - 2 * enemyStable;
                 final int moverStable = Long.bitCount(stable & mover);
                 final int scoreLowerBound = 2 * moverStable - 64;
-                stableStatistics.counts[Math.max(enemyStable, moverStable)]++;
+                stableStatistics.updateCount(Math.max(enemyStable, moverStable));
                 if (scoreUpperBound <= alpha) {
-                    stableStatistics.alphaCuts++;
+                    stableStatistics.updateAlphaCut();
                     return scoreUpperBound;
                 }
                 if (scoreLowerBound >= beta) {
-                    stableStatistics.betaCuts++;
+                    stableStatistics.updateBetaCut();
                     return scoreLowerBound;
                 }
-                stableStatistics.fails++;
+                stableStatistics.updateFail();
             } else {
-                stableStatistics.uncalculated++;
+                stableStatistics.updateUncalculated();
             }
         }
         final TreeSearchResult result = treeSearchResults[nEmpties];
@@ -451,9 +467,9 @@ public class Solver {
         for (int i = 0; i < n; i++) {
             final SorterMove sorterMove = sorter.sorterMoves[i];
             final long subMover = enemy & ~sorterMove.flips;
-            final Square square = sorterMove.node.square;
+            final Square square = Square.of(sorterMove.sq);
             final long subEnemy = mover | sorterMove.flips | square.placement();
-            sorterMove.node.remove();
+            empties.remove(sorterMove.iEmpty);
             int subResult;
             if (i > 0 && nEmpties >= MIN_NEGASCOUT_DEPTH) {
                 // use Negascout for nodes after the first. The thought is that nodes after the first will have values lower than
@@ -476,7 +492,7 @@ public class Solver {
                 subResult = -solveDeep(subMover, subEnemy, -beta, -alpha, nEmpties - 1
                         , parity ^ square.parityRegion, subNodeType, sorterMove.enemyMoves);
             }
-            sorterMove.node.restore();
+            empties.restore(sorterMove.iEmpty);
 //            // todo remove once statistics are collected
 //            if (nEmpties >= MIN_EVAL_SORT_DEPTH) {
 //                collectStatistics(subMover, subEnemy, -beta, -alpha, -subResult, subNodeType);
@@ -524,6 +540,20 @@ public class Solver {
         return counter.getNodeStats();
     }
 
+    /**
+     * @return statistics for this Solver and its MidgameSearcher
+     */
+    public @NotNull SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return fraction of endgame hash table entries that contain a position
+     */
+    public double getHashOccupancy() {
+        return hashTables.occupancy();
+    }
+
     public String getNodeCountsByDepth() {
         return nodeCounts.getNodeCountsByDepth();
     }
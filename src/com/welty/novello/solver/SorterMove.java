@@ -28,7 +28,10 @@ class SorterMove {
     int score;
     long flips;
     long enemyMoves;
-    ListOfEmpties.Node node;
+    /**
+     * Index of the move's square in the ListOfEmpties at the time the moves were sorted
+     */
+    int iEmpty;
 
     @Override public String toString() {
         return "Move" + BitBoardUtils.sqToText(sq) + ", enemy mobs = " + Long.bitCount(enemyMoves);
@@ -16,13 +16,45 @@
 package com.welty.novello.solver;
 
 /**
+ * Statistics on stability cutoffs at 6 empties.
+ * <p/>
+ * The counts are plain longs, not thread-safe; they are updated only by the thread currently searching with the
+ * Solver that owns them. See {@link SearchMetrics} for the thread-confinement rules.
  */
 public class StableStatistics {
-    final long[] counts = new long[65];
-    long alphaCuts;
-    long betaCuts;
-    long fails;
-    long uncalculated;
+    /**
+     * counts[n] is the number of positions where the larger stable disk count was n
+     */
+    private final long[] counts = new long[65];
+    private long alphaCuts;
+    private long betaCuts;
+    private long fails;
+    private long uncalculated;
+
+    /**
+     * Record a full stability calculation
+     *
+     * @param nStable larger of the mover's and enemy's stable disk counts
+     */
+    void updateCount(int nStable) {
+        counts[nStable]++;
+    }
+
+    void updateAlphaCut() {
+        alphaCuts++;
+    }
+
+    void updateBetaCut() {
+        betaCuts++;
+    }
+
+    void updateFail() {
+        fails++;
+    }
+
+    void updateUncalculated() {
+        uncalculated++;
+    }
 
     @Override public String toString() {
         final StringBuilder sb = new StringBuilder();
@@ -27,6 +27,7 @@ import com.welty.ntestj.table.*;
 import gnu.trove.list.array.TShortArrayList;
 
 import java.io.*;
+import java.util.IdentityHashMap;
 
 import static com.welty.novello.eval.DiagonalTerm.diagonalInstance;
 
@@ -39,9 +40,16 @@ import static com.welty.novello.eval.DiagonalTerm.diagonalInstance;
 
     private static CEvaluatorJ instance = null;
 
-    public static CEvaluatorJ getInstance() {
+    /**
+     * Get the evaluator, loading it from the coefficient snapshot if possible.
+     * <p/>
+     * The eval lookup tables are built in parallel before the coefficients are loaded; see {@link Tables}
+     * and {@link CoefficientSnapshot}.
+     */
+    public static synchronized CEvaluatorJ getInstance() {
         if (instance == null) {
-            instance = new CEvaluatorJ();
+            Tables.initialize();
+            instance = CoefficientSnapshot.load();
         }
         return instance;
     }
@@ -70,10 +78,30 @@ import static com.welty.novello.eval.DiagonalTerm.diagonalInstance;
      * <p>
      * For each slice, the feature indices are in the order given by mapsJ.
      */
-    public short[][][] getNovelloCoeffs() {
+    public synchronized short[][][] getNovelloCoeffs() {
+        if (novelloCoeffs == null) {
+            novelloCoeffs = calcNovelloCoeffs();
+        }
+        return novelloCoeffs.clone();
+    }
+
+    /**
+     * Novello coefficients, calculated when first needed.
+     * <p/>
+     * Slices are shared between empties in the same way that pCoeffs are shared.
+     */
+    private short[][][] novelloCoeffs;
+
+    private short[][][] calcNovelloCoeffs() {
         final short[][][] novelloCoeffs = new short[60][][];
+        final IdentityHashMap<int[], short[][]> converted = new IdentityHashMap<>();
         for (int nEmpty = 0; nEmpty < 60; nEmpty++) {
-            novelloCoeffs[nEmpty] = getSliceCoeffs(nEmpty);
+            short[][] sliceCoeffs = converted.get(pCoeffs[nEmpty]);
+            if (sliceCoeffs == null) {
+                sliceCoeffs = getSliceCoeffs(nEmpty);
+                converted.put(pCoeffs[nEmpty], sliceCoeffs);
+            }
+            novelloCoeffs[nEmpty] = sliceCoeffs;
         }
         return novelloCoeffs;
     }
@@ -220,6 +248,11 @@ import static com.welty.novello.eval.DiagonalTerm.diagonalInstance;
 
     public static final int nMapsJ = mapsJ.length;
 
+    /**
+     * Number of .cof files containing the coefficients
+     */
+    static final int N_COEFFICIENT_FILES = 10;
+
     /**
      * pCoeffs[nEmpty] is the coefficient array for the particular nEmpty with black to move
      */
@@ -258,7 +291,7 @@ import static com.welty.novello.eval.DiagonalTerm.diagonalInstance;
         // nSetWidth is the number of empties for which each file is used.
         final int nSetWidth = 6;
 
-        for (int iFile = 0; iFile < 10; iFile++) {
+        for (int iFile = 0; iFile < N_COEFFICIENT_FILES; iFile++) {
             CBinaryReader fp = openCoefficientFile(iFile);
 
             // Each coefficient file contains coefficients for both odd # of empties remaining (iParity=1)
@@ -290,6 +323,17 @@ import static com.welty.novello.eval.DiagonalTerm.diagonalInstance;
         }
     }
 
+    /**
+     * Create an evaluator from coefficients that have already been loaded and converted.
+     *
+     * @param pCoeffs       coefficients in the format of {@link #pCoeffs}
+     * @param novelloCoeffs coefficients in the format returned by {@link #getNovelloCoeffs()}
+     */
+    CEvaluatorJ(int[][] pCoeffs, short[][][] novelloCoeffs) {
+        System.arraycopy(pCoeffs, 0, this.pCoeffs, 0, this.pCoeffs.length);
+        this.novelloCoeffs = novelloCoeffs;
+    }
+
     /**
      * fold 2x4 corner coefficients into 2x5 corner coefficients
      * so we don't ever need to look up the 2x4 coefficients.
@@ -361,7 +405,7 @@ import static com.welty.novello.eval.DiagonalTerm.diagonalInstance;
      * @return CBinaryReader open to the beginning of the coefficient file
      */
     private CBinaryReader openCoefficientFile(int iFile) {
-        final String fn = "coefficients/JA" + (char) ('a' + iFile) + ".cof";
+        final String fn = coefficientFileName(iFile);
 
         // open file
         final InputStream stream = getClass().getResourceAsStream(fn);
@@ -384,6 +428,14 @@ import static com.welty.novello.eval.DiagonalTerm.diagonalInstance;
         return fp;
     }
 
+    /**
+     * @param iFile index of the specific coefficient file
+     * @return name of the coefficient file resource, relative to this class
+     */
+    static String coefficientFileName(int iFile) {
+        return "coefficients/JA" + (char) ('a' + iFile) + ".cof";
+    }
+
     /**
      * Stick the coefficient in the left 16 bytes and the potential mobilities in the bottom 16 bytes.
      *
@@ -652,7 +704,10 @@ import static com.welty.novello.eval.DiagonalTerm.diagonalInstance;
     }
 
     @Override public int eval(long mover, long enemy) {
-        final long moverMoves = BitBoardUtils.calcMoves(mover, enemy);
+        return eval(mover, enemy, BitBoardUtils.calcMoves(mover, enemy));
+    }
+
+    @Override public int eval(long mover, long enemy, long moverMoves) {
         final long enemyMoves = BitBoardUtils.calcMoves(enemy, mover);
         return ValueJMobs(mover, enemy, moverMoves, enemyMoves);
     }
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.ntestj;
+
+import com.orbanova.common.misc.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Binary snapshot of the ready-to-use {@link CEvaluatorJ} coefficients.
+ * <p/>
+ * Building a CEvaluatorJ from the .cof resources reads and converts each coefficient individually, which dominates
+ * engine startup time. The snapshot stores the final coefficient arrays, both the packed ntest arrays and the
+ * novello slices, so that they can be loaded with a single memory-mapped read.
+ * <p/>
+ * The snapshot is written the first time the coefficients are loaded, or ahead of time by running {@link #main}.
+ * It records the size and modification time of the .cof resources and is rebuilt if they change.
+ * <p/>
+ * The snapshot location is set by the system property novello.snapshot, defaulting to ~/.novello/ntestJ.snapshot.
+ * Set the property to "none" to always load from the .cof resources.
+ */
+public final class CoefficientSnapshot {
+    private static final Logger log = Logger.logger(CoefficientSnapshot.class);
+
+    private static final int MAGIC = 0x4E56434A; // "NVCJ"
+    private static final int VERSION = 1;
+    private static final int N_EMPTIES = 60;
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private CoefficientSnapshot() {
+    }
+
+    /**
+     * Write a snapshot in advance, for instance as part of a build.
+     *
+     * @param args optional snapshot file location; if not given the default location is used.
+     */
+    public static void main(String[] args) throws IOException {
+        final Path path = args.length > 0 ? Paths.get(args[0]) : defaultPath();
+        write(path, new CEvaluatorJ(), fingerprint());
+        System.out.println("Wrote coefficient snapshot to " + path);
+    }
+
+    /**
+     * Load the evaluator from the snapshot, creating or rebuilding the snapshot if needed.
+     * <p/>
+     * Problems with the snapshot are logged and the evaluator is built from the .cof resources instead.
+     *
+     * @return the evaluator
+     */
+    static @NotNull CEvaluatorJ load() {
+        final Path path = snapshotPath();
+        if (path == null) {
+            return new CEvaluatorJ();
+        }
+        final long fingerprint;
+        try {
+            fingerprint = fingerprint();
+        } catch (IOException e) {
+            log.warn("Can't read coefficient resources for snapshot: " + e);
+            return new CEvaluatorJ();
+        }
+        try {
+            final CEvaluatorJ evaluator = read(path, fingerprint);
+            if (evaluator != null) {
+                return evaluator;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable coefficient snapshot " + path + ": " + e);
+        }
+        final CEvaluatorJ evaluator = new CEvaluatorJ();
+        try {
+            write(path, evaluator, fingerprint);
+            log.info("Wrote coefficient snapshot " + path);
+        } catch (IOException e) {
+            log.warn("Can't write coefficient snapshot " + path + ": " + e);
+        }
+        return evaluator;
+    }
+
+    private static @Nullable Path snapshotPath() {
+        final String property = System.getProperty("novello.snapshot");
+        if (property == null) {
+            return defaultPath();
+        }
+        return property.equals("none") ? null : Paths.get(property);
+    }
+
+    private static Path defaultPath() {
+        return Paths.get(System.getProperty("user.home"), ".novello", "ntestJ.snapshot");
+    }
+
+    /**
+     * Calculate a fingerprint of the coefficient resources.
+     * <p/>
+     * This uses the size and modification time of each resource rather than its contents, so that checking the
+     * snapshot doesn't require reading the resources.
+     */
+    static long fingerprint() throws IOException {
+        long fingerprint = VERSION;
+        for (int iFile = 0; iFile < CEvaluatorJ.N_COEFFICIENT_FILES; iFile++) {
+            final String fn = CEvaluatorJ.coefficientFileName(iFile);
+            final URL url = CEvaluatorJ.class.getResource(fn);
+            if (url == null) {
+                throw new IOException("Input resource " + fn + " can't be found");
+            }
+            final URLConnection connection = url.openConnection();
+            try (InputStream ignored = connection.getInputStream()) {
+                fingerprint = fingerprint * 31 + connection.getContentLength();
+                fingerprint = fingerprint * 31 + connection.getLastModified();
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Read an evaluator from a snapshot
+     *
+     * @return the evaluator, or null if the snapshot does not exist or was written from different coefficients.
+     * @throws IOException              if the snapshot can't be read
+     * @throws IllegalArgumentException if the snapshot is corrupt
+     */
+    static @Nullable CEvaluatorJ read(Path path, long fingerprint) throws IOException {
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        buffer.order(ORDER);
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != fingerprint) {
+            return null;
+        }
+        final int nCoeffs = buffer.getInt();
+        final int nMaps = buffer.getInt();
+        final int nSets = buffer.getInt();
+        if (nCoeffs != CEvaluatorJ.nCoeffsJ || nMaps != CEvaluatorJ.nMapsJ) {
+            return null;
+        }
+        final int[] setOfEmpty = new int[N_EMPTIES];
+        for (int nEmpty = 0; nEmpty < N_EMPTIES; nEmpty++) {
+            setOfEmpty[nEmpty] = buffer.getInt();
+        }
+
+        final int[][] sets = new int[nSets][nCoeffs];
+        for (int[] set : sets) {
+            buffer.asIntBuffer().get(set);
+            buffer.position(buffer.position() + 4 * nCoeffs);
+        }
+
+        final short[][][] slices = new short[nSets][nMaps][];
+        for (short[][] slice : slices) {
+            for (int map = 0; map < nMaps; map++) {
+                final short[] coeffs = new short[buffer.getInt()];
+                buffer.asShortBuffer().get(coeffs);
+                buffer.position(buffer.position() + 2 * coeffs.length);
+                slice[map] = coeffs;
+            }
+        }
+
+        final int[][] pCoeffs = new int[N_EMPTIES][];
+        final short[][][] novelloCoeffs = new short[N_EMPTIES][][];
+        for (int nEmpty = 0; nEmpty < N_EMPTIES; nEmpty++) {
+            final int iSet = setOfEmpty[nEmpty];
+            if (iSet >= 0) {
+                pCoeffs[nEmpty] = sets[iSet];
+                novelloCoeffs[nEmpty] = slices[iSet];
+            }
+        }
+        return new CEvaluatorJ(pCoeffs, novelloCoeffs);
+    }
+
+    /**
+     * Write a snapshot of an evaluator.
+     * <p/>
+     * The snapshot is written to a temporary file and then moved into place, so engines starting at the same time
+     * never see a partially written snapshot.
+     */
+    static void write(Path path, CEvaluatorJ evaluator, long fingerprint) throws IOException {
+        // coefficient arrays are shared between several empties; store each one once.
+        final IdentityHashMap<int[], Integer> setIndices = new IdentityHashMap<>();
+        final List<int[]> sets = new ArrayList<>();
+        final List<short[][]> slices = new ArrayList<>();
+        final short[][][] novelloCoeffs = evaluator.getNovelloCoeffs();
+        final int[] setOfEmpty = new int[N_EMPTIES];
+        for (int nEmpty = 0; nEmpty < N_EMPTIES; nEmpty++) {
+            final int[] set = evaluator.pCoeffs[nEmpty];
+            if (set == null) {
+                setOfEmpty[nEmpty] = -1;
+                continue;
+            }
+            Integer iSet = setIndices.get(set);
+            if (iSet == null) {
+                iSet = sets.size();
+                setIndices.put(set, iSet);
+                sets.add(set);
+                slices.add(novelloCoeffs[nEmpty]);
+            }
+            setOfEmpty[nEmpty] = iSet;
+        }
+
+        long size = 4 * 6 + 8 + 4 * N_EMPTIES;
+        for (int[] set : sets) {
+            size += 4L * set.length;
+        }
+        for (short[][] slice : slices) {
+            for (short[] coeffs : slice) {
+                size += 4 + 2L * coeffs.length;
+            }
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ORDER);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(fingerprint);
+        buffer.putInt(CEvaluatorJ.nCoeffsJ).putInt(CEvaluatorJ.nMapsJ).putInt(sets.size());
+        for (int iSet : setOfEmpty) {
+            buffer.putInt(iSet);
+        }
+        for (int[] set : sets) {
+            buffer.asIntBuffer().put(set);
+            buffer.position(buffer.position() + 4 * set.length);
+        }
+        for (short[][] slice : slices) {
+            for (short[] coeffs : slice) {
+                buffer.putInt(coeffs.length);
+                buffer.asShortBuffer().put(coeffs);
+                buffer.position(buffer.position() + 2 * coeffs.length);
+            }
+        }
+        buffer.flip();
+
+        final Path dir = path.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        final Path temp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -28,10 +28,11 @@ import com.orbanova.common.misc.Require;
  * To change this template use File | Settings | File Templates.
  */
 public class ConfigToPotMobTable {
-    public static final int[][][] configToPotMob = new int[2][9][];
-    private static final int[][][] configToMob = new int[2][9][];
-    public static final int[][] configToPotMobTriangle = new int[2][];
-    private static final int[][] configToMobTriangle = new int[2][];
+    // mobilities are at most 8, so they are stored as bytes
+    public static final byte[][][] configToPotMob = new byte[2][9][];
+    private static final byte[][][] configToMob = new byte[2][9][];
+    public static final byte[][] configToPotMobTriangle = new byte[2][];
+    private static final byte[][] configToMobTriangle = new byte[2][];
 
     private static int PotMob(byte black, byte empty, int length) {
         char mask;
@@ -100,8 +101,8 @@ public class ConfigToPotMobTable {
         // fill configToPotMob[0] with black mobility and configToPotMob[1] with white mobility
         for (length = 3, nConfigs = 27; length <= Utils.N; length++, nConfigs *= 3) {
             for (color = 0; color < 2; color++) {
-                configToPotMob[color][length] = new int[nConfigs];
-                configToMob[color][length] = new int[nConfigs];
+                configToPotMob[color][length] = new byte[nConfigs];
+                configToMob[color][length] = new byte[nConfigs];
             }
             for (config = 0; config < nConfigs; config++) {
                 base2 = Base3ToBase2Table.base3ToBase2(config + 3280 - (nConfigs >> 1));
@@ -111,21 +112,21 @@ public class ConfigToPotMobTable {
                 Require.eq(empty & black, "empty&black", 0);
 
                 // pot mob
-                configToPotMob[0][length][config] = PotMob(black, empty, length);
-                configToPotMob[1][length][config] = PotMob(white, empty, length);
+                configToPotMob[0][length][config] = (byte) PotMob(black, empty, length);
+                configToPotMob[1][length][config] = (byte) PotMob(white, empty, length);
 
                 // mob
-                configToMob[0][length][config] = Mob(black, empty, length);
-                configToMob[1][length][config] = Mob(white, empty, length);
+                configToMob[0][length][config] = (byte) Mob(black, empty, length);
+                configToMob[1][length][config] = (byte) Mob(white, empty, length);
             }
         }
 
         // fill configToPotMobTriangle with potential mobilities for G-corner patterns
         nConfigs = new CMap(kCRID, 10).NConfigs();
-        configToPotMobTriangle[0] = new int[nConfigs];
-        configToPotMobTriangle[1] = new int[nConfigs];
-        configToMobTriangle[0] = new int[nConfigs];
-        configToMobTriangle[1] = new int[nConfigs];
+        configToPotMobTriangle[0] = new byte[nConfigs];
+        configToPotMobTriangle[1] = new byte[nConfigs];
+        configToMobTriangle[0] = new byte[nConfigs];
+        configToMobTriangle[1] = new byte[nConfigs];
         for (config = 0; config < nConfigs; config++) {
             subconfig = D4Subconfig(config);
             configToPotMobTriangle[0][config] = configToPotMob[0][4][subconfig];
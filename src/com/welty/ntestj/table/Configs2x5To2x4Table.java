@@ -25,7 +25,10 @@ import com.welty.ntestj.PatternUtils;
  * To change this template use File | Settings | File Templates.
  */
 public class Configs2x5To2x4Table {
-    public final static int[] configs2x5To2x4 = new int[9 * 6561];
+    /**
+     * 2x4 configs are less than 6561, so they fit in a short
+     */
+    public final static short[] configs2x5To2x4 = new short[9 * 6561];
 
     static {
         final int[] reordering = {0, 1, 2, 3, 5, 6, 7, 8};
@@ -36,7 +39,7 @@ public class Configs2x5To2x4Table {
 //		int value1=TritsToConfig(trits,4);
 //		int value2=TritsToConfig(trits+5, 4);
 //		configs2x5To2x4[config]=value1+value2*81;
-            configs2x5To2x4[config] = PatternUtils.ReorderedConfig(config, 10, reordering);
+            configs2x5To2x4[config] = (short) PatternUtils.ReorderedConfig(config, 10, reordering);
         }
     }
 }
@@ -25,14 +25,15 @@ import com.welty.ntestj.PatternUtils;
  * To change this template use File | Settings | File Templates.
  */
 public class RowToXXTable {
-    private static final int[] row2ToXX = new int[6561];
+    // values are at most 2 + 3 * 6561 * 2, so they fit in an unsigned 16-bit char.
+    private static final char[] row2ToXX = new char[6561];
 
     static {
         final int[] trits = new int[8];
         // row 2 -> two X-square translator
         for (char config = 0; config < 6561; config++) {
             PatternUtils.ConfigToTrits(config, 8, trits);
-            row2ToXX[config] = trits[1] + 3 * 6561 * trits[6];
+            row2ToXX[config] = (char) (trits[1] + 3 * 6561 * trits[6]);
         }
     }
 
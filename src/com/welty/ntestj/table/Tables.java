@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.ntestj.table;
+
+import com.orbanova.common.misc.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Initializes the eval lookup tables.
+ * <p/>
+ * Each table is built in its class's static initializer, so normally the tables are built one after another on
+ * whichever thread first evaluates a position. {@link #initialize()} instead builds all tables in parallel, which
+ * reduces engine startup time on multicore machines.
+ * <p/>
+ * The JVM guarantees that each static initializer runs exactly once, even when several threads trigger it, so
+ * tables that depend on other tables are safe to initialize in parallel. The tables have no circular dependencies.
+ */
+public final class Tables {
+    private static final Logger log = Logger.logger(Tables.class);
+
+    /**
+     * Classes whose static initializers build lookup tables.
+     * <p/>
+     * Several of these are not public, so they are listed by name. The largest tables are listed first so they
+     * start first.
+     */
+    private static final String[] TABLE_CLASSES = {
+            "com.welty.ntestj.table.OridTable",
+            "com.welty.ntestj.table.CridTable",
+            "com.welty.novello.eval.CornerTriangleFeature",
+            "com.welty.ntestj.table.ConfigToPotMobTable",
+            "com.welty.ntestj.table.Configs2x5To2x4Table",
+            "com.welty.ntestj.table.R33Table",
+            "com.welty.novello.eval.OridTable",
+            "com.welty.ntestj.table.RowTo2x5Table",
+            "com.welty.ntestj.table.RowToTriangleTable",
+            "com.welty.ntestj.table.RowToXXTable",
+            "com.welty.ntestj.table.Base3ToBase2Table",
+            "com.welty.ntestj.table.Base2ToBase3Table",
+            "com.welty.novello.eval.Base3"
+    };
+
+    /**
+     * Initialization time, in milliseconds, of each table, in TABLE_CLASSES order. Null until initialize() completes.
+     */
+    private static Map<String, Double> initMillis;
+
+    private Tables() {
+    }
+
+    /**
+     * Build all lookup tables, in parallel, and wait for them to complete.
+     * <p/>
+     * Tables that have already been built are not rebuilt. After the first call this returns immediately.
+     */
+    public static synchronized void initialize() {
+        if (initMillis != null) {
+            return;
+        }
+        final long t0 = System.nanoTime();
+        final int nThreads = Math.min(TABLE_CLASSES.length, Runtime.getRuntime().availableProcessors());
+        final ExecutorService executorService = Executors.newFixedThreadPool(nThreads, new DaemonThreadFactory());
+        try {
+            final List<Future<Double>> futures = new ArrayList<>();
+            for (final String className : TABLE_CLASSES) {
+                futures.add(executorService.submit(new Callable<Double>() {
+                    @Override public Double call() throws ClassNotFoundException {
+                        final long t0 = System.nanoTime();
+                        Class.forName(className, true, Tables.class.getClassLoader());
+                        return (System.nanoTime() - t0) * 1e-6;
+                    }
+                }));
+            }
+            final Map<String, Double> millis = new LinkedHashMap<>();
+            for (int i = 0; i < TABLE_CLASSES.length; i++) {
+                millis.put(TABLE_CLASSES[i], futures.get(i).get());
+            }
+            initMillis = Collections.unmodifiableMap(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building eval tables", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Can't build eval tables", e.getCause());
+        } finally {
+            executorService.shutdown();
+        }
+        log.info(String.format("Built %d eval tables in %.1f ms using %d threads", TABLE_CLASSES.length, (System.nanoTime() - t0) * 1e-6, nThreads));
+    }
+
+    /**
+     * Get the time taken to initialize each table.
+     * <p/>
+     * A table's time includes time spent waiting for tables it depends on, and is close to zero if the table had
+     * already been built before {@link #initialize()} was called.
+     *
+     * @return map from table class name to initialization time in milliseconds, or an empty map if
+     * initialize() has not completed.
+     */
+    public static synchronized Map<String, Double> getInitMillis() {
+        return initMillis == null ? Collections.<String, Double>emptyMap() : initMillis;
+    }
+
+    /**
+     * @return a human-readable report of the time taken to initialize each table.
+     */
+    public static String report() {
+        final StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Double> entry : getInitMillis().entrySet()) {
+            sb.append(String.format("%7.1f ms  %s%n", entry.getValue(), entry.getKey()));
+        }
+        return sb.toString();
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private int n;
+
+        @Override public synchronized Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, "eval-tables-" + n++);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.coca;
+
+import com.welty.novello.core.Board;
+import com.welty.novello.core.GameStore;
+import com.welty.novello.core.GgfGameRecord;
+import com.welty.novello.core.GgfScanner;
+import com.welty.novello.core.MeValue;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class GameIngesterTest extends TestCase {
+    /**
+     * Line n generates n%8 MeValues along a game from the start position, each with value n.
+     */
+    private static final GameIngester.LineParser parser = new GameIngester.LineParser() {
+        @Override public void parse(@NotNull String line, @NotNull List<MeValue> mvs) {
+            final int n = Integer.parseInt(line);
+            Board board = Board.START_BOARD;
+            for (int i = 0; i < n % 8; i++) {
+                mvs.add(new MeValue(board.mover(), board.enemy(), n));
+                board = board.play(Long.numberOfTrailingZeros(board.calcMoves()));
+            }
+        }
+    };
+
+    public void testIngestPreservesOrder() throws IOException {
+        // enough lines for several chunks, and a partial final chunk
+        final int nLines = 12345;
+        final StringBuilder sb = new StringBuilder();
+        for (int n = 0; n < nLines; n++) {
+            sb.append(n).append('\n');
+        }
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        int nExpected = 0;
+        try (DataOutputStream out = new DataOutputStream(expected)) {
+            for (int n = 0; n < nLines; n++) {
+                final List<MeValue> mvs = new ArrayList<>();
+                parser.parse(Integer.toString(n), mvs);
+                for (MeValue mv : mvs) {
+                    mv.write(out);
+                }
+                nExpected += mvs.size();
+            }
+        }
+
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        final long nWritten;
+        try (DataOutputStream out = new DataOutputStream(actual)) {
+            nWritten = GameIngester.ingest(new BufferedReader(new StringReader(sb.toString())), parser, out);
+        }
+        assertEquals(nExpected, nWritten);
+        assertTrue(Arrays.equals(expected.toByteArray(), actual.toByteArray()));
+    }
+
+    public void testIngestToStore() throws IOException {
+        final MvStore store = GameIngester.ingest(new BufferedReader(new StringReader("3\n9\n0\n")), parser);
+        assertEquals(3 + 1, store.size());
+        assertEquals(2, store.size(60));
+        assertEquals(1, store.size(59));
+        assertEquals(1, store.size(58));
+    }
+
+    public void testIngestBytes() throws IOException {
+        // lines long enough that a line crosses each 1MB chunk boundary
+        final StringBuilder sb = new StringBuilder();
+        final int nLines = 30000;
+        for (int n = 0; n < nLines; n++) {
+            sb.append(n);
+            for (int i = 0; i < 100; i++) {
+                sb.append(' ');
+            }
+            sb.append('\n');
+        }
+        sb.append(nLines); // final line with no terminator
+
+        final GameIngester.ByteParser byteParser = new GameIngester.ByteParser() {
+            @Override public void parse(@NotNull ByteBuffer lines, @NotNull List<MeValue> mvs) {
+                final String text = new String(lines.array(), lines.position(), lines.remaining(), StandardCharsets.US_ASCII);
+                for (String line : text.split("\n")) {
+                    parser.parse(line.trim(), mvs);
+                }
+            }
+        };
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(expected)) {
+            GameIngester.ingest(new BufferedReader(new StringReader(sb.toString().replace(" ", ""))), parser, out);
+        }
+
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(actual)) {
+            final InputStream in = new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.US_ASCII));
+            GameIngester.ingest(in, byteParser, out);
+        }
+        assertTrue(Arrays.equals(expected.toByteArray(), actual.toByteArray()));
+    }
+
+    private static final String ggf = "(;GM[Othello]PC[GGS/os]DT[2003.12.15_13:24:03.MST]PB[Saio1200]PW[Saio3000]RB[2197.01]RW[2199.72]TI[05:00//02:00]TY[8]RE[+0.000]BO[8 -------- -------- -------- ---O*--- ---*O--- -------- -------- -------- *]B[d3//0.01]W[c5//0.01]B[e6//0.01]W[d2//0.01]B[c6//0.01]W[d6//0.01]B[b5//0.01]W[f5//0.01]B[e7//0.01]W[f6//0.01]B[f4//0.01]W[f3//0.01]B[g4//0.01]W[d7//0.01]B[g3//0.01]W[g5//0.01]B[h6//0.01]W[h5//0.01]B[h4//0.01]W[e8//0.01]B[c7//0.01]W[h3//0.01]B[c3//0.01]W[h7//0.01]B[e3//0.01]W[b6//0.01]B[g6//5.42]W[f7//0.01]B[d8//0.01]W[c2//0.01]B[d1//0.01]W[c4//0.01]B[b4//0.01]W[a5//0.01]B[f8//0.01]W[f2//0.01]B[e2//0.01]W[a4//17.38]B[a3//19.10]W[b3//0.01]B[f1//4.90]W[g7//0.01]B[b7//0.01]W[c8//0.01]B[a6//0.01]W[a7//0.01]B[c1//0.01]W[b2//0.01]B[a8//0.01]W[b8//0.01]B[a2//0.01]W[e1//0.01]B[h8//0.01]W[g8//0.01]B[h2//0.01]W[g1//0.01]B[h1//3.80]W[g2//0.01]B[pass]W[a1//0.01]B[b1//0.01];)";
+
+    public void testIngestGamesInInputOrder() throws IOException {
+        // enough matches for several 1MB chunks; black's name records the match's position in the input
+        final int nMatches = 5000;
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < nMatches; i++) {
+            sb.append("1 ").append(ggf.replace("PB[Saio1200]", "PB[p" + i + "]")).append('\n');
+        }
+
+        // every third match is filtered out
+        final GameIngester.GameParser gameParser = new GameIngester.GameParser() {
+            @Override public void parse(@NotNull ByteBuffer lines, @NotNull List<GgfGameRecord> games) {
+                final GgfScanner scanner = new GgfScanner(lines);
+                while (scanner.nextMatch()) {
+                    final GgfGameRecord game = new GgfGameRecord();
+                    scanner.nextGame(game);
+                    if (Integer.parseInt(game.getBlackName().substring(1)) % 3 != 0) {
+                        games.add(game);
+                    }
+                }
+            }
+        };
+
+        final Path path = Files.createTempFile("GameIngesterTest", ".games");
+        try {
+            final MvStore mvs;
+            try (GameStore.Writer writer = GameStore.create(path)) {
+                final InputStream in = new ByteArrayInputStream(sb.toString().getBytes(StandardCharsets.ISO_8859_1));
+                mvs = GameIngester.ingest(in, gameParser, writer);
+            }
+            final GameStore games = GameStore.open(path);
+            final GgfGameRecord game = new GgfGameRecord();
+            int i = 0;
+            for (int match = 0; match < nMatches; match++) {
+                if (match % 3 != 0) {
+                    games.read(i++, game);
+                    assertEquals("p" + match, game.getBlackName());
+                }
+            }
+            assertEquals(i, games.size());
+
+            final List<MeValue> oneGame = new ArrayList<>();
+            game.addPositionValues(oneGame);
+            assertEquals(games.size() * oneGame.size(), mvs.size());
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.coca;
+
+import junit.framework.TestCase;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class MrHashSetTest extends TestCase {
+    public void testAddAndContains() {
+        final Random random = new Random(1337);
+        final MrHashSet set = new MrHashSet(10);
+        final Set<String> expected = new HashSet<>();
+
+        // small range of values so that some adds are duplicates; enough adds to force several resizes.
+        for (int i = 0; i < 5000; i++) {
+            final long mover = 1 + random.nextInt(100);
+            final long enemy = random.nextInt(100);
+            assertEquals(expected.add(mover + "/" + enemy), set.add(mover, enemy));
+            assertEquals(expected.size(), set.size());
+        }
+        for (long mover = 1; mover <= 100; mover++) {
+            for (long enemy = 0; enemy < 100; enemy++) {
+                assertEquals(expected.contains(mover + "/" + enemy), set.contains(mover, enemy));
+            }
+        }
+        assertFalse(set.contains(0, 0));
+    }
+
+    public void testEmptyBoard() {
+        try {
+            new MrHashSet(0).add(0, 0);
+            fail("should have thrown");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
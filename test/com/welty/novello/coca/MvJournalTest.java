@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.coca;
+
+import com.welty.novello.core.Board;
+import com.welty.novello.core.MeValue;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class MvJournalTest extends TestCase {
+    private static final Board start = Board.START_BOARD;
+    private static final Board next = start.play("F5");
+    private static final MeValue mv1 = new MeValue(start.mover(), start.enemy(), 100);
+    private static final MeValue mv2 = new MeValue(next.mover(), next.enemy(), -100);
+
+    public void testAppendAndRead() throws IOException {
+        final Path path = Files.createTempFile("MvJournalTest", ".mrv");
+        try {
+            try (MvJournal journal = MvJournal.openForAppend(path)) {
+                journal.append(1, 2, Arrays.asList(mv1, mv2));
+                journal.append(3, 4, Collections.<MeValue>emptyList());
+            }
+            // reopening appends rather than overwriting
+            try (MvJournal journal = MvJournal.openForAppend(path)) {
+                journal.append(5, 6, Arrays.asList(mv2));
+            }
+
+            final List<String> records = read(path);
+            assertEquals(Arrays.asList("1/2" + Arrays.asList(mv1, mv2), "3/4[]", "5/6" + Arrays.asList(mv2)), records);
+            assertEquals(Files.size(path), MvJournal.read(path, null));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    public void testPartialRecord() throws IOException {
+        final Path path = Files.createTempFile("MvJournalTest", ".mrv");
+        try {
+            try (MvJournal journal = MvJournal.openForAppend(path)) {
+                journal.append(1, 2, Arrays.asList(mv1, mv2));
+            }
+            final long length = Files.size(path);
+
+            // simulate a crash part way through writing a record
+            Files.write(path, new byte[]{0, 0, 0, 0, 0, 0, 0, 3, 0, 0}, StandardOpenOption.APPEND);
+            assertEquals(length, MvJournal.read(path, null));
+            assertEquals(1, read(path).size());
+
+            try (MvJournal journal = MvJournal.openForAppend(path)) {
+                journal.append(3, 4, Arrays.asList(mv1));
+            }
+            assertEquals(Arrays.asList("1/2" + Arrays.asList(mv1, mv2), "3/4" + Arrays.asList(mv1)), read(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    public void testMissingFile() throws IOException {
+        final Path path = Files.createTempFile("MvJournalTest", ".mrv");
+        Files.delete(path);
+        assertEquals(0, MvJournal.read(path, null));
+    }
+
+    private static List<String> read(Path path) throws IOException {
+        final List<String> records = new ArrayList<>();
+        MvJournal.read(path, new MvJournal.Visitor() {
+            @Override public void visit(long mrMover, long mrEnemy, @NotNull List<MeValue> mvs) {
+                records.add(mrMover + "/" + mrEnemy + mvs);
+            }
+        });
+        return records;
+    }
+}
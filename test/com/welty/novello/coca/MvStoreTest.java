@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.coca;
+
+import com.welty.novello.core.Board;
+import com.welty.novello.core.MeValue;
+import com.welty.novello.core.MinimalReflection;
+import junit.framework.TestCase;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+public class MvStoreTest extends TestCase {
+    public void testOf() {
+        final List<MeValue> mvs = gameMvs();
+        checkStore(mvs, MvStore.of(mvs));
+    }
+
+    public void testWriteAndMap() throws IOException {
+        final List<MeValue> mvs = gameMvs();
+        final Path path = Files.createTempFile("MvStoreTest", ".col");
+        try {
+            MvStore.write(path, mvs);
+            checkStore(mvs, MvStore.map(path));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    public void testConvert() throws IOException {
+        final List<MeValue> mvs = gameMvs();
+        final Path rowFile = Files.createTempFile("MvStoreTest", ".pvs");
+        final Path storeFile = Files.createTempFile("MvStoreTest", ".col");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(rowFile)))) {
+                for (MeValue mv : mvs) {
+                    mv.write(out);
+                }
+            }
+            MvStore.convert(rowFile, storeFile);
+            checkStore(mvs, MvStore.map(storeFile));
+        } finally {
+            Files.deleteIfExists(rowFile);
+            Files.deleteIfExists(storeFile);
+        }
+    }
+
+    public void testMapRejectsIncompleteFile() throws IOException {
+        final Path path = Files.createTempFile("MvStoreTest", ".col");
+        try {
+            MvStore.write(path, gameMvs());
+            Files.write(path, new byte[4], StandardOpenOption.WRITE);
+            try {
+                MvStore.map(path);
+                fail("should have thrown");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    public void testForEach() {
+        final List<MeValue> mvs = gameMvs();
+        final MvStore store = MvStore.of(mvs);
+
+        final List<MeValue> visited = new ArrayList<>();
+        store.forEach(50, 55, new MvStore.Visitor() {
+            @Override public void visit(long mover, long enemy, int value) {
+                visited.add(new MeValue(mover, enemy, value));
+            }
+        });
+
+        final List<MeValue> expected = new ArrayList<>();
+        for (MeValue mv : mvs) {
+            if (mv.nEmpty() >= 50 && mv.nEmpty() <= 55) {
+                expected.add(mv);
+            }
+        }
+        assertEquals(new HashSet<>(expected), new HashSet<>(visited));
+        assertEquals(expected.size(), visited.size());
+    }
+
+    public void testConcat() throws IOException {
+        final List<MeValue> mvs1 = gameMvs();
+        // every other position again, rotated 180 degrees and with a different value, plus a new position
+        final List<MeValue> mvs2 = new ArrayList<>();
+        for (int i = 0; i < mvs1.size(); i += 2) {
+            final MeValue mv = mvs1.get(i);
+            mvs2.add(new MeValue(Long.reverse(mv.mover), Long.reverse(mv.enemy), -mv.value));
+        }
+        mvs2.add(new MeValue(1L, 2L, 1000));
+
+        final List<MeValue> all = new ArrayList<>(mvs1);
+        all.addAll(mvs2);
+        final List<MeValue> distinct = new ArrayList<>();
+        final HashSet<MinimalReflection> seen = new HashSet<>();
+        for (MeValue mv : all) {
+            if (seen.add(new MinimalReflection(mv.mover, mv.enemy))) {
+                distinct.add(mv);
+            }
+        }
+        assertEquals(mvs1.size() + 1, distinct.size());
+
+        final List<MvStore> stores = Arrays.asList(MvStore.of(mvs1), MvStore.of(mvs2));
+        final Path path = Files.createTempFile("MvStoreTest", ".col");
+        try {
+            MvStore.concat(path, stores, false);
+            assertSameStore(MvStore.of(all), MvStore.map(path));
+            MvStore.concat(path, stores, true);
+            assertSameStore(MvStore.of(distinct), MvStore.map(path));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Check that the stores contain the same positions in the same order
+     */
+    private static void assertSameStore(MvStore expected, MvStore actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int nEmpty = 0; nEmpty <= 64; nEmpty++) {
+            assertEquals(expected.start(nEmpty), actual.start(nEmpty));
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i));
+            assertEquals(expected.value(i), actual.value(i));
+        }
+    }
+
+    /**
+     * Check that the store contains exactly the given MeValues, partitioned by nEmpty
+     */
+    private static void checkStore(List<MeValue> mvs, MvStore store) {
+        assertEquals(mvs.size(), store.size());
+        final List<MeValue> stored = store.toList();
+        assertEquals(new HashSet<>(mvs), new HashSet<>(stored));
+
+        int n = 0;
+        for (int nEmpty = 0; nEmpty <= 64; nEmpty++) {
+            assertEquals(n, store.start(nEmpty));
+            for (int i = store.start(nEmpty); i < store.end(nEmpty); i++) {
+                assertEquals(nEmpty, store.get(i).nEmpty());
+            }
+            n += store.size(nEmpty);
+        }
+        assertEquals(mvs.size(), n);
+    }
+
+    /**
+     * @return MeValues from a game played from the start position, with value = number of the move in the game
+     */
+    private static List<MeValue> gameMvs() {
+        final List<MeValue> mvs = new ArrayList<>();
+        Board board = Board.START_BOARD;
+        for (int value = 0; ; value++) {
+            if (!board.hasLegalMove()) {
+                board = board.pass();
+                if (!board.hasLegalMove()) {
+                    return mvs;
+                }
+            }
+            mvs.add(new MeValue(board.mover(), board.enemy(), value));
+            final long moves = board.calcMoves();
+            board = board.play(63 - Long.numberOfLeadingZeros(moves));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.coca;
+
+import com.welty.novello.core.BitBoardUtils;
+import com.welty.novello.core.Board;
+import com.welty.novello.core.MeValue;
+import com.welty.novello.core.MinimalReflection;
+import junit.framework.TestCase;
+
+import java.util.*;
+
+public class PositionIndexTest extends TestCase {
+    public void testOf() {
+        final Board start = Board.START_BOARD;
+        final Board f5 = start.play("F5");
+        final Board f5d6 = f5.play("D6");
+        // e6 is a reflection of f5
+        final Board e6 = start.play("E6");
+        final long rMover = BitBoardUtils.reflection(f5d6.mover(), 3);
+        final long rEnemy = BitBoardUtils.reflection(f5d6.enemy(), 3);
+
+        final MvStore store = MvStore.of(Arrays.asList(
+                new MeValue(f5.mover(), f5.enemy(), 100),
+                new MeValue(f5d6.mover(), f5d6.enemy(), 50),
+                new MeValue(e6.mover(), e6.enemy(), 300),
+                new MeValue(rMover, rEnemy, 50),
+                new MeValue(f5.mover(), f5.enemy(), 200)
+        ));
+        final PositionIndex index = PositionIndex.of(store);
+        assertEquals(5, index.nCopies());
+        assertEquals(2, index.size());
+        assertEquals(1, index.size(f5.nEmpty()));
+        assertEquals(1, index.size(f5d6.nEmpty()));
+        assertEquals(0, index.size(60));
+
+        final int i = index.start(f5.nEmpty());
+        final MinimalReflection mr = new MinimalReflection(f5.mover(), f5.enemy());
+        assertEquals(mr.mover, index.mover(i));
+        assertEquals(mr.enemy, index.enemy(i));
+        assertEquals(3, index.count(i));
+        assertEquals(200, index.mean(i), 1e-9);
+        assertEquals((100 * 100 + 0 + 100 * 100) / 3., index.variance(i), 1e-9);
+
+        final int j = index.start(f5d6.nEmpty());
+        assertEquals(2, index.count(j));
+        assertEquals(50, index.mean(j), 1e-9);
+        assertEquals(0, index.variance(j), 1e-9);
+    }
+
+    public void testFirstStoreHasPriority() {
+        final Board f5 = Board.START_BOARD.play("F5");
+        final Board f5d6 = f5.play("D6");
+        final Board e6 = Board.START_BOARD.play("E6");
+
+        final MvStore store1 = MvStore.of(Arrays.asList(
+                new MeValue(f5.mover(), f5.enemy(), 100),
+                new MeValue(e6.mover(), e6.enemy(), 300)
+        ));
+        final MvStore store2 = MvStore.of(Arrays.asList(
+                new MeValue(f5.mover(), f5.enemy(), -1000),
+                new MeValue(f5d6.mover(), f5d6.enemy(), 50),
+                new MeValue(f5d6.mover(), f5d6.enemy(), 70)
+        ));
+        final MvStore store3 = MvStore.of(Arrays.asList(
+                new MeValue(f5d6.mover(), f5d6.enemy(), 1000)
+        ));
+        final PositionIndex index = PositionIndex.of(Arrays.asList(store1, store2, store3));
+        assertEquals(4, index.nCopies());
+        assertEquals(2, index.size());
+
+        final int i = index.start(f5.nEmpty());
+        assertEquals(2, index.count(i));
+        assertEquals(200, index.mean(i), 1e-9);
+
+        final int j = index.start(f5d6.nEmpty());
+        assertEquals(2, index.count(j));
+        assertEquals(60, index.mean(j), 1e-9);
+        assertEquals(100, index.variance(j), 1e-9);
+    }
+
+    public void testManyPositions() {
+        // random games have many transpositions and reflections, and enough distinct positions to exercise probing
+        final Random random = new Random(1337);
+        final List<MeValue> mvs = new ArrayList<>();
+        final Map<MinimalReflection, List<Integer>> expected = new HashMap<>();
+        for (Board board : Board.randomGameBoards(random, 200)) {
+            // positions from early in each game, where transpositions are common
+            if (board.nEmpty() > 50 && board.calcMoves() != 0) {
+                final int value = random.nextInt(1000);
+                mvs.add(new MeValue(board.mover(), board.enemy(), value));
+                final MinimalReflection mr = new MinimalReflection(board.mover(), board.enemy());
+                if (!expected.containsKey(mr)) {
+                    expected.put(mr, new ArrayList<Integer>());
+                }
+                expected.get(mr).add(value);
+            }
+        }
+
+        final PositionIndex index = PositionIndex.of(MvStore.of(mvs));
+        assertEquals(mvs.size(), index.nCopies());
+        assertEquals(expected.size(), index.size());
+        for (int i = 0; i < index.size(); i++) {
+            final List<Integer> values = expected.get(new MinimalReflection(index.mover(i), index.enemy(i)));
+            assertEquals(values.size(), index.count(i));
+            double sum = 0;
+            for (int value : values) {
+                sum += value;
+            }
+            assertEquals(sum / values.size(), index.mean(i), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.coca;
+
+import com.welty.novello.core.Board;
+import com.welty.novello.core.MeValue;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+public class TempStoreFilesTest extends TestCase {
+    public void testCreate() throws IOException {
+        final Path file = TempStoreFiles.create("test");
+        assertTrue(Files.exists(file));
+        assertTrue(Files.exists(file.resolveSibling("run.lock")));
+        // the store can be written and mapped
+        final Board board = Board.START_BOARD.play("F5");
+        MvStore.write(file, Arrays.asList(new MeValue(board.mover(), board.enemy(), 100)));
+        assertEquals(1, MvStore.map(file).size());
+    }
+
+    public void testDeleteStaleRunDirectories() throws IOException {
+        final Path root = Files.createTempDirectory("novello-stores-test");
+        try {
+            final Path exited = runDirectory(root, "exited");
+            Files.createFile(exited.resolve("a.col"));
+
+            final Path running = runDirectory(root, "running");
+            Files.createFile(running.resolve("b.col"));
+
+            final Path starting = Files.createDirectory(root.resolve("starting"));
+            final Path abandoned = Files.createDirectory(root.resolve("abandoned"));
+            Files.setLastModifiedTime(abandoned, FileTime.fromMillis(System.currentTimeMillis() - 2 * 86400000L));
+
+            try (FileChannel channel = FileChannel.open(running.resolve("run.lock"), StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                TempStoreFiles.deleteStaleRunDirectories(root);
+            }
+            assertFalse(Files.exists(exited));
+            assertTrue(Files.exists(running.resolve("b.col")));
+            assertTrue(Files.exists(starting));
+            assertFalse(Files.exists(abandoned));
+        } finally {
+            TempStoreFiles.deleteStaleRunDirectories(root);
+            Files.deleteIfExists(root.resolve("starting"));
+            Files.deleteIfExists(root);
+        }
+    }
+
+    private static Path runDirectory(Path root, String name) throws IOException {
+        final Path directory = Files.createDirectory(root.resolve(name));
+        Files.createFile(directory.resolve("run.lock"));
+        return directory;
+    }
+}
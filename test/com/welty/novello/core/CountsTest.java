@@ -22,4 +22,16 @@ public class CountsTest extends TestCase {
         String s = new Counts(1000000, 2000000).toString();
         assertTrue(s.contains("1.00 M"));
     }
-}
\ No newline at end of file
+
+    public void testEvalCacheHits() {
+        final Counts a = new Counts(100, 30, 10);
+        final Counts b = new Counts(50, 10, 30);
+        final Counts sum = a.plus(b);
+        assertEquals(40, sum.nEvals);
+        assertEquals(40, sum.nEvalCacheHits);
+        assertEquals(0.5, sum.evalCacheHitRate(), 1e-9);
+        assertEquals(10, sum.minus(a).nEvals);
+        assertEquals(30, sum.minus(a).nEvalCacheHits);
+        assertEquals(0.0, new Counts(0, 0).evalCacheHitRate(), 0);
+    }
+}
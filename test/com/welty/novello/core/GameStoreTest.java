@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.core;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class GameStoreTest extends TestCase {
+    private static final String ggf = "(;GM[Othello]PC[GGS/os]DT[2003.12.15_13:24:03.MST]PB[Saio1200]PW[Saio3000]RB[2197.01]RW[2199.72]TI[05:00//02:00]TY[8]RE[+0.000]BO[8 -------- -------- -------- ---O*--- ---*O--- -------- -------- -------- *]B[d3//0.01]W[c5//0.01]B[e6//0.01]W[d2//0.01]B[c6//0.01]W[d6//0.01]B[b5//0.01]W[f5//0.01]B[e7//0.01]W[f6//0.01]B[f4//0.01]W[f3//0.01]B[g4//0.01]W[d7//0.01]B[g3//0.01]W[g5//0.01]B[h6//0.01]W[h5//0.01]B[h4//0.01]W[e8//0.01]B[c7//0.01]W[h3//0.01]B[c3//0.01]W[h7//0.01]B[e3//0.01]W[b6//0.01]B[g6//5.42]W[f7//0.01]B[d8//0.01]W[c2//0.01]B[d1//0.01]W[c4//0.01]B[b4//0.01]W[a5//0.01]B[f8//0.01]W[f2//0.01]B[e2//0.01]W[a4//17.38]B[a3//19.10]W[b3//0.01]B[f1//4.90]W[g7//0.01]B[b7//0.01]W[c8//0.01]B[a6//0.01]W[a7//0.01]B[c1//0.01]W[b2//0.01]B[a8//0.01]W[b8//0.01]B[a2//0.01]W[e1//0.01]B[h8//0.01]W[g8//0.01]B[h2//0.01]W[g1//0.01]B[h1//3.80]W[g2//0.01]B[pass]W[a1//0.01]B[b1//0.01];)";
+
+    private static final String gameWithPasses = "(;GM[Othello]PC[NBoard]DT[2014-10-26 18:33:23 GMT]PB[Chris]PW[Chris]RE[?]TI[1:00]TY[s8r4k]BO[8 ---------------------------O*------*O--------------------------- *]B[F5//2.439]W[D6]B[C7]W[F3]B[C3]W[D3]B[D2]W[C2]B[B2]W[C4]B[G2]W[C1]B[B3]W[E3]B[E2]W[D1]B[C5]W[B1]B[PA]W[A1]B[A2]W[E1]B[PA]W[A3];)";
+
+    private static final String nonstandardStart = "(;GM[Othello]PC[GGS/os]PB[Saio3000]PW[Zebra]TY[8r8]BO[8 -------- -------- ---O---- ---OO--- ---**--- ----*--- -------- -------- O];)";
+
+    private static List<GgfGameRecord> records(String... ggfs) {
+        final List<GgfGameRecord> records = new ArrayList<>();
+        for (String ggf : ggfs) {
+            final GgfScanner scanner = new GgfScanner(ByteBuffer.wrap(("1 " + ggf).getBytes(StandardCharsets.ISO_8859_1)));
+            assertTrue(scanner.nextMatch());
+            final GgfGameRecord record = new GgfGameRecord();
+            assertTrue(scanner.nextGame(record));
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static GameStore write(Path path, List<GgfGameRecord> records) throws IOException {
+        try (GameStore.Writer writer = GameStore.create(path)) {
+            for (GgfGameRecord record : records) {
+                writer.add(record);
+            }
+            assertEquals(records.size(), writer.size());
+        }
+        return GameStore.open(path);
+    }
+
+    public void testRoundTrip() throws IOException {
+        final Path path = Files.createTempFile("GameStoreTest", ".games");
+        try {
+            final List<GgfGameRecord> records = records(ggf, gameWithPasses, nonstandardStart, ggf);
+            final GameStore store = write(path, records);
+            assertEquals(4, store.size());
+
+            final GgfGameRecord game = new GgfGameRecord();
+            for (int i = 0; i < records.size(); i++) {
+                final GgfGameRecord expected = records.get(i);
+                store.read(i, game);
+                assertEquals(expected.getBlackName(), game.getBlackName());
+                assertEquals(expected.getWhiteName(), game.getWhiteName());
+                assertEquals(expected.getPlace(), game.getPlace());
+                assertEquals(expected.getStartBoard(), game.getStartBoard());
+                assertEquals(expected.nMoves(), game.nMoves());
+                for (int j = 0; j < expected.nMoves(); j++) {
+                    assertEquals(expected.getSq(j), game.getSq(j));
+                }
+                assertEquals(expected.time(true), game.time(true), 1e-4);
+                assertEquals(expected.time(false), game.time(false), 1e-4);
+                assertTrue(game.is8x8());
+            }
+
+            final GgfGameRecord saio = records.get(0);
+            assertEquals(saio.getLastBoard().terminalScoreToBlack(), store.getResult(0));
+            assertEquals(GameStore.NO_RESULT, store.getResult(1));
+            assertEquals(GameStore.NO_RESULT, store.getResult(2));
+            assertEquals(saio.getLastBoard().terminalScoreToBlack(), store.getResult(3));
+            assertFalse(records.get(2).getStartBoard().blackToMove);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    public void testCompact() throws IOException {
+        final Path path = Files.createTempFile("GameStoreTest", ".games");
+        try {
+            write(path, records(ggf, ggf));
+            final long size = Files.size(path);
+            // one game in GGF is over 800 bytes.
+            assertTrue("size = " + size, size < ggf.length() / 4);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    public void testPositionValues() throws IOException {
+        final Path path = Files.createTempFile("GameStoreTest", ".games");
+        try {
+            final List<GgfGameRecord> records = records(ggf, gameWithPasses);
+            final GameStore store = write(path, records);
+
+            final List<MeValue> expected = new ArrayList<>();
+            for (GgfGameRecord record : records) {
+                record.addPositionValues(expected);
+            }
+            final List<MeValue> actual = new ArrayList<>();
+            store.addPositionValues(actual);
+            assertEquals(expected, actual);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    public void testNotAGameStore() throws IOException {
+        final Path path = Files.createTempFile("GameStoreTest", ".games");
+        try {
+            Files.write(path, new byte[]{1, 2, 3, 4, 5});
+            try {
+                GameStore.open(path);
+                fail("should throw");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
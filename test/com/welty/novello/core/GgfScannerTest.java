@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.core;
+
+import junit.framework.TestCase;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class GgfScannerTest extends TestCase {
+    private static final String ggf = "(;GM[Othello]PC[GGS/os]DT[2003.12.15_13:24:03.MST]PB[Saio1200]PW[Saio3000]RB[2197.01]RW[2199.72]TI[05:00//02:00]TY[8]RE[+0.000]BO[8 -------- -------- -------- ---O*--- ---*O--- -------- -------- -------- *]B[d3//0.01]W[c5//0.01]B[e6//0.01]W[d2//0.01]B[c6//0.01]W[d6//0.01]B[b5//0.01]W[f5//0.01]B[e7//0.01]W[f6//0.01]B[f4//0.01]W[f3//0.01]B[g4//0.01]W[d7//0.01]B[g3//0.01]W[g5//0.01]B[h6//0.01]W[h5//0.01]B[h4//0.01]W[e8//0.01]B[c7//0.01]W[h3//0.01]B[c3//0.01]W[h7//0.01]B[e3//0.01]W[b6//0.01]B[g6//5.42]W[f7//0.01]B[d8//0.01]W[c2//0.01]B[d1//0.01]W[c4//0.01]B[b4//0.01]W[a5//0.01]B[f8//0.01]W[f2//0.01]B[e2//0.01]W[a4//17.38]B[a3//19.10]W[b3//0.01]B[f1//4.90]W[g7//0.01]B[b7//0.01]W[c8//0.01]B[a6//0.01]W[a7//0.01]B[c1//0.01]W[b2//0.01]B[a8//0.01]W[b8//0.01]B[a2//0.01]W[e1//0.01]B[h8//0.01]W[g8//0.01]B[h2//0.01]W[g1//0.01]B[h1//3.80]W[g2//0.01]B[pass]W[a1//0.01]B[b1//0.01];)";
+
+    private static final String gameWithPasses = "(;GM[Othello]PC[NBoard]DT[2014-10-26 18:33:23 GMT]PB[Chris]PW[Chris]RE[?]TI[1:00]TY[s8r4k]BO[8 ---------------------------O*------*O--------------------------- *]B[F5//2.439]W[D6]B[C7]W[F3]B[C3]W[D3]B[D2]W[C2]B[B2]W[C4]B[G2]W[C1]B[B3]W[E3]B[E2]W[D1]B[C5]W[B1]B[PA]W[A1]B[A2]W[E1]B[PA]W[A3];)";
+
+    private static final String game10x10 = "(;GM[Othello]PB[a]PW[b]RB[1500]RW[1600]TY[10]BO[10 ---------- ---------- ---------- ---------- ----O*---- ----*O---- ---------- ---------- ---------- ---------- *]B[e4]W[j10];)";
+
+    private static GgfScanner scanner(String text) {
+        return new GgfScanner(ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+    public void testHeader() {
+        final GgfScanner scanner = scanner("1 " + ggf + "\n");
+        final GgfGameRecord game = new GgfGameRecord();
+        assertTrue(scanner.nextMatch());
+        assertEquals(1, scanner.nGames());
+        assertTrue(scanner.nextGame(game));
+        assertEquals("Saio1200", game.getBlackName());
+        assertEquals("Saio3000", game.getWhiteName());
+        assertEquals("GGS/os", game.getPlace());
+        assertEquals(2197.01, game.getBlackRating(), 1e-9);
+        assertEquals(2199.72, game.getWhiteRating(), 1e-9);
+        assertTrue(game.is8x8());
+        assertFalse(game.isSynchro());
+        assertFalse(game.isKomi());
+        assertFalse(game.isAnti());
+        assertEquals(Board.START_BOARD, game.getStartBoard());
+        assertFalse(scanner.nextGame(game));
+        assertFalse(scanner.nextMatch());
+    }
+
+    public void testMatchType() {
+        final GgfScanner scanner = scanner("1 " + gameWithPasses);
+        final GgfGameRecord game = new GgfGameRecord();
+        assertTrue(scanner.nextMatch());
+        assertTrue(scanner.nextGame(game));
+        assertTrue(game.isSynchro());
+        assertTrue(game.isKomi());
+        assertFalse(game.isAnti());
+        assertEquals(4, game.getNRandDisks());
+    }
+
+    public void testMoves() {
+        final GgfScanner scanner = scanner("1 " + gameWithPasses);
+        final GgfGameRecord game = new GgfGameRecord();
+        scanner.nextMatch();
+        scanner.nextGame(game);
+        assertEquals(24, game.nMoves());
+        assertEquals(BitBoardUtils.textToSq("F5"), game.getSq(0));
+        assertEquals(-1, game.getSq(18));
+        assertEquals(BitBoardUtils.textToSq("A3"), game.getSq(23));
+
+        final MutableGame mg = game.toMutableGame();
+        assertEquals("Chris", mg.blackName);
+        assertEquals(game.getStartBoard(), mg.getStartBoard());
+        assertEquals(24, mg.getMlis().size());
+    }
+
+    public void testPositionValues() {
+        final GgfScanner scanner = scanner("1 " + ggf);
+        final GgfGameRecord game = new GgfGameRecord();
+        scanner.nextMatch();
+        scanner.nextGame(game);
+
+        final List<MeValue> mvs = new ArrayList<>();
+        game.addPositionValues(mvs);
+        assertEquals(MutableGame.ofGgf(ggf).calcPositionValues(), mvs);
+        assertEquals(game.toMutableGame().calcPositionValues(), mvs);
+    }
+
+    public void testMultipleMatches() {
+        final String text = "2 " + ggf + gameWithPasses + "\r\n\n1 " + game10x10 + "\n1 " + ggf;
+        final GgfScanner scanner = scanner(text);
+        final GgfGameRecord game = new GgfGameRecord();
+
+        assertTrue(scanner.nextMatch());
+        assertEquals(2, scanner.nGames());
+        assertTrue(scanner.nextGame(game));
+        assertEquals("Saio1200", game.getBlackName());
+        assertTrue(scanner.nextGame(game));
+        assertEquals("Chris", game.getBlackName());
+        assertFalse(scanner.nextGame(game));
+
+        assertTrue(scanner.nextMatch());
+        assertTrue(scanner.nextGame(game));
+        assertEquals(10, game.getBoardSize());
+        assertFalse(game.is8x8());
+        assertEquals(1500., game.getBlackRating());
+
+        // skipping the rest of a match
+        assertTrue(scanner.nextMatch());
+        assertFalse(scanner.nextMatch());
+    }
+
+    public void testMalformedMatch() {
+        final String text = "2 " + ggf + "\n1 " + ggf.replace("W[c5//0.01]", "W[z5//0.01]") + "\n1 " + gameWithPasses + "\n";
+        final GgfScanner scanner = scanner(text);
+        final GgfGameRecord game = new GgfGameRecord();
+
+        assertTrue(scanner.nextMatch());
+        assertTrue(scanner.nextGame(game));
+        try {
+            scanner.nextGame(game);
+            fail("match has only 1 game");
+        } catch (IllegalArgumentException e) {
+            scanner.skipMatch();
+        }
+
+        assertTrue(scanner.nextMatch());
+        try {
+            scanner.nextGame(game);
+            fail("illegal square");
+        } catch (IllegalArgumentException e) {
+            scanner.skipMatch();
+        }
+
+        assertTrue(scanner.nextMatch());
+        assertTrue(scanner.nextGame(game));
+        assertEquals("Chris", game.getBlackName());
+        assertFalse(scanner.nextMatch());
+    }
+
+    public void testBufferPosition() {
+        final byte[] bytes = ("junk\n1 " + gameWithPasses + "\n1 " + ggf).getBytes(StandardCharsets.ISO_8859_1);
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes, 5, 3 + gameWithPasses.length());
+        final GgfScanner scanner = new GgfScanner(buffer);
+        final GgfGameRecord game = new GgfGameRecord();
+        assertTrue(scanner.nextMatch());
+        assertTrue(scanner.nextGame(game));
+        assertEquals("Chris", game.getBlackName());
+        assertFalse(scanner.nextMatch());
+        assertEquals(5, buffer.position());
+    }
+}
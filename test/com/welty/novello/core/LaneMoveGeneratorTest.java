@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+
+package com.welty.novello.core;
+
+import com.welty.novello.solver.BitBoardTestCase;
+
+import java.util.Random;
+
+/**
+ */
+public class LaneMoveGeneratorTest extends BitBoardTestCase {
+    public void testCalcMoves() {
+        final Random random = new Random(1337);
+        for (int i = 0; i < 10000; i++) {
+            final long mover = random.nextLong();
+            final long enemy = random.nextLong() & ~mover;
+            assertBitBoardEquals(BitBoardUtils.calcMovesKoggeStone(mover, enemy), LaneMoveGenerator.calcMoves(mover, enemy));
+        }
+        for (int i = 0; i < 1000; i++) {
+            final Me me = Me.early(random);
+            assertBitBoardEquals(BitBoardUtils.calcMovesKoggeStone(me.mover, me.enemy), LaneMoveGenerator.calcMoves(me.mover, me.enemy));
+        }
+
+        // maximum run of 6 enemy disks
+        final Board board = new Board("*OOOOOO- -------- -------- -------- -------- -------- -------- --------", true);
+        assertBitBoardEquals(1L << 56, LaneMoveGenerator.calcMoves(board.mover(), board.enemy()));
+    }
+
+    public void testCalcFlips() {
+        final Random random = new Random(1337);
+        for (int i = 0; i < 10000; i++) {
+            final long mover = random.nextLong();
+            final long enemy = random.nextLong() & ~mover;
+            checkFlips(mover, enemy);
+        }
+        for (int i = 0; i < 1000; i++) {
+            final Me me = Me.early(random);
+            checkFlips(me.mover, me.enemy);
+        }
+    }
+
+    private static void checkFlips(long mover, long enemy) {
+        long empty = ~(mover | enemy);
+        while (empty != 0) {
+            final int sq = Long.numberOfTrailingZeros(empty);
+            empty &= empty - 1;
+            assertBitBoardEquals(Square.of(sq).calcFlipsKindergarten(mover, enemy), LaneMoveGenerator.calcFlips(sq, mover, enemy));
+        }
+    }
+}
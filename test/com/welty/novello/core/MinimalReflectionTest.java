@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.core;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+public class MinimalReflectionTest extends TestCase {
+    public void testMatchesReflectionLoop() {
+        final Random random = new Random(1337);
+        for (int i = 0; i < 100000; i++) {
+            final long[] position = randomPosition(random);
+            final MinimalReflection mr = new MinimalReflection(position[0], position[1]);
+            final long[] expected = loopMinimalReflection(position[0], position[1]);
+            assertEquals(expected[0], mr.mover);
+            assertEquals(expected[1], mr.enemy);
+        }
+    }
+
+    public void testReflectionsHaveSameMinimalReflectionAndHash() {
+        final Random random = new Random(1337);
+        for (int i = 0; i < 10000; i++) {
+            final long[] position = randomPosition(random);
+            final MinimalReflection mr = new MinimalReflection(position[0], position[1]);
+            final long hash = MinimalReflection.symmetricHash(position[0], position[1]);
+            for (int r = 1; r < 8; r++) {
+                final long mover = BitBoardUtils.reflection(position[0], r);
+                final long enemy = BitBoardUtils.reflection(position[1], r);
+                assertEquals(mr, new MinimalReflection(mover, enemy));
+                assertEquals(hash, MinimalReflection.symmetricHash(mover, enemy));
+            }
+        }
+    }
+
+    public void testSymmetricHashDistinguishesPositions() {
+        final Board start = Board.START_BOARD;
+        final Board f5 = start.play("F5");
+        final Board e6 = start.play("E6");
+        final Board f5f6 = f5.play("F6");
+        final Board f5d6 = f5.play("D6");
+        assertEquals(MinimalReflection.symmetricHash(f5.mover(), f5.enemy()), MinimalReflection.symmetricHash(e6.mover(), e6.enemy()));
+        assertFalse(MinimalReflection.symmetricHash(f5f6.mover(), f5f6.enemy()) == MinimalReflection.symmetricHash(f5d6.mover(), f5d6.enemy()));
+        assertFalse(MinimalReflection.symmetricHash(f5.mover(), f5.enemy()) == MinimalReflection.symmetricHash(f5.enemy(), f5.mover()));
+    }
+
+    public void testSignedOrder() {
+        // reflections of the sign bit compare smaller than reflections of bit 0, which is a corner
+        for (long mover : new long[]{Long.MIN_VALUE, 1L, 0x80L, Long.MIN_VALUE | 1L}) {
+            final MinimalReflection mr = new MinimalReflection(mover, 0x0000001818000000L & ~mover);
+            final long[] expected = loopMinimalReflection(mover, 0x0000001818000000L & ~mover);
+            assertEquals(expected[0], mr.mover);
+            assertEquals(expected[1], mr.enemy);
+        }
+        assertEquals(Long.MIN_VALUE, new MinimalReflection(1L, 0).mover);
+    }
+
+    /**
+     * Random position with some empty squares, some disks of each color, and some positions with
+     * reflective symmetry so that ties between reflections are tested.
+     */
+    private static long[] randomPosition(Random random) {
+        long mover = random.nextLong() & random.nextLong();
+        long enemy = random.nextLong() & random.nextLong() & ~mover;
+        switch (random.nextInt(4)) {
+            case 0:
+                // symmetric under reversal of bytes
+                mover = (mover & 0xFFFFFFFFL) | Long.reverseBytes(mover & 0xFFFFFFFFL);
+                enemy = (enemy & 0xFFFFFFFFL) | Long.reverseBytes(enemy & 0xFFFFFFFFL);
+                enemy &= ~mover;
+                break;
+            case 1:
+                // symmetric mover; enemy breaks the tie
+                mover = mover | Long.reverse(mover);
+                enemy &= ~mover;
+                break;
+            default:
+                // arbitrary position
+        }
+        return new long[]{mover, enemy};
+    }
+
+    /**
+     * Calculate the minimal reflection the way it was originally calculated, one reflection at a time
+     *
+     * @return {mover, enemy} of the minimal reflection
+     */
+    private static long[] loopMinimalReflection(long mover, long enemy) {
+        long minMover = mover;
+        long minEnemy = enemy;
+        for (int r = 1; r < 8; r++) {
+            final long rMover = BitBoardUtils.reflection(mover, r);
+            final long rEnemy = BitBoardUtils.reflection(enemy, r);
+            if (rMover < minMover || (rMover == minMover && rEnemy < minEnemy)) {
+                minMover = rMover;
+                minEnemy = rEnemy;
+            }
+        }
+        return new long[]{minMover, minEnemy};
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+
+package com.welty.novello.core;
+
+import com.welty.novello.solver.SampleGames;
+
+import java.util.List;
+
+/**
+ * Compare the speed of the default move generator with {@link LaneMoveGenerator}.
+ * <p/>
+ * Positions are taken from the sample games. Flips are calculated for every legal move of each position.
+ */
+public class MoveGenTimer {
+    private static final int N_WARMUP_ROUNDS = 5;
+    private static final int N_TIMED_ROUNDS = 10;
+
+    public static void main(String[] args) {
+        System.out.println("LANE_MOVE_GEN = " + BitBoardUtils.LANE_MOVE_GEN);
+        final List<Board> boards = SampleGames.saioBoards();
+        final int n = boards.size();
+        final long[] movers = new long[n];
+        final long[] enemies = new long[n];
+        int nMoves = 0;
+        for (int i = 0; i < n; i++) {
+            movers[i] = boards.get(i).mover();
+            enemies[i] = boards.get(i).enemy();
+            nMoves += Long.bitCount(BitBoardUtils.calcMovesKoggeStone(movers[i], enemies[i]));
+        }
+
+        // interleave rounds so both implementations see the same machine conditions
+        long bestKoggeStone = 0;
+        long bestLanes = 0;
+        long bestKindergarten = 0;
+        long bestLaneFlips = 0;
+        for (int round = 0; round < N_WARMUP_ROUNDS + N_TIMED_ROUNDS; round++) {
+            final long t0 = System.nanoTime();
+            final long sum0 = movesKoggeStone(movers, enemies);
+            final long t1 = System.nanoTime();
+            final long sum1 = movesLanes(movers, enemies);
+            final long t2 = System.nanoTime();
+            final long sum2 = flipsKindergarten(movers, enemies);
+            final long t3 = System.nanoTime();
+            final long sum3 = flipsLanes(movers, enemies);
+            final long t4 = System.nanoTime();
+            if (sum0 != sum1 || sum2 != sum3) {
+                throw new IllegalStateException("Move generators disagree");
+            }
+            if (round >= N_WARMUP_ROUNDS) {
+                bestKoggeStone = best(bestKoggeStone, t1 - t0);
+                bestLanes = best(bestLanes, t2 - t1);
+                bestKindergarten = best(bestKindergarten, t3 - t2);
+                bestLaneFlips = best(bestLaneFlips, t4 - t3);
+            }
+        }
+
+        System.out.format("%,d positions, %,d moves, best of %d rounds%n", n, nMoves, N_TIMED_ROUNDS);
+        System.out.format("calcMoves  Kogge-Stone  %5.2f ns   lanes %5.2f ns%n", bestKoggeStone / (double) n, bestLanes / (double) n);
+        System.out.format("calcFlips  kindergarten %5.2f ns   lanes %5.2f ns%n", bestKindergarten / (double) nMoves, bestLaneFlips / (double) nMoves);
+    }
+
+    private static long best(long best, long dt) {
+        return best == 0 || dt < best ? dt : best;
+    }
+
+    private static long movesKoggeStone(long[] movers, long[] enemies) {
+        long sum = 0;
+        for (int i = 0; i < movers.length; i++) {
+            sum += BitBoardUtils.calcMovesKoggeStone(movers[i], enemies[i]);
+        }
+        return sum;
+    }
+
+    private static long movesLanes(long[] movers, long[] enemies) {
+        long sum = 0;
+        for (int i = 0; i < movers.length; i++) {
+            sum += LaneMoveGenerator.calcMoves(movers[i], enemies[i]);
+        }
+        return sum;
+    }
+
+    private static long flipsKindergarten(long[] movers, long[] enemies) {
+        long sum = 0;
+        for (int i = 0; i < movers.length; i++) {
+            long moves = BitBoardUtils.calcMovesKoggeStone(movers[i], enemies[i]);
+            while (moves != 0) {
+                final int sq = Long.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                sum += Square.of(sq).calcFlipsKindergarten(movers[i], enemies[i]);
+            }
+        }
+        return sum;
+    }
+
+    private static long flipsLanes(long[] movers, long[] enemies) {
+        long sum = 0;
+        for (int i = 0; i < movers.length; i++) {
+            long moves = BitBoardUtils.calcMovesKoggeStone(movers[i], enemies[i]);
+            while (moves != 0) {
+                final int sq = Long.numberOfTrailingZeros(moves);
+                moves &= moves - 1;
+                sum += LaneMoveGenerator.calcFlips(sq, movers[i], enemies[i]);
+            }
+        }
+        return sum;
+    }
+}
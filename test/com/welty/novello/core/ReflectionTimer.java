@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.core;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compare the speed of the original minimal reflection loop with {@link MinimalReflection}'s constructor
+ * and {@link MinimalReflection#symmetricHash(long, long)}.
+ * <p/>
+ * Positions are taken from random games.
+ */
+public class ReflectionTimer {
+    private static final int N_WARMUP_ROUNDS = 5;
+    private static final int N_TIMED_ROUNDS = 10;
+    private static final int N_GAMES = 20000;
+
+    public static void main(String[] args) {
+        final List<Board> boards = Board.randomGameBoards(new Random(1337), N_GAMES);
+        final int n = boards.size();
+        final long[] movers = new long[n];
+        final long[] enemies = new long[n];
+        for (int i = 0; i < n; i++) {
+            movers[i] = boards.get(i).mover();
+            enemies[i] = boards.get(i).enemy();
+        }
+
+        // interleave rounds so all implementations see the same machine conditions
+        long bestLoop = 0;
+        long bestMasks = 0;
+        long bestHash = 0;
+        for (int round = 0; round < N_WARMUP_ROUNDS + N_TIMED_ROUNDS; round++) {
+            final long t0 = System.nanoTime();
+            final long sum0 = loop(movers, enemies, n);
+            final long t1 = System.nanoTime();
+            final long sum1 = masks(movers, enemies, n);
+            final long t2 = System.nanoTime();
+            final long sum2 = symmetricHash(movers, enemies, n);
+            final long t3 = System.nanoTime();
+            if (sum0 != sum1) {
+                throw new IllegalStateException("Minimal reflections disagree");
+            }
+            if (round >= N_WARMUP_ROUNDS) {
+                bestLoop = best(bestLoop, t1 - t0);
+                bestMasks = best(bestMasks, t2 - t1);
+                bestHash = best(bestHash, t3 - t2);
+            }
+            if (sum2 == 0) {
+                System.out.println("(unlikely) hash sum is 0");
+            }
+        }
+
+        System.out.format("%,d positions, best of %d rounds%n", n, N_TIMED_ROUNDS);
+        System.out.format("minimal reflection  loop %5.2f ns   masks %5.2f ns%n", bestLoop / (double) n, bestMasks / (double) n);
+        System.out.format("symmetric hash      %5.2f ns%n", bestHash / (double) n);
+    }
+
+    private static long best(long best, long dt) {
+        return best == 0 || dt < best ? dt : best;
+    }
+
+    private static long loop(long[] movers, long[] enemies, int n) {
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            final long mover = movers[i];
+            final long enemy = enemies[i];
+            long minMover = mover;
+            long minEnemy = enemy;
+            for (int r = 1; r < 8; r++) {
+                final long rMover = BitBoardUtils.reflection(mover, r);
+                final long rEnemy = BitBoardUtils.reflection(enemy, r);
+                if (rMover < minMover || (rMover == minMover && rEnemy < minEnemy)) {
+                    minMover = rMover;
+                    minEnemy = rEnemy;
+                }
+            }
+            sum += minMover * 31 + minEnemy;
+        }
+        return sum;
+    }
+
+    private static long masks(long[] movers, long[] enemies, int n) {
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            final MinimalReflection mr = new MinimalReflection(movers[i], enemies[i]);
+            sum += mr.mover * 31 + mr.enemy;
+        }
+        return sum;
+    }
+
+    private static long symmetricHash(long[] movers, long[] enemies, int n) {
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += MinimalReflection.symmetricHash(movers[i], enemies[i]);
+        }
+        return sum;
+    }
+}
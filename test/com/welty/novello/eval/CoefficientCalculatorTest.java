@@ -16,13 +16,21 @@
 package com.welty.novello.eval;
 
 import com.orbanova.common.misc.Vec;
+import com.welty.novello.coca.MvStore;
+import com.welty.novello.coca.PositionIndex;
 import com.welty.novello.coca.RarePositionMrSource;
+import com.welty.novello.core.BitBoardUtils;
+import com.welty.novello.core.Board;
 import com.welty.novello.core.Me;
 import com.welty.novello.core.MeValue;
 import com.welty.novello.core.MinimalReflection;
 import junit.framework.TestCase;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import static org.junit.Assert.assertArrayEquals;
@@ -99,6 +107,100 @@ public class CoefficientCalculatorTest extends TestCase {
         }
     }
 
+    public void testChunkedErrorFunction() {
+        final Random random = new Random(1337);
+        final int nCoefficients = 20;
+        final PositionElement[] elements = new PositionElement[1001];
+        for (int i = 0; i < elements.length; i++) {
+            final int[] indices = {random.nextInt(nCoefficients), random.nextInt(nCoefficients), random.nextInt(nCoefficients)};
+            elements[i] = new PositionElement(indices, random.nextInt(200) - 100, new float[]{random.nextFloat()});
+        }
+        final double[] x = new double[nCoefficients + 1];
+        final double[] dx = new double[nCoefficients + 1];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextGaussian();
+            dx[i] = random.nextGaussian();
+        }
+
+        final CoefficientCalculator.ErrorFunction serial = new CoefficientCalculator.ErrorFunction(elements, nCoefficients, 1, 0.5, 1);
+        for (int nChunks = 2; nChunks <= 7; nChunks++) {
+            final CoefficientCalculator.ErrorFunction chunked = new CoefficientCalculator.ErrorFunction(elements, nCoefficients, 1, 0.5, nChunks);
+            final double y = serial.y(x);
+            assertEquals(y, chunked.y(x), 1e-9 * y);
+            assertArrayEquals(serial.minusGradient(x), chunked.minusGradient(x), 1e-6);
+            for (int a = -1; a <= 1; a++) {
+                final double lineY = serial.getLineFunction(x, dx).y(a);
+                assertEquals(lineY, chunked.getLineFunction(x, dx).y(a), 1e-9 * lineY);
+            }
+        }
+    }
+
+    public void testWeightedElements() {
+        final Random random = new Random(1337);
+        final int nCoefficients = 10;
+        final List<PositionElement> copies = new ArrayList<>();
+        final List<PositionElement> weighted = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            final int[] indices = {random.nextInt(nCoefficients), random.nextInt(nCoefficients)};
+            final PositionElement element = new PositionElement(indices, random.nextInt(200) - 100, new float[]{random.nextFloat()});
+            final int weight = 1 + random.nextInt(3);
+            for (int j = 0; j < weight; j++) {
+                copies.add(element);
+            }
+            weighted.add(element.withWeight(weight));
+        }
+        final double[] x = new double[nCoefficients + 1];
+        final double[] dx = new double[nCoefficients + 1];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextGaussian();
+            dx[i] = random.nextGaussian();
+        }
+
+        final CoefficientCalculator.ErrorFunction expected = new CoefficientCalculator.ErrorFunction(copies.toArray(new PositionElement[copies.size()]), nCoefficients, 1, 0.5);
+        final CoefficientCalculator.ErrorFunction actual = new CoefficientCalculator.ErrorFunction(weighted.toArray(new PositionElement[weighted.size()]), nCoefficients, 1, 0.5);
+        final double y = expected.y(x);
+        assertEquals(y, actual.y(x), 1e-9 * y);
+        assertArrayEquals(expected.minusGradient(x), actual.minusGradient(x), 1e-6);
+        for (int a = -1; a <= 1; a++) {
+            final double lineY = expected.getLineFunction(x, dx).y(a);
+            assertEquals(lineY, actual.getLineFunction(x, dx).y(a), 1e-9 * lineY);
+        }
+    }
+
+    /**
+     * As MvGenerator.getPositionIndex() indexes the sources' stores, copies of a position in the first store that
+     * contains it become one element with the copies' mean value and count; copies in later stores are ignored.
+     */
+    public void testElementsFromCopiesInSeveralStores() {
+        final Board board = Board.START_BOARD.play("F5").play("D6").play("C3").play("D3");
+        final Board later = board.play("C4").play("F4");
+        final long rMover = BitBoardUtils.reflection(board.mover(), 5);
+        final long rEnemy = BitBoardUtils.reflection(board.enemy(), 5);
+
+        final MvStore store1 = MvStore.of(Arrays.asList(
+                new MeValue(board.mover(), board.enemy(), 100),
+                new MeValue(later.mover(), later.enemy(), 40),
+                new MeValue(rMover, rEnemy, 300)
+        ));
+        final MvStore store2 = MvStore.of(Arrays.asList(
+                new MeValue(later.mover(), later.enemy(), -500),
+                new MeValue(board.mover(), board.enemy(), 1000)
+        ));
+        final PositionIndex index = PositionIndex.of(Arrays.asList(store1, store2));
+        assertEquals(3, index.nCopies());
+        assertEquals(2, index.size());
+
+        final EvalStrategy strategy = EvalStrategies.strategy("j");
+        final PositionElement[] elements = CoefficientCalculator.elementsFromPvs(strategy, index, board.nEmpty());
+        final MinimalReflection mr = new MinimalReflection(board.mover(), board.enemy());
+        final MinimalReflection laterMr = new MinimalReflection(later.mover(), later.enemy());
+        final Set<PositionElement> expected = new HashSet<>(Arrays.asList(
+                strategy.coefficientIndices(mr.mover, mr.enemy, 200).withWeight(2),
+                strategy.coefficientIndices(laterMr.mover, laterMr.enemy, 40)
+        ));
+        assertEquals(expected, new HashSet<>(Arrays.asList(elements)));
+    }
+
     public void testCoefficientErrorFunctionWithDenseOrid() {
         // One element with a dense coefficient of 1 and an orid of 0
         final PositionElement[] elements = {
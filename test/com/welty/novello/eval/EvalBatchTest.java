@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.eval;
+
+import com.welty.novello.core.Board;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class EvalBatchTest extends TestCase {
+    public void testEvalBatchMatchesEval() {
+        final Random random = new Random(31415);
+        final EvalStrategy strategy = EvalStrategies.strategy("j");
+        final CoefficientEval eval = new CoefficientEval(strategy, ExpandedCoefficientsJTest.randomCoefficientSet(strategy, random));
+        final List<Board> boards = randomGameBoards(random, 50);
+
+        checkBatch(eval, boards);
+        checkBatch(eval.expanded(), boards);
+        checkBatch(eval.packed(), boards);
+
+        // strategy without packed or expanded coefficients
+        final EvalStrategy strategyD = EvalStrategies.strategy("d");
+        checkBatch(new CoefficientEval(strategyD, ExpandedCoefficientsJTest.randomCoefficients(strategyD, random)), boards);
+    }
+
+    public void testEvalWithKnownMoves() {
+        final Random random = new Random(2718);
+        final EvalStrategy strategy = EvalStrategies.strategy("j");
+        final CoefficientEval eval = new CoefficientEval(strategy, ExpandedCoefficientsJTest.randomCoefficientSet(strategy, random));
+        for (Board board : randomGameBoards(random, 20)) {
+            final long mover = board.mover();
+            final long enemy = board.enemy();
+            assertEquals(eval.eval(mover, enemy), eval.eval(mover, enemy, board.calcMoves()));
+        }
+    }
+
+    private static void checkBatch(Eval eval, List<Board> boards) {
+        // reuse one batch to check that values from earlier batches don't leak into later batches
+        final EvalBatch batch = new EvalBatch(16);
+        for (int start = 0; start < boards.size(); start += batch.capacity()) {
+            batch.clear();
+            final int n = Math.min(batch.capacity(), boards.size() - start);
+            for (int i = 0; i < n; i++) {
+                batch.add(boards.get(start + i));
+            }
+            eval.evalBatch(batch);
+            assertEquals(n, batch.size());
+            for (int i = 0; i < n; i++) {
+                assertEquals(eval.eval(boards.get(start + i)), batch.value(i));
+            }
+        }
+    }
+
+    public void testBatchCapacity() {
+        final EvalBatch batch = new EvalBatch(2);
+        batch.add(Board.START_BOARD);
+        assertFalse(batch.isFull());
+        batch.add(Board.START_BOARD);
+        assertTrue(batch.isFull());
+        try {
+            batch.add(Board.START_BOARD);
+            fail("batch should be full");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        batch.clear();
+        assertEquals(0, batch.size());
+    }
+
+    /**
+     * @return every position with fewer than 60 empties from some random games, including positions where the
+     * mover must pass and final positions.
+     */
+    static List<Board> randomGameBoards(Random random, int nGames) {
+        final List<Board> boards = new ArrayList<>();
+        for (Board board : Board.randomGameBoards(random, nGames)) {
+            if (board.nEmpty() < 60) {
+                boards.add(board);
+            }
+        }
+        return boards;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+
+package com.welty.novello.eval;
+
+import com.welty.novello.core.Board;
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+public class EvalCompilerTest extends TestCase {
+    public void testCompiledEvalMatchesEval() {
+        final Random random = new Random(1618);
+        for (String name : new String[]{"c", "d", "j"}) {
+            final EvalStrategy strategy = EvalStrategies.strategy(name);
+            final CoefficientEval eval = new CoefficientEval(strategy, ExpandedCoefficientsJTest.randomCoefficientSet(strategy, random));
+            checkCompiled(eval, random);
+        }
+        final EvalStrategy diagonal = EvalStrategies.diagonal;
+        checkCompiled(new CoefficientEval(diagonal, ExpandedCoefficientsJTest.randomCoefficientSet(diagonal, random)), random);
+    }
+
+    private static void checkCompiled(CoefficientEval eval, Random random) {
+        final CoefficientEval compiled = eval.compiled();
+        for (Board board : EvalBatchTest.randomGameBoards(random, 20)) {
+            assertEquals(eval.eval(board.mover(), board.enemy()), compiled.eval(board.mover(), board.enemy()));
+        }
+    }
+
+    public void testUnsupportedTerm() {
+        // CornerTerm doesn't generate code
+        final EvalStrategy strategy = EvalStrategies.eval1;
+        final CoefficientEval eval = new CoefficientEval(strategy, ExpandedCoefficientsJTest.randomCoefficientSet(strategy, new Random(1)));
+        try {
+            eval.compiled();
+            fail("should throw");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testGenerateSource() {
+        final String source = EvalCompiler.generateSource(EvalStrategies.diagonal, "Foo");
+        assertTrue(source.contains("final class Foo extends ExpandedCoefficients"));
+        assertTrue(source.contains("DiagonalTerm.diagonalInstance"));
+    }
+}
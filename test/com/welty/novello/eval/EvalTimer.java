@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.eval;
+
+import com.welty.novello.core.Board;
+import com.welty.novello.selfplay.Players;
+import com.welty.novello.solver.SampleGames;
+
+import java.util.List;
+
+/**
+ * Compare the speed of the ntest eval with different coefficient layouts.
+ * <p/>
+ * Positions are taken from the sample games and evaluated in game order, so that consecutive evals use
+ * neighbouring coefficient slices as they do in a search.
+ */
+public class EvalTimer {
+    private static final int N_WARMUP_ROUNDS = 5;
+    private static final int N_TIMED_ROUNDS = 10;
+    private static final int BATCH_SIZE = 16;
+
+    public static void main(String[] args) {
+        final List<Board> boards = SampleGames.saioBoards();
+        final String[] evalNames = {"ntestK", "ntestP", "ntestX"};
+        final Eval[] evals = new Eval[evalNames.length];
+        for (int i = 0; i < evals.length; i++) {
+            evals[i] = Players.eval(evalNames[i]);
+        }
+
+        // interleave rounds so each eval sees the same machine conditions
+        final long[] bestNanos = new long[evals.length];
+        final long[] bestBatchNanos = new long[evals.length];
+        for (int round = 0; round < N_WARMUP_ROUNDS + N_TIMED_ROUNDS; round++) {
+            for (int i = 0; i < evals.length; i++) {
+                final long t0 = System.nanoTime();
+                final long sum = evalAll(evals[i], boards);
+                final long t1 = System.nanoTime();
+                final long batchSum = evalBatches(evals[i], boards);
+                final long t2 = System.nanoTime();
+                if (round >= N_WARMUP_ROUNDS) {
+                    bestNanos[i] = best(bestNanos[i], t1 - t0);
+                    bestBatchNanos[i] = best(bestBatchNanos[i], t2 - t1);
+                }
+                if (round == 0) {
+                    System.out.format("%s checksum %d, batch checksum %d%n", evalNames[i], sum, batchSum);
+                }
+            }
+        }
+
+        System.out.format("%,d positions, best of %d rounds%n", boards.size(), N_TIMED_ROUNDS);
+        for (int i = 0; i < evals.length; i++) {
+            final double nsPerEval = bestNanos[i] / (double) boards.size();
+            final double nsPerBatchEval = bestBatchNanos[i] / (double) boards.size();
+            System.out.format("%-7s %6.1f ns/eval  (%4.2fx ntestK)   batched %6.1f ns/eval%n", evalNames[i], nsPerEval
+                    , bestNanos[0] / (double) bestNanos[i], nsPerBatchEval);
+        }
+    }
+
+    private static long best(long best, long dt) {
+        return best == 0 || dt < best ? dt : best;
+    }
+
+    /**
+     * Evaluate the boards in batches of BATCH_SIZE, roughly the number of positions in a search's move list.
+     */
+    private static long evalBatches(Eval eval, List<Board> boards) {
+        final EvalBatch batch = new EvalBatch(BATCH_SIZE);
+        long sum = 0;
+        for (int start = 0; start < boards.size(); start += BATCH_SIZE) {
+            batch.clear();
+            final int n = Math.min(BATCH_SIZE, boards.size() - start);
+            for (int i = 0; i < n; i++) {
+                batch.add(boards.get(start + i));
+            }
+            eval.evalBatch(batch);
+            for (int i = 0; i < n; i++) {
+                sum += batch.value(i);
+            }
+        }
+        return sum;
+    }
+
+    private static long evalAll(Eval eval, List<Board> boards) {
+        long sum = 0;
+        for (Board board : boards) {
+            sum += eval.eval(board.mover(), board.enemy());
+        }
+        return sum;
+    }
+}
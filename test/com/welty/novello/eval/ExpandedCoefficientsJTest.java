@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.eval;
+
+import com.welty.novello.core.BitBoardUtils;
+import com.welty.novello.core.Board;
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class ExpandedCoefficientsJTest extends TestCase {
+    public void testEvalMatchesStrategy() {
+        final Random random = new Random(1337);
+        final EvalStrategy strategy = EvalStrategies.strategy("j");
+        final CoefficientSet coefficientSet = randomCoefficientSet(strategy, random);
+        final ExpandedCoefficients expanded = strategy.expand(coefficientSet);
+        assertNotNull(expanded);
+        assertMatchesStrategy(strategy, coefficientSet, expanded, random);
+    }
+
+    /**
+     * Generate random coefficients with slices shared the way CEvaluatorJ shares them.
+     * <p/>
+     * Coefficients alternate between two sets, some as separate copies. Like CEvaluatorJ, there are only 60 slices;
+     * 0 empties is never evaluated since the mover must have a move.
+     */
+    static CoefficientSet randomCoefficientSet(EvalStrategy strategy, Random random) {
+        final short[][] even = randomCoefficients(strategy, random);
+        final short[][] odd = randomCoefficients(strategy, random);
+        final short[][][] slices = new short[60][][];
+        for (int nEmpty = 0; nEmpty < 60; nEmpty++) {
+            final short[][] slice = (nEmpty & 1) == 0 ? even : odd;
+            slices[nEmpty] = nEmpty % 3 == 0 ? copy(slice) : slice;
+        }
+        return new CoefficientSet(slices, "random");
+    }
+
+    /**
+     * Check that coefficients evaluate exactly as the strategy does, in positions from random games
+     */
+    static void assertMatchesStrategy(EvalStrategy strategy, CoefficientSet coefficientSet, ExpandedCoefficients expanded, Random random) {
+        for (Board board : Board.randomGameBoards(random, 100)) {
+            final long moves = board.calcMoves();
+            if (board.nEmpty() < 60 && moves != 0) {
+                final long mover = board.mover();
+                final long enemy = board.enemy();
+                final long enemyMoves = BitBoardUtils.calcMoves(enemy, mover);
+                final int expected = strategy.eval(mover, enemy, moves, enemyMoves, coefficientSet);
+                assertEquals(expected, expanded.eval(mover, enemy, moves, enemyMoves));
+            }
+        }
+    }
+
+    public void testExpandedEval() {
+        final EvalStrategy strategy = EvalStrategies.strategy("j");
+        final CoefficientEval eval = new CoefficientEval(strategy, randomCoefficients(strategy, new Random(1)));
+        final CoefficientEval expanded = eval.expanded();
+        final Board board = Board.START_BOARD.play("F5").play("D6");
+        assertEquals(eval.eval(board.mover(), board.enemy()), expanded.eval(board.mover(), board.enemy()));
+    }
+
+    public void testDistinctSlices() {
+        final short[][] a = {{1, 2}, {3}};
+        final short[][] b = {{1, 2}, {4}};
+        final CoefficientSet coefficientSet = new CoefficientSet(new short[][][]{a, null, b, copy(a), b}, "test");
+        assertTrue(Arrays.equals(new int[]{0, -1, 2, 0, 2}, coefficientSet.distinctSlices()));
+    }
+
+    private static short[][] copy(short[][] slice) {
+        final short[][] copy = new short[slice.length][];
+        for (int i = 0; i < slice.length; i++) {
+            copy[i] = slice[i].clone();
+        }
+        return copy;
+    }
+
+    static short[][] randomCoefficients(EvalStrategy strategy, Random random) {
+        final short[][] coefficients = new short[strategy.nFeatures()][];
+        for (int iFeature = 0; iFeature < coefficients.length; iFeature++) {
+            final short[] featureCoefficients = new short[strategy.getFeature(iFeature).nOrids()];
+            for (int orid = 0; orid < featureCoefficients.length; orid++) {
+                featureCoefficients[orid] = (short) (random.nextInt(401) - 200);
+            }
+            coefficients[iFeature] = featureCoefficients;
+        }
+        return coefficients;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.eval;
+
+import com.welty.novello.core.Board;
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+public class PackedCoefficientsJTest extends TestCase {
+    public void testEvalMatchesStrategy() {
+        final Random random = new Random(2718);
+        final EvalStrategy strategy = EvalStrategies.strategy("j");
+        final CoefficientSet coefficientSet = ExpandedCoefficientsJTest.randomCoefficientSet(strategy, random);
+        final ExpandedCoefficients packed = strategy.pack(coefficientSet);
+        assertNotNull(packed);
+        ExpandedCoefficientsJTest.assertMatchesStrategy(strategy, coefficientSet, packed, random);
+    }
+
+    public void testPackedEval() {
+        final EvalStrategy strategy = EvalStrategies.strategy("j");
+        final CoefficientEval eval = new CoefficientEval(strategy, ExpandedCoefficientsJTest.randomCoefficients(strategy, new Random(1)));
+        final CoefficientEval packed = eval.packed();
+        final Board board = Board.START_BOARD.play("F5").play("D6");
+        assertEquals(eval.eval(board.mover(), board.enemy()), packed.eval(board.mover(), board.enemy()));
+    }
+
+    public void testWrongStrategy() {
+        final EvalStrategy strategy = EvalStrategies.strategy("d");
+        final CoefficientEval eval = new CoefficientEval(strategy, ExpandedCoefficientsJTest.randomCoefficients(strategy, new Random(1)));
+        try {
+            eval.packed();
+            fail("strategy d can't pack coefficients");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
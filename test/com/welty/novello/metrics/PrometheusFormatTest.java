@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.metrics;
+
+import com.welty.novello.core.Counts;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+public class PrometheusFormatTest extends TestCase {
+    public void testFormat() {
+        final String text = PrometheusFormat.format(Arrays.<MetricsSource>asList(new FakeSource()));
+        assertTrue(text, text.contains("# TYPE novello_nodes_total counter\n"));
+        assertTrue(text, text.contains("novello_nodes_total{engine=\"ntest \\\"j\\\"\"} 2000\n"));
+        assertTrue(text, text.contains("novello_nodes_per_second{engine=\"ntest \\\"j\\\"\"} 1000.0\n"));
+        assertTrue(text, text.contains("novello_hash_occupancy_ratio{engine=\"ntest \\\"j\\\"\",table=\"midgame\"} 0.25\n"));
+        assertTrue(text, text.contains("novello_book_hit_ratio{engine=\"ntest \\\"j\\\"\"} 0.5\n"));
+        assertTrue(text, text.contains("novello_search_depth_last{engine=\"ntest \\\"j\\\"\"} 12\n"));
+    }
+
+    public void testReadsEachSourceOnce() {
+        final FakeSource source = new FakeSource();
+        PrometheusFormat.format(Arrays.<MetricsSource>asList(source, new FakeSource()));
+        assertEquals(1, source.nMetricsCalls);
+        assertEquals(1, source.nEngineStatisticsCalls);
+    }
+
+    public void testEscape() {
+        assertEquals("a\\\\b\\\"c\\n", PrometheusFormat.escape("a\\b\"c\n"));
+    }
+
+    private static class FakeSource implements MetricsSource {
+        private final EngineStatistics engineStatistics = new EngineStatistics();
+        int nMetricsCalls;
+        int nEngineStatisticsCalls;
+
+        FakeSource() {
+            engineStatistics.updateBookProbe(true);
+            engineStatistics.updateBookProbe(false);
+            engineStatistics.updateSearch(12, 0, -1);
+        }
+
+        @NotNull @Override public String getName() {
+            return "ntest \"j\"";
+        }
+
+        @NotNull @Override public MetricsSnapshot getMetrics() {
+            nMetricsCalls++;
+            final HashCounts hashCounts = new HashCounts(0, 0, 0, 0, 0, 0);
+            final long[] zeros = new long[64];
+            return new MetricsSnapshot(new Counts(2000, 100), 2000, hashCounts, hashCounts, zeros, zeros, zeros, zeros);
+        }
+
+        @NotNull @Override public EngineStatistics getEngineStatistics() {
+            nEngineStatisticsCalls++;
+            return engineStatistics;
+        }
+
+        @Override public double getEndgameHashOccupancy() {
+            return 0.5;
+        }
+
+        @Override public double getMidgameHashOccupancy() {
+            return 0.25;
+        }
+    }
+}
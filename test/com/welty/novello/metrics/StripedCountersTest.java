@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.metrics;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+public class StripedCountersTest extends TestCase {
+    public void testSingleThread() {
+        final StripedCounters counters = new StripedCounters(3);
+        counters.increment(0);
+        counters.add(2, 5);
+        counters.increment(2);
+        assertEquals(1, counters.get(0));
+        assertEquals(0, counters.get(1));
+        assertEquals(6, counters.get(2));
+        assertEquals(7, counters.sum());
+        assertTrue(Arrays.equals(new long[]{0, 6}, counters.get(1, 2)));
+
+        counters.reset();
+        assertEquals(0, counters.sum());
+    }
+
+    public void testMultithreaded() throws InterruptedException {
+        final StripedCounters counters = new StripedCounters(2);
+        final int nThreads = 8;
+        final int nIncrements = 10000;
+        final Thread[] threads = new Thread[nThreads];
+        for (int t = 0; t < nThreads; t++) {
+            threads[t] = new Thread() {
+                @Override public void run() {
+                    for (int i = 0; i < nIncrements; i++) {
+                        counters.increment(1);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, counters.get(0));
+        assertEquals(nThreads * nIncrements, counters.get(1));
+    }
+}
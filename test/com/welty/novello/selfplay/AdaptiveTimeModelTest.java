@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.selfplay;
+
+import junit.framework.TestCase;
+
+public class AdaptiveTimeModelTest extends TestCase {
+    private static final SearchDepth SOLVE = new SearchDepth(20, Integer.MAX_VALUE, true);
+
+    public void testBuiltIn() {
+        final AdaptiveTimeModel model = new AdaptiveTimeModel();
+        assertEquals(TimeModel.BUILT_IN.lnSolveTime(22), model.lnSolveTime(22), 1e-9);
+        assertEquals(TimeModel.BUILT_IN.lnTime(30, 2), model.lnTime(30, 2), 1e-9);
+        assertEquals(TimeModel.BUILT_IN.solveSeconds(22), model.solveSeconds(22), 1e-9);
+        assertTrue(Double.isNaN(model.roundSeconds(SOLVE, 22)));
+        assertTrue(Double.isNaN(TimeModel.BUILT_IN.roundSeconds(SOLVE, 22)));
+    }
+
+    public void testFasterMachine() {
+        final AdaptiveTimeModel model = new AdaptiveTimeModel();
+        // this machine solves 4x faster than the built-in model
+        for (int i = 0; i < 20; i++) {
+            for (int nEmpty = 20; nEmpty <= 24; nEmpty++) {
+                final double seconds = Math.exp(TimeModel.BUILT_IN.lnSolveTime(nEmpty)) / 4;
+                model.update(SOLVE, nEmpty, (long) (seconds * 1e7), seconds);
+            }
+        }
+        final double expected = TimeModel.BUILT_IN.lnSolveTime(22) - Math.log(4);
+        assertEquals(expected, model.lnSolveTime(22), 0.1);
+        assertEquals(Math.exp(expected), model.roundSeconds(SOLVE, 22), 0.1 * Math.exp(expected));
+        assertEquals(1e7, model.getNodesPerSecond(), 1e4);
+
+        // midgame model is unaffected by solves
+        assertEquals(TimeModel.BUILT_IN.lnTime(30, 2), model.lnTime(30, 2), 1e-9);
+        assertTrue(Double.isNaN(model.roundSeconds(new SearchDepth(10, 0, false), 30)));
+    }
+
+    public void testShortSearchesIgnored() {
+        final AdaptiveTimeModel model = new AdaptiveTimeModel();
+        for (int i = 0; i < 10; i++) {
+            model.update(SOLVE, 10, 1000, AdaptiveTimeModel.MIN_SECONDS / 2);
+        }
+        assertEquals(TimeModel.BUILT_IN.lnSolveTime(10), model.lnSolveTime(10), 1e-9);
+        assertTrue(Double.isNaN(model.roundSeconds(SOLVE, 10)));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.selfplay;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+public class SprtTest extends TestCase {
+    public void testEloConversion() {
+        assertEquals(0.5, Sprt.score(0), 1e-12);
+        assertEquals(0.75, Sprt.score(400 * Math.log10(3)), 1e-12);
+        for (double elo = -300; elo <= 300; elo += 25) {
+            assertEquals(elo, Sprt.elo(Sprt.score(elo)), 1e-9);
+        }
+        assertEquals(Double.POSITIVE_INFINITY, Sprt.elo(1));
+        assertEquals(Double.NEGATIVE_INFINITY, Sprt.elo(0));
+    }
+
+    public void testStatistics() {
+        final Sprt sprt = new Sprt(0, 10);
+        assertEquals(0, sprt.nMatches());
+        assertEquals(0.5, sprt.mean());
+        assertEquals(0., sprt.llr());
+        assertEquals(Sprt.Decision.NONE, sprt.decision());
+
+        sprt.add(4, 2);     // two wins: 4 half-points
+        sprt.add(-4, 0);    // loss and draw: 1 half-point
+        sprt.add(10, -2);   // win and loss: 2 half-points
+        sprt.add(0, 0);     // two draws: 2 half-points
+        assertEquals(4, sprt.nMatches());
+        // match scores 1, .25, .5, .5
+        assertEquals(0.5625, sprt.mean(), 1e-12);
+        final double variance = (0.4375 * 0.4375 + 0.3125 * 0.3125 + 2 * 0.0625 * 0.0625) / 4;
+        assertEquals(variance, sprt.variance(), 1e-12);
+
+        final double s0 = 0.5;
+        final double s1 = Sprt.score(10);
+        assertEquals(4 * (s1 - s0) * (2 * 0.5625 - s0 - s1) / (2 * variance), sprt.llr(), 1e-12);
+        assertEquals(Sprt.elo(0.5625), sprt.elo(), 1e-12);
+    }
+
+    public void testBounds() {
+        final Sprt sprt = new Sprt(0, 10, 0.05, 0.1);
+        assertEquals(Math.log(0.1 / 0.95), sprt.lowerBound(), 1e-12);
+        assertEquals(Math.log(0.9 / 0.05), sprt.upperBound(), 1e-12);
+        try {
+            new Sprt(10, 0);
+            fail("elo1 must be greater than elo0");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testDecisions() {
+        assertEquals(Sprt.Decision.H1, simulate(Sprt.score(40), 1));
+        assertEquals(Sprt.Decision.H0, simulate(Sprt.score(-30), 2));
+        assertEquals(Sprt.Decision.H0, simulate(0.5, 3));
+    }
+
+    public void testOneSidedRunsStop() {
+        final Sprt allWins = addUntilDecision(4);
+        assertEquals(Sprt.Decision.H1, allWins.decision());
+        assertEquals(5, allWins.nMatches());
+
+        final Sprt allLosses = addUntilDecision(0);
+        assertEquals(Sprt.Decision.H0, allLosses.decision());
+        assertEquals(5, allLosses.nMatches());
+    }
+
+    public void testVarianceFloor() {
+        final Sprt sprt = new Sprt(0, 10);
+        sprt.add(3);
+        sprt.add(3);
+        assertEquals(0., sprt.variance());
+        final double s0 = 0.5;
+        final double s1 = Sprt.score(10);
+        assertEquals(2 * (s1 - s0) * (2 * 0.75 - s0 - s1) / (2 * Sprt.MIN_VARIANCE), sprt.llr(), 1e-12);
+    }
+
+    /**
+     * Add matches with the same score to an SPRT of elo 0 vs elo 10 until it reaches a decision.
+     *
+     * @param halfPoints score of every match
+     * @return the SPRT, which has reached a decision
+     */
+    private static Sprt addUntilDecision(int halfPoints) {
+        final Sprt sprt = new Sprt(0, 10);
+        while (sprt.decision() == Sprt.Decision.NONE) {
+            assertTrue(sprt.toString(), sprt.nMatches() < 100);
+            sprt.add(halfPoints);
+        }
+        return sprt;
+    }
+
+    /**
+     * Add simulated matches to an SPRT of elo 0 vs elo 10 until it reaches a decision.
+     *
+     * @param p    probability that player 1 wins each game; games are never drawn.
+     * @param seed random number seed
+     * @return the SPRT's decision
+     */
+    private static Sprt.Decision simulate(double p, long seed) {
+        final Random random = new Random(seed);
+        final Sprt sprt = new Sprt(0, 10);
+        for (int i = 0; i < 1000000; i++) {
+            final int netScore1 = random.nextDouble() < p ? 1 : -1;
+            final int netScore2 = random.nextDouble() < p ? 1 : -1;
+            sprt.add(netScore1, netScore2);
+            final Sprt.Decision decision = sprt.decision();
+            if (decision != Sprt.Decision.NONE) {
+                final double elo = Sprt.elo(p);
+                assertTrue(sprt.toString(), Math.abs(sprt.elo() - elo) < 3 * sprt.eloError());
+                return decision;
+            }
+        }
+        return Sprt.Decision.NONE;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.selfplay;
+
+import com.welty.novello.core.BitBoardUtils;
+import com.welty.novello.core.Board;
+import com.welty.novello.core.MinimalReflection;
+import junit.framework.TestCase;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+public class StartPositionCatalogTest extends TestCase {
+    private static final long CENTER_16 = 0x00003C3C3C3C0000L;
+
+    public void testSize() {
+        assertEquals(50777, StartPositionCatalog.size(9));
+    }
+
+    public void testMatchesBruteForce() {
+        final HashSet<MinimalReflection>[] expected = bruteForce(6);
+        for (int nDisks = 4; nDisks <= 6; nDisks++) {
+            final HashSet<MinimalReflection> actual = new HashSet<>();
+            for (int i = 0; i < StartPositionCatalog.size(nDisks); i++) {
+                final Board board = StartPositionCatalog.get(nDisks, i);
+                assertTrue(actual.add(mr(board)));
+            }
+            assertEquals(expected[nDisks], actual);
+        }
+    }
+
+    public void testSample() {
+        final List<Board> boards = StartPositionCatalog.sample(9, 1000, new Random(1337));
+        assertEquals(1000, boards.size());
+        final HashSet<MinimalReflection> seen = new HashSet<>();
+        for (Board board : boards) {
+            assertTrue(seen.add(mr(board)));
+            assertEquals(9, Long.bitCount(~board.empty()));
+            assertEquals(0, ~board.empty() & ~CENTER_16);
+            assertEquals(BitBoardUtils.CENTER_4, ~board.empty() & BitBoardUtils.CENTER_4);
+            assertFalse(board.blackToMove);
+            assertTrue(board.hasLegalMove());
+        }
+
+        assertEquals(boards, StartPositionCatalog.sample(9, 1000, new Random(1337)));
+        assertEquals(StartPositionCatalog.size(9), StartPositionCatalog.shuffled(9, new Random(1)).size());
+    }
+
+    /**
+     * Enumerate all colorings of the center 16 squares and keep one reflection of each legal start position.
+     *
+     * @return positions[nDisks] is the set of start positions with nDisks disks, for nDisks &le; maxDisks
+     */
+    private static HashSet<MinimalReflection>[] bruteForce(int maxDisks) {
+        @SuppressWarnings("unchecked")
+        final HashSet<MinimalReflection>[] positions = new HashSet[maxDisks + 1];
+        for (int nDisks = 0; nDisks <= maxDisks; nDisks++) {
+            positions[nDisks] = new HashSet<>();
+        }
+        for (int i = 0; i < 6561 * 6561; i++) {
+            long black = 0;
+            long white = 0;
+            int code = i;
+            for (int row = 2; row < 6; row++) {
+                for (int col = 2; col < 6; col++) {
+                    final int color = code % 3;
+                    code /= 3;
+                    if (color == 1) {
+                        black |= BitBoardUtils.bit(row, col);
+                    } else if (color == 2) {
+                        white |= BitBoardUtils.bit(row, col);
+                    }
+                }
+            }
+            final long occupied = black | white;
+            final int nDisks = Long.bitCount(occupied);
+            if (nDisks <= maxDisks && (occupied & BitBoardUtils.CENTER_4) == BitBoardUtils.CENTER_4) {
+                final Board board = new Board(black, white, (nDisks & 1) == 0);
+                if (board.hasLegalMove()) {
+                    positions[nDisks].add(mr(board));
+                }
+            }
+        }
+        return positions;
+    }
+
+    private static MinimalReflection mr(Board board) {
+        return new MinimalReflection(board.mover(), board.enemy());
+    }
+}
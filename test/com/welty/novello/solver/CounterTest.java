@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+
+package com.welty.novello.solver;
+
+import com.welty.novello.core.Board;
+import com.welty.novello.core.Counts;
+import com.welty.novello.eval.Eval;
+import junit.framework.TestCase;
+
+public class CounterTest extends TestCase {
+    public void testEvalCache() {
+        final CountingEval eval = new CountingEval(true);
+        final Counter counter = new Counter(eval);
+        final Board board = Board.START_BOARD;
+        final Board next = board.play(Long.numberOfTrailingZeros(board.calcMoves()));
+
+        assertEquals(eval.value(board.mover(), board.enemy()), counter.eval(board.mover(), board.enemy()));
+        assertEquals(eval.value(board.mover(), board.enemy()), counter.eval(board.mover(), board.enemy()));
+        assertEquals(eval.value(next.mover(), next.enemy()), counter.eval(next.mover(), next.enemy()));
+        assertEquals(eval.value(board.mover(), board.enemy()), counter.eval(board.mover(), board.enemy()));
+
+        // mover/enemy swapped is a different position
+        assertEquals(eval.value(board.enemy(), board.mover()), counter.eval(board.enemy(), board.mover()));
+
+        assertEquals(3, eval.nCalls);
+        final Counts counts = counter.getNodeStats();
+        assertEquals(3, counts.nEvals);
+        assertEquals(2, counts.nEvalCacheHits);
+        assertEquals(0.4, counts.evalCacheHitRate(), 1e-9);
+    }
+
+    public void testUncacheableEval() {
+        final CountingEval eval = new CountingEval(false);
+        final Counter counter = new Counter(eval);
+        final Board board = Board.START_BOARD;
+        counter.eval(board.mover(), board.enemy());
+        counter.eval(board.mover(), board.enemy());
+
+        assertEquals(2, eval.nCalls);
+        assertEquals(0, counter.nEvalCacheHits());
+        assertEquals(0.0, counter.getNodeStats().evalCacheHitRate(), 0);
+    }
+
+    public void testEvalWithKnownMoves() {
+        final CountingEval eval = new CountingEval(true);
+        final Counter counter = new Counter(eval);
+        final Board board = Board.START_BOARD;
+        assertEquals(eval.value(board.mover(), board.enemy()), counter.eval(board.mover(), board.enemy(), board.calcMoves()));
+        assertEquals(1, eval.nCallsWithMoves);
+
+        // cached regardless of which overload stored it
+        assertEquals(eval.value(board.mover(), board.enemy()), counter.eval(board.mover(), board.enemy()));
+        assertEquals(1, eval.nCalls);
+        assertEquals(1, counter.nEvalCacheHits());
+    }
+
+    private static class CountingEval extends Eval {
+        private final boolean cacheable;
+        int nCalls;
+        int nCallsWithMoves;
+
+        CountingEval(boolean cacheable) {
+            this.cacheable = cacheable;
+        }
+
+        int value(long mover, long enemy) {
+            return (int) (mover % 1000 - enemy % 997);
+        }
+
+        @Override public int eval(long mover, long enemy) {
+            nCalls++;
+            return value(mover, enemy);
+        }
+
+        @Override public int eval(long mover, long enemy, long moverMoves) {
+            nCallsWithMoves++;
+            return eval(mover, enemy);
+        }
+
+        @Override public boolean isCacheable() {
+            return cacheable;
+        }
+    }
+}
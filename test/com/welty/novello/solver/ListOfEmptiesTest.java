@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.solver;
+
+import com.welty.novello.core.BitBoardUtils;
+import junit.framework.TestCase;
+
+/**
+ */
+public class ListOfEmptiesTest extends TestCase {
+    public void testReset() {
+        final ListOfEmpties empties = new ListOfEmpties();
+        // empties are A1 (corner, sq 63), B2 (x-square, sq 54), and D3 (sq 44)
+        final long emptyBits = (1L << 63) | (1L << 54) | (1L << 44);
+        empties.reset(~emptyBits, 0);
+        checkSquares(empties, 63, 44, 54);
+        assertEquals(1, BitBoardUtils.getBit(empties.calcParity(), 63));
+
+        empties.reset(-1L, 0);
+        assertEquals(0, empties.size);
+    }
+
+    public void testRemoveRestore() {
+        final ListOfEmpties empties = new ListOfEmpties();
+        final long emptyBits = (1L << 63) | (1L << 54) | (1L << 44) | (1L << 45);
+        empties.reset(~emptyBits, 0);
+        checkSquares(empties, 63, 44, 45, 54);
+
+        empties.remove(1);
+        checkSquares(empties, 63, 45, 54);
+        empties.remove(0);
+        checkSquares(empties, 45, 54);
+        empties.restore(0);
+        checkSquares(empties, 63, 45, 54);
+        empties.restore(1);
+        checkSquares(empties, 63, 44, 45, 54);
+    }
+
+    private static void checkSquares(ListOfEmpties empties, int... sqs) {
+        assertEquals(sqs.length, empties.size);
+        for (int i = 0; i < sqs.length; i++) {
+            assertEquals("[" + i + "]", sqs[i], empties.squares[i].sq);
+        }
+    }
+}
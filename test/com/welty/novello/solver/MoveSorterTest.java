@@ -27,7 +27,7 @@ public class MoveSorterTest extends BitBoardTestCase {
         final Counter counter = new Counter(Players.currentEval());
         final MoveSorter sorter = new MoveSorter(counter, new MidgameSearcher(counter));
 
-        sorter.insert(33, 10, 0x88, 0x404, null);
+        sorter.insert(33, 10, 0x88, 0x404, 0);
         assertEquals(1, sorter.size());
         final SorterMove sorterMove = sorter.sorterMoves[0];
         assertEquals(33, sorterMove.sq);
@@ -35,21 +35,21 @@ public class MoveSorterTest extends BitBoardTestCase {
         assertEquals(0x88, sorterMove.flips);
         assertEquals(0x404, sorterMove.enemyMoves);
 
-        sorter.insert(34, 11, 0, 0, null);
+        sorter.insert(34, 11, 0, 0, 0);
         checkSquares(sorter, 34, 33);
 
-        sorter.insert(35, 8, 0, 0, null);
+        sorter.insert(35, 8, 0, 0, 0);
         checkSquares(sorter, 34, 33, 35);
 
-        sorter.insert(36, 9, 0, 0, null);
+        sorter.insert(36, 9, 0, 0, 0);
         checkSquares(sorter, 34, 33, 36, 35);
 
         // duplicate score at end
-        sorter.insert(37, 8, 0, 0, null);
+        sorter.insert(37, 8, 0, 0, 0);
         checkSquares(sorter, 34, 33, 36, 35, 37);
 
         // duplicate score at start
-        sorter.insert(38, 11, 0, 0, null);
+        sorter.insert(38, 11, 0, 0, 0);
         checkSquares(sorter, 34, 38, 33, 36, 35, 37);
     }
 
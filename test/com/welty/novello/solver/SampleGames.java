@@ -46,6 +46,22 @@ public class SampleGames {
         return games;
     }
 
+    /**
+     * @return every position with 1 to 59 empties in the {@link #saioGames()}, in game order.
+     */
+    public static List<Board> saioBoards() {
+        final List<Board> boards = new ArrayList<>();
+        for (MutableGame game : saioGames()) {
+            for (int nEmpty = 59; nEmpty > 0; nEmpty--) {
+                final Board board = game.calcBoardAt(nEmpty);
+                if (board != null) {
+                    boards.add(board);
+                }
+            }
+        }
+        return boards;
+    }
+
     /**
      * @return 100 games (Zebra vs a very old ntest) that form Novello's standard speed test.
      */
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.solver;
+
+import junit.framework.TestCase;
+
+public class SearchMetricsTest extends TestCase {
+    public void testNestedSearchesOnOneThread() {
+        final SearchMetrics metrics = new SearchMetrics();
+        assertTrue(metrics.startSearch());
+        assertTrue(metrics.startSearch());
+        metrics.endSearch();
+        assertFalse(startSearchOnOtherThread(metrics));
+        metrics.endSearch();
+        assertTrue(startSearchOnOtherThread(metrics));
+    }
+
+    public void testSearchesOnTwoThreads() {
+        final SearchMetrics metrics = new SearchMetrics();
+        assertTrue(startSearchOnOtherThread(metrics));
+        // the other thread's search never ended
+        assertFalse(metrics.startSearch());
+    }
+
+    /**
+     * Start a search on another thread and wait for that thread to finish, without ending the search if it started.
+     *
+     * @return the result of startSearch() on the other thread
+     */
+    private static boolean startSearchOnOtherThread(final SearchMetrics metrics) {
+        final boolean[] result = new boolean[1];
+        final Thread thread = new Thread() {
+            @Override public void run() {
+                result[0] = metrics.startSearch();
+            }
+        };
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return result[0];
+    }
+}
@@ -98,8 +98,8 @@ public class SearchTimer {
         final Counts counts = midgameSearcher.getCounts().minus(c0);
         if (printStats) {
             final long nEvals = counts.nEvals;
-            System.out.format("[%d %3s] %,d ms elapsed. %s. %4.2f us/eval \n"
-                    , depth, mpc ? "mpc" : "", dt, counts, dt * 1e3 / nEvals);
+            System.out.format("[%d %3s] %,d ms elapsed. %s. %4.2f us/eval. %4.1f%% eval cache hits \n"
+                    , depth, mpc ? "mpc" : "", dt, counts, dt * 1e3 / nEvals, 100 * counts.evalCacheHitRate());
         }
         return counts.cost();
     }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.novello.solver;
+
+import com.welty.novello.core.BitBoardUtils;
+import com.welty.novello.core.Board;
+import com.welty.novello.core.Square;
+import com.welty.novello.eval.DiskEval;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ShallowSolverTest extends TestCase {
+    private static final int[][] WINDOWS = {{-64, 64}, {-1, 1}, {0, 1}, {-10, -2}, {2, 10}, {-64, -63}, {63, 64}};
+
+    public void testSolve4() {
+        checkSolver(4);
+    }
+
+    public void testSolve3() {
+        checkSolver(3);
+    }
+
+    /**
+     * Compare the nEmpty-square solver with a plain minimax solve on positions from random games, in every window.
+     * <p/>
+     * The positions include positions where the mover must pass and positions where neither player can move.
+     */
+    private static void checkSolver(int nEmpty) {
+        final Counter counter = new Counter(new DiskEval());
+        final ListOfEmpties empties = new ListOfEmpties();
+        final List<Board> boards = positions(nEmpty);
+        int nPasses = 0;
+        int nTerminal = 0;
+        for (Board board : boards) {
+            final long mover = board.mover();
+            final long enemy = board.enemy();
+            if (board.calcMoves() == 0) {
+                if (board.enemyMoves() == 0) {
+                    nTerminal++;
+                } else {
+                    nPasses++;
+                }
+            }
+            final int expected = minimax(board);
+            empties.reset(mover, enemy);
+            assertEquals(nEmpty, empties.size);
+            for (int[] window : WINDOWS) {
+                final int alpha = window[0];
+                final int beta = window[1];
+                final int actual = solve(counter, empties.squares, mover, enemy, alpha, beta, nEmpty);
+                final String message = board + " window (" + alpha + "," + beta + ")";
+                if (expected <= alpha) {
+                    assertTrue(message, actual <= alpha && actual >= expected);
+                } else if (expected >= beta) {
+                    assertTrue(message, actual >= beta && actual <= expected);
+                } else {
+                    assertEquals(message, expected, actual);
+                }
+            }
+        }
+        assertTrue(nPasses > 0);
+        assertTrue(nTerminal > 0);
+    }
+
+    private static int solve(Counter counter, Square[] squares, long mover, long enemy, int alpha, int beta, int nEmpty) {
+        if (nEmpty == 4) {
+            return ShallowSolver.solve4(counter, mover, enemy, alpha, beta, squares[0], squares[1], squares[2], squares[3]);
+        } else {
+            return ShallowSolver.solve3(counter, mover, enemy, alpha, beta, squares[0], squares[1], squares[2]);
+        }
+    }
+
+    /**
+     * @return positions with nEmpty empty squares from random games, plus a position where neither player can move
+     */
+    private static List<Board> positions(int nEmpty) {
+        final List<Board> positions = new ArrayList<>();
+        for (Board board : Board.randomGameBoards(new Random(1337), 3000)) {
+            if (board.nEmpty() == nEmpty) {
+                positions.add(board);
+            }
+        }
+        // the mover has all the disks, so neither player can move
+        final long empty = (1L << nEmpty) - 1;
+        positions.add(new Board(~empty, 0, true));
+        return positions;
+    }
+
+    /**
+     * @return exact value of the position to the mover, in disks, by plain minimax
+     */
+    private static int minimax(Board board) {
+        long moves = board.calcMoves();
+        if (moves == 0) {
+            if (board.enemyMoves() == 0) {
+                return BitBoardUtils.terminalScore(board.mover(), board.enemy());
+            }
+            return -minimax(board.pass());
+        }
+        int best = -65;
+        while (moves != 0) {
+            final int sq = Long.numberOfTrailingZeros(moves);
+            moves &= moves - 1;
+            best = Math.max(best, -minimax(board.play(sq)));
+        }
+        return best;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.ntestj;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class CoefficientSnapshotTest extends TestCase {
+    public void testRoundTrip() throws IOException {
+        final Path dir = Files.createTempDirectory("snapshot");
+        final Path path = dir.resolve("ntestJ.snapshot");
+        try {
+            final CEvaluatorJ original = new CEvaluatorJ();
+            assertNull(CoefficientSnapshot.read(path, 1234));
+
+            CoefficientSnapshot.write(path, original, 1234);
+            final CEvaluatorJ loaded = CoefficientSnapshot.read(path, 1234);
+            assertNotNull(loaded);
+            assertTrue(Arrays.deepEquals(original.pCoeffs, loaded.pCoeffs));
+            assertTrue(Arrays.deepEquals(original.getNovelloCoeffs(), loaded.getNovelloCoeffs()));
+
+            // slices that were shared are still shared, so evals can build derived tables once per slice
+            assertSame(loaded.pCoeffs[59], loaded.pCoeffs[57]);
+            assertSame(loaded.getNovelloCoeffs()[59], loaded.getNovelloCoeffs()[57]);
+
+            // a snapshot of different coefficient files is ignored
+            assertNull(CoefficientSnapshot.read(path, 1235));
+        } finally {
+            Files.deleteIfExists(path);
+            Files.delete(dir);
+        }
+    }
+}
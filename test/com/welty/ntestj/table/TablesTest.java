@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2014 Chris Welty.
+ *
+ * This is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License, version 3,
+ * as published by the Free Software Foundation.
+ *
+ * This file is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * For the license, see <http://www.gnu.org/licenses/gpl.html>.
+ */
+
+package com.welty.ntestj.table;
+
+import junit.framework.TestCase;
+
+import java.util.Map;
+
+public class TablesTest extends TestCase {
+    public void testInitialize() {
+        Tables.initialize();
+        final Map<String, Double> initMillis = Tables.getInitMillis();
+        assertEquals(13, initMillis.size());
+        for (double millis : initMillis.values()) {
+            assertTrue(millis >= 0);
+        }
+        assertTrue(Tables.report().contains("ConfigToPotMobTable"));
+
+        // second call is a no-op
+        Tables.initialize();
+        assertSame(initMillis, Tables.getInitMillis());
+    }
+
+    public void testNarrowedTables() {
+        for (short config2x4 : Configs2x5To2x4Table.configs2x5To2x4) {
+            assertTrue(config2x4 >= 0 && config2x4 < 6561);
+        }
+        // largest XX config: edge all 2s plus both X-squares 2
+        assertEquals(3 * 6560 + 2 + 3 * 6561 * 2, RowToXXTable.getConfig(6560, 6560));
+        for (byte[][] byLength : ConfigToPotMobTable.configToPotMob) {
+            for (byte[] potMobs : byLength) {
+                if (potMobs != null) {
+                    for (byte potMob : potMobs) {
+                        assertTrue(potMob >= 0 && potMob <= 8);
+                    }
+                }
+            }
+        }
+    }
+}